@@ -221,7 +221,7 @@ public final class C1XCompilation {
             targetMethod = emitCode();
 
             if (C1XOptions.PrintMetrics) {
-                C1XMetrics.BytecodesCompiled += method.code().length;
+                C1XMetrics.BytecodesCompiled.add(method.code().length);
             }
         } catch (CiBailout b) {
             return new CiResult(null, b, stats);
@@ -36,9 +36,10 @@ import com.sun.cri.xir.RiXirGenerator;
 import com.sun.cri.xir.XirTemplate;
 import com.sun.max.platform.*;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class implements the compiler interface for C1X.
@@ -47,7 +48,16 @@ public class C1XCompiler extends ObservableCompiler implements CiCompiler {
 
     public final IntrinsicImpl.Registry intrinsicRegistry = new IntrinsicImpl.Registry();
 
-    public final Map<Object, CompilerStub> stubs = new HashMap<Object, CompilerStub>();
+    /**
+     * The compiler stubs, keyed by {@link XirTemplate}, {@link CompilerStub.Id} or {@link CiRuntimeCall}.
+     * Stubs for runtime calls are created lazily, possibly by several concurrent compilations.
+     */
+    public final Map<Object, CompilerStub> stubs = new ConcurrentHashMap<Object, CompilerStub>();
+
+    /**
+     * Source of the sequence numbers printed by {@link C1XOptions#PrintCompilation}.
+     */
+    private final AtomicInteger compilationIndex = new AtomicInteger();
 
     /**
      * The target that this compiler has been configured for.
@@ -64,7 +74,7 @@ public class C1XCompiler extends ObservableCompiler implements CiCompiler {
      */
     public final RiXirGenerator xir;
 
-    private CompilationObserver cfgPrinterObserver;
+    private volatile CompilationObserver cfgPrinterObserver;
 
     /**
      * The backend that this compiler has been configured for.
@@ -93,7 +103,8 @@ public class C1XCompiler extends ObservableCompiler implements CiCompiler {
         }
 
         long startTime = 0;
-        int index = C1XMetrics.CompiledMethods++;
+        int index = compilationIndex.getAndIncrement();
+        C1XMetrics.CompiledMethods.increment();
         final boolean printCompilation = C1XOptions.PrintCompilation && !TTY.isSuppressed();
         if (printCompilation) {
             TTY.println(String.format("C1X %4d %-70s %-45s %-50s ...", index, method.holder().name(), method.name(), method.signature()));
@@ -183,8 +194,14 @@ public class C1XCompiler extends ObservableCompiler implements CiCompiler {
     public CompilerStub lookupStub(CiRuntimeCall runtimeCall) {
         CompilerStub stub = stubs.get(runtimeCall);
         if (stub == null) {
-            stub = backend.emit(runtimeCall);
-            stubs.put(runtimeCall, stub);
+            // serialize stub creation so that each runtime call gets exactly one stub
+            synchronized (stubs) {
+                stub = stubs.get(runtimeCall);
+                if (stub == null) {
+                    stub = backend.emit(runtimeCall);
+                    stubs.put(runtimeCall, stub);
+                }
+            }
         }
 
         assert stub != null : "could not find compiler stub for runtime call: " + runtimeCall;
@@ -22,63 +22,119 @@
  */
 package com.sun.c1x;
 
+import java.util.*;
+
 import com.oracle.max.criutils.*;
 
 
 /**
- * This class contains a number of fields that collect metrics about compilation, particularly
+ * This class contains a number of counters that collect metrics about compilation, particularly
  * the number of times certain optimizations are performed.
+ * <p>
+ * Several compilations may run concurrently, so each thread increments its own private set of
+ * counters. The per-thread counters are only summed when a metric is {@linkplain #get() read}
+ * or {@linkplain #print() printed}.
  */
-public class C1XMetrics {
-    public static int CompiledMethods;
-    public static int TargetMethods;
-    public static int LocalValueNumberHits;
-    public static int GlobalValueNumberHits;
-    public static int ValueMapResizes;
-    public static int InlinedFinalizerChecks;
-    public static int MethodsFolded;
-    public static int InlineForcedMethods;
-    public static int InlineForbiddenMethods;
-    public static int InlinedJsrs;
-    public static int NullCheckIterations;
-    public static int NullCheckEliminations;
-    public static int NullChecksRedundant;
-    public static int NullCheckIdsAssigned;
-    public static int ZeroChecksRedundant;
-    public static int DivideSpecialChecksRedundant;
-    public static int StoreCheckEliminations;
-    public static int BoundsChecksElminations;
-    public static int ConditionalEliminations;
-    public static int BlocksMerged;
-    public static int BlocksSkipped;
-    public static int BlocksDeleted;
-    public static int DeadCodeEliminated;
-    public static int ResolveCPEAttempts;
-    public static int BytecodesCompiled;
-    public static int CodeBytesEmitted;
-    public static int SafepointsEmitted;
-    public static int ExceptionHandlersEmitted;
-    public static int DataPatches;
-    public static int DirectCallSitesEmitted;
-    public static int IndirectCallSitesEmitted;
-    public static int HIRInstructions;
-    public static int LiveHIRInstructions;
-    public static int LIRInstructions;
-    public static int LIRVariables;
-    public static int LIRXIRInstructions;
-    public static int LIRMoveInstructions;
-    public static int LSRAIntervalsCreated;
-    public static int LSRASpills;
-    public static int LoadConstantIterations;
-    public static int CodeBufferCopies;
-    public static int UniqueValueIdsAssigned;
-    public static int RedundantConditionals;
-    public static int FrameStatesCreated;
-    public static int FrameStateValuesCreated;
+public enum C1XMetrics {
+    CompiledMethods,
+    TargetMethods,
+    LocalValueNumberHits,
+    GlobalValueNumberHits,
+    ValueMapResizes,
+    InlinedFinalizerChecks,
+    MethodsFolded,
+    InlineForcedMethods,
+    InlineForbiddenMethods,
+    InlinedJsrs,
+    NullCheckIterations,
+    NullCheckEliminations,
+    NullChecksRedundant,
+    NullCheckIdsAssigned,
+    ZeroChecksRedundant,
+    DivideSpecialChecksRedundant,
+    StoreCheckEliminations,
+    BoundsChecksElminations,
+    ConditionalEliminations,
+    BlocksMerged,
+    BlocksSkipped,
+    BlocksDeleted,
+    DeadCodeEliminated,
+    ResolveCPEAttempts,
+    BytecodesCompiled,
+    CodeBytesEmitted,
+    SafepointsEmitted,
+    ExceptionHandlersEmitted,
+    DataPatches,
+    DirectCallSitesEmitted,
+    IndirectCallSitesEmitted,
+    HIRInstructions,
+    LiveHIRInstructions,
+    LIRInstructions,
+    LIRVariables,
+    LIRXIRInstructions,
+    LIRMoveInstructions,
+    LSRAIntervalsCreated,
+    LSRASpills,
+    LoadConstantIterations,
+    CodeBufferCopies,
+    UniqueValueIdsAssigned,
+    RedundantConditionals,
+    FrameStatesCreated,
+    FrameStateValuesCreated;
 
-    public static void print() {
-        TTY.printFields(C1XMetrics.class);
+    /**
+     * The counter arrays of all threads that have recorded a metric, indexed by {@link #ordinal()}.
+     */
+    private static final List<long[]> threadCounters = new ArrayList<long[]>();
+
+    private static final ThreadLocal<long[]> counters = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            long[] result = new long[values().length];
+            synchronized (threadCounters) {
+                threadCounters.add(result);
+            }
+            return result;
+        }
+    };
 
+    /**
+     * Increments this metric for the current thread. This does nothing unless {@link C1XOptions#PrintMetrics} is
+     * set, so that the hot paths that record metrics do not pay for the thread local lookup.
+     */
+    public void increment() {
+        if (C1XOptions.PrintMetrics) {
+            counters.get()[ordinal()]++;
+        }
+    }
+
+    /**
+     * Adds {@code delta} to this metric for the current thread, if {@link C1XOptions#PrintMetrics} is set.
+     */
+    public void add(long delta) {
+        if (C1XOptions.PrintMetrics) {
+            counters.get()[ordinal()] += delta;
+        }
     }
-}
 
+    /**
+     * Gets the value of this metric summed over all threads.
+     */
+    public long get() {
+        long total = 0;
+        synchronized (threadCounters) {
+            for (long[] c : threadCounters) {
+                total += c[ordinal()];
+            }
+        }
+        return total;
+    }
+
+    public static void print() {
+        TTY.println(C1XMetrics.class.getSimpleName() + " {");
+        for (C1XMetrics metric : values()) {
+            TTY.println("    %35s = %d", metric.name(), metric.get());
+        }
+        TTY.println("}");
+    }
+}
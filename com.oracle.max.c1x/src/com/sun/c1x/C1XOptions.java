@@ -48,6 +48,7 @@ public final class C1XOptions {
 
     // intrinsification settings
     public static boolean OptIntrinsify                      = ____;
+    public static int     InlineArrayCopyLimit               = 8;
 
     // debugging settings
     public static boolean VerifyPointerMaps                  = ____;
@@ -22,11 +22,16 @@
  */
 package com.sun.c1x;
 
+import java.util.*;
+
 import com.oracle.max.criutils.*;
 
 /**
  * This class contains timers that record the amount of time spent in various
  * parts of the compiler.
+ * <p>
+ * Each thread records into its own start and total arrays so that concurrent compilations
+ * do not interfere with each other's measurements. The totals are merged when {@linkplain #print() printed}.
  */
 public enum C1XTimers {
     HIR_CREATE("Create HIR"),
@@ -41,31 +46,66 @@ public enum C1XTimers {
     INSTALL("Install");
 
     private final String name;
-    private long start;
-    private long total;
+
+    private static final int COUNT = values().length;
+
+    /**
+     * Per-thread timer state. The first half of the array holds start times, the second half the totals.
+     */
+    private static final ThreadLocal<long[]> times = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            long[] result = new long[COUNT * 2];
+            synchronized (threadTimes) {
+                threadTimes.add(result);
+            }
+            return result;
+        }
+    };
+
+    /**
+     * The timer arrays of all threads that have used a timer.
+     */
+    private static final List<long[]> threadTimes = new ArrayList<long[]>();
 
     C1XTimers(String name) {
         this.name = name;
     }
 
     public void start() {
-        start = System.nanoTime();
+        times.get()[ordinal()] = System.nanoTime();
     }
 
     public void stop() {
-        total += System.nanoTime() - start;
+        long[] t = times.get();
+        t[COUNT + ordinal()] += System.nanoTime() - t[ordinal()];
     }
 
     public static void reset() {
-        for (C1XTimers t : values()) {
-            t.total = 0;
+        synchronized (threadTimes) {
+            for (long[] t : threadTimes) {
+                Arrays.fill(t, 0L);
+            }
+        }
+    }
+
+    /**
+     * Gets the total time recorded by this timer, summed over all threads.
+     */
+    public long total() {
+        long total = 0;
+        synchronized (threadTimes) {
+            for (long[] t : threadTimes) {
+                total += t[COUNT + ordinal()];
+            }
         }
+        return total;
     }
 
     public static void print() {
         long total = 0;
         for (C1XTimers timer : C1XTimers.values()) {
-            total += timer.total;
+            total += timer.total();
         }
         if (total == 0) {
             return;
@@ -73,9 +113,10 @@ public enum C1XTimers {
 
         TTY.println();
         for (C1XTimers timer : C1XTimers.values()) {
-            TTY.println("%-20s: %7.4f s (%5.2f%%)", timer.name, timer.total / 1000000000.0, timer.total * 100.0 / total);
-            timer.total = 0;
+            long timerTotal = timer.total();
+            TTY.println("%-20s: %7.4f s (%5.2f%%)", timer.name, timerTotal / 1000000000.0, timerTotal * 100.0 / total);
         }
+        reset();
         TTY.println();
     }
 }
@@ -158,7 +158,7 @@ final class ControlFlowOptimizer {
 
                 // adjust successor and predecessor lists
                 ir.replaceBlock(block, newTarget);
-                C1XMetrics.BlocksDeleted++;
+                C1XMetrics.BlocksDeleted.increment();
             } else {
                 // adjust position of this block in the block list if blocks before
                 // have been deleted
@@ -29,6 +29,7 @@ import com.sun.c1x.util.Util;
 import com.sun.cri.ci.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -438,10 +439,22 @@ public final class Interval {
     private CiKind kind;
 
     /**
-     * The head of the list of ranges describing this interval. This list is sorted by {@linkplain LIRInstruction#id
-     * instruction ids}.
+     * The ranges describing this interval, stored as {@code (from, to)} pairs of {@linkplain LIRInstruction#id
+     * instruction ids} where {@code from} is inclusive and {@code to} is exclusive. Ranges are added while walking
+     * the instructions backwards, so the pairs are kept in <i>descending</i> order: the first (lowest) range of this
+     * interval is the last pair in the array and {@link #addRange} only ever appends.
      */
-    private Range first;
+    private int[] ranges;
+
+    /**
+     * The number of ranges for which space is reserved in a new interval.
+     */
+    private static final int INITIAL_RANGES_CAPACITY = 2;
+
+    /**
+     * The number of ranges in {@link #ranges}.
+     */
+    private int numRanges;
 
     /**
      * List of (use-positions, register-priorities) pairs, sorted by use-positions.
@@ -449,9 +462,10 @@ public final class Interval {
     private UsePosList usePosList;
 
     /**
-     * Iterator used to traverse the ranges of an interval.
+     * Index of the range at which the range iterator of this interval is positioned, or {@code -1} if the
+     * iterator is at the end of the ranges.
      */
-    private Range current;
+    private int currentRange;
 
     /**
      * Link to next interval in a sorted list of intervals that ends with {@link #EndMarker}.
@@ -463,8 +477,6 @@ public final class Interval {
      */
     State state;
 
-    private int cachedTo; // cached value: to of last range (-1: not cached)
-
     /**
      * The interval from which this one is derived. If this is a {@linkplain #isSplitParent() split parent}, it points
      * to itself.
@@ -558,20 +570,59 @@ public final class Interval {
         this.kind = kind;
     }
 
-    public Range first() {
-        return first;
+    /**
+     * Gets the number of ranges describing this interval.
+     */
+    public int numberOfRanges() {
+        return numRanges;
     }
 
+    /**
+     * Gets the start (inclusive) of the range at index {@code i}, where index 0 denotes the first range.
+     */
+    public int rangeFrom(int i) {
+        assert i >= 0 && i < numRanges;
+        return ranges[(numRanges - 1 - i) << 1];
+    }
+
+    /**
+     * Gets the end (exclusive) of the range at index {@code i}, where index 0 denotes the first range.
+     */
+    public int rangeTo(int i) {
+        assert i >= 0 && i < numRanges;
+        return ranges[((numRanges - 1 - i) << 1) + 1];
+    }
+
+    /**
+     * Gets the start of the first range of this interval or {@link Integer#MAX_VALUE} if it has no ranges.
+     */
     int from() {
-        return first.from;
+        return numRanges == 0 ? Integer.MAX_VALUE : ranges[(numRanges - 1) << 1];
     }
 
+    /**
+     * Gets the end of the last range of this interval.
+     */
     int to() {
-        if (cachedTo == -1) {
-            cachedTo = calcTo();
-        }
-        assert cachedTo == calcTo() : "invalid cached value";
-        return cachedTo;
+        assert numRanges != 0 : "interval has no range";
+        return ranges[1];
+    }
+
+    /**
+     * Gets the end of the first range of this interval or {@link Integer#MAX_VALUE} if it has no ranges.
+     */
+    int firstRangeTo() {
+        return numRanges == 0 ? Integer.MAX_VALUE : ranges[((numRanges - 1) << 1) + 1];
+    }
+
+    void setFirstRangeFrom(int from) {
+        assert numRanges != 0 : "interval has no range";
+        ranges[(numRanges - 1) << 1] = from;
+    }
+
+    void setFirstRangeTo(int to) {
+        assert numRanges != 0 : "interval has no range";
+        ranges[((numRanges - 1) << 1) + 1] = to;
     }
 
     int numUsePositions() {
@@ -661,41 +712,95 @@ public final class Interval {
 
     // test intersection
     boolean intersects(Interval i) {
-        return first.intersects(i.first);
+        return intersectsAt(i) != -1;
     }
 
     int intersectsAt(Interval i) {
-        return first.intersectsAt(i.first);
+        return intersectsAt(ranges, numRanges - 1, i.ranges, i.numRanges - 1);
+    }
+
+    /**
+     * Determines the first position at which two range lists intersect.
+     *
+     * @param r1 the ranges of the first interval
+     * @param i1 the index in {@code r1} of the range at which to start
+     * @param r2 the ranges of the second interval
+     * @param i2 the index in {@code r2} of the range at which to start
+     * @return the first intersecting position or -1 if the ranges do not intersect
+     */
+    private static int intersectsAt(int[] r1, int i1, int[] r2, int i2) {
+        assert i1 >= 0 && i2 >= 0 : "empty ranges not allowed";
+
+        do {
+            int from1 = r1[i1 << 1];
+            int to1 = r1[(i1 << 1) + 1];
+            int from2 = r2[i2 << 1];
+            int to2 = r2[(i2 << 1) + 1];
+            if (from1 < from2) {
+                if (to1 <= from2) {
+                    if (--i1 < 0) {
+                        return -1;
+                    }
+                } else {
+                    return from2;
+                }
+            } else {
+                if (from2 < from1) {
+                    if (to2 <= from1) {
+                        if (--i2 < 0) {
+                            return -1;
+                        }
+                    } else {
+                        return from1;
+                    }
+                } else { // from1 == from2
+                    if (from1 == to1) {
+                        if (--i1 < 0) {
+                            return -1;
+                        }
+                    } else {
+                        if (from2 == to2) {
+                            if (--i2 < 0) {
+                                return -1;
+                            }
+                        } else {
+                            return from1;
+                        }
+                    }
+                }
+            }
+        } while (true);
     }
 
     // range iteration
     void rewindRange() {
-        current = first;
+        currentRange = numRanges - 1;
     }
 
     void nextRange() {
         assert this != EndMarker : "not allowed on sentinel";
-        current = current.next;
+        assert currentRange >= 0 : "already at end";
+        currentRange--;
     }
 
     int currentFrom() {
-        return current.from;
+        return currentRange < 0 ? Integer.MAX_VALUE : ranges[currentRange << 1];
     }
 
     int currentTo() {
-        return current.to;
+        return currentRange < 0 ? Integer.MAX_VALUE : ranges[(currentRange << 1) + 1];
     }
 
     boolean currentAtEnd() {
-        return current == Range.EndMarker;
+        return currentRange < 0;
     }
 
     boolean currentIntersects(Interval it) {
-        return current.intersects(it.current);
+        return currentIntersectsAt(it) != -1;
     }
 
     int currentIntersectsAt(Interval it) {
-        return current.intersectsAt(it.current);
+        return intersectsAt(ranges, currentRange, it.ranges, it.currentRange);
     }
 
     /**
@@ -704,7 +809,7 @@ public final class Interval {
     static final Interval EndMarker = new Interval(CiValue.IllegalValue, -1);
 
     Interval(CiValue operand, int operandNumber) {
-        C1XMetrics.LSRAIntervalsCreated++;
+        C1XMetrics.LSRAIntervalsCreated.increment();
         assert operand != null;
         this.operand = operand;
         this.operandNumber = operandNumber;
@@ -714,27 +819,16 @@ public final class Interval {
             assert operand.isIllegal() || operand.isVariable();
         }
         this.kind = CiKind.Illegal;
-        this.first = Range.EndMarker;
+        this.ranges = new int[INITIAL_RANGES_CAPACITY << 1];
         this.usePosList = new UsePosList(4);
-        this.current = Range.EndMarker;
+        this.currentRange = -1;
         this.next = EndMarker;
-        this.cachedTo = -1;
         this.spillState = SpillState.NoDefinitionFound;
         this.spillDefinitionPos = -1;
         splitParent = this;
         currentSplitChild = this;
     }
 
-    int calcTo() {
-        assert first != Range.EndMarker : "interval has no range";
-
-        Range r = first;
-        while (r.next != Range.EndMarker) {
-            r = r.next;
-        }
-        return r.to;
-    }
-
     // consistency check of split-children
     boolean checkSplitChildren() {
         if (!splitChildren.isEmpty()) {
@@ -1002,17 +1096,23 @@ public final class Interval {
 
     void addRange(int from, int to) {
         assert from < to : "invalid range";
-        assert first() == Range.EndMarker || to < first().next.from : "not inserting at begin of interval";
-        assert from <= first().to : "not inserting at begin of interval";
+        assert numRanges < 2 || to < rangeFrom(1) : "not inserting at begin of interval";
+        assert from <= firstRangeTo() : "not inserting at begin of interval";
 
-        if (first.from <= to) {
-            assert first != Range.EndMarker;
+        if (from() <= to) {
             // join intersecting ranges
-            first.from = Math.min(from, first().from);
-            first.to = Math.max(to, first().to);
+            int index = (numRanges - 1) << 1;
+            ranges[index] = Math.min(from, ranges[index]);
+            ranges[index + 1] = Math.max(to, ranges[index + 1]);
         } else {
             // insert new range
-            first = new Range(from, to, first());
+            int index = numRanges << 1;
+            if (index == ranges.length) {
+                ranges = Arrays.copyOf(ranges, index << 1);
+            }
+            ranges[index] = from;
+            ranges[index + 1] = to;
+            numRanges++;
         }
     }
 
@@ -1057,27 +1157,30 @@ public final class Interval {
         // allocate new interval
         Interval result = newSplitChild(allocator);
 
-        // split the ranges
-        Range prev = null;
-        Range cur = first;
-        while (cur != Range.EndMarker && cur.to <= splitPos) {
-            prev = cur;
-            cur = cur.next;
+        // split the ranges: find the first range (i.e. the one with the highest index) that ends after splitPos
+        int cur = numRanges - 1;
+        while (cur >= 0 && ranges[(cur << 1) + 1] <= splitPos) {
+            cur--;
         }
-        assert cur != Range.EndMarker : "split interval after end of last range";
-
-        if (cur.from < splitPos) {
-            result.first = new Range(splitPos, cur.to, cur.next);
-            cur.to = splitPos;
-            cur.next = Range.EndMarker;
-
+        assert cur >= 0 : "split interval after end of last range";
+
+        // the ranges from index 0 up to and including 'cur' move to the new interval
+        result.ranges = Arrays.copyOf(ranges, Math.max((cur + 1) << 1, INITIAL_RANGES_CAPACITY << 1));
+        result.numRanges = cur + 1;
+        int remaining;
+        if (ranges[cur << 1] < splitPos) {
+            // the range containing splitPos is shared by both intervals
+            result.ranges[cur << 1] = splitPos;
+            ranges[(cur << 1) + 1] = splitPos;
+            remaining = cur;
         } else {
-            assert prev != null : "split before start of first range";
-            result.first = cur;
-            prev.next = Range.EndMarker;
+            assert cur < numRanges - 1 : "split before start of first range";
+            remaining = cur + 1;
         }
-        result.current = result.first;
-        cachedTo = -1; // clear cached value
+        numRanges -= remaining;
+        System.arraycopy(ranges, remaining << 1, ranges, 0, numRanges << 1);
+        currentRange = Math.max(currentRange - remaining, -1);
+        result.currentRange = result.numRanges - 1;
 
         // split list of use positions
         result.usePosList = usePosList.splitAt(splitPos);
@@ -1101,7 +1204,7 @@ public final class Interval {
     Interval splitFromStart(int splitPos, LinearScan allocator) {
         assert operand.isVariable() : "cannot split fixed intervals";
         assert splitPos > from() && splitPos < to() : "can only split inside interval";
-        assert splitPos > first.from && splitPos <= first.to : "can only split inside first range";
+        assert splitPos > from() && splitPos <= firstRangeTo() : "can only split inside first range";
         assert firstUsage(RegisterPriority.None) > splitPos : "can not split when use positions are present";
 
         // allocate new interval
@@ -1109,13 +1212,14 @@ public final class Interval {
 
         // the new interval has only one range (checked by assertion above,
         // so the splitting of the ranges is very simple
-        result.addRange(first.from, splitPos);
+        result.addRange(from(), splitPos);
 
-        if (splitPos == first.to) {
-            assert first.next != Range.EndMarker : "must not be at end";
-            first = first.next;
+        if (splitPos == firstRangeTo()) {
+            assert numRanges > 1 : "must not be at end";
+            numRanges--;
+            currentRange = Math.min(currentRange, numRanges - 1);
         } else {
-            first.from = splitPos;
+            setFirstRangeFrom(splitPos);
         }
 
         return result;
@@ -1123,18 +1227,20 @@ public final class Interval {
 
     // returns true if the opId is inside the interval
     boolean covers(int opId, LIRInstruction.OperandMode mode) {
-        Range cur = first;
+        int cur = numRanges - 1;
 
-        while (cur != Range.EndMarker && cur.to < opId) {
-            cur = cur.next;
+        while (cur >= 0 && ranges[(cur << 1) + 1] < opId) {
+            cur--;
         }
-        if (cur != Range.EndMarker) {
-            assert cur.to != cur.next.from : "ranges not separated";
+        if (cur >= 0) {
+            int from = ranges[cur << 1];
+            int to = ranges[(cur << 1) + 1];
+            assert cur == 0 || to != ranges[(cur - 1) << 1] : "ranges not separated";
 
             if (mode == LIRInstruction.OperandMode.Output) {
-                return cur.from <= opId && opId < cur.to;
+                return from <= opId && opId < to;
             } else {
-                return cur.from <= opId && opId <= cur.to;
+                return from <= opId && opId <= to;
             }
         }
         return false;
@@ -1146,28 +1252,27 @@ public final class Interval {
         assert holeFrom < holeTo : "check";
         assert from() <= holeFrom && holeTo <= to() : "index out of interval";
 
-        Range cur = first;
-        while (cur != Range.EndMarker) {
-            assert cur.to < cur.next.from : "no space between ranges";
+        for (int cur = numRanges - 1; cur >= 0; cur--) {
+            int from = ranges[cur << 1];
+            int to = ranges[(cur << 1) + 1];
+            assert cur == 0 || to < ranges[(cur - 1) << 1] : "no space between ranges";
 
             // hole-range starts before this range . hole
-            if (holeFrom < cur.from) {
+            if (holeFrom < from) {
                 return true;
 
                 // hole-range completely inside this range . no hole
             } else {
-                if (holeTo <= cur.to) {
+                if (holeTo <= to) {
                     return false;
 
                     // overlapping of hole-range with this range . hole
                 } else {
-                    if (holeFrom <= cur.to) {
+                    if (holeFrom <= to) {
                         return true;
                     }
                 }
             }
-
-            cur = cur.next;
         }
 
         return false;
@@ -1177,7 +1282,7 @@ public final class Interval {
     public String toString() {
         String from = "?";
         String to = "?";
-        if (first != null && first != Range.EndMarker) {
+        if (numRanges != 0) {
             from = String.valueOf(from());
             to = String.valueOf(to());
         }
@@ -1219,14 +1324,11 @@ public final class Interval {
         buf.append("} ranges{");
 
         // print ranges
-        Range cur = first;
-        while (cur != Range.EndMarker) {
-            if (cur != first) {
+        for (int i = 0; i < numRanges; i++) {
+            if (i != 0) {
                 buf.append(", ");
             }
-            buf.append(cur);
-            cur = cur.next;
-            assert cur != null : "range list not closed with range sentinel";
+            buf.append('[').append(rangeFrom(i)).append(", ").append(rangeTo(i)).append(']');
         }
         buf.append("} uses{");
 
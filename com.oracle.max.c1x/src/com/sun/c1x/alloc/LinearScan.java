@@ -968,11 +968,10 @@ public final class LinearScan {
                 interval.setKind(kind);
             }
 
-            Range r = interval.first();
-            if (r.from <= defPos) {
+            if (interval.from() <= defPos) {
                 // Update the starting point (when a range is first created for a use, its
                 // start is the beginning of the current block until a def is encountered.)
-                r.from = defPos;
+                interval.setFirstRangeFrom(defPos);
                 interval.addUsePos(defPos, registerPriority);
 
             } else {
@@ -1200,9 +1199,27 @@ public final class LinearScan {
         }
     }
 
+    /**
+     * Adds a use for each live value of a frame state, treating them as temp values at the instruction
+     * denoted by {@code opId}. A single instance is reused for all instructions to keep
+     * {@link #buildIntervals()} from allocating a closure per instruction.
+     */
+    private final class DebugInfoUseRecorder implements ValueProcedure {
+        int blockFrom;
+        int opId;
+
+        public void doValue(Value value) {
+            CiValue operand = value.operand();
+            if (operand.isVariableOrRegister()) {
+                addUse(operand, blockFrom, opId + 1, RegisterPriority.None, null);
+            }
+        }
+    }
+
     void buildIntervals() {
         intervalsSize = operands.size();
         intervals = new Interval[intervalsSize + INITIAL_SPLIT_INTERVALS_CAPACITY];
+        final DebugInfoUseRecorder debugInfoUses = new DebugInfoUseRecorder();
 
         // create a list with all caller-save registers (cpu, fpu, xmm)
         RiRegisterConfig registerConfig = compilation.registerConfig;
@@ -1289,10 +1306,9 @@ public final class LinearScan {
                     Interval interval = addUse(operand, blockFrom, opId, p, null);
 
                     if (interval != null && op instanceof LIRXirInstruction) {
-                        Range range = interval.first();
                         // (tw) Increase range by 1 in order to overlap the input with the temp and the output operand.
-                        if (range.to == opId) {
-                            range.to++;
+                        if (interval.firstRangeTo() == opId) {
+                            interval.setFirstRangeTo(opId + 1);
                         }
                     }
                 }
@@ -1303,15 +1319,9 @@ public final class LinearScan {
                 // to a call site, the value would be in a register at the call otherwise)
                 LIRDebugInfo info = op.info;
                 if (info != null) {
-                    info.state.forEachLiveStateValue(new ValueProcedure() {
-
-                        public void doValue(Value value) {
-                            CiValue operand = value.operand();
-                            if (operand.isVariableOrRegister()) {
-                                addUse(operand, blockFrom, opId + 1, RegisterPriority.None, null);
-                            }
-                        }
-                    });
+                    debugInfoUses.blockFrom = blockFrom;
+                    debugInfoUses.opId = opId;
+                    info.state.forEachLiveStateValue(debugInfoUses);
                 }
 
                 // special steps for some instructions (especially moves)
@@ -2326,7 +2336,7 @@ public final class LinearScan {
             C1XTimers.DEBUG_INFO.start();
         }
 
-        C1XMetrics.LSRASpills += maxSpills - frameMap.initialSpillSlot();
+        C1XMetrics.LSRASpills.add(maxSpills - frameMap.initialSpillSlot());
 
         // fill in number of spill slots into frameMap
         frameMap.finalizeFrame(maxSpills);
@@ -2476,14 +2486,14 @@ public final class LinearScan {
                 throw new CiBailout("");
             }
 
-            if (i1.first() == Range.EndMarker) {
+            if (i1.numberOfRanges() == 0) {
                 TTY.println("Interval %d has no Range", i1.operandNumber);
                 TTY.println(i1.logString(this));
                 throw new CiBailout("");
             }
 
-            for (Range r = i1.first(); r != Range.EndMarker; r = r.next) {
-                if (r.from >= r.to) {
+            for (int r = 0; r < i1.numberOfRanges(); r++) {
+                if (i1.rangeFrom(r) >= i1.rangeTo(r)) {
                     TTY.println("Interval %d has zero length range", i1.operandNumber);
                     TTY.println(i1.logString(this));
                     throw new CiBailout("");
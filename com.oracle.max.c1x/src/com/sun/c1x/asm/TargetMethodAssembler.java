@@ -71,11 +71,11 @@ public class TargetMethodAssembler {
         }
 
         if (C1XOptions.PrintMetrics) {
-            C1XMetrics.TargetMethods++;
-            C1XMetrics.CodeBytesEmitted += targetMethod.targetCodeSize();
-            C1XMetrics.SafepointsEmitted += targetMethod.safepoints.size();
-            C1XMetrics.DataPatches += targetMethod.dataReferences.size();
-            C1XMetrics.ExceptionHandlersEmitted += targetMethod.exceptionHandlers.size();
+            C1XMetrics.TargetMethods.increment();
+            C1XMetrics.CodeBytesEmitted.add(targetMethod.targetCodeSize());
+            C1XMetrics.SafepointsEmitted.add(targetMethod.safepoints.size());
+            C1XMetrics.DataPatches.add(targetMethod.dataReferences.size());
+            C1XMetrics.ExceptionHandlersEmitted.add(targetMethod.exceptionHandlers.size());
         }
 
         if (C1XOptions.PrintAssembly && !TTY.isSuppressed() && !isStub) {
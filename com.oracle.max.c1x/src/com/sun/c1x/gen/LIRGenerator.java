@@ -203,7 +203,7 @@ public abstract class LIRGenerator extends ValueVisitor {
 
         // mark the liveness of all instructions if it hasn't already been done by the optimizer
         LivenessMarker livenessMarker = new LivenessMarker(ir);
-        C1XMetrics.LiveHIRInstructions += livenessMarker.liveCount();
+        C1XMetrics.LiveHIRInstructions.add(livenessMarker.liveCount());
     }
 
     public ArrayList<DeoptimizationStub> deoptimizationStubs() {
@@ -1396,10 +1396,10 @@ public abstract class LIRGenerator extends ValueVisitor {
         // XXX: linear search might be kind of slow for big basic blocks
         int index = constants.indexOf(c);
         if (index != -1) {
-            C1XMetrics.LoadConstantIterations += index;
+            C1XMetrics.LoadConstantIterations.add(index);
             return variablesForConstants.get(index);
         }
-        C1XMetrics.LoadConstantIterations += constants.size();
+        C1XMetrics.LoadConstantIterations.add(constants.size());
 
         CiVariable result = newVariable(kind);
         lir.move(c, result);
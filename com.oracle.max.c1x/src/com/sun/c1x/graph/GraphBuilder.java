@@ -1181,7 +1181,7 @@ public final class GraphBuilder {
             FrameState stateBefore = curState.immutableCopy(bci());
             append(new Intrinsic(CiKind.Void, C1XIntrinsic.java_lang_Object$init,
                                  null, curState.popArguments(1), false, stateBefore, true, true));
-            C1XMetrics.InlinedFinalizerChecks++;
+            C1XMetrics.InlinedFinalizerChecks.increment();
         }
     }
 
@@ -1385,7 +1385,7 @@ public final class GraphBuilder {
             // look in the local value map
             Value r = localValueMap.findInsert(x);
             if (r != x) {
-                C1XMetrics.LocalValueNumberHits++;
+                C1XMetrics.LocalValueNumberHits.increment();
                 if (r instanceof Instruction) {
                     assert ((Instruction) r).isAppended() : "instruction " + r + "is not appended";
                 }
@@ -1477,7 +1477,7 @@ public final class GraphBuilder {
         // continuation is in work list, so end iteration of current block
         skipBlock = true;
         popScopeForJsr();
-        C1XMetrics.InlinedJsrs++;
+        C1XMetrics.InlinedJsrs.increment();
         return true;
     }
 
@@ -1542,6 +1542,9 @@ public final class GraphBuilder {
             if (tryInlineIntrinsicId(resolvedTarget, args, isStatic)) {
                 return true;
             }
+            if (tryInlineArrayCopy(resolvedTarget, args)) {
+                return true;
+            }
 
             if (C1XOptions.OptIntrinsify && resolvedTarget.canIntrinsify()) {
                 // try to create an intrinsic node instead of a call
@@ -1561,6 +1564,73 @@ public final class GraphBuilder {
         return false;
     }
 
+    /**
+     * Expands a call to {@link System#arraycopy} whose positions and length are small constants into
+     * element loads and stores. Only copies between arrays of the same declared primitive array type
+     * are expanded, so no store checks or write barriers are needed. All elements are loaded before
+     * any is stored, which gives the overlapping-copy semantics of {@code arraycopy}, and the stores
+     * are emitted from the highest index down so that an out-of-bounds destination traps before
+     * anything is written.
+     */
+    private boolean tryInlineArrayCopy(RiResolvedMethod target, Value[] args) {
+        int limit = C1XOptions.InlineArrayCopyLimit;
+        if (limit <= 0 || C1XIntrinsic.getIntrinsic(target) != C1XIntrinsic.java_lang_System$arraycopy) {
+            return false;
+        }
+        Value src = args[0];
+        Value srcPos = args[1];
+        Value dest = args[2];
+        Value destPos = args[3];
+        Value length = args[4];
+        if (!srcPos.isConstant() || !destPos.isConstant() || !length.isConstant()) {
+            return false;
+        }
+        int count = length.asConstant().asInt();
+        int srcStart = srcPos.asConstant().asInt();
+        int destStart = destPos.asConstant().asInt();
+        if (count <= 0 || count > limit || srcStart < 0 || destStart < 0 || srcStart > Integer.MAX_VALUE - count || destStart > Integer.MAX_VALUE - count) {
+            return false;
+        }
+        RiResolvedType srcType = src.declaredType();
+        RiResolvedType destType = dest.declaredType();
+        if (srcType == null || srcType != destType || !srcType.isArrayClass()) {
+            return false;
+        }
+        CiKind kind = srcType.componentType().kind(true);
+        if (!kind.isPrimitive()) {
+            return false;
+        }
+        if (kind == CiKind.Boolean) {
+            // boolean arrays are accessed as byte arrays (see BALOAD and BASTORE)
+            kind = CiKind.Byte;
+        }
+
+        if (C1XOptions.PrintInlinedIntrinsics) {
+            TTY.println("Inlining array copy of " + count + " elements");
+        }
+
+        // every access traps with the state before the call
+        for (int i = 0; i < args.length; ++i) {
+            curState.push(args[i].kind.stackKind(), args[i]);
+        }
+        FrameState stateBefore = curState.immutableCopy(bci());
+        curState.popArguments(args.length);
+
+        append(new NullCheck(dest, stateBefore));
+        Value[] elements = new Value[count];
+        for (int i = count - 1; i >= 0; i--) {
+            elements[i] = append(new LoadIndexed(src, appendConstant(CiConstant.forInt(srcStart + i)), kind, stateBefore));
+        }
+        for (int i = count - 1; i >= 0; i--) {
+            append(new StoreIndexed(dest, appendConstant(CiConstant.forInt(destStart + i)), kind, elements[i], stateBefore));
+            if (memoryMap != null) {
+                memoryMap.storeValue(elements[i]);
+            }
+        }
+        stats.intrinsicCount++;
+        return true;
+    }
+
     private boolean tryInlineIntrinsic(RiResolvedMethod target, Value[] args, boolean isStatic, C1XIntrinsic intrinsic) {
         boolean preservesState = true;
         boolean canTrap = false;
@@ -1761,7 +1831,7 @@ public final class GraphBuilder {
                     throw new CiBailout("Cannot recursively inline method that is force-inlined: " + target);
                 }
             }
-            C1XMetrics.InlineForcedMethods++;
+            C1XMetrics.InlineForcedMethods.increment();
         }
         if (forcedInline || checkInliningConditions(target)) {
             if (C1XOptions.TraceBytecodeParserLevel > 0) {
@@ -1818,7 +1888,7 @@ public final class GraphBuilder {
             return cannotInline(target, "compilation already too big " + "(" + compilation.stats.nodeCount + " nodes)");
         }
         if (compilation.runtime.mustNotInline(target)) {
-            C1XMetrics.InlineForbiddenMethods++;
+            C1XMetrics.InlineForbiddenMethods.increment();
             return cannotInline(target, "inlining excluded by runtime");
         }
         if (compilation.runtime.mustNotCompile(target)) {
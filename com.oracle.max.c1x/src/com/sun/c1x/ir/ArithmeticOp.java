@@ -54,13 +54,13 @@ public final class ArithmeticOp extends Op2 {
             if (y.isConstant()) {
                 long divisor = y.asConstant().asLong();
                 if (divisor != 0) {
-                    C1XMetrics.ZeroChecksRedundant++;
+                    C1XMetrics.ZeroChecksRedundant.increment();
                     setFlag(Flag.NoZeroCheck);
                 } else {
                     this.stateBefore = stateBefore;
                 }
                 if (divisor != -1) {
-                    C1XMetrics.DivideSpecialChecksRedundant++;
+                    C1XMetrics.DivideSpecialChecksRedundant.increment();
                     setFlag(Flag.NoDivSpecialCase);
                 }
             } else {
@@ -67,7 +67,7 @@ public abstract class Instruction extends Value {
      */
     public Instruction(CiKind kind) {
         super(kind);
-        C1XMetrics.HIRInstructions++;
+        C1XMetrics.HIRInstructions.increment();
     }
 
     /**
@@ -165,11 +165,11 @@ public abstract class Value {
             setFlag(flag);
             runtimeCheckCleared();
             if (flag == NoNullCheck) {
-                C1XMetrics.NullCheckEliminations++;
+                C1XMetrics.NullCheckEliminations.increment();
             } else if (flag == NoBoundsCheck) {
-                C1XMetrics.BoundsChecksElminations++;
+                C1XMetrics.BoundsChecksElminations.increment();
             } else if (flag == NoStoreCheck) {
-                C1XMetrics.StoreCheckEliminations++;
+                C1XMetrics.StoreCheckEliminations.increment();
             } else if (flag != NoZeroCheck) {
                 throw new InternalError("Unknown runtime check: " + flag);
             }
@@ -397,7 +397,7 @@ public abstract class Value {
      */
     public int id() {
         if (id == 0) {
-            C1XMetrics.UniqueValueIdsAssigned++;
+            C1XMetrics.UniqueValueIdsAssigned.increment();
             id = C1XCompilation.compilation().nextID();
         }
         return id;
@@ -185,10 +185,10 @@ public abstract class LIRInstruction {
         allocatorOperands = new ArrayList<CiValue>(operandsSize + 3);
         this.result = initOutput(result);
 
-        C1XMetrics.LIRInstructions++;
+        C1XMetrics.LIRInstructions.increment();
 
         if (opcode == LIROpcode.Move) {
-            C1XMetrics.LIRMoveInstructions++;
+            C1XMetrics.LIRMoveInstructions.increment();
         }
         id = -1;
         this.operands = new LIROperand[operandsSize];
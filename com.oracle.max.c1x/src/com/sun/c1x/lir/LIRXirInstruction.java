@@ -69,7 +69,7 @@ public class LIRXirInstruction extends LIRInstruction {
         this.tempCount = tempCount;
         this.inputCount = operands.length - inputTempCount - tempCount;
 
-        C1XMetrics.LIRXIRInstructions++;
+        C1XMetrics.LIRXIRInstructions.increment();
     }
 
     public CiValue[] getOperands() {
@@ -21,6 +21,7 @@
 package com.sun.c1x.observer;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Base class for compilers that notify subscribed {@link CompilationObserver CompilationObservers} of
@@ -28,7 +29,11 @@ import java.util.*;
  */
 public class ObservableCompiler {
 
-    private List<CompilationObserver> observers;
+    /**
+     * The subscribed observers. A copy-on-write list is used as observers may be added
+     * while other threads are iterating over the list to notify them.
+     */
+    private volatile List<CompilationObserver> observers;
 
     /**
      * @return {@code true} if one or more observers are subscribed to receive notifications from this compiler,
@@ -43,18 +48,19 @@ public class ObservableCompiler {
      *
      * @param observer The observer to add.
      */
-    public void addCompilationObserver(CompilationObserver observer) {
+    public synchronized void addCompilationObserver(CompilationObserver observer) {
         assert observer != null;
 
         if (observers == null) {
-            observers = new LinkedList<CompilationObserver>();
+            observers = new CopyOnWriteArrayList<CompilationObserver>();
         }
         observers.add(observer);
     }
 
     public void fireCompilationStarted(CompilationEvent event) {
-        if (isObserved()) {
-            for (CompilationObserver observer : observers) {
+        List<CompilationObserver> list = observers;
+        if (list != null) {
+            for (CompilationObserver observer : list) {
                 assert observer != null;
                 observer.compilationStarted(event);
             }
@@ -62,16 +68,18 @@ public class ObservableCompiler {
     }
 
     public void fireCompilationEvent(CompilationEvent event) {
-        if (isObserved()) {
-            for (CompilationObserver observer : observers) {
+        List<CompilationObserver> list = observers;
+        if (list != null) {
+            for (CompilationObserver observer : list) {
                 observer.compilationEvent(event);
             }
         }
     }
 
     public void fireCompilationFinished(CompilationEvent event) {
-        if (isObserved()) {
-            for (CompilationObserver observer : observers) {
+        List<CompilationObserver> list = observers;
+        if (list != null) {
+            for (CompilationObserver observer : list) {
                 observer.compilationFinished(event);
             }
         }
@@ -82,7 +90,7 @@ public class ObservableCompiler {
      *
      * @param observer The observer to remove.
      */
-    public void removeCompilationObserver(CompilationObserver observer) {
+    public synchronized void removeCompilationObserver(CompilationObserver observer) {
         if (observers != null) {
             observers.remove(observer);
             if (observers.size() == 0) {
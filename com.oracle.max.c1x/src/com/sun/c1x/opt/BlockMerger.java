@@ -56,7 +56,7 @@ public class BlockMerger implements BlockClosure {
                 if (sux.numberOfPreds() == 1) {
                     // the successor has only one predecessor, merge it into this block
                     mergeBlocks(block, sux, end);
-                    C1XMetrics.BlocksMerged++;
+                    C1XMetrics.BlocksMerged.increment();
                     continue;
                 } else if (C1XOptions.OptBlockSkipping && block.next() == end && !block.isExceptionEntry()) {
                     // the successor has multiple predecessors, but this block is empty
@@ -102,7 +102,7 @@ public class BlockMerger implements BlockClosure {
             }
         }
         ir.replaceBlock(block, sux);
-        C1XMetrics.BlocksSkipped++;
+        C1XMetrics.BlocksSkipped.increment();
     }
 
     private void mergeBlocks(BlockBegin block, BlockBegin sux, BlockEnd oldEnd) {
@@ -173,7 +173,7 @@ public class CEEliminator implements BlockClosure {
         if (tValue == fValue) {
             // conditional chooses the same value regardless
             result = tValue;
-            C1XMetrics.RedundantConditionals++;
+            C1XMetrics.RedundantConditionals.increment();
         } else {
             // it is very unlikely that the condition can be statically decided
             // (this was checked previously by the Canonicalizer), so always
@@ -216,7 +216,7 @@ public class CEEliminator implements BlockClosure {
             subst.setSubst(suxPhi, result);
 
             // 3) successfully eliminated a conditional expression
-            C1XMetrics.ConditionalEliminations++;
+            C1XMetrics.ConditionalEliminations.increment();
         }
     }
 
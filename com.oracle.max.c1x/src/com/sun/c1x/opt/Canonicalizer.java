@@ -1499,7 +1499,7 @@ public class Canonicalizer extends DefaultValueVisitor {
             }
             CiConstant result = runtime.fold(method, constantArgs);
             if (result != null) {
-                C1XMetrics.MethodsFolded++;
+                C1XMetrics.MethodsFolded.increment();
             }
             return result;
         }
@@ -83,7 +83,7 @@ public class GlobalValueNumberer {
                 // attempt value numbering
                 Instruction f = currentMap.findInsert(instr);
                 if (f != instr) {
-                    C1XMetrics.GlobalValueNumberHits++;
+                    C1XMetrics.GlobalValueNumberHits.increment();
                     assert !subst.hasSubst(f) : "can't have a substitution";
                     subst.setSubst(instr, f);
                 }
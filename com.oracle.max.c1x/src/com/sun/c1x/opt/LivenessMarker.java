@@ -88,7 +88,7 @@ public final class LivenessMarker {
                         prev.resetNext(i); // skip any previous dead instructions
                         prev = i;
                     } else {
-                        C1XMetrics.DeadCodeEliminated++;
+                        C1XMetrics.DeadCodeEliminated.increment();
                     }
                     i = i.next();
                 }
@@ -234,7 +234,7 @@ public class NullCheckEliminator extends DefaultValueVisitor {
         // calculate the {in} sets
         if (remainingUses.size() > 0) {
             // only perform iterative flow analysis if there are checks remaining to eliminate
-            C1XMetrics.NullCheckIterations++;
+            C1XMetrics.NullCheckIterations.increment();
             clearMarked();
             // start off by propagating a new set to the start block
             propagate(getBlockInfo(ir.startBlock), newBitMap(), ir.startBlock);
@@ -518,7 +518,7 @@ public class NullCheckEliminator extends DefaultValueVisitor {
         if (info instanceof ValueInfo) {
             return (ValueInfo) info;
         }
-        C1XMetrics.NullCheckIdsAssigned++;
+        C1XMetrics.NullCheckIdsAssigned.increment();
         ValueInfo ninfo = new ValueInfo(value, maximumIndex++);
         value.optInfo = ninfo;
         valueInfos.add(ninfo);
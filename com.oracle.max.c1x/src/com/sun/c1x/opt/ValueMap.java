@@ -124,7 +124,7 @@ public class ValueMap {
     }
 
     private void resize() {
-        C1XMetrics.ValueMapResizes++;
+        C1XMetrics.ValueMapResizes.increment();
         Link[] ntable = new Link[table.length * 3 + 4];
         if (parent != null) {
             // first add all the parent's entries by cloning them
@@ -95,8 +95,8 @@ public abstract class FrameState {
         this.bci = bci;
         this.values = new Value[maxLocals + Math.max(maxStack, MINIMUM_STACK_SLOTS)];
         this.maxLocals = maxLocals;
-        C1XMetrics.FrameStatesCreated++;
-        C1XMetrics.FrameStateValuesCreated += this.values.length;
+        C1XMetrics.FrameStatesCreated.increment();
+        C1XMetrics.FrameStateValuesCreated.add(this.values.length);
         assert bci < 0 || bci <= irScope.method.codeSize();
     }
 
@@ -89,6 +89,27 @@ public class LinuxNativeTeleChannelProtocol extends UnixNativeTeleChannelProtoco
         return leaderTask.readBytes(src, dst.array(), false, dst.arrayOffset() + dstOffset, length);
     }
 
+    /**
+     * @see LinuxTask#readPages(long[], ByteBuffer[], int, int)
+     */
+    public int readPages(long[] addresses, ByteBuffer[] buffers, int count, int pageSize) {
+        return leaderTask.readPages(addresses, buffers, count, pageSize);
+    }
+
+    /**
+     * @see LinuxTask#clearSoftDirty()
+     */
+    public boolean clearSoftDirty() {
+        return leaderTask.clearSoftDirty();
+    }
+
+    /**
+     * @see LinuxTask#readSoftDirty(long[], int, boolean[])
+     */
+    public boolean readSoftDirty(long[] indices, int count, boolean[] dirty) {
+        return leaderTask.readSoftDirty(indices, count, dirty);
+    }
+
     @Override
     public int writeBytes(long dst, byte[] src, int srcOffset, int length) {
         return leaderTask.writeBytes(dst, src, false, srcOffset, length);
@@ -25,6 +25,7 @@ package com.sun.max.tele.debug.linux;
 import java.awt.*;
 import java.io.*;
 import java.nio.*;
+import java.util.*;
 import java.util.concurrent.locks.*;
 
 import com.sun.max.*;
@@ -374,6 +375,136 @@ public final class LinuxTask {
         });
     }
 
+    private static native int nativeReadPages(int tgid, long[] addresses, ByteBuffer[] buffers, int count, int pageSize);
+
+    /**
+     * Copies whole pages from the tele process into {@linkplain ByteBuffer#isDirect() direct ByteBuffer}s
+     * with a single vectored read.
+     *
+     * @param addresses the page aligned addresses in the tele process to copy from
+     * @param buffers the destinations of the copy operation
+     * @param count the number of pages to copy
+     * @param pageSize the size of a page
+     * @return the number of pages copied, starting with the first, or -1 if vectored reads are not supported
+     */
+    public int readPages(final long[] addresses, final ByteBuffer[] buffers, final int count, final int pageSize) {
+        if (!isLeader()) {
+            return leader().readPages(addresses, buffers, count, pageSize);
+        }
+        return execute(new Function<Integer>() {
+            public Integer call() throws Exception {
+                return nativeReadPages(tgid, addresses, buffers, count, pageSize);
+            }
+        });
+    }
+
+    private static native boolean nativeSoftDirtySupported();
+
+    private static final long PAGEMAP_PRESENT = 1L << 63;
+    private static final long PAGEMAP_SWAPPED = 1L << 62;
+    private static final long PAGEMAP_SOFT_DIRTY = 1L << 55;
+
+    /**
+     * The file in /proc through which the page table entries of this task can be read, or {@code null} if soft-dirty
+     * tracking has not been {@linkplain #clearSoftDirty() started} or is not supported.
+     */
+    private RandomAccessFile pagemap;
+
+    private boolean softDirtyUnsupported;
+
+    /**
+     * Clears the soft-dirty bits of all the pages of the tele process, after which a page written by the process is
+     * reported as dirty by {@link #readSoftDirty}. See the "Soft-Dirty PTEs" document of the Linux kernel.
+     *
+     * @return {@code false} if soft-dirty bits are not supported by the kernel
+     */
+    public boolean clearSoftDirty() {
+        if (!isLeader()) {
+            return leader().clearSoftDirty();
+        }
+        return execute(new Function<Boolean>() {
+            public Boolean call() throws Exception {
+                if (softDirtyUnsupported) {
+                    return false;
+                }
+                try {
+                    if (pagemap == null) {
+                        // Without kernel support, the soft-dirty bit is never set and every page would appear clean
+                        if (!nativeSoftDirtySupported()) {
+                            softDirtyUnsupported = true;
+                            return false;
+                        }
+                        pagemap = new RandomAccessFile("/proc/" + tgid + "/pagemap", "r");
+                    }
+                    final FileOutputStream clearRefs = new FileOutputStream("/proc/" + tgid + "/clear_refs");
+                    try {
+                        clearRefs.write('4');
+                    } finally {
+                        clearRefs.close();
+                    }
+                    return true;
+                } catch (IOException ioException) {
+                    softDirtyUnsupported = true;
+                    return false;
+                }
+            }
+        });
+    }
+
+    /**
+     * Determines which pages of the tele process have been written since the last call to {@link #clearSoftDirty()}.
+     * A page that is neither present nor swapped out is reported as dirty.
+     *
+     * @param indices the indices of the pages, i.e. their addresses divided by the page size
+     * @param count the number of entries in {@code indices} to examine
+     * @param dirty the result for each page
+     * @return {@code false} if the page table entries could not be read
+     */
+    public boolean readSoftDirty(final long[] indices, final int count, final boolean[] dirty) {
+        if (!isLeader()) {
+            return leader().readSoftDirty(indices, count, dirty);
+        }
+        return execute(new Function<Boolean>() {
+            public Boolean call() throws Exception {
+                if (pagemap == null) {
+                    return false;
+                }
+                // Read runs of consecutive entries
+                final long[] sorted = Arrays.copyOf(indices, count);
+                Arrays.sort(sorted);
+                final long[] entries = new long[count];
+                final ByteBuffer buffer = ByteBuffer.allocate(64 * Longs.SIZE).order(ByteOrder.nativeOrder());
+                try {
+                    int i = 0;
+                    while (i < count) {
+                        int n = 1;
+                        while (i + n < count && n < 64 && sorted[i + n] == sorted[i] + n) {
+                            n++;
+                        }
+                        buffer.clear();
+                        buffer.limit(n * Longs.SIZE);
+                        while (buffer.hasRemaining()) {
+                            if (pagemap.getChannel().read(buffer, sorted[i] * Longs.SIZE + buffer.position()) <= 0) {
+                                return false;
+                            }
+                        }
+                        for (int j = 0; j < n; j++) {
+                            entries[i + j] = buffer.getLong(j * Longs.SIZE);
+                        }
+                        i += n;
+                    }
+                } catch (IOException ioException) {
+                    return false;
+                }
+                for (int i = 0; i < count; i++) {
+                    final long entry = entries[Arrays.binarySearch(sorted, indices[i])];
+                    dirty[i] = (entry & (PAGEMAP_PRESENT | PAGEMAP_SWAPPED)) == 0 || (entry & PAGEMAP_SOFT_DIRTY) != 0;
+                }
+                return true;
+            }
+        });
+    }
+
     private static native boolean nativeSetInstructionPointer(int tid, long instructionPointer);
 
     public boolean setInstructionPointer(final long instructionPointer) {
@@ -410,5 +541,12 @@ public final class LinuxTask {
                 ioException.printStackTrace();
             }
         }
+        if (pagemap != null) {
+            try {
+                pagemap.close();
+            } catch (IOException ioException) {
+                ioException.printStackTrace();
+            }
+        }
     }
 }
@@ -23,17 +23,21 @@
 package com.sun.max.tele.debug.linux;
 
 import java.io.*;
+import java.nio.*;
 
 import com.sun.max.platform.*;
 import com.sun.max.tele.*;
 import com.sun.max.tele.debug.*;
 import com.sun.max.tele.debug.TeleNativeThread.Params;
 import com.sun.max.tele.debug.unix.*;
+import com.sun.max.tele.page.*;
 import com.sun.max.vm.hosted.*;
 
 /**
+ * A Linux process, which supports tracking of modified pages when it is controlled
+ * {@linkplain LinuxNativeTeleChannelProtocol natively}.
  */
-public final class LinuxTeleProcess extends UnixTeleProcessAdaptor {
+public final class LinuxTeleProcess extends UnixTeleProcessAdaptor implements PagedTeleIO {
 
     LinuxTeleProcess(TeleVM teleVM, Platform platform, File programFile, String[] commandLineArguments) throws BootImageException {
         super(teleVM, platform, programFile, commandLineArguments);
@@ -55,4 +59,30 @@ public final class LinuxTeleProcess extends UnixTeleProcessAdaptor {
         return new LinuxTeleNativeThread(this, params);
     }
 
+    private LinuxNativeTeleChannelProtocol nativeProtocol() {
+        return protocol instanceof LinuxNativeTeleChannelProtocol ? (LinuxNativeTeleChannelProtocol) protocol : null;
+    }
+
+    public boolean clearDirtyPages() {
+        final LinuxNativeTeleChannelProtocol nativeProtocol = nativeProtocol();
+        return nativeProtocol != null && nativeProtocol.clearSoftDirty();
+    }
+
+    public boolean readDirtyPages(long[] indices, int count, boolean[] dirty) {
+        final LinuxNativeTeleChannelProtocol nativeProtocol = nativeProtocol();
+        return nativeProtocol != null && nativeProtocol.readSoftDirty(indices, count, dirty);
+    }
+
+    public int readPages(long[] indices, ByteBuffer[] buffers, int count) {
+        final LinuxNativeTeleChannelProtocol nativeProtocol = nativeProtocol();
+        if (nativeProtocol == null) {
+            return -1;
+        }
+        final long[] addresses = new long[count];
+        for (int i = 0; i < count; i++) {
+            addresses[i] = indices[i] * pageSize();
+        }
+        return nativeProtocol.readPages(addresses, buffers, count, pageSize());
+    }
+
 }
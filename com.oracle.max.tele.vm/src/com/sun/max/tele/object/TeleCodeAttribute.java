@@ -42,12 +42,15 @@ public class TeleCodeAttribute extends TeleTupleObject {
      * <br>
      * Must be called in a thread holding the VM lock.
      *
-     * @return the bytecodes in an array.
+     * @return the bytecodes in an array, empty if the VM has not yet decoded a lazily read code attribute
      */
     public final byte[] readBytecodes() {
         assert vm().lockHeldByCurrentThread();
         final RemoteReference byteArrayReference = fields().CodeAttribute_code.readRemoteReference(reference());
         final TeleArrayObject teleByteArrayObject = (TeleArrayObject) objects().makeTeleObject(byteArrayReference);
+        if (teleByteArrayObject == null) {
+            return new byte[0];
+        }
         return (byte[]) teleByteArrayObject.shallowCopy();
     }
 
@@ -23,6 +23,7 @@
 package com.sun.max.tele.page;
 
 import java.nio.*;
+import java.util.*;
 
 import com.sun.max.program.*;
 import com.sun.max.tele.*;
@@ -39,6 +40,7 @@ import com.sun.max.unsafe.*;
  * {@linkplain ByteBuffer#isDirect() direct} {@link ByteBuffer}s are used, unless the target VM is remote. The buffer for each page is
  * allocated from a global buffer until the global buffer is exhausted. If the target VM is remote or the
  * global buffer has been exhausted, then the buffer for each page is a heap allocated byte array.
+ * The buffer of a page that is {@linkplain #release() released} is reused for a subsequently created page.
  */
 public class Page extends AbstractVmHolder {
 
@@ -85,12 +87,20 @@ public class Page extends AbstractVmHolder {
 
     private static ByteBuffer globalBuffer;
 
+    /**
+     * Buffers of {@linkplain #release() released} pages.
+     */
+    private static final ArrayList<ByteBuffer> freeBuffers = new ArrayList<ByteBuffer>();
+
     /**
      * Allocates the buffer for a page according to whether or not {@linkplain #useDirectBuffers direct buffers}
      * are being used.
      */
     private static synchronized ByteBuffer allocate(TeleIO teleIO, ByteOrder byteOrder, long index) {
         final int pageSize = teleIO.pageSize();
+        if (!freeBuffers.isEmpty()) {
+            return freeBuffers.remove(freeBuffers.size() - 1);
+        }
         if (useDirectBuffers()) {
             if (globalBuffer == null) {
                 globalBuffer = ByteBuffer.allocateDirect(1024 * 1024 * 100).order(byteOrder);
@@ -142,6 +152,42 @@ public class Page extends AbstractVmHolder {
         epoch = -1;
     }
 
+    /**
+     * @return the index of this page, i.e. its address divided by the page size
+     */
+    long index() {
+        return index;
+    }
+
+    /**
+     * @return the epoch as of which the cached contents are valid, or -1 if they are invalid
+     */
+    long epoch() {
+        return epoch;
+    }
+
+    /**
+     * Declares the cached contents valid as of {@code epoch}, either because the remote page is known not to have
+     * been modified since they were read or because they have just been read by {@link PageDataAccess}.
+     */
+    void validate(long epoch) {
+        this.epoch = epoch;
+    }
+
+    ByteBuffer buffer() {
+        return buffer;
+    }
+
+    /**
+     * Returns the buffer of this page for reuse. The page must not be used subsequently.
+     */
+    void release() {
+        epoch = -1;
+        synchronized (Page.class) {
+            freeBuffers.add(buffer);
+        }
+    }
+
     /**
      * Reads into the cache the contents of the remote memory page.
      *
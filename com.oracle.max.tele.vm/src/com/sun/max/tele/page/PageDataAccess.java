@@ -34,11 +34,39 @@ import com.sun.max.tele.util.*;
 import com.sun.max.unsafe.*;
 
 /**
+ * Access to remote memory through a cache of {@link Page}s.
+ *
+ * The number of cached pages is bounded by the {@code max.tele.page.cacheSize} property, which defaults to the number
+ * of pages in the {@linkplain Page#globalDirectBufferPoolSize direct buffer pool}; the least recently used page is
+ * evicted when the bound is exceeded.
+ *
+ * If the {@link TeleIO} is a {@link PagedTeleIO}, cached pages survive execution of the process: at the first access
+ * after each stop the pages that were valid at the previous stop and that the process has not modified since are
+ * {@linkplain Page#validate(long) validated} for the new epoch instead of being re-read, and reads that span several
+ * pages refresh the stale ones with a single vectored read.
  */
 public class PageDataAccess extends DataAccessAdapter {
 
     private static final int TRACE_VALUE = 1;
 
+    /**
+     * Maximum number of pages refreshed by one vectored read, IOV_MAX on Linux.
+     */
+    private static final int MAX_VECTOR = 1024;
+
+    private static int cacheSize(int pageSize) {
+        long size = Page.globalDirectBufferPoolSize / pageSize;
+        final String value = System.getProperty("max.tele.page.cacheSize");
+        if (value != null) {
+            try {
+                size = Long.parseLong(value);
+            } catch (NumberFormatException numberFormatException) {
+                TeleWarning.message("Malformed value for the \"max.tele.page.cacheSize\" property", numberFormatException);
+            }
+        }
+        return (int) Math.min(Math.max(size, 16), Integer.MAX_VALUE);
+    }
+
     protected String  tracePrefix() {
         return "[PageDataAccess] ";
     }
@@ -48,6 +76,17 @@ public class PageDataAccess extends DataAccessAdapter {
     private final int indexShift;
     private final int offsetMask;
     private final ByteBuffer writeBuffer;
+    private final int cacheSize;
+
+    /**
+     * Non-null while modifications of remote pages can be tracked.
+     */
+    private PagedTeleIO pagedTeleIO;
+
+    /**
+     * The epoch of the last call to {@link PagedTeleIO#clearDirtyPages()}, or -1.
+     */
+    private long trackedEpoch = -1;
 
     public PageDataAccess(TeleVM vm, TeleIO teleProcess, DataModel dataModel) {
         super(dataModel.wordWidth, dataModel.endianness.asByteOrder());
@@ -57,6 +96,10 @@ public class PageDataAccess extends DataAccessAdapter {
         indexShift = Integer.numberOfTrailingZeros(teleProcess.pageSize());
         offsetMask = teleProcess.pageSize() - 1;
         writeBuffer = ByteBuffer.wrap(new byte[Longs.SIZE]).order(byteOrder);
+        cacheSize = cacheSize(teleIO.pageSize());
+        if (teleIO instanceof PagedTeleIO) {
+            pagedTeleIO = (PagedTeleIO) teleIO;
+        }
     }
 
     public int pageSize() {
@@ -71,7 +114,17 @@ public class PageDataAccess extends DataAccessAdapter {
         return address.toInt() & offsetMask;
     }
 
-    private final HashMap<Long, Page> indexToPage = new HashMap<Long, Page>();
+    @SuppressWarnings("serial")
+    private final LinkedHashMap<Long, Page> indexToPage = new LinkedHashMap<Long, Page>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Page> eldest) {
+            if (size() > cacheSize) {
+                eldest.getValue().release();
+                return true;
+            }
+            return false;
+        }
+    };
 
     private static void checkNullPointer(Address address) {
         if (address.isZero()) {
@@ -102,7 +155,78 @@ public class PageDataAccess extends DataAccessAdapter {
         invalidate(address, Size.fromInt(size));
     }
 
+    /**
+     * Carries valid cached pages over to a new epoch if the process has not modified them.
+     * Only pages that were valid in {@link #trackedEpoch} qualify, as the dirty information covers only the interval since then.
+     */
+    private void trackEpoch() {
+        final long epoch = teleIO.epoch();
+        if (epoch == trackedEpoch || pagedTeleIO == null) {
+            return;
+        }
+        if (trackedEpoch >= 0) {
+            final Page[] pages = new Page[indexToPage.size()];
+            final long[] indices = new long[pages.length];
+            int count = 0;
+            for (Page page : indexToPage.values()) {
+                if (page.epoch() == trackedEpoch) {
+                    pages[count] = page;
+                    indices[count] = page.index();
+                    count++;
+                }
+            }
+            if (count > 0) {
+                final boolean[] dirty = new boolean[count];
+                if (pagedTeleIO.readDirtyPages(indices, count, dirty)) {
+                    int clean = 0;
+                    for (int i = 0; i < count; i++) {
+                        if (!dirty[i]) {
+                            pages[i].validate(epoch);
+                            clean++;
+                        }
+                    }
+                    Trace.line(TRACE_VALUE + 1, tracePrefix() + "epoch " + epoch + ": " + clean + " of " + count + " cached pages unmodified");
+                }
+            }
+        }
+        if (pagedTeleIO.clearDirtyPages()) {
+            trackedEpoch = epoch;
+        } else {
+            Trace.line(TRACE_VALUE, tracePrefix() + "remote page modifications cannot be tracked");
+            pagedTeleIO = null;
+        }
+    }
+
+    /**
+     * Refreshes the stale pages among {@code count} consecutive pages with a single vectored read.
+     * Any page not refreshed here is refreshed individually when it is read.
+     */
+    private void refreshPages(long firstIndex, int count) {
+        final long epoch = teleIO.epoch();
+        final int n = Math.min(count, Math.min(MAX_VECTOR, cacheSize / 2));
+        final Page[] pages = new Page[n];
+        final long[] indices = new long[n];
+        final ByteBuffer[] buffers = new ByteBuffer[n];
+        int stale = 0;
+        for (int i = 0; i < n; i++) {
+            final Page page = getPage(firstIndex + i);
+            if (page.epoch() < epoch && page.buffer().isDirect()) {
+                pages[stale] = page;
+                indices[stale] = page.index();
+                buffers[stale] = page.buffer();
+                stale++;
+            }
+        }
+        if (stale > 1) {
+            final int read = pagedTeleIO.readPages(indices, buffers, stale);
+            for (int i = 0; i < read; i++) {
+                pages[i].validate(epoch);
+            }
+        }
+    }
+
     private Page getPage(long index) {
+        trackEpoch();
         Page page = indexToPage.get(index);
         if (page == null) {
             page = new Page(vm, teleIO, index, byteOrder);
@@ -122,6 +246,9 @@ public class PageDataAccess extends DataAccessAdapter {
         final int toRead = Math.min(length, buffer.limit() - offset);
         long pageIndex = getIndex(address);
         int pageOffset = getOffset(address);
+        if (pagedTeleIO != null && pageOffset + toRead > pageSize()) {
+            refreshPages(pageIndex, (pageOffset + toRead + offsetMask) >>> indexShift);
+        }
         int i = 0;
         while (i < toRead) {
             i += getPage(pageIndex).readBytes(pageOffset, buffer, i + offset);
@@ -146,7 +273,7 @@ public class PageDataAccess extends DataAccessAdapter {
         return getPage(address).readInt(getOffset(address));
     }
 
-    public long readLong(Address address) {
+    public synchronized long readLong(Address address) {
         checkNullPointer(address);
         return getPage(address).readLong(getOffset(address));
     }
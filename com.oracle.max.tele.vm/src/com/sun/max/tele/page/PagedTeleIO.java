@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.tele.page;
+
+import java.nio.*;
+
+/**
+ * A {@link TeleIO} that can also report which pages have been modified since a given point, and read several
+ * whole pages with a single request. Used by {@link PageDataAccess} to avoid re-reading cached pages that the
+ * process has not written since they were read.
+ */
+public interface PagedTeleIO extends TeleIO {
+
+    /**
+     * Starts a new tracking interval: pages modified after this call are reported by {@link #readDirtyPages}.
+     * Must only be called while the process is stopped.
+     *
+     * @return {@code false} if modifications cannot be tracked, in which case none of the other methods should be used
+     */
+    boolean clearDirtyPages();
+
+    /**
+     * Determines which of a set of pages may have been modified since the last call to {@link #clearDirtyPages}.
+     * A page is conservatively reported as dirty if that cannot be determined, e.g. because it is not mapped.
+     *
+     * @param indices the indices of the pages, i.e. their addresses divided by the {@linkplain #pageSize() page size}
+     * @param count the number of entries in {@code indices} to examine
+     * @param dirty the result for each page
+     * @return {@code false} if the information is not available
+     */
+    boolean readDirtyPages(long[] indices, int count, boolean[] dirty);
+
+    /**
+     * Reads whole pages into {@linkplain ByteBuffer#isDirect() direct} buffers with one request.
+     *
+     * @param indices the indices of the pages
+     * @param buffers the destination buffers, each of {@linkplain #pageSize() page size}
+     * @param count the number of pages to read
+     * @return the number of pages, starting with the first, that were read or -1 if vectored reads are not supported
+     */
+    int readPages(long[] indices, ByteBuffer[] buffers, int count);
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package jtt.jni;
+
+/*
+ * Calls a native that has both a JNI and a JavaCritical_ implementation, so that it can be bound as a critical
+ * native. The array argument is a fresh (young) array, an array that survived a collection, or null. Either way,
+ * the native must see the elements and its updates must be visible in the array afterwards, whether the array
+ * was pinned or passed as a copy.
+ *
+ * @Harness: java
+ * @Runs: 0 = 0; 1 = 0; 2 = 1; 10 = 45; 1000 = 499500; -1 = 120; -2 = -1
+ */
+public class JNI_CriticalArray {
+
+    private static int[] survivor;
+
+    public static int test(int arg) {
+        final int[] array;
+        if (arg == -2) {
+            array = null;
+        } else if (arg == -1) {
+            if (survivor == null) {
+                survivor = new int[16];
+                System.gc();
+            }
+            array = survivor;
+        } else {
+            array = new int[arg];
+        }
+        if (array == null) {
+            return increment(null, 1) == 0 ? -1 : -2;
+        }
+        for (int i = 0; i < array.length; i++) {
+            array[i] = i;
+        }
+        final int sum = increment(array, 3);
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] != i + 3) {
+                return -3;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Adds {@code delta} to every element of {@code array} and returns the sum of the elements before the update.
+     */
+    private static native int increment(int[] array, int delta);
+}
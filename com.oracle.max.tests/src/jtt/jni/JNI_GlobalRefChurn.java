@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package jtt.jni;
+
+/*
+ * Creates and deletes global or weak global references in batches larger than a thread's cache of freed handle
+ * slots, for more rounds than the handle table has slots. Slots that do not fit in the cache must be reclaimed
+ * for the test to complete.
+ *
+ * @Harness: java
+ * @Runs: 0 = 2000; 1 = 2000
+ */
+public class JNI_GlobalRefChurn {
+
+    public static int test(int arg) {
+        return churn(new Object(), arg == 1, 2000, 1024);
+    }
+
+    /**
+     * Creates {@code batch} references to {@code object} and deletes them again, {@code rounds} times.
+     *
+     * @return the number of rounds completed before a reference could not be created
+     */
+    private static native int churn(Object object, boolean weak, int rounds, int batch);
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package jtt.optimize;
+
+/*
+ * Tests overlapping copies within one array, towards higher and towards lower indexes, for lengths that fit
+ * in one bulk copy chunk and lengths that span several.
+ * @Harness: java
+ * @Runs: (10, 1)=true; (10, -1)=true; (10, 0)=true; (100000, 3)=true; (100000, -3)=true; (100000, 1000)=true; (100000, -1000)=true
+ */
+public class ArrayCopy02 {
+
+    public static boolean test(int length, int shift) {
+        final int from = shift < 0 ? -shift : 0;
+        final int to = shift < 0 ? 0 : shift;
+        final int size = length + Math.abs(shift);
+
+        final int[] ints = new int[size];
+        for (int i = 0; i < size; i++) {
+            ints[i] = i;
+        }
+        final int[] intsBefore = ints.clone();
+        System.arraycopy(ints, from, ints, to, length);
+
+        final Object[] objects = new Object[size];
+        for (int i = 0; i < size; i++) {
+            objects[i] = new Object();
+        }
+        final Object[] objectsBefore = objects.clone();
+        System.arraycopy(objects, from, objects, to, length);
+
+        for (int i = 0; i < size; i++) {
+            final boolean copied = i >= to && i < to + length;
+            final int expected = copied ? i - to + from : i;
+            if (ints[i] != intsBefore[expected] || objects[i] != objectsBefore[expected]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package jtt.optimize;
+
+import java.util.*;
+
+/*
+ * Copies references to young objects into a reference array that has survived collections, over ranges that start
+ * and end inside a card and cross several card boundaries. The young objects are then only reachable from that
+ * array, so a minor collection finds them through the cards dirtied by the copy.
+ * @Harness: java
+ * @Runs: (0, 1)=true; (63, 2)=true; (1, 200)=true; (100, 1000)=true; (7, 5000)=true
+ */
+public class ArrayCopy03 {
+
+    private static Object[] old;
+
+    public static boolean test(int toIndex, int length) {
+        if (old == null) {
+            old = new Object[8192];
+            System.gc();
+            System.gc();
+        }
+        copyYoung(toIndex, length);
+        // Allocate enough to trigger minor collections
+        for (int i = 0; i < 32 * 1024; i++) {
+            sink = new byte[1024];
+        }
+        sink = null;
+        for (int i = 0; i < length; i++) {
+            final Object element = old[toIndex + i];
+            if (!(element instanceof Integer) || ((Integer) element).intValue() != toIndex + i) {
+                return false;
+            }
+        }
+        Arrays.fill(old, toIndex, toIndex + length, null);
+        return true;
+    }
+
+    private static Object sink;
+
+    private static void copyYoung(int toIndex, int length) {
+        final Integer[] young = new Integer[length];
+        for (int i = 0; i < length; i++) {
+            young[i] = new Integer(toIndex + i);
+        }
+        System.arraycopy(young, 0, old, toIndex, length);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package jtt.optimize;
+
+/*
+ * Tests the ArrayStoreException of copies between arrays of incompatible types. Copying an Object[] into a String[]
+ * stores the elements that are Strings up to the first one that is not, then throws.
+ * @Harness: java
+ * @Runs: 0=0; 1=1; 5=5; 100=100; -1=!java.lang.ArrayStoreException; -2=!java.lang.ArrayStoreException; -3=!java.lang.ArrayStoreException
+ */
+public class ArrayCopy04 {
+
+    public static int test(int arg) {
+        if (arg == -1) {
+            System.arraycopy(new int[1], 0, new long[1], 0, 1);
+        } else if (arg == -2) {
+            System.arraycopy(new Object[1], 0, new int[1], 0, 1);
+        } else if (arg == -3) {
+            System.arraycopy(new Integer[] {1}, 0, new String[1], 0, 1);
+        }
+        final Object[] src = new Object[arg + 2];
+        for (int i = 0; i < arg; i++) {
+            src[i] = String.valueOf(i);
+        }
+        src[arg] = Integer.valueOf(arg);
+        src[arg + 1] = "after";
+        final String[] dest = new String[arg + 2];
+        try {
+            System.arraycopy(src, 0, dest, 0, arg + 2);
+        } catch (ArrayStoreException e) {
+            int copied = 0;
+            while (copied < dest.length && dest[copied] != null) {
+                copied++;
+            }
+            return copied;
+        }
+        return -1;
+    }
+}
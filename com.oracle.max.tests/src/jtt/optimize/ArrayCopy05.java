@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package jtt.optimize;
+
+/*
+ * Tests copies with constant positions and lengths just below, at and above the length up to which C1X expands
+ * System.arraycopy inline (C1XOptions.InlineArrayCopyLimit, 8 by default), including overlapping and out of bounds
+ * copies. The result is a checksum that depends on the order of the elements.
+ * @Harness: java
+ * @Runs: 0=0; 1=140; 2=204; 3=285; 4=341; 5=421; 6=!java.lang.IndexOutOfBoundsException; 7=!java.lang.IndexOutOfBoundsException; 8=457
+ */
+public class ArrayCopy05 {
+
+    public static int test(int arg) {
+        final int[] src = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+        final int[] dest = new int[10];
+        switch (arg) {
+            case 0:
+                System.arraycopy(src, 0, dest, 0, 0);
+                return checksum(dest);
+            case 1:
+                System.arraycopy(src, 0, dest, 0, 7);
+                return checksum(dest);
+            case 2:
+                System.arraycopy(src, 0, dest, 0, 8);
+                return checksum(dest);
+            case 3:
+                System.arraycopy(src, 0, dest, 0, 9);
+                return checksum(dest);
+            case 4:
+                System.arraycopy(src, 0, src, 1, 8);
+                return checksum(src);
+            case 5:
+                System.arraycopy(src, 1, src, 0, 8);
+                return checksum(src);
+            case 6:
+                System.arraycopy(src, 3, dest, 0, 8);
+                return checksum(dest);
+            case 7:
+                System.arraycopy(src, 0, dest, 3, 8);
+                return checksum(dest);
+            case 8: {
+                final byte[] bytes = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+                System.arraycopy(bytes, 2, bytes, 0, 8);
+                int sum = 0;
+                for (int i = 0; i < bytes.length; i++) {
+                    sum += (i + 1) * bytes[i];
+                }
+                return sum;
+            }
+        }
+        return -1;
+    }
+
+    private static int checksum(int[] array) {
+        int sum = 0;
+        for (int i = 0; i < array.length; i++) {
+            sum += (i + 1) * array[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+/*
+ * @Harness: java
+ * @Runs: 0 = true
+ */
+package test.bench.bytecode;
+
+import test.bench.util.*;
+
+/**
+ * Throw an exception from a method and catch it in its caller.
+ * The exception is preallocated so that only the throw and the unwinding are measured.
+ */
+public class Athrow01 extends RunBench {
+
+    protected Athrow01() {
+        super(new Bench());
+    }
+
+    public static boolean test(int x) {
+        return new Athrow01().runBench();
+    }
+
+    static final RuntimeException exception = new RuntimeException();
+
+    static class Bench extends MicroBenchmark {
+        @Override
+        public long run() {
+            try {
+                thrower();
+            } catch (RuntimeException e) {
+                return defaultResult;
+            }
+            return 0;
+        }
+
+        private static void thrower() {
+            throw exception;
+        }
+    }
+
+    public static void main(String[] args) {
+        test(0);
+    }
+
+}
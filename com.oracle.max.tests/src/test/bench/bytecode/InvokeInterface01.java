@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+/*
+ * @Harness: java
+ * @Runs: 0 = true
+ */
+package test.bench.bytecode;
+
+import test.bench.util.*;
+
+/**
+ * Call an interface method at a call site that sees two receiver classes.
+ */
+public class InvokeInterface01 extends RunBench {
+
+    protected InvokeInterface01() {
+        super(new Bench(), new EncapBench());
+    }
+
+    public static boolean test(int x) {
+        return new InvokeInterface01().runBench();
+    }
+
+    interface Value {
+        int value();
+    }
+
+    static class One implements Value {
+        public int value() {
+            return 1;
+        }
+    }
+
+    static class Two implements Value {
+        public int value() {
+            return 2;
+        }
+    }
+
+    static final Value[] receivers = {new One(), new Two()};
+    static int index;
+
+    static class Bench extends MicroBenchmark {
+        @Override
+        public long run() {
+            final Value receiver = receivers[index++ & 1];
+            return receiver.value();
+        }
+    }
+
+    static class EncapBench extends MicroBenchmark {
+        @Override
+        public long run() {
+            final Value receiver = receivers[index++ & 1];
+            return receiver == null ? 0 : defaultResult;
+        }
+    }
+
+    public static void main(String[] args) {
+        test(0);
+    }
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+/*
+ * @Harness: java
+ * @Runs: 0 = true
+ */
+package test.bench.java.lang;
+
+import test.bench.util.*;
+
+/**
+ * Copy a small int array with {@link System#arraycopy}.
+ */
+public class System_arraycopy01 extends RunBench {
+
+    static final int LENGTH = 64;
+
+    protected System_arraycopy01() {
+        super(new Bench());
+    }
+
+    public static boolean test(int i) {
+        return new System_arraycopy01().runBench();
+    }
+
+    static class Bench extends MicroBenchmark {
+        private final int[] src = new int[LENGTH];
+        private final int[] dst = new int[LENGTH];
+
+        @Override
+        public long run() {
+            System.arraycopy(src, 0, dst, 0, LENGTH);
+            return dst[LENGTH - 1];
+        }
+    }
+
+    public static void main(String[] args) {
+        test(0);
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+/*
+ * @Harness: java
+ * @Runs: 0 = true
+ */
+package test.bench.java.lang.reflect;
+
+import java.lang.reflect.*;
+
+import test.bench.util.*;
+
+/**
+ * Call a method with zero arguments through {@link Method#invoke}.
+ */
+public class Method_invoke01 extends RunBench {
+
+    protected Method_invoke01() {
+        super(new Bench());
+    }
+
+    public static boolean test(int i) {
+        return new Method_invoke01().runBench();
+    }
+
+    public static int zeroArg() {
+        return 1;
+    }
+
+    static class Bench extends MicroBenchmark {
+        private final Method method;
+
+        Bench() {
+            try {
+                method = Method_invoke01.class.getMethod("zeroArg");
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public long run() throws Exception {
+            return (Integer) method.invoke(null);
+        }
+    }
+
+    public static void main(String[] args) {
+        test(0);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+/*
+ * @Harness: java
+ * @Runs: 0 = true
+ */
+package test.bench.java.util.concurrent;
+
+import java.util.concurrent.atomic.*;
+
+import test.bench.util.*;
+
+/**
+ * Uncontended compare-and-swap, as done by {@code Unsafe.compareAndSwapLong} underneath {@link AtomicLong#compareAndSet}.
+ */
+public class AtomicLong_compareAndSet01 extends RunBench {
+
+    protected AtomicLong_compareAndSet01() {
+        super(new Bench(), new EncapBench());
+    }
+
+    public static boolean test(int i) {
+        return new AtomicLong_compareAndSet01().runBench();
+    }
+
+    static final AtomicLong value = new AtomicLong();
+
+    static class Bench extends MicroBenchmark {
+        @Override
+        public long run() {
+            final long current = value.get();
+            value.compareAndSet(current, current + 1);
+            return defaultResult;
+        }
+    }
+
+    static class EncapBench extends MicroBenchmark {
+        @Override
+        public long run() {
+            final long current = value.get();
+            return current + defaultResult;
+        }
+    }
+
+    public static void main(String[] args) {
+        test(0);
+    }
+}
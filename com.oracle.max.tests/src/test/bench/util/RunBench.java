@@ -89,6 +89,11 @@ import com.sun.max.program.*;
  * number of threads is set to one but can be changed via this property. Each thread follows the same sequence and shares the
  * same {@link Microbenchmark} instance. Results are reported separately for each thread. There is no explicit support for per thread
  * state; if that is required, use {@link ThreadLocal}.
+ * <p>
+ * The report includes the {@value #CONFIDENCE_PERCENT}% confidence interval of the average elapsed time, computed with Student's
+ * t-distribution over the samples left after removing outliers. Two runs whose intervals do not overlap differ by more than noise.
+ * The same benchmark is typically run once per compiler configuration (e.g., T1X only, C1X, Graal); setting the property
+ * {@value #LABEL_PROPERTY} to a name for the configuration tags the results so that such runs can be told apart.
  *
  */
 public class RunBench {
@@ -158,6 +163,8 @@ public class RunBench {
     public static final String TRACE_PROPERTY = "test.bench.trace";
     public static final String NO_REPORT_PROPERTY = "test.bench.noreport";
     public static final String OUTLIER_PROPERTY = "test.bench.outlier";
+    public static final String LABEL_PROPERTY = "test.bench.label";
+    public static final int CONFIDENCE_PERCENT = 99;
     private static final MicroBenchmark emptyEncap = new EmptyEncap();
     private static String fileNameBase;
     private static int fileNameIndex;
@@ -165,6 +172,7 @@ public class RunBench {
     private static int loopCount = DEFAULT_LOOP_COUNT;
     private static int threadCount = DEFAULT_THREAD_COUNT;
     private static int outlierPercent = DEFAULT_OUTLIER_PERCENT;
+    private static String label;
     /**
      * This is used in benchmarks that want to iterate in the {@link Bench#run} method.
      */
@@ -194,7 +202,7 @@ public class RunBench {
                 warmupCount = Integer.parseInt(wps);
             }
             if (ips != null) {
-                runIterCount = Long.parseLong(rps);
+                runIterCount = Long.parseLong(ips);
             }
             if (tps != null) {
                 threadCount = Integer.parseInt(tps);
@@ -210,6 +218,7 @@ public class RunBench {
         }
         trace = System.getProperty(TRACE_PROPERTY) != null;
         fileNameBase = System.getProperty(FILE_PROPERTY);
+        label = System.getProperty(LABEL_PROPERTY);
     }
 
     /**
@@ -412,13 +421,15 @@ public class RunBench {
         final double avgElapsed = average(elapsedSubArray);
         final double benchElapsed = avgElapsed - avgEncapElapsed;
         final double avgElapsedStdDev = stddev(elapsedSubArray, avgElapsed);
+        final double avgElapsedError = confidenceInterval(elapsedSubArray, avgElapsedStdDev);
         final long[] minMaxArr = maxmin(elapsedSubArray);
-        System.out.println("Benchmark results (nanoseconds per iteration) for thread " + threadName);
+        System.out.println("Benchmark results (nanoseconds per iteration) for thread " + threadName + (label == null ? "" : " [" + label + "]"));
         System.out.println("  loopcount: " + loopCount + ", warmupcount: " + warmupCount);
         System.out.format("  average overhead: %.3f, median overhead: %.3f\n", avgEncapElapsed, median(encapSubArray, true));
         System.out.format("  average elapsed: %.3f, median elapsed: %.3f, \n", avgElapsed, median(elapsedSubArray, true));
         System.out.format("  average elapsed minus overhead: %.3f\n", benchElapsed);
         System.out.format("  stddev: %.3f, max: %d, min: %d\n", avgElapsedStdDev, minMaxArr[1], minMaxArr[0]);
+        System.out.format("  average elapsed: %.3f +/- %.3f (%d%% confidence interval, %d samples)\n", avgElapsed, avgElapsedError, CONFIDENCE_PERCENT, elapsedSubArray.length());
         System.out.format("  operations/ms: %.3f\n", 1000000 / benchElapsed);
     }
 
@@ -444,11 +455,45 @@ public class RunBench {
     }
 
     private static double stddev(SubArray array, double avg) {
+        final int n = array.length();
+        if (n < 2) {
+            return 0;
+        }
         double res = 0;
         for (int i = array.lwb; i < array.upb; i++) {
             res += Math.pow(array.values[i] - avg, 2);
         }
-        return Math.sqrt(res / array.values.length);
+        return Math.sqrt(res / (n - 1));
+    }
+
+    /**
+     * Two-sided quantiles of Student's t-distribution for a {@value #CONFIDENCE_PERCENT}% confidence level,
+     * indexed by degrees of freedom minus one.
+     */
+    private static final double[] T_QUANTILES = {
+        63.657, 9.925, 5.841, 4.604, 4.032, 3.707, 3.499, 3.355, 3.250, 3.169,
+        3.106, 3.055, 3.012, 2.977, 2.947, 2.921, 2.898, 2.878, 2.861, 2.845,
+        2.831, 2.819, 2.807, 2.797, 2.787, 2.779, 2.771, 2.763, 2.756, 2.750
+    };
+
+    /**
+     * Quantile of the normal distribution used once there are more degrees of freedom than {@link #T_QUANTILES} covers.
+     */
+    private static final double Z_QUANTILE = 2.576;
+
+    /**
+     * Gets the half-width of the {@value #CONFIDENCE_PERCENT}% confidence interval of the average of the values in {@code array}.
+     * @param array the timing values
+     * @param stddev the sample standard deviation of the values
+     * @return the half-width of the interval, or {@link Double#NaN} if there are less than two values
+     */
+    public static double confidenceInterval(SubArray array, double stddev) {
+        final int n = array.length();
+        if (n < 2) {
+            return Double.NaN;
+        }
+        final double quantile = n - 1 <= T_QUANTILES.length ? T_QUANTILES[n - 2] : Z_QUANTILE;
+        return quantile * stddev / Math.sqrt(n);
     }
 
     /**
@@ -547,7 +592,7 @@ public class RunBench {
         for (int i = array.lwb; i < array.upb; i++) {
             result += array.values[i];
         }
-        return (double) result / (double) loopCount;
+        return (double) result / (double) array.length();
     }
 
     /**
@@ -584,6 +629,7 @@ public class RunBench {
      * -warmupcount n  equivalent to -Dtest.bench.warmupcount=n
      * -threadcount n     equivalent to -Dtest.bench.threadcount=n
      * -runitercount n     equivalent to -Dtest.bench.runitercount=n
+     * -label name          equivalent to -Dtest.bench.label=name
      *
      * Other args are passed to the test method (based on its signature). The signature {@code test(int i)}
      * is given a default value of zero if the argument is omitted.
@@ -625,6 +671,8 @@ public class RunBench {
                     System.setProperty(THREAD_COUNT_PROPERTY, matchValue == 0 ? args[++i] : arg.substring(matchValue));
                 } else if ((matchValue = argMatch(arg, "runitercount")) >= 0) {
                     System.setProperty(RUN_ITER_COUNT_PROPERTY, matchValue == 0 ? args[++i] : arg.substring(matchValue));
+                } else if ((matchValue = argMatch(arg, "label")) >= 0) {
+                    System.setProperty(LABEL_PROPERTY, matchValue == 0 ? args[++i] : arg.substring(matchValue));
                 } else if (arg.equals("noreport")) {
                     System.setProperty(NO_REPORT_PROPERTY, "");
                 } else {
@@ -42,6 +42,9 @@ import com.sun.max.vm.ext.jvmti.JVMTIException.ExceptionEventData;
 import com.sun.max.vm.ext.jvmti.JVMTIThreadFunctions.FramePopEventData;
 import com.sun.max.vm.ext.jvmti.JVMTIUtil.ModeUnion;
 import com.sun.max.vm.jni.*;
+import com.sun.max.vm.layout.Layout;
+import com.sun.max.vm.object.ObjectAccess;
+import com.sun.max.vm.reference.Reference;
 import com.sun.max.vm.runtime.CriticalNativeMethod;
 import com.sun.max.vm.thread.VmThread;
 import com.sun.max.vm.thread.VmThreadFactory;
@@ -77,7 +80,7 @@ public class JVMTI {
         /**
          * Object tagging.
          */
-        JVMTITags tags = new JVMTITags();
+        JVMTITags tags = new JVMTITags(this);
         /**
          * The global event settings for this agent.
          */
@@ -226,6 +229,11 @@ public class JVMTI {
             JVMTI.event(E.GARBAGE_COLLECTION_FINISH);
         }
 
+        @Override
+        public void objectSampled(Object object) {
+            JVMTI.event(E.SAMPLED_OBJECT_ALLOC, object);
+        }
+
         @Override
         public boolean nativeCallNeedsPrologueAndEpilogue(MethodActor ma) {
             return ma != JVMTIFunctions.currentJniEnv;
@@ -661,6 +669,11 @@ public class JVMTI {
                         invokeGarbageCollectionCallback(callback, cstruct);
                         break;
 
+                    case SAMPLED_OBJECT_ALLOC:
+                        invokeSampledObjectAllocCallback(callback, cstruct, currentThreadHandle(), JniHandles.createLocalHandle(arg1),
+                                        JniHandles.createLocalHandle(ObjectAccess.readClassActor(arg1).javaClass()), Layout.size(Reference.fromJava(arg1)).toLong());
+                        break;
+
                     case METHOD_ENTRY:
                         invokeThreadObjectCallback(callback, cstruct, currentThreadHandle(), MethodID.fromMethodActor(asClassMethodActor(arg1)));
                         break;
@@ -816,6 +829,32 @@ public class JVMTI {
         return interest; // at least one agent was (really) interested.
     }
 
+    /**
+     * Delivers {@link E#OBJECT_FREE} events for the tags of objects freed by a GC, in one batch per environment.
+     * This is called by the GC while all other threads are stopped, so it must not allocate. Only native agents
+     * that enabled the event globally receive it.
+     *
+     * @param env the environment that tagged the objects
+     * @param tags the tags of the freed objects
+     * @param count the number of tags
+     */
+    static void objectFreeEvents(Env env, Pointer tags, int count) {
+        if (phase != JVMTI_PHASE_LIVE || !(env instanceof NativeEnv) || (env.globalEventSettings & E.OBJECT_FREE.bit) == 0) {
+            return;
+        }
+        final NativeEnv nativeEnv = (NativeEnv) env;
+        if (nativeEnv.isFree()) {
+            return;
+        }
+        final Pointer callback = getCallBack(CALLBACKS.getPtr(nativeEnv.cstruct), E.OBJECT_FREE);
+        if (callback.isZero()) {
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            invokeObjectFreeCallback(callback, nativeEnv.cstruct, tags.getLong(i));
+        }
+    }
+
     private static class ThreadFieldEventData extends ThreadLocal<FieldEventData> {
         @Override
         public FieldEventData initialValue() {
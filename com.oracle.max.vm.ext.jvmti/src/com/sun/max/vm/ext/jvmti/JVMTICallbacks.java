@@ -33,6 +33,8 @@ public class JVMTICallbacks {
         new CriticalNativeMethod(JVMTICallbacks.class, "invokeStartFunction");
         new CriticalNativeMethod(JVMTICallbacks.class, "invokeStartFunctionNoArg");
         new CriticalNativeMethod(JVMTICallbacks.class, "invokeGarbageCollectionCallback");
+        new CriticalNativeMethod(JVMTICallbacks.class, "invokeObjectFreeCallback");
+        new CriticalNativeMethod(JVMTICallbacks.class, "invokeSampledObjectAllocCallback");
         new CriticalNativeMethod(JVMTICallbacks.class, "invokeThreadObjectCallback");
         new CriticalNativeMethod(JVMTICallbacks.class, "invokeClassfileLoadHookCallback");
         new CriticalNativeMethod(JVMTICallbacks.class, "invokeFieldWatchCallback");
@@ -49,6 +51,8 @@ public class JVMTICallbacks {
     static native void invokeStartFunction(Pointer callback, Pointer jvmtiEnv, Word arg);
     static native void invokeStartFunctionNoArg(Pointer callback, Pointer jvmtiEnv);
     static native void invokeGarbageCollectionCallback(Pointer callback, Pointer jvmtiEnv);
+    static native void invokeObjectFreeCallback(Pointer callback, Pointer jvmtiEnv, long tag);
+    static native void invokeSampledObjectAllocCallback(Pointer callback, Pointer jvmtiEnv, Word thread, Word object, Word klass, long size);
     static native void invokeThreadObjectCallback(Pointer callback, Pointer jvmtiEnv, Word thread, Word object);
     static native void invokeClassfileLoadHookCallback(Pointer callback, Pointer jvmtiEnv,
                     Word klass, Word loader, Pointer name, Word protectionDomain, int classDataLen,
@@ -31,6 +31,7 @@ import com.sun.max.unsafe.*;
 import com.sun.max.vm.actor.holder.*;
 import com.sun.max.vm.actor.member.*;
 import com.sun.max.vm.ext.jvmti.JVMTIBreakpoints.*;
+import com.sun.max.vm.heap.AllocationSampler;
 import com.sun.max.vm.heap.Heap;
 import com.sun.max.vm.log.*;
 import com.sun.max.vm.runtime.*;
@@ -103,7 +104,9 @@ public class JVMTIEvents {
         GARBAGE_COLLECTION_START(JVMTIConstants.JVMTI_EVENT_GARBAGE_COLLECTION_START, LIVE_PHASE),
         GARBAGE_COLLECTION_FINISH(JVMTIConstants.JVMTI_EVENT_GARBAGE_COLLECTION_FINISH, LIVE_PHASE),
         OBJECT_FREE(JVMTIConstants.JVMTI_EVENT_OBJECT_FREE, LIVE_PHASE),
-        VM_OBJECT_ALLOC(JVMTIConstants.JVMTI_EVENT_VM_OBJECT_ALLOC, LIVE_PHASE);
+        VM_OBJECT_ALLOC(JVMTIConstants.JVMTI_EVENT_VM_OBJECT_ALLOC, LIVE_PHASE),
+        MISSING5(-5, 0),
+        SAMPLED_OBJECT_ALLOC(JVMTIConstants.JVMTI_EVENT_SAMPLED_OBJECT_ALLOC, LIVE_PHASE);
 
         /**
          * The JVMTI code for this event.
@@ -366,6 +369,10 @@ public class JVMTIEvents {
             JVMTIBreakpoints.setSingleStep(mode == JVMTI_ENABLE);
         }
 
+        if (event == E.SAMPLED_OBJECT_ALLOC && mode == JVMTI_ENABLE && !AllocationSampler.isSampling()) {
+            AllocationSampler.setSamplingInterval(AllocationSampler.DEFAULT_INTERVAL);
+        }
+
         return JVMTI_ERROR_NONE;
     }
 
@@ -3344,7 +3344,10 @@ public class JVMTIFunctions  {
                 return JVMTI_ERROR_INVALID_ENVIRONMENT;
             }
             Pointer envCallbacks = CALLBACKS.get(env).asPointer();
-            Memory.copyBytes(callbacks, envCallbacks, Size.fromInt(size_of_callbacks));
+            // Agents built against another JVMTI version may pass a smaller or larger structure than ours
+            final int size = JVMTIEvents.E.VALUES.length * Word.size();
+            Memory.clearBytes(envCallbacks, size);
+            Memory.copyBytes(callbacks, envCallbacks, Size.fromInt(Math.min(size_of_callbacks, size)));
             return JVMTI_ERROR_NONE;
         } catch (Throwable t) {
             return JVMTI_ERROR_INTERNAL;
@@ -1047,7 +1047,10 @@ public class JVMTIFunctionsSource {
     private static int SetEventCallbacks(Pointer env, Pointer callbacks, int size_of_callbacks) {
         // PHASES: ONLOAD,LIVE
         Pointer envCallbacks = CALLBACKS.get(env).asPointer();
-        Memory.copyBytes(callbacks, envCallbacks, Size.fromInt(size_of_callbacks));
+        // Agents built against another JVMTI version may pass a smaller or larger structure than ours
+        final int size = JVMTIEvents.E.VALUES.length * Word.size();
+        Memory.clearBytes(envCallbacks, size);
+        Memory.copyBytes(callbacks, envCallbacks, Size.fromInt(Math.min(size_of_callbacks, size)));
         return JVMTI_ERROR_NONE;
     }
 
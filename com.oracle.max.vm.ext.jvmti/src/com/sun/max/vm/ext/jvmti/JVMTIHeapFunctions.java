@@ -22,7 +22,6 @@
  */
 package com.sun.max.vm.ext.jvmti;
 
-import static com.sun.max.vm.VMConfiguration.*;
 import static com.sun.max.vm.ext.jvmti.JVMTICallbacks.*;
 import static com.sun.max.vm.ext.jvmti.JVMTIConstants.*;
 import static com.sun.max.vm.ext.jvmti.JVMTIUtil.*;
@@ -65,11 +64,14 @@ public class JVMTIHeapFunctions {
     /** A {@link VmOperation} that prevents any allocgtion while we walk the heap.
      * We don't care about the threads, just that they are blocked, so we
      * override the {@link VmOperation#doIt} method.
+     * The heap is walked in parallel to apply the filters; the agent is then called back
+     * for the selected objects on the VM operation thread, one at a time.
      */
-    static class IterateThroughHeapVmOperation extends VmOperation {
+    static class IterateThroughHeapVmOperation extends ParallelHeapWalker.Operation {
         private final CBCV cbcv;
+        private boolean outOfMemory;
 
-        abstract class CBCV extends CallbackCellVisitor {
+        abstract class CBCV extends ParallelHeapWalker.Selection {
             protected final JVMTI.Env env;
             protected final int heapFilter;
             protected final Class klass;
@@ -80,42 +82,50 @@ public class JVMTIHeapFunctions {
                 this.klass = klass;
             }
 
-            @Override
-            protected boolean callback(Object object) {
+            private Class<?> objectClass(Object object) {
                 ClassActor classActor = ObjectAccess.readClassActor(object);
                 ClassActorProxy proxyClassActor = ClassActorProxy.asClassActorProxy(classActor);
+                return proxyClassActor.javaClass;
+            }
 
+            @Override
+            protected boolean select(Object object) {
                 /* To avoid the tricky case where we encounter an object whose Class mirror
                  * has not been set in the ClassActor yet, which would require allocation
                  * we check the field in classActor directly and observe that such
                  * an object cannot have been tagged, otherwise its class mirror would be set.
                  */
-                Class objectClass = proxyClassActor.javaClass == null ? null : proxyClassActor.javaClass;
+                Class<?> objectClass = objectClass(object);
 
                 if (klass != null && objectClass != klass)  {
-                    return true;
+                    return false;
                 }
                 if ((heapFilter & JVMTI_HEAP_FILTER_CLASS_TAGGED) != 0) {
                     if (objectClass != null && env.tags.isTagged(objectClass)) {
-                        return true;
+                        return false;
                     }
                 }
                 if ((heapFilter & JVMTI_HEAP_FILTER_CLASS_UNTAGGED) != 0) {
                     if (!(objectClass != null && env.tags.isTagged(objectClass))) {
-                        return true;
+                        return false;
                     }
                 }
                 if ((heapFilter & JVMTI_HEAP_FILTER_TAGGED) != 0) {
                     if (env.tags.isTagged(object)) {
-                        return true;
+                        return false;
                     }
                 }
                 if ((heapFilter & JVMTI_HEAP_FILTER_UNTAGGED) != 0) {
                     if (!env.tags.isTagged(object)) {
-                        return true;
+                        return false;
                     }
                 }
-                int flags = doCallback(object, objectClass);
+                return true;
+            }
+
+            @Override
+            protected boolean consume(Object object) {
+                int flags = doCallback(object, objectClass(object));
                 if ((flags & JVMTI_VISIT_ABORT) != 0) {
                     return false;
                 }
@@ -193,17 +203,17 @@ public class JVMTIHeapFunctions {
 
 
         IterateThroughHeapVmOperation(JVMTI.Env env, int heapFilter, Class klass, Pointer callbacks, Word userData) {
-            super("JVMTI_IterateThroughHeap", null, Mode.Safepoint, false);
+            super("JVMTI_IterateThroughHeap");
             this.cbcv = new CBCVNative(env, heapFilter, klass, callbacks, userData);
         }
 
         IterateThroughHeapVmOperation(JVMTI.Env env, int heapFilter, Class klass, JJVMTI.HeapCallbacks heapCallbacks, Object userData) {
-            super("JVMTI_IterateThroughHeap", null, Mode.Safepoint, false);
+            super("JVMTI_IterateThroughHeap");
             this.cbcv = new CBCVJava(env, heapFilter, klass, heapCallbacks, userData);
         }
 
         IterateThroughHeapVmOperation(JVMTI.Env env, int heapFilter, Class klass, JJVMTI.HeapCallbacks heapCallbacks, Object userData, boolean max) {
-            super("JVMTI_IterateThroughHeapMax", null, Mode.Safepoint, false);
+            super("JVMTI_IterateThroughHeapMax");
             this.cbcv = new CBCVJavaMax(env, heapFilter, klass, heapCallbacks, userData);
         }
 
@@ -216,7 +226,7 @@ public class JVMTIHeapFunctions {
             // TODO revisit this when Maxine addresses VM and application heap separation
             try {
                 Heap.enableImmortalMemoryAllocation();
-                vmConfig().heapScheme().walkHeap(cbcv);
+                outOfMemory = !cbcv.run();
             } finally {
                 Heap.disableImmortalMemoryAllocation();
             }
@@ -226,7 +236,7 @@ public class JVMTIHeapFunctions {
     static int iterateThroughHeap(JVMTI.Env jvmtiEnv, int heapFilter, Class klass, Pointer callbacks, Pointer userData) {
         IterateThroughHeapVmOperation op = new IterateThroughHeapVmOperation(jvmtiEnv, heapFilter, klass, callbacks, userData);
         op.submit();
-        return JVMTI_ERROR_NONE;
+        return op.outOfMemory ? JVMTI_ERROR_OUT_OF_MEMORY : JVMTI_ERROR_NONE;
     }
 
     static void iterateThroughHeap(JVMTI.Env jvmtiEnv, int heapFilter, ClassActor klass, JJVMTI.HeapCallbacks heapCallbacks, Object userData) {
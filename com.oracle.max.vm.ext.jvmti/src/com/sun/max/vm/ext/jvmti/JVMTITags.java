@@ -22,353 +22,502 @@
  */
 package com.sun.max.vm.ext.jvmti;
 
-import java.lang.ref.*;
-import java.util.*;
-
 import static com.sun.max.vm.ext.jvmti.JVMTIConstants.*;
 
+import java.util.*;
+
+import com.oracle.max.cri.intrinsics.*;
+import com.sun.max.annotate.*;
+import com.sun.max.lang.*;
 import com.sun.max.memory.*;
 import com.sun.max.unsafe.*;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.heap.*;
 import com.sun.max.vm.jni.*;
+import com.sun.max.vm.reference.*;
+import com.sun.max.vm.runtime.*;
 
 /**
- * JVMTI object tagging support. The tag map is allocated lazily. We cannot use a standard {@link WeakHashMap} because
- * that invokes the class-specific {@link Object#hashCode()} method, which can have all kinds of inappropriate side
- * effects. Plus we only need a handful of the standard {@link Map} methods.
- *
- * We support {@link Object} (for JJVMTI) and {@code long} values, not via {@link Long} to avoid unnecessary allocation.
- *
+ * JVMTI object tagging support.
+ * <p>
+ * Tags are held in a {@link Table} outside the heap, keyed by object address, so tagging neither allocates nor
+ * invokes the class-specific {@link Object#hashCode()} method, and millions of tags do not burden reference
+ * processing. The GC {@linkplain #processWeakRoots(SpecialReferenceManager.GC) rebuilds} each table once the
+ * set of live objects is known: entries for dead objects are dropped (and their tags reported in one batch of
+ * {@code ObjectFree} events) and entries for moved objects are rehashed under their new address.
+ * <p>
+ * Lookups and updates take no lock. Each runs without safepoint polls, so a GC never sees it half done and
+ * object addresses are stable while it runs. Only growing a table takes a lock: the table being replaced
+ * is {@linkplain Table#frozen frozen} first, and an update that may have raced with the copy is retried
+ * on the new table. A replaced table's memory is only released by the next GC, when no lookup can still be
+ * reading it.
+ * <p>
+ * We support {@link Object} (for JJVMTI) and {@code long} values. Object tags are held in {@link #objectTags},
+ * and the table then stores the index of the tag in that array, plus one.
  */
 class JVMTITags {
 
     /**
-     * A cut down and modified version of {@link WeakHashMap}.
-     * The value 0 is not allowed, and used to mean lookup failure.
+     * An open-addressing hash table with linear probing, of (object origin, tag) entries in native memory.
+     * A zero key marks an unused entry. An entry whose tag is zero has been untagged; it keeps its key until
+     * the next GC drops it.
      */
-    static class Map {
-        static abstract class Entry extends WeakReference<Object> {
-            final int hash;
-            Entry next;
-
-            Entry(Object object, int hash, Entry next) {
-                super(object);
-                this.hash = hash;
-                this.next = next;
-            }
-
+    static final class Table {
+        static final int ENTRY_SIZE = 16;
+        static final int KEY_OFFSET = 0;
+        static final int TAG_OFFSET = 8;
+
+        Pointer entries;
+        int capacity;
+
+        /**
+         * The number of entries with a non-zero key.
+         */
+        volatile int used;
+
+        /**
+         * Set once this table is being copied into a larger one. No update can be made to a frozen table.
+         */
+        volatile boolean frozen;
+
+        /**
+         * The tables replaced by this one and its predecessors, whose memory is released by the next GC.
+         */
+        Table retired;
+
+        Table(int capacity) {
+            this.capacity = capacity;
+            this.entries = allocateEntries(capacity);
         }
 
-        static class LongEntry extends Entry {
-            long value;
-            LongEntry(Object object, long value, int hash, Entry next) {
-                super(object, hash, next);
-                this.value = value;
+        static Pointer allocateEntries(int capacity) {
+            final Pointer entries = Memory.allocate(Size.fromLong((long) capacity * ENTRY_SIZE));
+            if (entries.isZero()) {
+                throw new OutOfMemoryError("could not allocate JVMTI tag table");
             }
+            Memory.clearWords(entries, capacity * (ENTRY_SIZE / Word.size()));
+            return entries;
+        }
 
+        @FOLD
+        static int usedOffset() {
+            return ClassActor.fromJava(Table.class).findLocalInstanceFieldActor("used").offset();
         }
 
-        static class ObjectEntry extends Entry {
-            Object value;
-            ObjectEntry(Object object, Object value, int hash, Entry next) {
-                super(object, hash, next);
-                this.value = value;
+        @INLINE
+        void incrementUsed() {
+            int n = used;
+            while (Reference.fromJava(this).compareAndSwapInt(usedOffset(), n, n + 1) != n) {
+                n = used;
             }
         }
 
-        private static final int DEFAULT_INITIAL_CAPACITY = 16;
-        private static final int MAXIMUM_CAPACITY = 1 << 30;
-        private static final float DEFAULT_LOAD_FACTOR = 0.75f;
-        private int size;
-        private int threshold;
-        private final float loadFactor;
-        private Entry[] table;
-
-        private Entry[] getTable() {
-            // expungeStaleEntries(); TODO
-            return table;
+        @INLINE
+        Pointer entry(int index) {
+            return entries.plus(index * ENTRY_SIZE);
         }
 
-        Map(boolean isNative) {
-            this.loadFactor = DEFAULT_LOAD_FACTOR;
-            threshold = DEFAULT_INITIAL_CAPACITY;
-            if (isNative) {
-                table = new LongEntry[DEFAULT_INITIAL_CAPACITY];
-            } else {
-                table = new ObjectEntry[DEFAULT_INITIAL_CAPACITY];
-            }
+        @INLINE
+        boolean isFull() {
+            return used >= threshold(capacity);
         }
+    }
 
-        static int indexFor(int h, int length) {
-            return h & (length - 1);
-        }
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MAXIMUM_CAPACITY = 1 << 26;
 
-        void put(Object key, long value) {
-            LongEntry e = (LongEntry) putCommon(key, true);
-            e.value = value;
-        }
+    /**
+     * Results of {@link #tryPut(Object, long)}.
+     */
+    private static final int PUT_DONE = 0;
+    private static final int PUT_RETRY = 1;
 
-        void put(Object key, Object value) {
-            ObjectEntry e = (ObjectEntry) putCommon(key, false);
-            e.value = value;
-        }
+    /**
+     * The environment owning these tags.
+     */
+    private final JVMTI.Env env;
+
+    /**
+     * The tag table, {@code null} until the first object is tagged.
+     */
+    private volatile Table table;
 
-        private Entry putCommon(Object key, boolean isNative) {
-            int h = System.identityHashCode(key);
-            Entry[] tab = getTable();
-            int i = indexFor(h, tab.length);
+    /**
+     * The tags of a JJVMTI agent, {@code null} for a native agent.
+     */
+    private Object[] objectTags;
 
-            for (Entry e = tab[i]; e != null; e = e.next) {
-                if (h == e.hash && key == e.get()) {
-                    return e;
+    /**
+     * Lowest index in {@link #objectTags} that may be free.
+     */
+    private int objectTagsHint;
+
+    JVMTITags(JVMTI.Env env) {
+        this.env = env;
+    }
+
+    static {
+        SpecialReferenceManager.registerWeakRootsProcessor(new SpecialReferenceManager.WeakRootsProcessor() {
+            public void processWeakRoots(SpecialReferenceManager.GC gc) {
+                for (int i = 0; i < JVMTI.jvmtiEnvs.length; i++) {
+                    final JVMTI.Env env = JVMTI.jvmtiEnvs[i];
+                    if (env != null) {
+                        env.tags.processWeakRoots(gc);
+                    }
                 }
             }
+        });
+    }
 
-            Entry e = tab[i];
-            Entry ne = isNative ? new LongEntry(key, 0, h, e) : new ObjectEntry(key, null, h, e);
-            tab[i] = ne;
-            if (++size >= threshold) {
-                resize(tab.length * 2);
-            }
-            return ne;
-        }
+    static int threshold(int capacity) {
+        return capacity - (capacity >> 2);
+    }
 
-        long getLong(Object key) {
-            LongEntry e = (LongEntry) getCommon(key);
-            return e == null ? 0 : e.value;
-        }
+    @INLINE
+    private static int hash(Address key) {
+        return (int) ((key.toLong() * 0x9E3779B97F4A7C15L) >>> 32);
+    }
 
-        Object getObject(Object key) {
-            ObjectEntry e = (ObjectEntry) getCommon(key);
-            return e == null ? null : e.value;
+    /**
+     * Gets the tag of an object.
+     *
+     * @return the tag or 0 if the object is not tagged
+     */
+    @NO_SAFEPOINT_POLLS("object addresses must not change and the table must not be rebuilt during a lookup")
+    private long lookup(Object object) {
+        final Table t = table;
+        if (t == null) {
+            return 0;
         }
+        final Address key = Reference.fromJava(object).toOrigin();
+        final int mask = t.capacity - 1;
+        int index = hash(key) & mask;
+        for (int n = 0; n < t.capacity; n++) {
+            final Pointer entry = t.entry(index);
+            final Address k = entry.readWord(Table.KEY_OFFSET).asAddress();
+            if (k.equals(key)) {
+                return entry.readLong(Table.TAG_OFFSET);
+            }
+            if (k.isZero()) {
+                return 0;
+            }
+            index = (index + 1) & mask;
+        }
+        return 0;
+    }
 
-        private Entry getCommon(Object key) {
-            int h = System.identityHashCode(key);
-            Entry[] tab = getTable();
-            int index = indexFor(h, tab.length);
-            Entry e = tab[index];
-            while (e != null) {
-                if (e.hash == h && e.get() == key) {
-                    return e;
+    /**
+     * Sets the tag of an object in the current table.
+     *
+     * @return {@link #PUT_DONE} or {@link #PUT_RETRY} if the table is full or was frozen before the update was
+     *         known to be visible to the thread growing it
+     */
+    @NO_SAFEPOINT_POLLS("object addresses must not change and the table must not be rebuilt during an update")
+    private int tryPut(Object object, long tag) {
+        final Table t = table;
+        if (t.frozen) {
+            return PUT_RETRY;
+        }
+        final Address key = Reference.fromJava(object).toOrigin();
+        final int mask = t.capacity - 1;
+        int index = hash(key) & mask;
+        for (int n = 0; n < t.capacity; n++) {
+            final Pointer entry = t.entry(index);
+            Address k = entry.readWord(Table.KEY_OFFSET).asAddress();
+            if (k.isZero()) {
+                if (tag == 0) {
+                    // untagging an object that is not tagged
+                    return PUT_DONE;
                 }
-                e = e.next;
-            }
-            return null;
-        }
-
-        public void remove(Object key) {
-            int h = System.identityHashCode(key);
-            Entry[] tab = getTable();
-            int i = indexFor(h, tab.length);
-            Entry prev = tab[i];
-            Entry e = prev;
-
-            while (e != null) {
-                Entry next = e.next;
-                if (h == e.hash && key == e.get()) {
-                    size--;
-                    if (prev == e) {
-                        tab[i] = next;
-                    } else {
-                        prev.next = next;
-                    }
-                    return;
+                if (t.isFull()) {
+                    return PUT_RETRY;
+                }
+                k = entry.compareAndSwapWord(Table.KEY_OFFSET, Address.zero(), key).asAddress();
+                if (k.isZero()) {
+                    t.incrementUsed();
+                    k = key;
                 }
-                prev = e;
-                e = next;
             }
+            if (k.equals(key)) {
+                entry.writeLong(Table.TAG_OFFSET, tag);
+                // Pairs with the barrier in transfer(): either the copy sees this update or this thread sees the table frozen
+                MemoryBarriers.barrier(MemoryBarriers.STORE_LOAD);
+                return t.frozen ? PUT_RETRY : PUT_DONE;
+            }
+            index = (index + 1) & mask;
         }
+        return PUT_RETRY;
+    }
 
-        void resize(int newCapacity) {
-            Entry[] oldTable = getTable();
-            int oldCapacity = oldTable.length;
-            if (oldCapacity == MAXIMUM_CAPACITY) {
-                threshold = Integer.MAX_VALUE;
+    private void put(Object object, long tag) {
+        if (table == null) {
+            if (tag == 0) {
                 return;
             }
-
-            Entry[] newTable = new Entry[newCapacity];
-            transfer(oldTable, newTable);
-            table = newTable;
-
-            /*
-             * If ignoring null elements and processing ref queue caused massive
-             * shrinkage, then restore old table.  This should be rare, but avoids
-             * unbounded expansion of garbage-filled tables.
-             */
-            if (size >= threshold / 2) {
-                threshold = (int) (newCapacity * loadFactor);
-            } else {
-                // expungeStaleEntries();
-                transfer(newTable, oldTable);
-                table = oldTable;
+            synchronized (this) {
+                if (table == null) {
+                    table = new Table(INITIAL_CAPACITY);
+                }
             }
         }
+        while (tryPut(object, tag) != PUT_DONE) {
+            grow();
+        }
+    }
 
-        private void transfer(Entry[] src, Entry[] dest) {
-            for (int j = 0; j < src.length; ++j) {
-                Entry e = src[j];
-                src[j] = null;
-                while (e != null) {
-                    Entry next = e.next;
-                    Object key = e.get();
-                    if (key == null) {
-                        e.next = null;  // Help GC
-                        size--;
-                    } else {
-                        int i = indexFor(e.hash, dest.length);
-                        e.next = dest[i];
-                        dest[i] = e;
-                    }
-                    e = next;
-                }
+    /**
+     * Replaces the table with one twice as large if it is full. Taking the lock also waits for a concurrent
+     * replacement to complete.
+     */
+    private synchronized void grow() {
+        final Table t = table;
+        if (!t.isFull()) {
+            return;
+        }
+        if (t.capacity >= MAXIMUM_CAPACITY) {
+            throw new OutOfMemoryError("too many JVMTI tags");
+        }
+        final Table newTable = new Table(t.capacity * 2);
+        transfer(t, newTable);
+        newTable.retired = t;
+        table = newTable;
+    }
+
+    @NO_SAFEPOINT_POLLS("the GC must not rebuild the table while it is copied")
+    private static void transfer(Table from, Table to) {
+        from.frozen = true;
+        MemoryBarriers.barrier(MemoryBarriers.STORE_LOAD);
+        for (int i = 0; i < from.capacity; i++) {
+            final Pointer entry = from.entry(i);
+            final long tag = entry.readLong(Table.TAG_OFFSET);
+            if (tag != 0) {
+                insert(to, entry.readWord(Table.KEY_OFFSET).asAddress(), tag);
             }
         }
+    }
+
+    /**
+     * Adds an entry to a table that no other thread is updating.
+     */
+    @INLINE
+    private static void insert(Table t, Address key, long tag) {
+        final int mask = t.capacity - 1;
+        int index = hash(key) & mask;
+        while (!t.entry(index).readWord(Table.KEY_OFFSET).isZero()) {
+            index = (index + 1) & mask;
+        }
+        final Pointer entry = t.entry(index);
+        entry.writeWord(Table.KEY_OFFSET, key);
+        entry.writeLong(Table.TAG_OFFSET, tag);
+        t.used++;
+    }
+
+    /**
+     * Rebuilds the table after a GC has determined the set of live objects. All mutator threads are stopped
+     * outside of lookups and updates. The tags of the objects that died are gathered at the start of the old
+     * entries (which have already been read by then) and reported once the table has been rebuilt.
+     */
+    private void processWeakRoots(SpecialReferenceManager.GC gc) {
+        final Table t = table;
+        if (t == null) {
+            return;
+        }
+        for (Table r = t.retired; r != null; r = r.retired) {
+            Memory.deallocate(r.entries);
+            r.entries = Pointer.zero();
+        }
+        t.retired = null;
 
-        static abstract class Visitor {
-            abstract void visit(Entry e);
-            Object getResult() {
-                return null;
+        int live = 0;
+        for (int i = 0; i < t.capacity; i++) {
+            if (t.entry(i).readLong(Table.TAG_OFFSET) != 0) {
+                live++;
             }
         }
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < MAXIMUM_CAPACITY && threshold(capacity) <= live * 2) {
+            capacity *= 2;
+        }
 
-        Visitor apply(Visitor visitor) {
-            for (int t = 0; t < table.length; t++) {
-                Map.Entry e = table[t];
-                while (e != null) {
-                    if (e.get() != null) {
-                        visitor.visit(e);
+        final Pointer oldEntries = t.entries;
+        final int oldCapacity = t.capacity;
+        final Pointer newEntries = Memory.allocate(Size.fromLong((long) capacity * Table.ENTRY_SIZE));
+        FatalError.check(!newEntries.isZero(), "could not allocate JVMTI tag table");
+        Memory.clearWords(newEntries, capacity * (Table.ENTRY_SIZE / Word.size()));
+        t.entries = newEntries;
+        t.capacity = capacity;
+        t.used = 0;
+
+        final boolean relocates = gc.mayRelocateLiveObjects();
+        int dead = 0;
+        for (int i = 0; i < oldCapacity; i++) {
+            final Pointer entry = oldEntries.plus(i * Table.ENTRY_SIZE);
+            final long tag = entry.readLong(Table.TAG_OFFSET);
+            if (tag == 0) {
+                continue;
+            }
+            final Reference ref = Reference.fromOrigin(entry.readWord(Table.KEY_OFFSET).asPointer());
+            if (gc.isReachable(ref)) {
+                insert(t, relocates ? gc.preserve(ref).toOrigin() : ref.toOrigin(), tag);
+            } else {
+                if (objectTags != null) {
+                    objectTags[(int) tag - 1] = null;
+                    if (tag - 1 < objectTagsHint) {
+                        objectTagsHint = (int) tag - 1;
                     }
-                    e = e.next;
                 }
+                oldEntries.setLong(dead++, tag);
             }
-            return visitor;
         }
-
+        if (dead != 0 && objectTags == null) {
+            JVMTI.objectFreeEvents(env, oldEntries, dead);
+        }
+        Memory.deallocate(oldEntries);
     }
 
-    private Map tagMap;
-
     /*
-     * Next two functions are for use by JVMTIHeapFunctions, where no synchronization is necessary.
+     * Next three functions are for use by JVMTIHeapFunctions, where no synchronization is necessary.
      */
 
     boolean isTagged(Object object) {
-        if (tagMap == null) {
-            return false;
-        } else {
-            return tagMap.getCommon(object) != null;
-        }
+        return lookup(object) != 0;
     }
 
     long getLongTag(Object object) {
-        return checkMap(true).getLong(object);
+        return lookup(object);
     }
 
     Object getObjectTag(Object object) {
-        return checkMap(false).getObject(object);
+        return getTag(object);
     }
 
     /*
-     * Implementation of API methods where we need to protect against concurrent access.
+     * Implementation of API methods.
      */
 
-    synchronized int getTag(Object object, Pointer tagPtr) {
-        long tag = checkMap(true).getLong(object);
-        tagPtr.writeLong(0, tag);
+    int getTag(Object object, Pointer tagPtr) {
+        tagPtr.writeLong(0, lookup(object));
         return JVMTI_ERROR_NONE;
     }
 
-    synchronized int setTag(Object object, long tag) {
-        if (tag == 0) {
-            checkMap(true).remove(object);
-        } else {
-            checkMap(true).put(object, tag);
-        }
+    int setTag(Object object, long tag) {
+        put(object, tag);
         return JVMTI_ERROR_NONE;
     }
 
+    /**
+     * Sets the tag of an object for a JJVMTI agent. Object tags are rare enough that updating them is synchronized.
+     */
     public synchronized void setTag(Object object, Object tag) {
-        checkMap(false).put(object, tag);
+        if (objectTags == null) {
+            objectTags = new Object[16];
+        }
+        final long oldIndex = lookup(object);
+        if (oldIndex != 0) {
+            objectTags[(int) oldIndex - 1] = null;
+            if (oldIndex - 1 < objectTagsHint) {
+                objectTagsHint = (int) oldIndex - 1;
+            }
+        }
+        if (tag == null) {
+            put(object, 0);
+            return;
+        }
+        int index = objectTagsHint;
+        while (index < objectTags.length && objectTags[index] != null) {
+            index++;
+        }
+        if (index == objectTags.length) {
+            objectTags = Arrays.copyOf(objectTags, objectTags.length * 2);
+        }
+        objectTags[index] = tag;
+        objectTagsHint = index + 1;
+        put(object, index + 1);
     }
 
-    public synchronized Object getTag(Object object) {
-        return checkMap(false).getObject(object);
+    public Object getTag(Object object) {
+        final Object[] tags = objectTags;
+        final long index = lookup(object);
+        return index == 0 || tags == null ? null : tags[(int) index - 1];
     }
 
-    private Map checkMap(boolean isNative) {
-        if (tagMap == null) {
-            tagMap  = new Map(isNative);
+    /**
+     * Copies the objects with one of the given tags into {@code objects}, up to its length.
+     *
+     * @return the number of matching objects, which may exceed the length of {@code objects}
+     */
+    @NO_SAFEPOINT_POLLS("object addresses must not change and the table must not be rebuilt during the scan")
+    private int collect(int tagCount, Pointer tags, Object[] objects, long[] objectTags) {
+        final Table t = table;
+        if (t == null) {
+            return 0;
         }
-        return tagMap;
+        int count = 0;
+        for (int i = 0; i < t.capacity; i++) {
+            final Pointer entry = t.entry(i);
+            final long tag = entry.readLong(Table.TAG_OFFSET);
+            if (tag == 0) {
+                continue;
+            }
+            for (int j = 0; j < tagCount; j++) {
+                if (tag == tags.getLong(j)) {
+                    if (count < objects.length) {
+                        objects[count] = Reference.fromOrigin(entry.readWord(Table.KEY_OFFSET).asPointer()).toJava();
+                        objectTags[count] = tag;
+                    }
+                    count++;
+                    break;
+                }
+            }
+        }
+        return count;
     }
 
-    synchronized int getObjectsWithTags(final int tagCount, final Pointer tags, Pointer countPtr, Pointer objectResultPtrPtr, Pointer tagResultPtrPtr) {
+    int getObjectsWithTags(int tagCount, Pointer tags, Pointer countPtr, Pointer objectResultPtrPtr, Pointer tagResultPtrPtr) {
         if (tagCount < 0) {
             return JVMTI_ERROR_ILLEGAL_ARGUMENT;
         }
         for (int i = 0; i < tagCount; i++) {
-            long givenTag = tags.getInt(i);
-            if (givenTag == 0) {
+            if (tags.getLong(i) == 0) {
                 return JVMTI_ERROR_ILLEGAL_ARGUMENT;
             }
         }
 
-        Map.Visitor counter = new Map.Visitor() {
-            private int count;
-
-            @Override
-            void visit(Map.Entry e) {
-                for (int i = 0; i < tagCount; i++) {
-                    long givenTag = tags.getInt(i);
-                    if (givenTag == ((Map.LongEntry) e).value) {
-                        count++;
-                    }
-                }
-            }
-
-            @Override
-            Object getResult() {
-                return new Integer(count);
-            }
-        };
+        // Size the result from a first scan and scan again if objects were tagged in between
+        Object[] objects = new Object[0];
+        long[] objectTags = new long[0];
+        int count = collect(tagCount, tags, objects, objectTags);
+        while (count > objects.length) {
+            objects = new Object[count];
+            objectTags = new long[count];
+            count = collect(tagCount, tags, objects, objectTags);
+        }
 
-        final int count = (Integer) tagMap.apply(counter).getResult();
-        // count is an upper bound, entries may disappear through GC actions
-        final Pointer objectResultPtr = objectResultPtrPtr.isZero() ? Pointer.zero() : Memory.allocate(Size.fromInt(count * Word.size()));
-        if (objectResultPtr.isZero()) {
+        final Pointer objectResultPtr = objectResultPtrPtr.isZero() ? Pointer.zero() : Memory.allocate(Size.fromInt(Math.max(count, 1) * Word.size()));
+        if (!objectResultPtrPtr.isZero() && objectResultPtr.isZero()) {
             return JVMTI_ERROR_OUT_OF_MEMORY;
         }
-        final Pointer tagResultPtr = tagResultPtrPtr.isZero() ? Pointer.zero() : Memory.allocate(Size.fromInt(count * Word.size()));
-        if (tagResultPtr.isZero()) {
-            Memory.deallocate(objectResultPtr);
+        final Pointer tagResultPtr = tagResultPtrPtr.isZero() ? Pointer.zero() : Memory.allocate(Size.fromInt(Math.max(count, 1) * Longs.SIZE));
+        if (!tagResultPtrPtr.isZero() && tagResultPtr.isZero()) {
+            if (!objectResultPtr.isZero()) {
+                Memory.deallocate(objectResultPtr);
+            }
             return JVMTI_ERROR_OUT_OF_MEMORY;
         }
-
-        Map.Visitor copier = new Map.Visitor() {
-            @Override
-            void visit(Map.Entry e) {
-                int index = 0;
-                Object key = e.get();
-                if (key != null) {
-                    for (int i = 0; i < tagCount; i++) {
-                        long givenTag = tags.getInt(i);
-                        if (givenTag == ((Map.LongEntry) e).value) {
-                            assert index < count;
-                            if (!objectResultPtr.isZero()) {
-                                objectResultPtr.setWord(index, JniHandles.createLocalHandle(key));
-                            }
-                            if (!tagResultPtr.isZero()) {
-                                tagResultPtr.setLong(index, givenTag);
-                            }
-                            index++;
-                            break;
-                        }
-                    }
-                }
+        for (int i = 0; i < count; i++) {
+            if (!objectResultPtr.isZero()) {
+                objectResultPtr.setWord(i, JniHandles.createLocalHandle(objects[i]));
+            }
+            if (!tagResultPtr.isZero()) {
+                tagResultPtr.setLong(i, objectTags[i]);
             }
-        };
-        tagMap.apply(copier);
+        }
+        if (!objectResultPtrPtr.isZero()) {
+            objectResultPtrPtr.setWord(objectResultPtr);
+        }
+        if (!tagResultPtrPtr.isZero()) {
+            tagResultPtrPtr.setWord(tagResultPtr);
+        }
         countPtr.setInt(count);
         return JVMTI_ERROR_NONE;
     }
@@ -1008,7 +1008,7 @@ public class MaxXirGenerator implements RiXirGenerator {
         asm.add(newMark, cell, arraySize);
         asm.jlteq(ok, newMark, tlabEnd);
 
-        callRuntimeThroughStub(asm, "slowPathAllocate", cell, arraySize, etla);
+        callRuntimeThroughStub(asm, "slowPathAllocateArray", cell, arraySize, etla, hub, length);
         asm.jmp(done);
 
         asm.bindInline(ok);
@@ -1071,7 +1071,7 @@ public class MaxXirGenerator implements RiXirGenerator {
         callRuntimeThroughStub(asm, "throwNegativeArraySizeException", null, length);
 
         asm.bindOutOfLine(slowPath);
-        callRuntimeThroughStub(asm, "slowPathAllocate", cell, arraySize, etla);
+        callRuntimeThroughStub(asm, "slowPathAllocateArray", cell, arraySize, etla, hub, length);
         asm.jmp(done);
         return finishTemplate(asm, (kind.isObject() ? "a" : "") + "newarray<" + kind + ">");
     }
@@ -1193,7 +1193,7 @@ public class MaxXirGenerator implements RiXirGenerator {
         asm.add(newMark, cell, tupleSize);
         asm.jlteq(ok, newMark, tlabEnd);
         // Slow path.
-        callRuntimeThroughStub(asm, "slowPathAllocate", cell, tupleSize, etla);
+        callRuntimeThroughStub(asm, "slowPathAllocate", cell, tupleSize, etla, hub);
         // Jump over update of TLAB mark and go directly to code formatting the allocated cell.
         asm.jmp(done);
         asm.bindInline(ok);
@@ -1273,7 +1273,7 @@ public class MaxXirGenerator implements RiXirGenerator {
         }
         asm.mov(result, cell);
         asm.bindOutOfLine(slowPath);
-        callRuntimeThroughStub(asm, "slowPathAllocate", cell, tupleSize, etla);
+        callRuntimeThroughStub(asm, "slowPathAllocate", cell, tupleSize, etla, hub);
         asm.jmp(done);
     }
 
@@ -1971,13 +1971,29 @@ public class MaxXirGenerator implements RiXirGenerator {
          * Runtime entry point for failed tlab allocation.
          * @param etla Pointer to the TLA for enabled safepoints.
          * @param size amount of space requested
-         * @return pointer to an unformatted chunk of allocated memory.
+         * @param hub the hub of the tuple or hybrid being allocated
+         * @return pointer to the allocated chunk, which is already formatted if it was an allocation sample.
          */
-        public static Pointer slowPathAllocate(int size, Pointer etla) {
+        public static Pointer slowPathAllocate(int size, Pointer etla, Hub hub) {
             if (MaxineVM.isDebug()) {
                 FatalError.check(vmConfig().heapScheme().usesTLAB(), "HeapScheme must use TLAB");
             }
-            return ((HeapSchemeWithTLAB) vmConfig().heapScheme()).c1xSlowPathAllocate(Size.fromInt(size), etla);
+            return ((HeapSchemeWithTLAB) vmConfig().heapScheme()).c1xSlowPathAllocate(Size.fromInt(size), etla, hub);
+        }
+
+        /**
+         * Runtime entry point for failed tlab allocation of an array.
+         * @param etla Pointer to the TLA for enabled safepoints.
+         * @param size amount of space requested
+         * @param hub the hub of the array being allocated
+         * @param length the length of the array being allocated
+         * @return pointer to the allocated chunk, which is already formatted if it was an allocation sample.
+         */
+        public static Pointer slowPathAllocateArray(int size, Pointer etla, DynamicHub hub, int length) {
+            if (MaxineVM.isDebug()) {
+                FatalError.check(vmConfig().heapScheme().usesTLAB(), "HeapScheme must use TLAB");
+            }
+            return ((HeapSchemeWithTLAB) vmConfig().heapScheme()).c1xSlowPathAllocateArray(Size.fromInt(size), etla, hub, length);
         }
 
         public static Pointer flushLog(Pointer logTail) {
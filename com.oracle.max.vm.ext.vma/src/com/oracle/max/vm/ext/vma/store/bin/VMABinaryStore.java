@@ -0,0 +1,342 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.oracle.max.vm.ext.vma.store.bin;
+
+import static com.oracle.max.vm.ext.vma.store.bin.VMABinaryStoreFormat.*;
+import static com.oracle.max.vm.ext.vma.store.txt.VMATextStoreFormat.REPEAT_ID_VALUE;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.zip.*;
+
+import com.oracle.max.vm.ext.vma.store.txt.sbps.*;
+import com.sun.max.vm.runtime.*;
+
+/**
+ * A variant of {@link SBPSVMATextStore} that stores the same records in the {@link VMABinaryStoreFormat binary format}.
+ * It is selected by setting the {@code max.vma.store.class} property to the name of this class.
+ *
+ * The record components are accumulated exactly as for the text store, except that a component is held as a typed
+ * token until the {@link #appendSpace separator} is reached. The buffer size and flush properties of the text store
+ * determine the block size. Block compression is enabled by setting the {@link #COMPRESS_PROPERTY} system property,
+ * optionally to a {@link Deflater} compression level.
+ */
+public class VMABinaryStore extends SBPSVMATextStore {
+
+    private static final String COMPRESS_PROPERTY = "max.vma.store.compress";
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Value of {@link #pendingTag} when no component is pending.
+     */
+    private static final int NONE = -1;
+
+    private OutputStream out;
+
+    /**
+     * The current block, which is written when its length reaches {@link #flushLogAt}.
+     */
+    private byte[] block;
+    private int length;
+
+    /**
+     * The strings defined in the current block, mapped to their index.
+     */
+    private final HashMap<String, Integer> strings = new HashMap<String, Integer>();
+
+    /**
+     * The last object id written to the current block.
+     */
+    private long lastId;
+
+    private Deflater deflater;
+    private byte[] deflated;
+    private final byte[] header = new byte[BLOCK_HEADER_SIZE];
+
+    /**
+     * The tag of the component being accumulated, {@link #STRING_REF} denoting a string.
+     * A string built from a single {@code String} is held in {@link #pendingString}, otherwise in {@link #token}.
+     */
+    private int pendingTag = NONE;
+    private long pendingLong;
+    private float pendingFloat;
+    private double pendingDouble;
+    private String pendingString;
+    private final StringBuilder token = new StringBuilder();
+
+    public VMABinaryStore() {
+    }
+
+    protected VMABinaryStore(String threadName) {
+        super(threadName);
+    }
+
+    @Override
+    protected VMABinaryStore createThreadStore(String threadName) {
+        return new VMABinaryStore(threadName);
+    }
+
+    @Override
+    protected void openStore(File file) throws IOException {
+        out = new FileOutputStream(file);
+        DataOutputStream dout = new DataOutputStream(out);
+        dout.writeInt(MAGIC);
+        dout.writeInt(VERSION);
+        block = new byte[bufSize];
+        final String compress = System.getProperty(COMPRESS_PROPERTY);
+        if (compress != null) {
+            deflater = new Deflater(compress.length() == 0 ? Deflater.DEFAULT_COMPRESSION : Integer.parseInt(compress));
+            deflated = new byte[bufSize];
+        }
+    }
+
+    @Override
+    protected void closeStore() {
+        writeBlock();
+        try {
+            out.close();
+        } catch (IOException ex) {
+            System.err.println("failed to close VMA store: " + ex);
+        }
+        if (deflater != null) {
+            deflater.end();
+        }
+    }
+
+    @Override
+    protected void endRecord() {
+        flushToken();
+        putToken(END, 0);
+        if (length >= flushLogAt) {
+            writeBlock();
+        }
+    }
+
+    @Override
+    protected void appendSpace() {
+        flushToken();
+    }
+
+    @Override
+    protected void appendCheckRepeatId(long objId) {
+        if (objId == REPEAT_ID_VALUE || pendingTag != NONE) {
+            super.appendCheckRepeatId(objId);
+        } else {
+            pendingTag = ID;
+            pendingLong = objId;
+        }
+    }
+
+    @Override
+    protected void append(long l) {
+        if (pendingTag == NONE) {
+            pendingTag = LONG;
+            pendingLong = l;
+        } else {
+            text().append(l);
+        }
+    }
+
+    @Override
+    protected void append(float f) {
+        if (pendingTag == NONE) {
+            pendingTag = FLOAT;
+            pendingFloat = f;
+        } else {
+            text().append(f);
+        }
+    }
+
+    @Override
+    protected void append(double d) {
+        if (pendingTag == NONE) {
+            pendingTag = DOUBLE;
+            pendingDouble = d;
+        } else {
+            text().append(d);
+        }
+    }
+
+    @Override
+    protected void append(String s) {
+        if (pendingTag == NONE) {
+            pendingTag = STRING_REF;
+            pendingString = s;
+        } else {
+            text().append(s);
+        }
+    }
+
+    @Override
+    protected void append(char c) {
+        text().append(c);
+    }
+
+    @Override
+    protected void append(boolean b) {
+        text().append(b);
+    }
+
+    /**
+     * Converts the pending component, if any, to text in {@link #token} so that it can be extended.
+     */
+    private StringBuilder text() {
+        if (pendingTag != STRING_REF || pendingString != null) {
+            final String prefix = pendingTag == NONE ? "" : pendingText();
+            token.setLength(0);
+            token.append(prefix);
+            pendingTag = STRING_REF;
+            pendingString = null;
+        }
+        return token;
+    }
+
+    private String pendingText() {
+        switch (pendingTag) {
+            case LONG:
+            case ID:
+                return Long.toString(pendingLong);
+            case FLOAT:
+                return Float.toString(pendingFloat);
+            case DOUBLE:
+                return Double.toString(pendingDouble);
+            default:
+                return pendingString;
+        }
+    }
+
+    private void flushToken() {
+        switch (pendingTag) {
+            case NONE:
+                return;
+            case LONG:
+                putToken(LONG, zigZag(pendingLong));
+                break;
+            case ID:
+                putToken(ID, zigZag(pendingLong - lastId));
+                lastId = pendingLong;
+                break;
+            case FLOAT:
+                putToken(FLOAT, Float.floatToRawIntBits(pendingFloat) & 0xFFFFFFFFL);
+                break;
+            case DOUBLE:
+                putToken(DOUBLE, 0);
+                putLong(Double.doubleToRawLongBits(pendingDouble));
+                break;
+            default:
+                putString(pendingString != null ? pendingString : token.toString());
+                pendingString = null;
+        }
+        pendingTag = NONE;
+    }
+
+    private void putString(String s) {
+        final Integer index = strings.get(s);
+        if (index != null) {
+            putToken(STRING_REF, index);
+        } else {
+            strings.put(s, strings.size());
+            final byte[] bytes = s.getBytes(UTF8);
+            putToken(STRING_DEF, bytes.length);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, block, length, bytes.length);
+            length += bytes.length;
+        }
+    }
+
+    private void putToken(int tag, long value) {
+        ensureCapacity(11);
+        final int b = tag | (int) ((value & INLINE_MASK) << TAG_BITS);
+        long rest = value >>> INLINE_BITS;
+        if (rest == 0) {
+            block[length++] = (byte) b;
+            return;
+        }
+        block[length++] = (byte) (b | MORE);
+        while ((rest & ~0x7FL) != 0) {
+            block[length++] = (byte) ((rest & 0x7F) | 0x80);
+            rest >>>= 7;
+        }
+        block[length++] = (byte) rest;
+    }
+
+    private void putLong(long value) {
+        ensureCapacity(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            block[length++] = (byte) (value >>> shift);
+        }
+    }
+
+    private void ensureCapacity(int n) {
+        if (length + n > block.length) {
+            block = Arrays.copyOf(block, Math.max(block.length * 2, length + n));
+        }
+    }
+
+    /**
+     * Writes the current block, compressed if that is enabled and makes it smaller, and starts a new one.
+     */
+    private void writeBlock() {
+        if (length == 0) {
+            return;
+        }
+        byte[] data = block;
+        int stored = length;
+        boolean compressed = false;
+        if (deflater != null) {
+            deflater.reset();
+            deflater.setInput(block, 0, length);
+            deflater.finish();
+            int n = 0;
+            while (!deflater.finished() && n < length) {
+                if (n == deflated.length) {
+                    deflated = Arrays.copyOf(deflated, deflated.length * 2);
+                }
+                n += deflater.deflate(deflated, n, deflated.length - n);
+            }
+            if (deflater.finished() && n < length) {
+                data = deflated;
+                stored = n;
+                compressed = true;
+            }
+        }
+        putInt(header, 0, length);
+        putInt(header, 4, stored);
+        header[8] = (byte) (compressed ? 1 : 0);
+        try {
+            out.write(header);
+            out.write(data, 0, stored);
+        } catch (IOException ex) {
+            throw FatalError.unexpected("failed to write VMA store block", ex);
+        }
+        length = 0;
+        strings.clear();
+        lastId = 0;
+    }
+
+    private static void putInt(byte[] b, int offset, int value) {
+        b[offset] = (byte) (value >>> 24);
+        b[offset + 1] = (byte) (value >>> 16);
+        b[offset + 2] = (byte) (value >>> 8);
+        b[offset + 3] = (byte) value;
+    }
+}
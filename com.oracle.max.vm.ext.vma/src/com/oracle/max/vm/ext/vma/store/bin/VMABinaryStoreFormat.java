@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.oracle.max.vm.ext.vma.store.bin;
+
+import java.io.*;
+
+import com.oracle.max.vm.ext.vma.store.txt.*;
+
+/**
+ * Defines the binary representation of a {@link VMATextStore} used by {@link VMABinaryStore}.
+ *
+ * A binary store contains exactly the same records as the text store, component for component, so that a reader can
+ * reconstitute each record as the array of strings that {@code ConvertLog.split} produces for the equivalent line. The
+ * file starts with {@link #MAGIC} and {@link #VERSION}, both big-endian ints, followed by a sequence of blocks. Each
+ * block starts with a {@link #BLOCK_HEADER_SIZE} header containing the raw (uncompressed) length, the stored length and a
+ * compressed flag, followed by the stored bytes, which are {@link java.util.zip.Deflater deflated} if the flag is set.
+ *
+ * A block contains only whole records and is self-contained, i.e., it can be decoded without reference to any other
+ * block, which is what allows a reader to decode blocks in parallel. In per-thread mode each thread has its own store
+ * file and therefore its own blocks.
+ *
+ * Each record component is a token whose first byte holds the tag in its low {@link #TAG_BITS} bits, the low
+ * {@link #INLINE_BITS} bits of an unsigned {@code value} and a continuation bit; if that is set the remaining bits of the
+ * value follow as an unsigned LEB128 varint. The tags are:
+ * <ul>
+ * <li>{@link #END}: end of record.
+ * <li>{@link #LONG}: a zig-zag encoded integral value.
+ * <li>{@link #ID}: a zig-zag encoded object id, as the difference from the previous id in the block.
+ * <li>{@link #STRING_REF}: a reference to the string defined by the {@code value}'th {@link #STRING_DEF} in the block.
+ * <li>{@link #STRING_DEF}: a new string, the value is its UTF-8 length and the bytes follow.
+ * <li>{@link #FLOAT}: the value is the {@link Float#floatToRawIntBits raw bits}.
+ * <li>{@link #DOUBLE}: followed by the eight bytes of the {@link Double#doubleToRawLongBits raw bits}, big-endian.
+ * </ul>
+ * Record keys, short forms, thread names and value type characters are all strings, so in practice they are
+ * one or two byte references to the block's string table.
+ */
+public final class VMABinaryStoreFormat {
+
+    public static final int MAGIC = 0x564D4142; // "VMAB"
+    public static final int VERSION = 1;
+
+    /**
+     * Raw length, stored length and compressed flag.
+     */
+    public static final int BLOCK_HEADER_SIZE = 9;
+
+    public static final int TAG_BITS = 3;
+    public static final int TAG_MASK = (1 << TAG_BITS) - 1;
+    public static final int INLINE_BITS = 4;
+    public static final int INLINE_MASK = (1 << INLINE_BITS) - 1;
+    public static final int MORE = 0x80;
+
+    public static final int END = 0;
+    public static final int LONG = 1;
+    public static final int ID = 2;
+    public static final int STRING_REF = 3;
+    public static final int STRING_DEF = 4;
+    public static final int FLOAT = 5;
+    public static final int DOUBLE = 6;
+
+    private VMABinaryStoreFormat() {
+    }
+
+    public static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    public static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Determines if {@code file} starts with {@link #MAGIC}.
+     */
+    public static boolean isBinaryStore(File file) throws IOException {
+        if (file.length() < 8) {
+            return false;
+        }
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try {
+            return in.readInt() == MAGIC;
+        } finally {
+            in.close();
+        }
+    }
+}
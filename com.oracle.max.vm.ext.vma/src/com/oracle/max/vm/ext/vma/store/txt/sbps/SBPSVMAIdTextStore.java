@@ -49,6 +49,10 @@ import com.sun.max.vm.runtime.*;
  *
  * This class is unsynchronized for use in per-thread mode.
  *
+ * Records are built exclusively with the {@code append} primitives, {@link #appendSpace} and {@link #end},
+ * and the persistent store is managed by {@link #openStore} and {@link #closeStore}. A subclass can override these
+ * to store exactly the same records in a different representation, see
+ * {@link com.oracle.max.vm.ext.vma.store.bin.VMABinaryStore}.
  */
 public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
 
@@ -87,12 +91,12 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
      * Buffer size at which the buffer is flushed to the output stream.
      * Zero flushes every record (testing).
      */
-    private int flushLogAt;
+    protected int flushLogAt;
 
     /**
      * Size of the {@link StringBuilder} buffer.
      */
-    private int bufSize = DEFAULT_BUFSIZE;
+    protected int bufSize = DEFAULT_BUFSIZE;
 
     private PrintStream ps;
 
@@ -180,15 +184,14 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
     }
 
     /**
-     * Creates a {@link PrintStream} and a {@link StringBuilder}.
+     * Opens the persistent store for {@code store}.
      * @param fileName to use for store
      * @return {@code true} iff the persistent store was created ok
      */
     private static boolean createPersistentStore(SBPSVMAIdTextStore store, String fileName) {
         File file = new File(storeFileDir, fileName);
         try {
-            store.ps = new PrintStream(new FileOutputStream(file));
-            store.sb = new StringBuilder(store.bufSize);
+            store.openStore(file);
             // Format log buffer with header information
             store.appendStoreHeader();
             return true;
@@ -198,6 +201,21 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
         }
     }
 
+    /**
+     * Creates a {@link PrintStream} for {@code file} and a {@link StringBuilder}.
+     */
+    protected void openStore(File file) throws IOException {
+        ps = new PrintStream(new FileOutputStream(file));
+        sb = new StringBuilder(bufSize);
+    }
+
+    /**
+     * Closes the persistent store, after the final record has been {@link #end ended}.
+     */
+    protected void closeStore() {
+        ps.close();
+    }
+
     @Override
     public VMATextStore newThread(String threadName) {
         if (perThread) {
@@ -215,11 +233,11 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
     private void appendStoreHeader() {
         appendCode(INITIALIZE_STORE);
         appendSpace();
-        sb.append(lastTime);
+        append(lastTime);
         appendSpace();
-        sb.append(timeMode.isAbsolute());
+        append(timeMode.isAbsolute());
         appendSpace();
-        sb.append((threadBatched ? BATCHED : 0) | (perThread ? PER_THREAD : 0) | (textKey ? TEXT_KEY : 0));
+        append((threadBatched ? BATCHED : 0) | (perThread ? PER_THREAD : 0) | (textKey ? TEXT_KEY : 0));
         end();
     }
 
@@ -264,15 +282,15 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
     protected void finalizeLogBuffer() {
         // Must not call appendCode else will block!
         if (textKey) {
-            sb.append(FINALIZE_STORE.text);
+            append(FINALIZE_STORE.text);
         } else {
-            sb.append(FINALIZE_STORE.code);
+            append(FINALIZE_STORE.code);
         }
         appendSpace();
         appendTime(timeMode.getTime());
         flushLogAt = 0; // force ps.flush
         end();
-        ps.close();
+        closeStore();
     }
 
     /*
@@ -280,38 +298,38 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
      */
     @Override
     public void addClassShortFormDef(String name, long clId, String shortName) {
-        sb.append(VMATextStoreFormat.Key.CLASS_DEFINITION.code);
+        append(VMATextStoreFormat.Key.CLASS_DEFINITION.code);
         appendSpace();
-        sb.append(name);
+        append(name);
         appendSpace();
-        sb.append(clId);
+        append(clId);
         appendSpace();
-        sb.append(shortName);
+        append(shortName);
         end();
     }
 
     @Override
     public void addThreadShortFormDef(String name, String shortName) {
-        sb.append(VMATextStoreFormat.Key.THREAD_DEFINITION.code);
+        append(VMATextStoreFormat.Key.THREAD_DEFINITION.code);
         appendSpace();
         // quote because name may contain a space
-        sb.append('"');
-        sb.append(name);
-        sb.append('"');
+        append('"');
+        append(name);
+        append('"');
         appendSpace();
-        sb.append(shortName);
+        append(shortName);
         end();
     }
 
     @Override
     public void addMemberShortFormDef(VMATextStoreFormat.Key key, String classShortForm, String name, String shortName) {
-        sb.append(key.code);
+        append(key.code);
         appendSpace();
-        sb.append(classShortForm);
+        append(classShortForm);
         appendSpace();
-        sb.append(name);
+        append(name);
         appendSpace();
-        sb.append(shortName);
+        append(shortName);
         end();
     }
 
@@ -327,43 +345,77 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
         }
         done = false;
         if (textKey) {
-            sb.append(key.text);
+            append(key.text);
         } else {
-            sb.append(key.code);
+            append(key.code);
         }
     }
 
     protected void end() {
+        endRecord();
+        done = true;
+    }
+
+    /**
+     * Terminates the current record and flushes the buffer if it has reached {@link #flushLogAt}.
+     */
+    protected void endRecord() {
         sb.append('\n');
         if (sb.length()  >= flushLogAt) {
             ps.print(sb);
             ps.flush();
             sb.setLength(0);
         }
-        done = true;
     }
 
-    private void appendCheckRepeatId(long objId) {
+    protected void append(String s) {
+        sb.append(s);
+    }
+
+    protected void append(char c) {
+        sb.append(c);
+    }
+
+    protected void append(long l) {
+        sb.append(l);
+    }
+
+    protected void append(float f) {
+        sb.append(f);
+    }
+
+    protected void append(double d) {
+        sb.append(d);
+    }
+
+    protected void append(boolean b) {
+        sb.append(b);
+    }
+
+    /**
+     * Separates the components of a record.
+     */
+    protected void appendSpace() {
+        sb.append(' ');
+    }
+
+    protected void appendCheckRepeatId(long objId) {
         if (objId == REPEAT_ID_VALUE) {
-            sb.append('*');
+            append('*');
         } else {
-            sb.append(objId);
+            append(objId);
         }
     }
 
     private void appendTime(long time) {
         if (timeMode.isAbsolute()) {
-            sb.append(time);
+            append(time);
         } else {
-            sb.append(time - lastTime);
+            append(time - lastTime);
             lastTime = time;
         }
     }
 
-    private void appendSpace() {
-        sb.append(' ');
-    }
-
 
     /**
      * Append the log entry key code, then the time associated with the entry, followed by the thread.
@@ -378,13 +430,13 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
         appendTime(time);
         if (threadName != null) {
             appendSpace();
-            sb.append(threadName);
+            append(threadName);
         } else {
             assert perThread;
         }
         if (bci >= 0) {
             appendSpace();
-            sb.append(bci);
+            append(bci);
         }
     }
 
@@ -411,7 +463,7 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
         appendSpace();
         appendCheckRepeatId(objId);
         appendSpace();
-        sb.append(index);
+        append(index);
         appendSpace();
     }
 
@@ -421,16 +473,16 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
      * @param qualName
      */
     private void appendQualName(String className, long clId, String memberName) {
-        sb.append(className);
+        append(className);
         appendSpace();
         // clId elided as in short form of className
-        sb.append(memberName);
+        append(memberName);
     }
 
     private void appendQualId(int classId, int memberId) {
-        sb.append(classId);
+        append(classId);
         appendSpace();
-        sb.append(memberId);
+        append(memberId);
     }
 
     /**
@@ -444,40 +496,40 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
     private void appendTTC(long time, Key key, String className, String threadName, int bci) {
         appendTT(time, key, threadName, bci);
         appendSpace();
-        sb.append(className);
+        append(className);
         appendSpace();
     }
 
     private void appendPutFieldPrefix(long time, long objId, String memberName, String threadName, int bci) {
         appendTTId(time, ADVISE_BEFORE_PUT_FIELD, objId, threadName, bci);
-        sb.append(memberName);
+        append(memberName);
         appendSpace();
     }
 
     private void appendPutFieldPrefix(long time, long objId, int memberId, int bci) {
         appendTTId(time, ADVISE_BEFORE_PUT_FIELD, objId, null, bci);
-        sb.append(memberId);
+        append(memberId);
         appendSpace();
     }
 
     private void appendPutStaticPrefix(long time, String memberName, String threadName, int bci) {
         appendTT(time, ADVISE_BEFORE_PUT_STATIC, threadName, bci);
         appendSpace();
-        sb.append(memberName);
+        append(memberName);
         appendSpace();
     }
 
     private void appendPutStaticPrefix(long time, int memberId, int bci) {
         appendTT(time, ADVISE_BEFORE_PUT_STATIC, null, bci);
         appendSpace();
-        sb.append(memberId);
+        append(memberId);
         appendSpace();
     }
 
     private void prefixAdviseBeforeOperation(long time, String threadName, int bci, int arg1) {
         appendTT(time, ADVISE_BEFORE_OPERATION, threadName, bci);
         appendSpace();
-        sb.append(arg1);
+        append(arg1);
         appendSpace();
     }
 
@@ -485,7 +537,7 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
     public void removal(long id) {
         appendCode(REMOVAL);
         appendSpace();
-        sb.append(id);
+        append(id);
         end();
     }
 
@@ -499,7 +551,7 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
             appendCode(THREAD_SWITCH);
             appendSpace();
             lastTime = time;
-            sb.append(lastTime);
+            append(lastTime);
             end();
         }
     }
@@ -509,7 +561,7 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
         // There is no "bci" field for this, but we pass zero so that the format of the record is
         // the same as that for a NEW etc.
         appendTTId(time, UNSEEN, objId, threadName, bci);
-        sb.append(shortClassName);
+        append(shortClassName);
         end();
     }
 
@@ -536,86 +588,86 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
     public void adviseBeforeGetStatic(long time, String threadName, int bci, String shortFieldName) {
         appendTT(time, ADVISE_BEFORE_GET_STATIC, threadName, bci);
         appendSpace();
-        sb.append(shortFieldName);
+        append(shortFieldName);
         end();
     }
 
     @Override
     public void adviseBeforePutStatic(long time, String threadName, int bci, String shortFieldName, double value) {
         appendPutStaticPrefix(time, shortFieldName, threadName, bci);
-        sb.append(DOUBLE_VALUE);
+        append(DOUBLE_VALUE);
         appendSpace();
-        sb.append(value);
+        append(value);
         end();
     }
 
     @Override
     public void adviseBeforePutStatic(long time, String threadName, int bci, String shortFieldName, long value) {
         appendPutStaticPrefix(time, shortFieldName, threadName, bci);
-        sb.append(LONG_VALUE);
+        append(LONG_VALUE);
         appendSpace();
-        sb.append(value);
+        append(value);
         end();
     }
 
     @Override
     public void adviseBeforePutStatic(long time, String threadName, int bci, String shortFieldName, float value) {
         appendPutStaticPrefix(time, shortFieldName, threadName, bci);
-        sb.append(FLOAT_VALUE);
+        append(FLOAT_VALUE);
         appendSpace();
-        sb.append(value);
+        append(value);
         end();
     }
 
     @Override
     public void adviseBeforePutStaticObject(long time, String threadName, int bci, String shortFieldName, long value) {
         appendPutStaticPrefix(time, shortFieldName, threadName, bci);
-        sb.append(OBJ_VALUE);
+        append(OBJ_VALUE);
         appendSpace();
-        sb.append(value);
+        append(value);
         end();
     }
 
     @Override
     public void adviseBeforeGetField(long time, String threadName, int bci, long objId, String shortFieldName) {
         appendTTId(time, ADVISE_BEFORE_GET_FIELD, objId, threadName, bci);
-        sb.append(shortFieldName);
+        append(shortFieldName);
         end();
     }
 
     @Override
     public void adviseBeforePutField(long time, String threadName, int bci, long objId, String shortFieldName, long value) {
         appendPutFieldPrefix(time, objId, shortFieldName, threadName, bci);
-        sb.append(LONG_VALUE);
+        append(LONG_VALUE);
         appendSpace();
-        sb.append(value);
+        append(value);
         end();
     }
 
     @Override
     public void adviseBeforePutField(long time, String threadName, int bci, long objId, String shortFieldName, float value) {
         appendPutFieldPrefix(time, objId, shortFieldName, threadName, bci);
-        sb.append(FLOAT_VALUE);
+        append(FLOAT_VALUE);
         appendSpace();
-        sb.append(value);
+        append(value);
         end();
     }
 
     @Override
     public void adviseBeforePutField(long time, String threadName, int bci, long objId, String shortFieldName, double value) {
         appendPutFieldPrefix(time, objId, shortFieldName, threadName, bci);
-        sb.append(DOUBLE_VALUE);
+        append(DOUBLE_VALUE);
         appendSpace();
-        sb.append(value);
+        append(value);
         end();
     }
 
     @Override
     public void adviseBeforePutFieldObject(long time, String threadName, int bci, long objId, String shortFieldName, long value) {
         appendPutFieldPrefix(time, objId, shortFieldName, threadName, bci);
-        sb.append(LONG_VALUE);
+        append(LONG_VALUE);
         appendSpace();
-        sb.append(value);
+        append(value);
         end();
     }
 
@@ -628,61 +680,61 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
     @Override
     public void adviseBeforeArrayStore(long time, String threadName, int bci, long objId, int index, float value) {
         appendTTIdIndex(time, ADVISE_BEFORE_ARRAY_STORE, objId, threadName, bci, index);
-        sb.append(FLOAT_VALUE);
+        append(FLOAT_VALUE);
         appendSpace();
-        sb.append(value);
+        append(value);
         end();
     }
 
     @Override
     public void adviseBeforeArrayStore(long time, String threadName, int bci, long objId, int index, long value) {
         appendTTIdIndex(time, ADVISE_BEFORE_ARRAY_STORE, objId, threadName, bci, index);
-        sb.append(LONG_VALUE);
+        append(LONG_VALUE);
         appendSpace();
-        sb.append(value);
+        append(value);
         end();
     }
 
     @Override
     public void adviseBeforeArrayStore(long time, String threadName, int bci, long objId, int index, double value) {
         appendTTIdIndex(time, ADVISE_BEFORE_ARRAY_STORE, objId, threadName, bci, index);
-        sb.append(DOUBLE_VALUE);
+        append(DOUBLE_VALUE);
         appendSpace();
-        sb.append(value);
+        append(value);
         end();
     }
 
     @Override
     public void adviseBeforeArrayStoreObject(long time, String threadName, int bci, long objId, int index, long valueId) {
         appendTTIdIndex(time, ADVISE_BEFORE_ARRAY_STORE, objId, threadName, bci, index);
-        sb.append(OBJ_VALUE);
+        append(OBJ_VALUE);
         appendSpace();
-        sb.append(valueId);
+        append(valueId);
         end();
     }
 
     @Override
     public void adviseAfterArrayLoadObject(long time, String threadName, int bci, long objId, int index, long valueId) {
         appendTTIdIndex(time, ADVISE_AFTER_ARRAY_LOAD, objId, threadName, bci, index);
-        sb.append(OBJ_VALUE);
+        append(OBJ_VALUE);
         appendSpace();
-        sb.append(valueId);
+        append(valueId);
         end();
     }
 
     @Override
     public void adviseAfterNew(long time, String threadName, int bci, long objId, String shortClassName) {
         appendTTId(time, ADVISE_AFTER_NEW, objId, threadName, bci);
-        sb.append(shortClassName);
+        append(shortClassName);
         end();
     }
 
     @Override
     public void adviseAfterNewArray(long time, String threadName, int bci, long objId, String shortClassName, int length) {
         appendTTId(time, ADVISE_AFTER_NEW_ARRAY, objId, threadName, bci);
-        sb.append(shortClassName);
+        append(shortClassName);
         appendSpace();
-        sb.append(length);
+        append(length);
         end();
     }
 
@@ -703,9 +755,9 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
     public void adviseBeforeConstLoad(long time, String threadName, int bci, long value) {
         appendTT(time, ADVISE_BEFORE_CONST_LOAD, threadName, bci);
         appendSpace();
-        sb.append(LONG_VALUE);
+        append(LONG_VALUE);
         appendSpace();
-        sb.append(value);
+        append(value);
         end();
     }
 
@@ -713,9 +765,9 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
     public void adviseBeforeConstLoadObject(long time, String threadName, int bci, long value) {
         appendTT(time, ADVISE_BEFORE_CONST_LOAD, threadName, bci);
         appendSpace();
-        sb.append(OBJ_VALUE);
+        append(OBJ_VALUE);
         appendSpace();
-        sb.append(value);
+        append(value);
         end();
     }
 
@@ -723,9 +775,9 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
     public void adviseBeforeConstLoad(long time, String threadName, int bci, float value) {
         appendTT(time, ADVISE_BEFORE_CONST_LOAD, threadName, bci);
         appendSpace();
-        sb.append(FLOAT_VALUE);
+        append(FLOAT_VALUE);
         appendSpace();
-        sb.append(value);
+        append(value);
         end();
     }
 
@@ -733,9 +785,9 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
     public void adviseBeforeConstLoad(long time, String threadName, int bci, double value) {
         appendTT(time, ADVISE_BEFORE_CONST_LOAD, threadName, bci);
         appendSpace();
-        sb.append(DOUBLE_VALUE);
+        append(DOUBLE_VALUE);
         appendSpace();
-        sb.append(value);
+        append(value);
         end();
     }
 
@@ -743,7 +795,7 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
     public void adviseBeforeLoad(long time, String threadName, int bci, int dispToLocalSlot) {
         appendTT(time, ADVISE_BEFORE_LOAD, threadName, bci);
         appendSpace();
-        sb.append(dispToLocalSlot);
+        append(dispToLocalSlot);
         end();
     }
 
@@ -751,11 +803,11 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
     public void adviseBeforeStore(long time, String threadName, int bci, int dispToLocalSlot, long value) {
         appendTT(time, ADVISE_BEFORE_STORE, threadName, bci);
         appendSpace();
-        sb.append(dispToLocalSlot);
+        append(dispToLocalSlot);
         appendSpace();
-        sb.append(LONG_VALUE);
+        append(LONG_VALUE);
         appendSpace();
-        sb.append(value);
+        append(value);
         end();
     }
 
@@ -763,11 +815,11 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
     public void adviseBeforeStore(long time, String threadName, int bci, int dispToLocalSlot, float value) {
         appendTT(time, ADVISE_BEFORE_STORE, threadName, bci);
         appendSpace();
-        sb.append(dispToLocalSlot);
+        append(dispToLocalSlot);
         appendSpace();
-        sb.append(FLOAT_VALUE);
+        append(FLOAT_VALUE);
         appendSpace();
-        sb.append(value);
+        append(value);
         end();
     }
 
@@ -775,11 +827,11 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
     public void adviseBeforeStore(long time, String threadName, int bci, int dispToLocalSlot, double value) {
         appendTT(time, ADVISE_BEFORE_STORE, threadName, bci);
         appendSpace();
-        sb.append(dispToLocalSlot);
+        append(dispToLocalSlot);
         appendSpace();
-        sb.append(DOUBLE_VALUE);
+        append(DOUBLE_VALUE);
         appendSpace();
-        sb.append(value);
+        append(value);
         end();
     }
 
@@ -787,11 +839,11 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
     public void adviseBeforeStoreObject(long time, String threadName, int bci, int dispToLocalSlot, long value) {
         appendTT(time, ADVISE_BEFORE_STORE, threadName, bci);
         appendSpace();
-        sb.append(dispToLocalSlot);
+        append(dispToLocalSlot);
         appendSpace();
-        sb.append(OBJ_VALUE);
+        append(OBJ_VALUE);
         appendSpace();
-        sb.append(value);
+        append(value);
         end();
     }
 
@@ -799,11 +851,11 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
     public void adviseAfterLoadObject(long time, String threadName, int bci, int dispToLocalSlot, long value) {
         appendTT(time, ADVISE_AFTER_LOAD, threadName, bci);
         appendSpace();
-        sb.append(dispToLocalSlot);
+        append(dispToLocalSlot);
         appendSpace();
-        sb.append(OBJ_VALUE);
+        append(OBJ_VALUE);
         appendSpace();
-        sb.append(value);
+        append(value);
         end();
     }
 
@@ -811,40 +863,40 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
     public void adviseBeforeStackAdjust(long time, String threadName, int bci, int arg1) {
         appendTT(time, ADVISE_BEFORE_STACK_ADJUST, threadName, bci);
         appendSpace();
-        sb.append(arg1);
+        append(arg1);
         end();
     }
 
     @Override
     public void adviseBeforeOperation(long time, String threadName, int bci, int arg1, long arg2, long arg3) {
         prefixAdviseBeforeOperation(time, threadName, bci, arg1);
-        sb.append(LONG_VALUE);
+        append(LONG_VALUE);
         appendSpace();
-        sb.append(arg2);
+        append(arg2);
         appendSpace();
-        sb.append(arg3);
+        append(arg3);
         end();
     }
 
     @Override
     public void adviseBeforeOperation(long time, String threadName, int bci, int arg1, float arg2, float arg3) {
         prefixAdviseBeforeOperation(time, threadName, bci, arg1);
-        sb.append(FLOAT_VALUE);
+        append(FLOAT_VALUE);
         appendSpace();
-        sb.append(arg2);
+        append(arg2);
         appendSpace();
-        sb.append(arg3);
+        append(arg3);
         end();
     }
 
     @Override
     public void adviseBeforeOperation(long time, String threadName, int bci, int arg1, double arg2, double arg3) {
         prefixAdviseBeforeOperation(time, threadName, bci, arg1);
-        sb.append(DOUBLE_VALUE);
+        append(DOUBLE_VALUE);
         appendSpace();
-        sb.append(arg2);
+        append(arg2);
         appendSpace();
-        sb.append(arg3);
+        append(arg3);
         end();
     }
 
@@ -852,11 +904,11 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
     public void adviseBeforeConversion(long time, String threadName, int bci, int arg1, long arg2) {
         appendTT(time, ADVISE_BEFORE_CONVERSION, threadName, bci);
         appendSpace();
-        sb.append(arg1);
+        append(arg1);
         appendSpace();
-        sb.append(LONG_VALUE);
+        append(LONG_VALUE);
         appendSpace();
-        sb.append(arg2);
+        append(arg2);
         end();
     }
 
@@ -864,11 +916,11 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
     public void adviseBeforeConversion(long time, String threadName, int bci, int arg1, float arg2) {
         appendTT(time, ADVISE_BEFORE_CONVERSION, threadName, bci);
         appendSpace();
-        sb.append(arg1);
+        append(arg1);
         appendSpace();
-        sb.append(FLOAT_VALUE);
+        append(FLOAT_VALUE);
         appendSpace();
-        sb.append(arg2);
+        append(arg2);
         end();
     }
 
@@ -876,11 +928,11 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
     public void adviseBeforeConversion(long time, String threadName, int bci, int arg1, double arg2) {
         appendTT(time, ADVISE_BEFORE_CONVERSION, threadName, bci);
         appendSpace();
-        sb.append(arg1);
+        append(arg1);
         appendSpace();
-        sb.append(DOUBLE_VALUE);
+        append(DOUBLE_VALUE);
         appendSpace();
-        sb.append(arg2);
+        append(arg2);
         end();
     }
 
@@ -888,15 +940,15 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
     public void adviseBeforeIf(long time, String threadName, int bci, int opcode, int op1, int op2, int branchOffset) {
         appendTT(time, ADVISE_BEFORE_IF, threadName, bci);
         appendSpace();
-        sb.append(opcode);
+        append(opcode);
         appendSpace();
-        sb.append(LONG_VALUE);
+        append(LONG_VALUE);
         appendSpace();
-        sb.append(op1);
+        append(op1);
         appendSpace();
-        sb.append(op2);
+        append(op2);
         appendSpace();
-        sb.append(branchOffset);
+        append(branchOffset);
         end();
     }
 
@@ -904,15 +956,15 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
     public void adviseBeforeIfObject(long time, String threadName, int bci, int opcode, long objId1, long objId2, int branchOffset) {
         appendTT(time, ADVISE_BEFORE_IF, threadName, bci);
         appendSpace();
-        sb.append(opcode);
+        append(opcode);
         appendSpace();
-        sb.append(OBJ_VALUE);
+        append(OBJ_VALUE);
         appendSpace();
-        sb.append(objId1);
+        append(objId1);
         appendSpace();
-        sb.append(objId2);
+        append(objId2);
         appendSpace();
-        sb.append(branchOffset);
+        append(branchOffset);
         end();
     }
 
@@ -920,7 +972,7 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
     public void adviseBeforeGoto(long time, String threadName, int bci, int branchOffset) {
         appendTT(time, ADVISE_BEFORE_GOTO, threadName, bci);
         appendSpace();
-        sb.append(branchOffset);
+        append(branchOffset);
         end();
     }
 
@@ -928,9 +980,9 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
     public void adviseBeforeReturnObject(long time, String threadName, int bci, long value) {
         appendTT(time, ADVISE_BEFORE_RETURN, threadName, bci);
         appendSpace();
-        sb.append(OBJ_VALUE);
+        append(OBJ_VALUE);
         appendSpace();
-        sb.append(value);
+        append(value);
         end();
     }
 
@@ -938,9 +990,9 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
     public void adviseBeforeReturn(long time, String threadName, int bci, long value) {
         appendTT(time, ADVISE_BEFORE_RETURN, threadName, bci);
         appendSpace();
-        sb.append(LONG_VALUE);
+        append(LONG_VALUE);
         appendSpace();
-        sb.append(value);
+        append(value);
         end();
     }
 
@@ -948,9 +1000,9 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
     public void adviseBeforeReturn(long time, String threadName, int bci, float value) {
         appendTT(time, ADVISE_BEFORE_RETURN, threadName, bci);
         appendSpace();
-        sb.append(FLOAT_VALUE);
+        append(FLOAT_VALUE);
         appendSpace();
-        sb.append(value);
+        append(value);
         end();
     }
 
@@ -958,9 +1010,9 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
     public void adviseBeforeReturn(long time, String threadName, int bci, double value) {
         appendTT(time, ADVISE_BEFORE_RETURN, threadName, bci);
         appendSpace();
-        sb.append(DOUBLE_VALUE);
+        append(DOUBLE_VALUE);
         appendSpace();
-        sb.append(value);
+        append(value);
         end();
     }
 
@@ -973,35 +1025,35 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
     @Override
     public void adviseBeforeInvokeVirtual(long time, String threadName, int bci, long objId, String shortMethodName) {
         appendTTId(time, ADVISE_BEFORE_INVOKE_VIRTUAL, objId, threadName, bci);
-        sb.append(shortMethodName);
+        append(shortMethodName);
         end();
     }
 
     @Override
     public void adviseBeforeInvokeSpecial(long time, String threadName, int bci, long objId, String shortMethodName) {
         appendTTId(time, ADVISE_BEFORE_INVOKE_SPECIAL, objId, threadName, bci);
-        sb.append(shortMethodName);
+        append(shortMethodName);
         end();
     }
 
     @Override
     public void adviseBeforeInvokeStatic(long time, String threadName, int bci, long objId, String shortMethodName) {
         appendTTId(time, ADVISE_BEFORE_INVOKE_STATIC, objId, threadName, bci);
-        sb.append(shortMethodName);
+        append(shortMethodName);
         end();
     }
 
     @Override
     public void adviseBeforeInvokeInterface(long time, String threadName, int bci, long objId, String shortMethodName) {
         appendTTId(time, ADVISE_BEFORE_INVOKE_INTERFACE, objId, threadName, bci);
-        sb.append(shortMethodName);
+        append(shortMethodName);
         end();
     }
 
     @Override
     public void adviseAfterArrayLength(long time, String threadName, int bci, long objId, int length) {
         appendTTId(time, ADVISE_AFTER_ARRAY_LENGTH, objId, threadName, bci);
-        sb.append(length);
+        append(length);
         end();
     }
 
@@ -1014,14 +1066,14 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
     @Override
     public void adviseBeforeCheckCast(long time, String threadName, int bci, long objId, String shortClassName) {
         appendTTId(time, ADVISE_BEFORE_CHECK_CAST, objId, threadName, bci);
-        sb.append(shortClassName);
+        append(shortClassName);
         end();
     }
 
     @Override
     public void adviseBeforeInstanceOf(long time, String threadName, int bci, long objId, String shortClassName) {
         appendTTId(time, ADVISE_BEFORE_INSTANCE_OF, objId, threadName, bci);
-        sb.append(shortClassName);
+        append(shortClassName);
         end();
     }
 
@@ -1040,13 +1092,13 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
     @Override
     public void adviseAfterMethodEntry(long time, String threadName, int bci, long objId, String shortMethodName) {
         appendTTId(time, ADVISE_AFTER_METHOD_ENTRY, objId, threadName, bci);
-        sb.append(shortMethodName);
+        append(shortMethodName);
         end();
     }
     @Override
     public void adviseBeforeReturnByThrow(long time, String threadName, int bci, long objId, int poppedFrames) {
         appendTTId(time, ADVISE_BEFORE_RETURN_BY_THROW, objId, threadName, bci);
-        sb.append(poppedFrames);
+        append(poppedFrames);
         end();
 
     }
@@ -1054,23 +1106,23 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
     @Override
     public void unseenObject(long time, int bci, long objId, int classId) {
         appendTTId(time, UNSEEN, objId, null, bci);
-        sb.append(classId);
+        append(classId);
         end();
     }
 
     @Override
     public void adviseAfterNew(long time, int bci, long objId, int classId) {
         appendTTId(time, ADVISE_AFTER_NEW, objId, null, bci);
-        sb.append(classId);
+        append(classId);
         end();
     }
 
     @Override
     public void adviseAfterNewArray(long time, int bci, long objId, int classId, int length) {
         appendTTId(time, ADVISE_AFTER_NEW_ARRAY, objId, null, bci);
-        sb.append(classId);
+        append(classId);
         appendSpace();
-        sb.append(length);
+        append(length);
         end();
     }
 
@@ -1083,135 +1135,135 @@ public abstract class SBPSVMAIdTextStore implements VMAIdTextStoreIntf {
     public void adviseBeforeGetStatic(long time, int bci, int fieldId) {
         appendTT(time, ADVISE_BEFORE_GET_STATIC, null, bci);
         appendSpace();
-        sb.append(fieldId);
+        append(fieldId);
         end();
     }
 
     @Override
     public void adviseBeforePutStatic(long time, int bci, int fieldId, float value) {
         appendPutStaticPrefix(time, fieldId, bci);
-        sb.append(FLOAT_VALUE);
+        append(FLOAT_VALUE);
         appendSpace();
-        sb.append(value);
+        append(value);
         end();
     }
 
     @Override
     public void adviseBeforePutStatic(long time, int bci, int fieldId, double value) {
         appendPutStaticPrefix(time, fieldId, bci);
-        sb.append(DOUBLE_VALUE);
+        append(DOUBLE_VALUE);
         appendSpace();
-        sb.append(value);
+        append(value);
         end();
     }
 
     @Override
     public void adviseBeforePutStatic(long time, int bci, int fieldId, long value) {
         appendPutStaticPrefix(time, fieldId, bci);
-        sb.append(LONG_VALUE);
+        append(LONG_VALUE);
         appendSpace();
-        sb.append(value);
+        append(value);
         end();
     }
 
     @Override
     public void adviseBeforePutStaticObject(long time, int bci, int fieldId, long value) {
         appendPutStaticPrefix(time, fieldId, bci);
-        sb.append(OBJ_VALUE);
+        append(OBJ_VALUE);
         appendSpace();
-        sb.append(value);
+        append(value);
         end();
     }
 
     @Override
     public void adviseBeforeGetField(long time, int bci, long objId, int fieldId) {
         appendTTId(time, ADVISE_BEFORE_GET_FIELD, objId, null, bci);
-        sb.append(fieldId);
+        append(fieldId);
         end();
     }
 
     @Override
     public void adviseBeforePutField(long time, int bci, long objId, int fieldId, float value) {
         appendPutFieldPrefix(time, objId, fieldId, bci);
-        sb.append(FLOAT_VALUE);
+        append(FLOAT_VALUE);
         appendSpace();
-        sb.append(value);
+        append(value);
         end();
     }
 
     @Override
     public void adviseBeforePutField(long time, int bci, long objId, int fieldId, long value) {
         appendPutFieldPrefix(time, objId, fieldId, bci);
-        sb.append(LONG_VALUE);
+        append(LONG_VALUE);
         appendSpace();
-        sb.append(value);
+        append(value);
         end();
     }
 
     @Override
     public void adviseBeforePutField(long time, int bci, long objId, int fieldId, double value) {
         appendPutFieldPrefix(time, objId, fieldId, bci);
-        sb.append(DOUBLE_VALUE);
+        append(DOUBLE_VALUE);
         appendSpace();
-        sb.append(value);
+        append(value);
         end();
     }
 
     @Override
     public void adviseBeforePutFieldObject(long time, int bci, long objId, int fieldId, long value) {
         appendPutFieldPrefix(time, objId, fieldId, bci);
-        sb.append(OBJ_VALUE);
+        append(OBJ_VALUE);
         appendSpace();
-        sb.append(value);
+        append(value);
         end();
     }
 
     @Override
     public void adviseBeforeInvokeVirtual(long time, int bci, long objId, int methodId) {
         appendTTId(time, ADVISE_BEFORE_INVOKE_VIRTUAL, objId, null, bci);
-        sb.append(methodId);
+        append(methodId);
         end();
     }
 
     @Override
     public void adviseBeforeInvokeSpecial(long time, int bci, long objId, int methodId) {
         appendTTId(time, ADVISE_BEFORE_INVOKE_SPECIAL, objId, null, bci);
-        sb.append(methodId);
+        append(methodId);
         end();
     }
 
     @Override
     public void adviseBeforeInvokeStatic(long time, int bci, long objId, int methodId) {
         appendTTId(time, ADVISE_BEFORE_INVOKE_STATIC, objId, null, bci);
-        sb.append(methodId);
+        append(methodId);
         end();
     }
 
     @Override
     public void adviseBeforeInvokeInterface(long time, int bci, long objId, int methodId) {
         appendTTId(time, ADVISE_BEFORE_INVOKE_INTERFACE, objId, null, bci);
-        sb.append(methodId);
+        append(methodId);
         end();
     }
 
     @Override
     public void adviseBeforeCheckCast(long time, int bci, long objId, int classId) {
         appendTTId(time, ADVISE_BEFORE_CHECK_CAST, objId, null, bci);
-        sb.append(classId);
+        append(classId);
         end();
     }
 
     @Override
     public void adviseBeforeInstanceOf(long time, int bci, long objId, int classId) {
         appendTTId(time, ADVISE_BEFORE_INSTANCE_OF, objId, null, bci);
-        sb.append(classId);
+        append(classId);
         end();
     }
 
     @Override
     public void adviseAfterMethodEntry(long time, int bci, long objId, int methodId) {
         appendTTId(time, ADVISE_AFTER_METHOD_ENTRY, objId, null, bci);
-        sb.append(methodId);
+        append(methodId);
         end();
     }
 
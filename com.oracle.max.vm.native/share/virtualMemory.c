@@ -268,6 +268,24 @@ void virtualMemory_unprotectPages(Address address, int count) {
 #endif
 }
 
+/*
+ * Asks the kernel to back a committed range with transparent huge pages.
+ * Returns false if the platform has no such facility or the kernel rejected the advice.
+ */
+jboolean virtualMemory_adviseHugePages(Address address, Size size) {
+#if os_LINUX && defined(MADV_HUGEPAGE)
+    if (madvise((void *) address, (size_t) size, MADV_HUGEPAGE) != 0) {
+#if log_MMAP
+        log_println("virtualMemory_adviseHugePages(%p, %p) failed: %s", address, size, strerror(errno));
+#endif
+        return JNI_FALSE;
+    }
+    return JNI_TRUE;
+#else
+    return JNI_FALSE;
+#endif
+}
+
 static unsigned int pageSize = 0;
 static Size physicalMemory = 0;
 
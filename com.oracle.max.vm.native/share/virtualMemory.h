@@ -51,4 +51,6 @@ extern Address virtualMemory_pageAlign(Address address);
 
 extern void virtualMemory_protectPages(Address address, int count);
 extern void virtualMemory_unprotectPages(Address address, int count);
+
+extern jboolean virtualMemory_adviseHugePages(Address address, Size size);
 #endif /*__virtualMemory_h__*/
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+#include "os.h"
+
+#include <sys/types.h>
+#include <sys/stat.h>
+#include <errno.h>
+#include <fcntl.h>
+#include <unistd.h>
+
+#include "word.h"
+#include "jni.h"
+
+/*
+ * File output for heap dumps. The threads walking the heap write their buffers at the same time,
+ * each at an offset it reserved, hence the positional writes.
+ */
+
+jint heapdump_open(const char *path) {
+    return open(path, O_WRONLY | O_CREAT | O_EXCL, S_IRUSR | S_IWUSR);
+}
+
+jboolean heapdump_write(jint fd, Address buffer, Size length, jlong offset) {
+    const char *p = (const char *) buffer;
+    while (length > 0) {
+        ssize_t n = pwrite(fd, p, (size_t) length, (off_t) offset);
+        if (n < 0) {
+            if (errno == EINTR) {
+                continue;
+            }
+            return JNI_FALSE;
+        }
+        p += n;
+        length -= (Size) n;
+        offset += n;
+    }
+    return JNI_TRUE;
+}
+
+jint heapdump_close(jint fd) {
+    return close(fd);
+}
@@ -26,6 +26,8 @@
 #include <unistd.h>
 #include <stdio.h>
 #include <stdlib.h>
+#include <stdint.h>
+#include <sys/mman.h>
 
 #include "relocation.h"
 #include "word.h"
@@ -68,6 +70,38 @@ static Address          theHeap = 0;
 static Address          theCode = 0;
 static Address          theCodeEnd = 0;
 
+#if !MEMORY_IMAGE
+static char *relocatedImagePath = NULL;
+static char *touchProfilePath = NULL;
+
+#define RELOCATED_IMAGE_IDENTIFICATION 0xcafe4dae
+
+/*
+ * The header of a relocated image file. The relocated heap and code follow at the next page boundary.
+ */
+typedef struct image_RelocatedHeader {
+    jint relocatedIdentification;
+    jint identification;
+    jint bootImageFormatVersion;
+    jint randomID;
+    jint heapAndCodeSize;
+    Address reservedVirtualSpace;
+    Address heap;
+} *image_RelocatedHeader;
+#endif
+
+void image_setRelocatedImagePath(char *path) {
+#if !MEMORY_IMAGE
+    relocatedImagePath = path;
+#endif
+}
+
+void image_setTouchProfilePath(char *path) {
+#if !MEMORY_IMAGE
+    touchProfilePath = path;
+#endif
+}
+
 /*************************************************************************
  Functions for accessing image sections (once they are loaded).
  ************************************************************************/
@@ -357,6 +391,168 @@ static void mapHeapAndCode(int fd) {
     theCodeEnd = theCode + theHeader->codeSize;
 }
 
+#if !MEMORY_IMAGE && (os_SOLARIS || os_DARWIN || os_LINUX)
+/*
+ * Reserves virtual memory at exactly a given address without replacing any existing mapping.
+ */
+static jboolean reserveAt(Address address, Size size) {
+    void *result = mmap((void *) address, (size_t) size, PROT_READ | PROT_WRITE | PROT_EXEC, MAP_PRIVATE | MAP_ANON | MAP_NORESERVE, -1, 0);
+    if (result == MAP_FAILED) {
+        return JNI_FALSE;
+    }
+    if ((Address) result != address) {
+        munmap(result, (size_t) size);
+        return JNI_FALSE;
+    }
+    return JNI_TRUE;
+}
+
+/*
+ * Maps the heap and code from the relocated image file if it matches the boot image and
+ * the addresses it was relocated for are still available.
+ */
+static jboolean mapRelocatedImage(void) {
+    struct image_RelocatedHeader relocatedHeader;
+    int heapAndCodeSize = theHeader->heapSize + theHeader->codeSize;
+    size_t virtualSpaceSize = 1024L * theHeader->reservedVirtualSpaceSize;
+    int fd = open(relocatedImagePath, O_RDONLY);
+    if (fd < 0) {
+        return JNI_FALSE;
+    }
+    if (read(fd, &relocatedHeader, sizeof(relocatedHeader)) != sizeof(relocatedHeader)
+                    || relocatedHeader.relocatedIdentification != (jint) RELOCATED_IMAGE_IDENTIFICATION
+                    || relocatedHeader.identification != theHeader->identification
+                    || relocatedHeader.bootImageFormatVersion != theHeader->bootImageFormatVersion
+                    || relocatedHeader.randomID != theHeader->randomID
+                    || relocatedHeader.heapAndCodeSize != heapAndCodeSize) {
+#if log_LOADER
+        log_println("image.mapRelocatedImage: %s does not match the boot image", relocatedImagePath);
+#endif
+        close(fd);
+        return JNI_FALSE;
+    }
+    Address reservedVirtualSpace = relocatedHeader.reservedVirtualSpace;
+    if (virtualSpaceSize != 0 && !reserveAt(reservedVirtualSpace, virtualSpaceSize)) {
+#if log_LOADER
+        log_println("image.mapRelocatedImage: could not reserve virtual space at %p", reservedVirtualSpace);
+#endif
+        close(fd);
+        return JNI_FALSE;
+    }
+    if (theHeader->bootRegionMappingConstraint == 1) {
+        theHeap = reservedVirtualSpace;
+    } else if (theHeader->bootRegionMappingConstraint == 2) {
+        theHeap = reservedVirtualSpace + virtualSpaceSize - heapAndCodeSize;
+    } else {
+        theHeap = relocatedHeader.heap;
+        if (!reserveAt(theHeap, heapAndCodeSize)) {
+            if (virtualSpaceSize != 0) {
+                munmap((void *) reservedVirtualSpace, virtualSpaceSize);
+            }
+            close(fd);
+            return JNI_FALSE;
+        }
+    }
+    c_ASSERT(theHeap == relocatedHeader.heap);
+    if (virtualMemory_mapFileAtFixedAddress(theHeap, heapAndCodeSize, fd, theHeader->pageSize) == ALLOC_FAILED) {
+        log_exit(4, "could not map relocated boot image");
+    }
+    close(fd);
+    theCode = theHeap + theHeader->heapSize;
+    theCodeEnd = theCode + theHeader->codeSize;
+#if log_LOADER
+    log_println("image.mapRelocatedImage: mapped %s at %p", relocatedImagePath, theHeap);
+#endif
+    return JNI_TRUE;
+}
+
+/*
+ * Writes the relocated heap and code to the relocated image file. The file is written under a
+ * temporary name and then renamed so that other VMs never see a partially written file.
+ */
+static void writeRelocatedImage(void) {
+    struct image_RelocatedHeader relocatedHeader;
+    char tmpPath[MAX_PATH_LENGTH];
+    int heapAndCodeSize = theHeader->heapSize + theHeader->codeSize;
+    Address reservedVirtualSpace = 0;
+    if (theHeader->reservedVirtualSpaceSize != 0) {
+        reservedVirtualSpace = image_read_value(Address, reservedVirtualSpaceFieldOffset);
+    }
+    relocatedHeader.relocatedIdentification = (jint) RELOCATED_IMAGE_IDENTIFICATION;
+    relocatedHeader.identification = theHeader->identification;
+    relocatedHeader.bootImageFormatVersion = theHeader->bootImageFormatVersion;
+    relocatedHeader.randomID = theHeader->randomID;
+    relocatedHeader.heapAndCodeSize = heapAndCodeSize;
+    relocatedHeader.reservedVirtualSpace = reservedVirtualSpace;
+    relocatedHeader.heap = theHeap;
+
+    snprintf(tmpPath, sizeof(tmpPath), "%s.%d", relocatedImagePath, (int) getpid());
+    int fd = open(tmpPath, O_WRONLY | O_CREAT | O_TRUNC, 0444);
+    if (fd < 0) {
+        log_println("WARNING: could not create relocated boot image %s", tmpPath);
+        return;
+    }
+    char *p = (char *) theHeap;
+    Size remaining = heapAndCodeSize;
+    jboolean ok = write(fd, &relocatedHeader, sizeof(relocatedHeader)) == sizeof(relocatedHeader)
+                    && lseek(fd, theHeader->pageSize, SEEK_SET) == theHeader->pageSize;
+    while (ok && remaining > 0) {
+        ssize_t n = write(fd, p, remaining);
+        if (n <= 0) {
+            ok = JNI_FALSE;
+        } else {
+            p += n;
+            remaining -= n;
+        }
+    }
+    if (close(fd) != 0) {
+        ok = JNI_FALSE;
+    }
+    if (!ok || rename(tmpPath, relocatedImagePath) != 0) {
+        log_println("WARNING: could not write relocated boot image %s", relocatedImagePath);
+        unlink(tmpPath);
+    }
+}
+#endif
+
+#if !MEMORY_IMAGE && os_LINUX
+/*
+ * Writes the offsets of the boot heap and code pages that are mapped into this process.
+ * When the image was mapped from a relocated image file, these are the pages touched
+ * since the VM started. The kernel may map a few neighbours of a faulting page as well.
+ */
+static void writeTouchProfile(void) {
+    FILE *out = fopen(touchProfilePath, "w");
+    int pagemap = open("/proc/self/pagemap", O_RDONLY);
+    if (out == NULL || pagemap < 0) {
+        log_println("WARNING: could not write boot image touch profile %s", touchProfilePath);
+        if (out != NULL) {
+            fclose(out);
+        }
+        return;
+    }
+    Size pageSize = virtualMemory_getPageSize();
+    Address page;
+    fprintf(out, "pagesize %lu\n", (unsigned long) pageSize);
+    for (page = theHeap; page < theCodeEnd; page += pageSize) {
+        uint64_t entry;
+        off_t offset = (off_t) (page / pageSize) * sizeof(entry);
+        if (pread(pagemap, &entry, sizeof(entry), offset) != sizeof(entry)) {
+            break;
+        }
+        if (entry & (((uint64_t) 1) << 63)) {
+            if (page < theCode) {
+                fprintf(out, "heap %lu\n", (unsigned long) (page - theHeap));
+            } else {
+                fprintf(out, "code %lu\n", (unsigned long) (page - theCode));
+            }
+        }
+    }
+    close(pagemap);
+    fclose(out);
+}
+#endif
+
 static void relocate(int fd) {
     off_t wantedFileOffset;
     Byte *relocationData;
@@ -421,13 +617,27 @@ void image_load(char *imageFileName) {
     checkImage();
     readStringInfo(fd);
     checkTrailer(fd);
-    mapHeapAndCode(fd);
+#if !MEMORY_IMAGE && (os_SOLARIS || os_DARWIN || os_LINUX)
+    if (relocatedImagePath == NULL || !mapRelocatedImage()) {
+#endif
+        mapHeapAndCode(fd);
 #if log_LOADER
-    log_println("code @%p codeEnd @%p heap @%p", theCode, theCodeEnd, theHeap);
+        log_println("code @%p codeEnd @%p heap @%p", theCode, theCodeEnd, theHeap);
 #endif
-    relocate(fd);
+        relocate(fd);
 #if log_LOADER
-    log_println("code @%p codeEnd @%p heap @%p", theCode, theCodeEnd, theHeap);
+        log_println("code @%p codeEnd @%p heap @%p", theCode, theCodeEnd, theHeap);
+#endif
+#if !MEMORY_IMAGE && (os_SOLARIS || os_DARWIN || os_LINUX)
+        if (relocatedImagePath != NULL) {
+            writeRelocatedImage();
+        }
+    }
+#endif
+#if !MEMORY_IMAGE && os_LINUX
+    if (touchProfilePath != NULL) {
+        atexit(writeTouchProfile);
+    }
 #endif
     int error = close(fd);
     if (error != 0) {
@@ -133,6 +133,18 @@ typedef struct image_Trailer {
  */
 extern void image_load(char *imageFileName);
 
+/*
+ * Sets the file holding a copy of the boot heap and code already relocated for a fixed address.
+ * The file is created by the first VM that loads the image and then mapped by later VMs so that
+ * relocation is skipped and the pages stay clean and shared between processes.
+ */
+extern void image_setRelocatedImagePath(char *path);
+
+/*
+ * Sets the file to which the pages of the boot heap and code touched by this VM are written at exit.
+ */
+extern void image_setTouchProfilePath(char *path);
+
 /**
  * Must only be called after calling 'load_image()'.
  *
@@ -19,6 +19,8 @@
  * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
  */
 
+#include <string.h>
+
 #include "jmm.h"
 
 static void jmm_reserved() {
@@ -29,6 +31,10 @@ static jint jmm_GetVersion(JNIEnv *env) {
 }
 
 static jint jmm_GetOptionalSupport(JNIEnv *env, jmmOptionalSupport* support) {
+    memset(support, 0, sizeof(jmmOptionalSupport));
+    support->isThreadContentionMonitoringSupported = 1;
+    support->isCurrentThreadCpuTimeSupported = 1;
+    support->isOtherThreadCpuTimeSupported = 1;
     return 0;
 }
 
@@ -22,6 +22,8 @@
 /*
  * A set of tests that need to be in the target.
  */
+#include <stdlib.h>
+
 #include "log.h"
 #include "jni.h"
 
@@ -252,3 +254,73 @@ Java_jtt_jni_JNI_1ManyObjectParameters_manyObjectParameters(JNIEnv *env, jclass
     (*env)->SetObjectArrayElement(env, array, 55, object55);
     return array;
 }
+
+static jint increment(jint length, jint *elements, jint delta) {
+    jint sum = 0;
+    jint i;
+    for (i = 0; i < length; i++) {
+        sum += elements[i];
+        elements[i] += delta;
+    }
+    return sum;
+}
+
+JNIEXPORT jint JNICALL
+Java_jtt_jni_JNI_1CriticalArray_increment(JNIEnv *env, jclass c, jintArray array, jint delta) {
+    jint length;
+    jint *elements;
+    jint sum;
+    if (array == NULL) {
+        return 0;
+    }
+    length = (*env)->GetArrayLength(env, array);
+    elements = (*env)->GetPrimitiveArrayCritical(env, array, NULL);
+    sum = increment(length, elements, delta);
+    (*env)->ReleasePrimitiveArrayCritical(env, array, elements, 0);
+    return sum;
+}
+
+JNIEXPORT jint JNICALL
+JavaCritical_jtt_jni_JNI_1CriticalArray_increment(jint length, jint *elements, jint delta) {
+    if (elements == NULL) {
+        return 0;
+    }
+    return increment(length, elements, delta);
+}
+
+JNIEXPORT jint JNICALL
+Java_jtt_jni_JNI_1GlobalRefChurn_churn(JNIEnv *env, jclass c, jobject object, jboolean weak, jint rounds, jint batch) {
+    jobject *refs = (jobject *) malloc(batch * sizeof(jobject));
+    jint round;
+    jint i;
+    if (refs == NULL) {
+        return -1;
+    }
+    for (round = 0; round < rounds; round++) {
+        for (i = 0; i < batch; i++) {
+            refs[i] = weak ? (*env)->NewWeakGlobalRef(env, object) : (*env)->NewGlobalRef(env, object);
+            if (refs[i] == NULL) {
+                /* Report the failed round rather than the pending OutOfMemoryError */
+                (*env)->ExceptionClear(env);
+                while (--i >= 0) {
+                    if (weak) {
+                        (*env)->DeleteWeakGlobalRef(env, refs[i]);
+                    } else {
+                        (*env)->DeleteGlobalRef(env, refs[i]);
+                    }
+                }
+                free(refs);
+                return round;
+            }
+        }
+        for (i = 0; i < batch; i++) {
+            if (weak) {
+                (*env)->DeleteWeakGlobalRef(env, refs[i]);
+            } else {
+                (*env)->DeleteGlobalRef(env, refs[i]);
+            }
+        }
+    }
+    free(refs);
+    return rounds;
+}
@@ -40,6 +40,11 @@ typedef jint (JNICALL *Agent_OnUnLoad_t)(JavaVM *);
 typedef void (JNICALL *GarbageCollectionCallback) (jvmtiEnv *jvmti_env);
 typedef void (JNICALL *jvmtiStartFunctionNoArg) (jvmtiEnv* jvmti_env, JNIEnv* jni_env);
 typedef void (JNICALL *ThreadObjectCall) (jvmtiEnv *jvmti_env, JNIEnv* jni_env, jthread thread, jclass klass);
+typedef void (JNICALL *SampledObjectAllocCallback) (jvmtiEnv *jvmti_env, JNIEnv* jni_env, jthread thread, jobject object, jclass object_klass, jlong size);
+
+/* SampledObjectAlloc is not in the JDK 8 headers; the callbacks block is sized to hold it. */
+#define JVMTI_EVENT_SAMPLED_OBJECT_ALLOC_ID 86
+#define JVMTI_CALLBACKS_SIZE ((JVMTI_EVENT_SAMPLED_OBJECT_ALLOC_ID - JVMTI_MIN_EVENT_TYPE_VAL + 1) * sizeof(void *))
 
 
 JNIEXPORT jint JNICALL
@@ -67,6 +72,17 @@ Java_com_sun_max_vm_ext_jvmti_JVMTICallbacks_invokeGarbageCollectionCallback(JNI
     (*callback)(jvmti_env);
 }
 
+JNIEXPORT void JNICALL
+Java_com_sun_max_vm_ext_jvmti_JVMTICallbacks_invokeObjectFreeCallback(JNIEnv *env, jclass c, jvmtiEventObjectFree callback, jvmtiEnv *jvmti_env, jlong tag) {
+    (*callback)(jvmti_env, tag);
+}
+
+JNIEXPORT void JNICALL
+Java_com_sun_max_vm_ext_jvmti_JVMTICallbacks_invokeSampledObjectAllocCallback(JNIEnv *env, jclass c, SampledObjectAllocCallback callback, jvmtiEnv *jvmti_env,
+                jthread thread, jobject object, jclass klass, jlong size) {
+    (*callback)(jvmti_env, env, thread, object, klass, size);
+}
+
 JNIEXPORT void JNICALL
 Java_com_sun_max_vm_ext_jvmti_JVMTICallbacks_invokeThreadObjectCallback(JNIEnv *env, jclass c, ThreadObjectCall callback, jvmtiEnv *jvmti_env, jthread thread, jobject object) {
     (*callback)(jvmti_env, env, thread, object);
@@ -384,7 +400,7 @@ void *getJVMTIImpl(JNIEnv *env, int version) {
     JVMTIEnvImplStruct *jvmtienv_impl = malloc(sizeof(JVMTIEnvImplStruct));
     if (jvmtienv_impl == NULL) return NULL;
     jvmtienv_impl->functions = &jvmti_interface;
-    jvmtienv_impl->callbacks = malloc(sizeof(jvmtiEventCallbacks));
+    jvmtienv_impl->callbacks = calloc(1, JVMTI_CALLBACKS_SIZE);
     if (jvmtienv_impl->callbacks == NULL) return NULL;
     jvmtienv_impl->capabilities = malloc(sizeof(jvmtiCapabilities));
     if (jvmtienv_impl->capabilities == NULL) return NULL;
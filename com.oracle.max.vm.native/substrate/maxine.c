@@ -309,6 +309,21 @@ int maxine(int argc, char *argv[], char *executablePath) {
     }
     log_initialize(logFilePath);
 
+    /* Extract the boot image loading arguments, which are only meaningful to the loader. */
+    for (i = 1; i < argc; i++) {
+        char *arg = argv[i];
+        if (arg == NULL) {
+            continue;
+        }
+        if (strncmp(arg, "-XX:BootImageCache=", 19) == 0) {
+            image_setRelocatedImagePath(arg + 19);
+            argv[i] = NULL;
+        } else if (strncmp(arg, "-XX:BootImageTouchProfile=", 26) == 0) {
+            image_setTouchProfilePath(arg + 26);
+            argv[i] = NULL;
+        }
+    }
+
 #if os_DARWIN
     _executablePath = executablePath;
 #endif
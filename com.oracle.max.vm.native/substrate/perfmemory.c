@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+#include "os.h"
+
+#include <sys/types.h>
+#include <sys/stat.h>
+#include <sys/mman.h>
+#include <errno.h>
+#include <fcntl.h>
+#include <pwd.h>
+#include <stdio.h>
+#include <stdlib.h>
+#include <string.h>
+#include <unistd.h>
+
+#include "word.h"
+#include "jni.h"
+#include "log.h"
+
+/*
+ * Backing store for the performance counters exported through sun.misc.Perf.
+ *
+ * The counters live in a file named /tmp/hsperfdata_<user>/<pid> that is mapped shared into
+ * the VM so that tools such as jps and jstat can read them without attaching to the VM.
+ * If the file cannot be created or mapped, or if shared memory is disabled, the counters
+ * are placed in anonymous memory instead and are only visible from within the VM.
+ */
+
+#define PERFMEMORY_DIR_PREFIX "/tmp/hsperfdata_"
+
+static char perfmemoryPath[256];
+
+/*
+ * Determines if a directory may hold the backing file: it must be a real directory (not a symbolic
+ * link) owned by the effective user and not accessible to the group or to other users.
+ */
+static jboolean perfmemory_isSecureDirectory(struct stat *statbuf) {
+    return S_ISDIR(statbuf->st_mode) && statbuf->st_uid == geteuid() && (statbuf->st_mode & (S_IRWXG | S_IRWXO)) == 0;
+}
+
+/*
+ * Opens the directory holding the backing file, creating it if necessary. The directory is
+ * checked with lstat() and checked again once opened without following symbolic links,
+ * so that it cannot be replaced between the check and the creation of the file.
+ *
+ * @return a file descriptor for the directory or -1 if it is missing or insecure
+ */
+static int perfmemory_openDirectory(const char *dir) {
+    struct stat before;
+    struct stat after;
+    int fd;
+
+    if (mkdir(dir, S_IRWXU) != 0 && errno != EEXIST) {
+        return -1;
+    }
+    if (lstat(dir, &before) != 0 || !perfmemory_isSecureDirectory(&before)) {
+        return -1;
+    }
+    fd = open(dir, O_RDONLY | O_DIRECTORY | O_NOFOLLOW);
+    if (fd < 0) {
+        return -1;
+    }
+    if (fstat(fd, &after) != 0 || !perfmemory_isSecureDirectory(&after) || before.st_dev != after.st_dev || before.st_ino != after.st_ino) {
+        close(fd);
+        return -1;
+    }
+    return fd;
+}
+
+static Address perfmemory_mapFile(Size size) {
+    char dir[200];
+    char name[32];
+    struct passwd *pw = getpwuid(geteuid());
+    int dirfd;
+    int fd;
+    void *result;
+
+    if (pw == NULL || pw->pw_name == NULL) {
+        return 0;
+    }
+    snprintf(dir, sizeof(dir), "%s%s", PERFMEMORY_DIR_PREFIX, pw->pw_name);
+    dirfd = perfmemory_openDirectory(dir);
+    if (dirfd < 0) {
+        return 0;
+    }
+    snprintf(name, sizeof(name), "%d", (int) getpid());
+    snprintf(perfmemoryPath, sizeof(perfmemoryPath), "%s/%s", dir, name);
+
+    // A file left behind by a dead process with the same pid is stale: remove it rather than reuse it
+    if (unlinkat(dirfd, name, 0) != 0 && errno != ENOENT) {
+        close(dirfd);
+        perfmemoryPath[0] = '\0';
+        return 0;
+    }
+    fd = openat(dirfd, name, O_RDWR | O_CREAT | O_EXCL | O_NOFOLLOW, S_IRUSR | S_IWUSR);
+    close(dirfd);
+    if (fd < 0) {
+        perfmemoryPath[0] = '\0';
+        return 0;
+    }
+    if (ftruncate(fd, (off_t) size) != 0) {
+        close(fd);
+        unlink(perfmemoryPath);
+        perfmemoryPath[0] = '\0';
+        return 0;
+    }
+    result = mmap(NULL, (size_t) size, PROT_READ | PROT_WRITE, MAP_SHARED, fd, 0);
+    close(fd);
+    if (result == MAP_FAILED) {
+        unlink(perfmemoryPath);
+        perfmemoryPath[0] = '\0';
+        return 0;
+    }
+    return (Address) result;
+}
+
+/**
+ * Creates the zero-filled memory backing the performance counters.
+ *
+ * @param size the size of the memory in bytes
+ * @param shared specifies if the memory should be backed by a file that other processes can map
+ * @return the address of the memory or 0 if no memory could be allocated
+ */
+Address perfmemory_create(Size size, jboolean shared) {
+    Address result = 0;
+    if (shared) {
+        result = perfmemory_mapFile(size);
+        if (result == 0) {
+            log_println("Warning: could not create shared performance data file, using private memory");
+        }
+    }
+    if (result == 0) {
+        result = (Address) calloc(1, (size_t) size);
+    }
+    return result;
+}
+
+/**
+ * Removes the file backing the performance counters, if any. The mapping itself stays
+ * valid until the process exits so that late counter updates remain harmless.
+ */
+void perfmemory_destroy(void) {
+    if (perfmemoryPath[0] != '\0') {
+        unlink(perfmemoryPath);
+        perfmemoryPath[0] = '\0';
+    }
+}
+
+/**
+ * Gets the local VM identifier under which the performance counters of this VM are published.
+ */
+jint perfmemory_vmid(void) {
+    return (jint) getpid();
+}
@@ -21,6 +21,7 @@
 
 #include <string.h>
 #include <stdlib.h>
+#include <sys/time.h>
 
 #include "condition.h"
 #include "log.h"
@@ -30,6 +31,13 @@
 #include "word.h"
 #include "threads.h"
 
+#if os_LINUX
+#include <linux/futex.h>
+#include <sys/syscall.h>
+#include <time.h>
+#include <unistd.h>
+#endif
+
 jint nativeMutexSize(void) {
 	return sizeof(mutex_Struct);
 }
@@ -106,3 +114,138 @@ jboolean nativeConditionNotify(Condition condition, jboolean all) {
     }
     return condition_notify(condition);
 }
+
+/*
+ * Per-thread parkers implementing the permit semantics of sun.misc.Unsafe.park() and unpark()
+ * without Java monitors. The permit word is the first field so that Java code can consume an
+ * available permit with a CAS, without calling native code (see OSMonitor.Parker). On Linux,
+ * the owner blocks on a futex on the permit word. On other platforms it blocks on a mutex and
+ * condition variable.
+ *
+ * Parkers are never deallocated. The parker of a terminated thread is put on a free list for
+ * reuse, so a racing unpark of a terminated thread can at worst cause a spurious wake up.
+ */
+#define PARKER_NO_PERMIT 0
+#define PARKER_PERMIT 1
+#define PARKER_WAITING -1
+
+typedef struct parker {
+    volatile jint permit;
+    struct parker *next;
+#if !os_LINUX
+    mutex_Struct mutex;
+    condition_Struct condition;
+#endif
+} parker_Struct, *Parker;
+
+static Parker parkerFreeList = NULL;
+static volatile jint parkerFreeListLock = 0;
+
+static void parkerFreeListEnter(void) {
+    while (__sync_lock_test_and_set(&parkerFreeListLock, 1)) {
+        /* spin: the lock is only held for a couple of instructions */
+    }
+}
+
+static void parkerFreeListExit(void) {
+    __sync_lock_release(&parkerFreeListLock);
+}
+
+Parker nativeParkerAcquire(void) {
+    Parker parker;
+    parkerFreeListEnter();
+    parker = parkerFreeList;
+    if (parker != NULL) {
+        parkerFreeList = parker->next;
+    }
+    parkerFreeListExit();
+    if (parker == NULL) {
+        parker = (Parker) calloc(1, sizeof(parker_Struct));
+        if (parker == NULL) {
+            return NULL;
+        }
+#if !os_LINUX
+        mutex_initialize(&parker->mutex);
+        condition_initialize(&parker->condition);
+#endif
+    }
+    parker->next = NULL;
+    __atomic_store_n(&parker->permit, PARKER_NO_PERMIT, __ATOMIC_SEQ_CST);
+    return parker;
+}
+
+void nativeParkerRelease(Parker parker) {
+    parkerFreeListEnter();
+    parker->next = parkerFreeList;
+    parkerFreeList = parker;
+    parkerFreeListExit();
+}
+
+/*
+ * Makes a permit available to the owner of a parker, waking it up if it is blocked.
+ * Returns true if the owner was blocked (or about to block) in nativeParkerPark().
+ */
+jboolean nativeParkerUnpark(Parker parker) {
+    if (__atomic_exchange_n(&parker->permit, PARKER_PERMIT, __ATOMIC_SEQ_CST) != PARKER_WAITING) {
+        return false;
+    }
+#if os_LINUX
+    syscall(SYS_futex, &parker->permit, FUTEX_WAKE_PRIVATE, 1, NULL, NULL, 0);
+#else
+    mutex_enter(&parker->mutex);
+    condition_notify(&parker->condition);
+    mutex_exit(&parker->mutex);
+#endif
+    return true;
+}
+
+/*
+ * Blocks the current thread until a permit is made available by nativeParkerUnpark(), the
+ * deadline expires or the thread is woken up spuriously. The deadline is 'time' milliseconds
+ * since the epoch if 'isAbsolute' is true, otherwise 'time' nanoseconds from now with 0
+ * denoting no deadline. The permit, if any, is consumed on return.
+ */
+JNIEXPORT void JNICALL
+Java_com_sun_max_vm_runtime_OSMonitor_nativeParkerPark(JNIEnv *env, jclass c, Parker parker, jboolean isAbsolute, jlong time) {
+    jint expected = PARKER_NO_PERMIT;
+    if (!__atomic_compare_exchange_n(&parker->permit, &expected, PARKER_WAITING, false, __ATOMIC_SEQ_CST, __ATOMIC_SEQ_CST)) {
+        /* A permit was made available since the caller last checked */
+        __atomic_store_n(&parker->permit, PARKER_NO_PERMIT, __ATOMIC_SEQ_CST);
+        return;
+    }
+#if os_LINUX
+    struct timespec timeout;
+    if (isAbsolute) {
+        timeout.tv_sec = time / 1000;
+        timeout.tv_nsec = (time % 1000) * 1000000;
+        syscall(SYS_futex, &parker->permit, FUTEX_WAIT_BITSET_PRIVATE | FUTEX_CLOCK_REALTIME, PARKER_WAITING, &timeout, NULL, FUTEX_BITSET_MATCH_ANY);
+    } else if (time > 0) {
+        timeout.tv_sec = time / 1000000000;
+        timeout.tv_nsec = time % 1000000000;
+        syscall(SYS_futex, &parker->permit, FUTEX_WAIT_PRIVATE, PARKER_WAITING, &timeout, NULL, 0);
+    } else {
+        syscall(SYS_futex, &parker->permit, FUTEX_WAIT_PRIVATE, PARKER_WAITING, NULL, NULL, 0);
+    }
+#else
+    jlong millis = 0;
+    if (isAbsolute) {
+        struct timeval now;
+        gettimeofday(&now, NULL);
+        millis = time - ((jlong) now.tv_sec * 1000 + now.tv_usec / 1000);
+    } else if (time > 0) {
+        millis = (time + 999999) / 1000000;
+    }
+    mutex_enter(&parker->mutex);
+    if (parker->permit == PARKER_WAITING) {
+        if (isAbsolute || time > 0) {
+            if (millis > 0) {
+                condition_timedWait(&parker->condition, &parker->mutex, millis);
+            }
+        } else {
+            condition_wait(&parker->condition, &parker->mutex);
+        }
+    }
+    mutex_exit(&parker->mutex);
+#endif
+    __atomic_store_n(&parker->permit, PARKER_NO_PERMIT, __ATOMIC_SEQ_CST);
+}
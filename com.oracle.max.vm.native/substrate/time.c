@@ -22,14 +22,23 @@
 #include "jni.h"
 #include "maxine.h"
 
+#include "word.h"
+
 #include <sys/types.h>
 #include <sys/time.h>
+#include <pthread.h>
 
 #if os_DARWIN
+#include <mach/mach.h>
 #include <mach/mach_time.h>
 #include <mach/kern_return.h>
 #elif os_LINUX
 #include <dlfcn.h>
+#include <stdio.h>
+#include <string.h>
+#include <time.h>
+#include <unistd.h>
+#include <sys/resource.h>
 #endif
 
 
@@ -134,3 +143,91 @@ jlong native_currentTimeMillis(void) {
 	return 1;
 #endif
 }
+
+#if os_LINUX
+/*
+ * Gets the user mode CPU time in nanoseconds of another thread of this process from
+ * /proc/self/task/<tid>/stat, or -1 if it cannot be read. The kernel thread id is recovered from
+ * the thread's CPU clock id, which the kernel encodes as ((~tid) << 3) | CPUCLOCK_PERTHREAD_MASK | CPUCLOCK_SCHED.
+ */
+static jlong threadUserTimeFromProc(clockid_t clock) {
+    char path[64];
+    char stat[2048];
+    FILE *file;
+    size_t n;
+    char *s;
+    unsigned long userTicks;
+    long ticksPerSecond;
+
+    if ((clock & 7) != 6) {
+        return -1;
+    }
+    snprintf(path, sizeof(path), "/proc/self/task/%d/stat", (int) ~(clock >> 3));
+    file = fopen(path, "r");
+    if (file == NULL) {
+        return -1;
+    }
+    n = fread(stat, 1, sizeof(stat) - 1, file);
+    fclose(file);
+    stat[n] = '\0';
+
+    /* Skip the pid and the command name, which may itself contain spaces and parentheses */
+    s = strrchr(stat, ')');
+    if (s == NULL) {
+        return -1;
+    }
+    /* Fields 3 to 13 precede utime (field 14) */
+    if (sscanf(s + 1, " %*c %*d %*d %*d %*d %*d %*u %*u %*u %*u %*u %lu", &userTicks) != 1) {
+        return -1;
+    }
+    ticksPerSecond = sysconf(_SC_CLK_TCK);
+    if (ticksPerSecond <= 0) {
+        return -1;
+    }
+    return ((jlong) userTicks) * (1000 * 1000 * 1000) / ticksPerSecond;
+}
+#endif
+
+/*
+ * Gets the CPU time in nanoseconds consumed by the thread whose native handle (see thread_self())
+ * is 'nativeThread', or -1 if it cannot be determined. If 'userOnly' is true, only the time spent
+ * in user mode is reported. On Linux, that time is only precise for the current thread: other
+ * threads are measured in clock ticks.
+ */
+jlong native_threadCpuTime(Address nativeThread, jboolean userOnly) {
+#if os_LINUX
+    clockid_t clock;
+    struct timespec tp;
+    if (userOnly && pthread_equal((pthread_t) nativeThread, pthread_self())) {
+        struct rusage usage;
+        if (getrusage(RUSAGE_THREAD, &usage) != 0) {
+            return -1;
+        }
+        return ((jlong) usage.ru_utime.tv_sec) * (1000 * 1000 * 1000) + ((jlong) usage.ru_utime.tv_usec) * 1000;
+    }
+    if (pthread_getcpuclockid((pthread_t) nativeThread, &clock) != 0) {
+        return -1;
+    }
+    if (userOnly) {
+        return threadUserTimeFromProc(clock);
+    }
+    if (clock_gettime(clock, &tp) != 0) {
+        return -1;
+    }
+    return ((jlong) tp.tv_sec) * (1000 * 1000 * 1000) + (jlong) tp.tv_nsec;
+#elif os_DARWIN
+    thread_basic_info_data_t info;
+    mach_msg_type_number_t count = THREAD_BASIC_INFO_COUNT;
+    mach_port_t port = pthread_mach_thread_np((pthread_t) nativeThread);
+    if (thread_info(port, THREAD_BASIC_INFO, (thread_info_t) &info, &count) != KERN_SUCCESS) {
+        return -1;
+    }
+    jlong nanos = ((jlong) info.user_time.seconds) * (1000 * 1000 * 1000) + ((jlong) info.user_time.microseconds) * 1000;
+    if (!userOnly) {
+        nanos += ((jlong) info.system_time.seconds) * (1000 * 1000 * 1000) + ((jlong) info.system_time.microseconds) * 1000;
+    }
+    return nanos;
+#else
+    return -1;
+#endif
+}
@@ -30,6 +30,15 @@
 #include "image.h"
 #include "trap.h"
 
+#if os_LINUX
+#   include <time.h>
+#   include <errno.h>
+#   include <sys/syscall.h>
+#   ifndef sigev_notify_thread_id
+#       define sigev_notify_thread_id _sigev_un._tid
+#   endif
+#endif
+
 #if os_SOLARIS && isa_SPARC
     /* Get STACK_BIAS definition for Solaris / SPARC */
 #      include <sys/stack.h>
@@ -45,10 +54,38 @@
 #define STACK_FATAL 2
 #define ARITHMETIC_EXCEPTION 3
 #define ASYNC_INTERRUPT 4
+#define ASYNC_PROFILE 7
 
 static Address theJavaTrapStub;
 static boolean traceTraps = false;
 
+/**
+ * The number of profiling ticks dropped because they arrived while safepoints were disabled.
+ */
+static int droppedProfileTicks = 0;
+
+/**
+ * The number of profiling ticks dropped because they arrived outside compiled Java code.
+ */
+static int droppedNativeProfileTicks = 0;
+
+/**
+ * The address ranges of the code regions, set before the first CPU timer is armed.
+ */
+#define MAX_CODE_RANGES 3
+static Address codeRangeStart[MAX_CODE_RANGES];
+static Address codeRangeEnd[MAX_CODE_RANGES];
+
+static boolean isInCodeRange(Address ip) {
+    int i;
+    for (i = 0; i < MAX_CODE_RANGES; i++) {
+        if (ip >= codeRangeStart[i] && ip < codeRangeEnd[i]) {
+            return true;
+        }
+    }
+    return false;
+}
+
 #if !os_MAXVE
 
 /**
@@ -86,6 +123,8 @@ int getTrapNumber(int signal) {
 #if !os_MAXVE
     case SIGUSR1:
         return ASYNC_INTERRUPT;
+    case SIGPROF:
+        return ASYNC_PROFILE;
      default:
         log_print("Unknown Signal: %d\n", signal);
 #endif
@@ -130,6 +169,8 @@ void* setSignalHandler(int signal, SignalHandlerFunction handler) {
 
     memset((char *) &newSigaction, 0, sizeof(newSigaction));
     sigemptyset(&newSigaction.sa_mask);
+    /* A profiling tick must not redirect a thread that is still in a handler recording its trap state. */
+    sigaddset(&newSigaction.sa_mask, SIGPROF);
     newSigaction.sa_flags = SA_SIGINFO | SA_RESTART | SA_ONSTACK;
 
 #if os_SOLARIS || os_LINUX || os_DARWIN
@@ -207,6 +248,28 @@ static void setInstructionPointer(UContext *ucontext, Address stub) {
 #endif
 }
 
+/**
+ * Gets the value of the safepoint latch register in a given trap context.
+ */
+static Address getSafepointLatch(UContext *ucontext) {
+#if os_SOLARIS && isa_SPARC
+    return ucontext->uc_mcontext.gregs[REG_G2];
+#elif isa_AMD64 && (os_SOLARIS || os_LINUX)
+    return ucontext->uc_mcontext.gregs[REG_R14];
+#elif isa_AMD64 && os_DARWIN
+    return ucontext->uc_mcontext->__ss.__r14;
+#elif isa_AMD64 && os_MAXVE
+    return ucontext->r14;
+#elif isa_ARM
+    return ucontext->uc_mcontext.arm_r10;
+#elif isa_AARCH64
+    return ucontext->uc_mcontext.regs[26];
+#else
+    c_UNIMPLEMENTED();
+    return 0;
+#endif
+}
+
 static Address getFaultAddress(SigInfo * sigInfo, UContext *ucontext) {
 #if (os_DARWIN || os_SOLARIS || os_LINUX )
     return (Address) sigInfo->si_addr;
@@ -226,6 +289,7 @@ char *vmSignalName(int signal) {
     case SIGILL: return "SIGILL";
 #if !os_MAXVE
     case SIGUSR1: return "SIGUSR1";
+    case SIGPROF: return "SIGPROF";
     case SIGBUS: return "SIGBUS";
 #endif
     }
@@ -399,7 +463,24 @@ static void vmSignalHandler(int signal, SigInfo *signalInfo, UContext *ucontext)
         log_exit(-21, "could not find DTLA in trap handler");
     }
 
-    if (faultAddress >= ntl->redZone && faultAddress < ntl->stackBase + ntl->stackSize) {
+    if (trapNumber == ASYNC_PROFILE) {
+        /* Only compiled Java code can be redirected to the trap stub. Native code (the substrate, JNI
+         * libraries, libc) may be a leaf function using the red zone below its stack pointer, which the
+         * stub would overwrite, and is free to use the latch register for its own values. */
+        if (!isInCodeRange(ip)) {
+            __atomic_add_fetch(&droppedNativeProfileTicks, 1, __ATOMIC_RELAXED);
+            return;
+        }
+        /* The latch register already holds the disabled thread locals if the thread is running with
+         * safepoints disabled, which includes the window between an earlier redirection to the trap stub
+         * and the stub saving the trap state. Redirecting now would clobber that state, so drop the tick. */
+        if (getSafepointLatch(ucontext) == (Address) dtla) {
+            __atomic_add_fetch(&droppedProfileTicks, 1, __ATOMIC_RELAXED);
+            return;
+        }
+        /* si_addr is not meaningful for a timer signal */
+        faultAddress = 0;
+    } else if (faultAddress >= ntl->redZone && faultAddress < ntl->stackBase + ntl->stackSize) {
         Address yellowZoneEnd = ntl->yellowZone + (YELLOW_ZONE_PAGES * virtualMemory_getPageSize());
         if (faultAddress < ntl->yellowZone) {
             /* The faultAddress is in the red zone; we shouldn't be alive */
@@ -487,6 +568,7 @@ void nativeTrapInitialize(Address javaTrapStub) {
 #if !os_MAXVE
     setSignalHandler(SIGBUS, (SignalHandlerFunction) vmSignalHandler);
     setSignalHandler(SIGUSR1, (SignalHandlerFunction) vmSignalHandler);
+    setSignalHandler(SIGPROF, (SignalHandlerFunction) vmSignalHandler);
 
     sigfillset(&allSignals);
 
@@ -500,6 +582,7 @@ void nativeTrapInitialize(Address javaTrapStub) {
     sigaddset(&vmSignals, SIGILL);
     sigaddset(&vmSignals, SIGFPE);
     sigaddset(&vmSignals, SIGUSR1);
+    sigaddset(&vmSignals, SIGPROF);
 
     /* Let all threads be stopped by a debugger. */
     sigaddset(&vmSignals, SIGTRAP);
@@ -507,6 +590,7 @@ void nativeTrapInitialize(Address javaTrapStub) {
     /* Define the signals to be blocked on thread exit. */
     sigemptyset(&blockedOnThreadExitSignals);
     sigaddset(&blockedOnThreadExitSignals, SIGUSR1);
+    sigaddset(&blockedOnThreadExitSignals, SIGPROF);
 
     /* Apply the normal thread mask to the primordial thread. */
     thread_setSignalMask(SIG_BLOCK, &allSignals, NULL);
@@ -520,3 +604,69 @@ void nativeTrapInitialize(Address javaTrapStub) {
 void nativeSetTrapTracing(boolean flag) {
     traceTraps = flag;
 }
+
+/**
+ * Implementation of com.sun.max.vm.profilers.sampling.AsyncSampleBuffer.nativeCPUTimerStart().
+ *
+ * Arms a timer that sends SIGPROF to the current thread each time it consumes 'periodNanos' of CPU time.
+ * Returns the timer or 0 if per-thread CPU timers are not available.
+ */
+Address nativeCPUTimerStart(jlong periodNanos) {
+#if os_LINUX
+    struct sigevent event;
+    struct itimerspec spec;
+    timer_t timer;
+
+    memset((char *) &event, 0, sizeof(event));
+    event.sigev_notify = SIGEV_THREAD_ID;
+    event.sigev_signo = SIGPROF;
+    event.sigev_notify_thread_id = syscall(SYS_gettid);
+    if (timer_create(CLOCK_THREAD_CPUTIME_ID, &event, &timer) != 0) {
+        log_println("timer_create failed: %s", strerror(errno));
+        return 0;
+    }
+    spec.it_interval.tv_sec = periodNanos / 1000000000L;
+    spec.it_interval.tv_nsec = periodNanos % 1000000000L;
+    spec.it_value = spec.it_interval;
+    if (timer_settime(timer, 0, &spec, NULL) != 0) {
+        log_println("timer_settime failed: %s", strerror(errno));
+        timer_delete(timer);
+        return 0;
+    }
+    return (Address) timer;
+#else
+    return 0;
+#endif
+}
+
+/**
+ * Implementation of com.sun.max.vm.profilers.sampling.AsyncSampleBuffer.nativeCPUTimerStop().
+ */
+void nativeCPUTimerStop(Address timer) {
+#if os_LINUX
+    timer_delete((timer_t) timer);
+#endif
+}
+
+/**
+ * Implementation of com.sun.max.vm.profilers.sampling.AsyncSampleBuffer.nativeCPUTimerDroppedTicks().
+ */
+int nativeCPUTimerDroppedTicks(void) {
+    return __atomic_load_n(&droppedProfileTicks, __ATOMIC_RELAXED);
+}
+
+/**
+ * Implementation of com.sun.max.vm.profilers.sampling.AsyncSampleBuffer.nativeCPUTimerNativeTicks().
+ */
+int nativeCPUTimerNativeTicks(void) {
+    return __atomic_load_n(&droppedNativeProfileTicks, __ATOMIC_RELAXED);
+}
+
+/**
+ * Implementation of com.sun.max.vm.profilers.sampling.AsyncSampleBuffer.nativeCPUTimerSetCodeRange().
+ */
+void nativeCPUTimerSetCodeRange(int index, Address start, Address end) {
+    c_ASSERT(index >= 0 && index < MAX_CODE_RANGES);
+    codeRangeStart[index] = start;
+    codeRangeEnd[index] = end;
+}
@@ -33,6 +33,9 @@
 #include <sys/wait.h>
 #include <sys/time.h>
 #include <sys/prctl.h>
+#include <sys/mman.h>
+#include <sys/uio.h>
+#include <limits.h>
 
 #include "log.h"
 #include "ptrace.h"
@@ -921,6 +924,80 @@ Java_com_sun_max_tele_debug_linux_LinuxTask_nativeReadBytes(JNIEnv *env, jclass
     return teleProcess_read(&ph, env, c, src, dst, isDirectByteBuffer, dstOffset, length);
 }
 
+/**
+ * Copies 'count' whole pages from the address space of 'tgid' into direct ByteBuffers with a single process_vm_readv(2).
+ *
+ * @return the number of pages copied, starting with the first, or -1 if process_vm_readv is not available
+ */
+JNIEXPORT jint JNICALL
+Java_com_sun_max_tele_debug_linux_LinuxTask_nativeReadPages(JNIEnv *env, jclass c, jint tgid, jlongArray addresses, jobjectArray buffers, jint count, jint pageSize) {
+    if (count <= 0 || count > IOV_MAX) {
+        return 0;
+    }
+    struct iovec *local = (struct iovec *) malloc(2 * count * sizeof(struct iovec));
+    if (local == NULL) {
+        return 0;
+    }
+    struct iovec *remote = local + count;
+    jlong *remoteAddresses = (*env)->GetLongArrayElements(env, addresses, NULL);
+    int i;
+    for (i = 0; i < count; i++) {
+        jobject buffer = (*env)->GetObjectArrayElement(env, buffers, i);
+        local[i].iov_base = (*env)->GetDirectBufferAddress(env, buffer);
+        local[i].iov_len = pageSize;
+        (*env)->DeleteLocalRef(env, buffer);
+        remote[i].iov_base = (void *) (Address) remoteAddresses[i];
+        remote[i].iov_len = pageSize;
+        if (local[i].iov_base == NULL) {
+            // only the pages before a non-direct buffer are read
+            count = i;
+            break;
+        }
+    }
+    (*env)->ReleaseLongArrayElements(env, addresses, remoteAddresses, JNI_ABORT);
+    jint result = 0;
+    if (count > 0) {
+        ssize_t bytesRead = process_vm_readv(tgid, local, count, remote, count, 0);
+        if (bytesRead < 0) {
+            int error = errno;
+            result = (error == ENOSYS || error == EPERM) ? -1 : 0;
+            if (result == 0) {
+                log_println("process_vm_readv of %d pages from %p failed: %s", count, remote[0].iov_base, strerror(error));
+            }
+        } else {
+            result = (jint) (bytesRead / pageSize);
+        }
+    }
+    free(local);
+    return result;
+}
+
+/**
+ * Determines if the kernel maintains soft-dirty bits, by checking that a freshly written page of this process is
+ * reported as soft-dirty in /proc/self/pagemap. Without kernel support the bit is never set.
+ */
+JNIEXPORT jboolean JNICALL
+Java_com_sun_max_tele_debug_linux_LinuxTask_nativeSoftDirtySupported(JNIEnv *env, jclass c) {
+    const size_t pageSize = getpagesize();
+    char *page = (char *) mmap(NULL, pageSize, PROT_READ | PROT_WRITE, MAP_PRIVATE | MAP_ANONYMOUS, -1, 0);
+    if (page == MAP_FAILED) {
+        return false;
+    }
+    page[0] = 1;
+    jboolean result = false;
+    int fd = open("/proc/self/pagemap", O_RDONLY);
+    if (fd >= 0) {
+        uint64_t entry;
+        off64_t offset = (off64_t) (((Address) page) / pageSize) * sizeof(entry);
+        if (pread64(fd, &entry, sizeof(entry), offset) == sizeof(entry)) {
+            result = (entry & (1ULL << 55)) != 0;
+        }
+        close(fd);
+    }
+    munmap(page, pageSize);
+    return result;
+}
+
 JNIEXPORT jboolean JNICALL
 Java_com_sun_max_tele_debug_linux_LinuxTask_nativeSetInstructionPointer(JNIEnv *env, jclass c, jint tid, jlong instructionPointer) {
     user_regs_structure registers;
@@ -208,6 +208,29 @@ public final class Memory {
         assert i.equals(numberOfBytes);
     }
 
+    /**
+     * Copies a block of memory that may overlap the destination, like C's {@code memmove}.
+     * The copy proceeds a word at a time, from the end of the block when the destination
+     * lies above the source so that no source byte is overwritten before it is read.
+     */
+    @NO_SAFEPOINT_POLLS("speed")
+    public static void moveBytes(Pointer fromPointer, Pointer toPointer, Size numberOfBytes) {
+        if (toPointer.lessEqual(fromPointer) || toPointer.greaterEqual(fromPointer.plus(numberOfBytes))) {
+            copyBytes(fromPointer, toPointer, numberOfBytes);
+            return;
+        }
+        Offset i = numberOfBytes.asOffset();
+        final Offset wordBounds = numberOfBytes.alignDown(Word.size()).asOffset();
+        while (i.greaterThan(wordBounds)) {
+            i = i.minus(1);
+            toPointer.writeByte(i, fromPointer.readByte(i));
+        }
+        while (i.greaterThan(0)) {
+            i = i.minus(Word.size());
+            toPointer.writeWord(i, fromPointer.readWord(i));
+        }
+    }
+
     @NO_SAFEPOINT_POLLS("speed")
     public static void readBytes(Pointer fromPointer, int numberOfBytes, byte[] toArray, int startIndex) {
         for (int i = 0; i < numberOfBytes; i++) {
@@ -46,8 +46,11 @@ import com.sun.max.vm.MaxineVM.Phase;
  */
 public final class VirtualMemory {
     private static boolean TraceAnonOperations = false;
+    private static boolean UseTransparentHugePages = false;
     static {
         VMOptions.addFieldOption("-XX:", "TraceAnonOperations", VirtualMemory.class, "TraceAnonOperations", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "UseTransparentHugePages", VirtualMemory.class,
+            "Ask the OS to back heap and code memory, and GC tables that request it, with transparent huge pages (Linux only).", Phase.PRISTINE);
     }
 
     public enum Type {
@@ -71,6 +74,9 @@ public final class VirtualMemory {
         allocateMemoryTime.start();
         final Pointer allocated = virtualMemory_allocate(size, type.ordinal());
         allocateMemoryTime.stop();
+        if (!allocated.isZero()) {
+            adviseHugePages(allocated, size, type);
+        }
         return allocated;
     }
 
@@ -105,6 +111,9 @@ public final class VirtualMemory {
         allocateAtFixedAddressTime.start();
         final boolean allocated = virtualMemory_allocateAtFixedAddress(address, size, type.ordinal());
         allocateAtFixedAddressTime.stop();
+        if (allocated) {
+            adviseHugePages(address, size, type);
+        }
         return allocated;
     }
 
@@ -209,9 +218,53 @@ public final class VirtualMemory {
         commitMemoryTime.start();
         final Pointer committed = virtualMemory_allocatePrivateAnon(address, size, true, false, type.ordinal());
         commitMemoryTime.stop();
-        return committed.equals(address);
+        if (committed.equals(address)) {
+            // Committing remaps the range, which drops any advice given when it was reserved.
+            adviseHugePages(address, size, type);
+            return true;
+        }
+        return false;
     }
 
+    /**
+     * Asks the OS to back a range of {@linkplain Type#HEAP heap} or {@linkplain Type#CODE code} memory with huge pages
+     * if {@code -XX:+UseTransparentHugePages} is set. Other types of memory are left as they are.
+     */
+    private static void adviseHugePages(Address address, Size size, Type type) {
+        if (type == Type.HEAP || type == Type.CODE) {
+            adviseHugePages(address, size);
+        }
+    }
+
+    /**
+     * Asks the OS to back a range of committed memory with huge pages if {@code -XX:+UseTransparentHugePages} is set.
+     * This is only advice: the OS only promotes the huge page aligned parts of the range, and only when it has
+     * huge pages to spare. Memory allocated for a {@linkplain Type#HEAP heap} or {@linkplain Type#CODE code}
+     * is advised automatically. GC data structures that are accessed all over the heap, such as card tables,
+     * can be advised explicitly with this method.
+     *
+     * @param address the start of the range, which must be page aligned
+     * @param size the size of the range
+     * @return true if the advice was accepted, false if it was not given or the OS does not support it
+     */
+    public static boolean adviseHugePages(Address address, Size size) {
+        if (!UseTransparentHugePages) {
+            return false;
+        }
+        if (TraceAnonOperations) {
+            traceRange("adviseHugePages", address, size);
+        }
+        if (!virtualMemory_adviseHugePages(address, size)) {
+            Log.println("WARNING: transparent huge pages are not supported, ignoring -XX:+UseTransparentHugePages");
+            UseTransparentHugePages = false;
+            return false;
+        }
+        return true;
+    }
+
+    @C_FUNCTION
+    private static native boolean virtualMemory_adviseHugePages(Address address, Size size);
+
     public static boolean uncommitMemory(Address address, Size size, Type type) {
         if (address.isZero()) {
             return false;
@@ -1599,8 +1599,11 @@ public abstract class ClassActor extends Actor implements RiResolvedType {
     private void verify() {
         if (isReflectionStub() || !ClassVerifier.shouldBeVerified(classLoader, isRemote())) {
             // generated stubs do not necessarily pass the verifier, even if they work as intended
+        } else if (VerificationCache.isVerified(this)) {
+            // an identical class file passed verification in an earlier run against the same class path
         } else {
             Verifier.verifierFor(this).verify();
+            VerificationCache.verified(this);
         }
     }
 
@@ -41,6 +41,12 @@ public final class NativeFunction {
 
     private Address address = Address.zero();
 
+    /**
+     * The address of the {@linkplain CriticalNatives critical} implementation of this native function,
+     * or zero if it has none or has not been probed.
+     */
+    private Address criticalAddress = Address.zero();
+
     /**
      * The stub generated for calling this native function.
      */
@@ -127,6 +133,29 @@ public final class NativeFunction {
         return address;
     }
 
+    /**
+     * Probes for a {@linkplain CriticalNatives critical} implementation of this native function.
+     *
+     * @return the address of the critical implementation or zero if there is none
+     */
+    public Address linkCritical() {
+        if (criticalAddress.isZero()) {
+            criticalAddress = DynamicLinker.lookupIfPresent(classMethodActor, CriticalNatives.makeCriticalSymbol(makeSymbol())).asAddress();
+            if (criticalAddress.isNotZero() && NativeInterfaces.verbose()) {
+                Log.println("[Dynamic-linking critical native method " + classMethodActor.holder().name + "." + classMethodActor.name + " = " + criticalAddress.toHexString() + "]");
+            }
+        }
+        return criticalAddress;
+    }
+
+    /**
+     * Gets the address of the critical implementation of this native function as found by {@link #linkCritical()}.
+     */
+    @INLINE
+    public Address criticalAddress() {
+        return criticalAddress;
+    }
+
     /**
      * Determines if the native function pointer has been linked.
      */
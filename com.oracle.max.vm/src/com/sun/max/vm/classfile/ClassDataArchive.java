@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.classfile;
+
+import static com.sun.max.vm.intrinsics.MaxineIntrinsicIDs.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.security.*;
+import java.util.*;
+
+import sun.misc.Launcher;
+
+import com.sun.max.annotate.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.actor.holder.*;
+
+/**
+ * An archive of the class files of application classes, used to define the classes of later runs without searching
+ * the class path for them.
+ * <p>
+ * A dump run started with {@code -XX:ArchiveClassesAtExit=<file>} records every class the system class loader
+ * defines from a jar file, together with the location of the jar file, and writes the archive when the VM shuts down.
+ * A later run started with {@code -XX:SharedArchiveFile=<file>} maps the archive. When the parents of the system class
+ * loader do not find a class, the loader's {@link URLClassLoader#findClass(String) findClass} defines it from the
+ * mapped archive instead of searching the class path.
+ * <p>
+ * This is a class-bytes archive only: no class metadata is archived, so archived classes are still parsed,
+ * verified, laid out and linked by {@link ClassfileReader} in every run. Only the class path search is saved.
+ * <p>
+ * The archive is only used while the class path and the Java home it was dumped with are unchanged, see
+ * {@link #classPathFingerprint()}. That fingerprint covers the contents of jar files but not those of directories,
+ * so classes from directories are not archived. A class is only defined from the archive if the loader has already defined its
+ * package, so that packages keep the attributes from the manifest of their jar file. Classes from signed code sources
+ * and classes rewritten by an agent are not archived, and the archive is not used under a security manager.
+ */
+public final class ClassDataArchive {
+
+    private static String ArchiveClassesAtExit;
+    private static String SharedArchiveFile;
+    static {
+        VMOptions.addFieldOption("-XX:", "ArchiveClassesAtExit", ClassDataArchive.class,
+            "File to which the class files of the application classes loaded in this run are archived at exit.");
+        VMOptions.addFieldOption("-XX:", "SharedArchiveFile", ClassDataArchive.class,
+            "Archive written by -XX:ArchiveClassesAtExit from which to define application classes.");
+    }
+
+    private static final int MAGIC = 0x4D434441; // "MCDA"
+
+    private ClassDataArchive() {
+    }
+
+    /**
+     * An archived class file.
+     */
+    private static final class Entry {
+        final int location;
+        final int offset;
+        final int length;
+
+        Entry(int location, int offset, int length) {
+            this.location = location;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * A class file recorded in a dump run.
+     */
+    private static final class Record {
+        final String location;
+        final byte[] bytes;
+
+        Record(String location, byte[] bytes) {
+            this.location = location;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * The classes recorded in a dump run, in the order they were defined.
+     */
+    private static LinkedHashMap<String, Record> records;
+
+    private static boolean opened;
+    private static Map<String, Entry> entries;
+    private static CodeSource[] codeSources;
+    private static ByteBuffer classData;
+
+    /**
+     * Computes a fingerprint of the Java home and the class path: the path, size and modification time of every class
+     * path entry. Data derived from the classes on the class path is only valid as long as the fingerprint is unchanged.
+     */
+    public static String classPathFingerprint() {
+        final StringBuilder sb = new StringBuilder(System.getProperty("java.home"));
+        final String classPath = System.getProperty("java.class.path");
+        if (classPath != null) {
+            for (String entry : classPath.split(File.pathSeparator)) {
+                final File file = new File(entry);
+                sb.append(File.pathSeparatorChar).append(file.getAbsolutePath()).append(',').append(file.length()).append(',').append(file.lastModified());
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Records a class defined in a dump run.
+     */
+    static void defined(ClassActor classActor, byte[] bytes, int offset, int length, ProtectionDomain protectionDomain) {
+        if (ArchiveClassesAtExit == null || !MaxineVM.isRunning() || classActor.classLoader != Launcher.getLauncher().getClassLoader() || protectionDomain == null) {
+            return;
+        }
+        final CodeSource codeSource = protectionDomain.getCodeSource();
+        if (codeSource == null || codeSource.getLocation() == null || codeSource.getCodeSigners() != null || isDirectory(codeSource.getLocation())) {
+            return;
+        }
+        final Record record = new Record(codeSource.getLocation().toString(), Arrays.copyOfRange(bytes, offset, offset + length));
+        synchronized (ClassDataArchive.class) {
+            if (records == null) {
+                records = new LinkedHashMap<String, Record>();
+                try {
+                    Runtime.getRuntime().addShutdownHook(new Thread("ClassDataArchiveWriter") {
+                        @Override
+                        public void run() {
+                            write();
+                        }
+                    });
+                } catch (IllegalStateException e) {
+                    // Already shutting down: nothing will be archived
+                }
+            }
+            records.put(classActor.name.toString(), record);
+        }
+    }
+
+    /**
+     * Determines if a code source location is a directory, which the URL class path denotes with a trailing slash.
+     */
+    private static boolean isDirectory(URL location) {
+        return location.getPath().endsWith("/");
+    }
+
+    private static synchronized void write() {
+        try {
+            final ByteArrayOutputStream header = new ByteArrayOutputStream();
+            final DataOutputStream headerOut = new DataOutputStream(header);
+            headerOut.writeUTF(classPathFingerprint());
+            final Map<String, Integer> locations = new LinkedHashMap<String, Integer>();
+            for (Record record : records.values()) {
+                if (!locations.containsKey(record.location)) {
+                    locations.put(record.location, locations.size());
+                }
+            }
+            headerOut.writeInt(locations.size());
+            for (String location : locations.keySet()) {
+                headerOut.writeUTF(location);
+            }
+            headerOut.writeInt(records.size());
+            for (Map.Entry<String, Record> entry : records.entrySet()) {
+                headerOut.writeUTF(entry.getKey());
+                headerOut.writeInt(locations.get(entry.getValue().location));
+                headerOut.writeInt(entry.getValue().bytes.length);
+            }
+            headerOut.flush();
+
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(ArchiveClassesAtExit)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(header.size());
+                header.writeTo(out);
+                for (Record record : records.values()) {
+                    out.write(record.bytes);
+                }
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            Log.println("WARNING: could not write class data archive " + ArchiveClassesAtExit + ": " + e);
+        }
+    }
+
+    /**
+     * Reads the index of the archive and maps its class data, on first use.
+     */
+    private static void open() {
+        opened = true;
+        if (System.getSecurityManager() != null) {
+            return;
+        }
+        try {
+            final RandomAccessFile file = new RandomAccessFile(SharedArchiveFile, "r");
+            try {
+                if (file.readInt() != MAGIC) {
+                    Log.println("WARNING: " + SharedArchiveFile + " is not a class data archive");
+                    return;
+                }
+                final byte[] header = new byte[file.readInt()];
+                file.readFully(header);
+                final DataInputStream in = new DataInputStream(new ByteArrayInputStream(header));
+                if (!in.readUTF().equals(classPathFingerprint())) {
+                    // Dumped with another class path
+                    return;
+                }
+                final CodeSource[] sources = new CodeSource[in.readInt()];
+                for (int i = 0; i < sources.length; i++) {
+                    sources[i] = new CodeSource(new URL(in.readUTF()), (CodeSigner[]) null);
+                }
+                final int count = in.readInt();
+                final Map<String, Entry> index = new HashMap<String, Entry>(count * 2);
+                int offset = 0;
+                for (int i = 0; i < count; i++) {
+                    final String name = in.readUTF();
+                    final int location = in.readInt();
+                    final int length = in.readInt();
+                    index.put(name, new Entry(location, offset, length));
+                    offset += length;
+                }
+                final long dataStart = file.getFilePointer();
+                classData = file.getChannel().map(FileChannel.MapMode.READ_ONLY, dataStart, file.length() - dataStart);
+                codeSources = sources;
+                entries = index;
+            } finally {
+                file.close();
+            }
+        } catch (IOException e) {
+            Log.println("WARNING: could not read class data archive " + SharedArchiveFile + ": " + e);
+        }
+    }
+
+    /**
+     * Alias for the state of {@link ClassLoader} and {@link SecureClassLoader} needed to define a class the way the
+     * loader itself would.
+     */
+    private static class ClassLoaderAlias {
+        @ALIAS(declaringClass = ClassLoader.class)
+        native Package getPackage(String name);
+
+        @ALIAS(declaringClass = SecureClassLoader.class)
+        native ProtectionDomain getProtectionDomain(CodeSource codeSource);
+    }
+
+    @INTRINSIC(UNSAFE_CAST)
+    private static native ClassLoaderAlias asClassLoaderAlias(ClassLoader classLoader);
+
+    /**
+     * Defines a class from the archive on behalf of a class loader whose parents did not find it. This must be called
+     * while holding the loader's lock for {@code name}, like {@link URLClassLoader#findClass(String)}.
+     *
+     * @return the defined class or {@code null} if it is not to be defined from the archive
+     */
+    public static Class<?> define(ClassLoader classLoader, String name) {
+        if (SharedArchiveFile == null || classLoader != Launcher.getLauncher().getClassLoader()) {
+            return null;
+        }
+        final Entry entry;
+        synchronized (ClassDataArchive.class) {
+            if (!opened) {
+                open();
+            }
+            if (entries == null) {
+                return null;
+            }
+            entry = entries.get(name);
+        }
+        if (entry == null || isDirectory(codeSources[entry.location].getLocation())) {
+            return null;
+        }
+        final ClassLoaderAlias alias = asClassLoaderAlias(classLoader);
+        final int lastDot = name.lastIndexOf('.');
+        if (lastDot != -1 && alias.getPackage(name.substring(0, lastDot)) == null) {
+            // Let the loader define the package from the manifest of its jar file
+            return null;
+        }
+        final byte[] bytes = new byte[entry.length];
+        final ByteBuffer data = classData.duplicate();
+        data.position(entry.offset);
+        data.get(bytes);
+        final CodeSource codeSource = codeSources[entry.location];
+        final ProtectionDomain protectionDomain = alias.getProtectionDomain(codeSource);
+        return ClassfileReader.defineClassActor(name, classLoader, bytes, protectionDomain, codeSource.getLocation().toString(), false).toJava();
+    }
+}
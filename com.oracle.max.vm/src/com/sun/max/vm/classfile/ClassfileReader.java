@@ -59,6 +59,7 @@ import com.sun.max.vm.ti.*;
 import com.sun.max.vm.type.*;
 import com.sun.max.vm.type.ClassRegistry.*;
 import com.sun.max.vm.value.*;
+import com.sun.max.vm.verifier.*;
 
 import sun.reflect.CallerSensitive;
 
@@ -94,6 +95,17 @@ public final class ClassfileReader {
         this.classRegistry = ClassRegistry.makeRegistry(classLoader);
     }
 
+    /**
+     * Creates a reader for a part of a class file whose constant pool has already been read.
+     */
+    private ClassfileReader(ClassfileStream classfileStream, ClassLoader classLoader, ClassRegistry classRegistry, ConstantPool constantPool, int majorVersion) {
+        this.classfileStream = classfileStream;
+        this.classLoader = classLoader;
+        this.classRegistry = classRegistry;
+        this.constantPool = constantPool;
+        this.majorVersion = majorVersion;
+    }
+
     /**
      * A utility class for efficiently determining that a sequence of fields or methods
      * are unique with respect to their names and signatures.
@@ -557,7 +569,11 @@ public final class ClassfileReader {
         final int endBCI = classfileStream.readUnsigned2();
         final int catchBCI = classfileStream.readUnsigned2();
         final int catchTypeCPI = classfileStream.readUnsigned2();
+        checkExceptionHandlerEntry(startBCI, endBCI, catchBCI, catchTypeCPI, codeLength);
+        return new ExceptionHandlerEntry(startBCI, endBCI, catchBCI, catchTypeCPI);
+    }
 
+    private void checkExceptionHandlerEntry(int startBCI, int endBCI, int catchBCI, int catchTypeCPI, int codeLength) {
         if (startBCI >= codeLength || endBCI > codeLength || startBCI >= endBCI || catchBCI >= codeLength) {
             throw classFormatError("Invalid exception handler code range");
         }
@@ -566,8 +582,20 @@ public final class ClassfileReader {
         if (catchTypeCPI != 0) {
             constantPool.classAt(catchTypeCPI, "catch type in exception table");
         }
+    }
 
-        return new ExceptionHandlerEntry(startBCI, endBCI, catchBCI, catchTypeCPI);
+    /**
+     * Checks an exception handler table the way {@link #readExceptionHandlerTable(int)} does, without building it.
+     */
+    private void checkExceptionHandlerTable(int codeLength) {
+        final int nEntries = classfileStream.readUnsigned2();
+        for (int i = 0; i < nEntries; i++) {
+            final int startBCI = classfileStream.readUnsigned2();
+            final int endBCI = classfileStream.readUnsigned2();
+            final int catchBCI = classfileStream.readUnsigned2();
+            final int catchTypeCPI = classfileStream.readUnsigned2();
+            checkExceptionHandlerEntry(startBCI, endBCI, catchBCI, catchTypeCPI, codeLength);
+        }
     }
 
     protected ExceptionHandlerEntry[] readExceptionHandlerTable(int codeLength) {
@@ -602,7 +630,56 @@ public final class ClassfileReader {
     }
     // CheckStyle: resume parameter assignment check
 
+    /**
+     * Determines if method code is kept in class file form until it is first used.
+     */
+    private static boolean LazyCodeAttributes;
+    static {
+        VMOptions.addFieldOption("-XX:", "LazyCodeAttributes", ClassfileReader.class,
+            "Keep the code and debug tables of methods in class file form until they are first used.");
+    }
+
     protected CodeAttribute readCodeAttribute(int methodAccessFlags) {
+        return readCodeAttribute(true);
+    }
+
+    /**
+     * Reads a "Code" attribute and keeps its body in class file form. The body is checked as thoroughly as
+     * {@link #readCodeAttribute(int)} does, so that a malformed class file is still rejected when it is loaded, but
+     * the bytecode, exception handler table and debug tables are only decoded when the code is first used.
+     * <p>
+     * This saves the data retained for code that never runs, not the work of loading it: the check reads a copy of
+     * the body, which is the copy that is kept, and still builds the local variable tables transiently to find
+     * duplicated entries and match the type table against them.
+     *
+     * @param attributeSize the size of the attribute body
+     */
+    protected CodeAttribute readLazyCodeAttribute(int attributeSize) {
+        final byte[] bytes = classfileStream.readByteArray(attributeSize);
+        final ClassfileReader reader = new ClassfileReader(new ClassfileStream(bytes), classLoader, classRegistry, constantPool, majorVersion);
+        reader.readCodeAttribute(false);
+        if (!reader.classfileStream.isAtEndOfFile()) {
+            throw classFormatError("Invalid attribute length for Code attribute");
+        }
+        return new CodeAttribute(constantPool, bytes);
+    }
+
+    /**
+     * Decodes the body of a "Code" attribute that was read by {@link #readLazyCodeAttribute(int)}.
+     */
+    static CodeAttribute decodeCodeAttribute(ConstantPool constantPool, byte[] bytes) {
+        final ClassLoader classLoader = constantPool.classLoader();
+        final ClassfileReader reader = new ClassfileReader(new ClassfileStream(bytes), classLoader, ClassRegistry.makeRegistry(classLoader), constantPool, constantPool.holder().majorVersion);
+        return reader.readCodeAttribute(true);
+    }
+
+    /**
+     * Reads and checks a "Code" attribute.
+     *
+     * @param materialize specifies if the attribute is to be decoded or only checked
+     * @return the decoded attribute or {@code null} if {@code materialize == false}
+     */
+    private CodeAttribute readCodeAttribute(boolean materialize) {
         final char maxStack = (char) classfileStream.readUnsigned2();
         final char maxLocals = (char) classfileStream.readUnsigned2();
         final int codeLength = classfileStream.readSize4();
@@ -612,14 +689,22 @@ public final class ClassfileReader {
             throw classFormatError("Method code longer than 64 KB");
         }
 
-        final byte[] code = classfileStream.readByteArray(codeLength);
-        final ExceptionHandlerEntry[] exceptionHandlerTable = readExceptionHandlerTable(code.length);
+        byte[] code = null;
+        ExceptionHandlerEntry[] exceptionHandlerTable = null;
+        if (materialize) {
+            code = classfileStream.readByteArray(codeLength);
+            exceptionHandlerTable = readExceptionHandlerTable(codeLength);
+        } else {
+            classfileStream.skip(codeLength);
+            checkExceptionHandlerTable(codeLength);
+        }
 
         LineNumberTable lineNumberTable = LineNumberTable.EMPTY;
         LocalVariableTable localVariableTable = LocalVariableTable.EMPTY;
         Map<LocalVariableTable.Entry, LocalVariableTable.Entry> localVariableTableEntries = null;
         Map<LocalVariableTable.Entry, LocalVariableTable.Entry> localVariableTypeTableEntries = null;
         StackMapTable stackMapTable = null;
+        boolean hasStackMapTable = false;
 
         int nAttributes = classfileStream.readUnsigned2();
         while (nAttributes-- != 0) {
@@ -628,12 +713,21 @@ public final class ClassfileReader {
             final int attributeSize = classfileStream.readSize4();
             final int startPosition = classfileStream.getPosition();
             if (attributeName.equals("LineNumberTable")) {
-                lineNumberTable = new LineNumberTable(lineNumberTable, classfileStream, codeLength);
+                if (materialize) {
+                    lineNumberTable = new LineNumberTable(lineNumberTable, classfileStream, codeLength);
+                } else {
+                    LineNumberTable.check(classfileStream, codeLength);
+                }
             } else if (attributeName.equals("StackMapTable")) {
-                if (stackMapTable != null) {
+                if (hasStackMapTable) {
                     throw classFormatError("Duplicate stack map attribute");
                 }
-                stackMapTable = new StackMapTable(classfileStream, constantPool, attributeSize);
+                hasStackMapTable = true;
+                if (materialize) {
+                    stackMapTable = new StackMapTable(classfileStream, constantPool, attributeSize);
+                } else {
+                    classfileStream.skip(attributeSize);
+                }
             } else if (attributeName.equals("LocalVariableTable")) {
                 localVariableTableEntries = readLocalVariableTable(maxLocals, codeLength, localVariableTableEntries, false);
             } else if (majorVersion >= JAVA_1_5_VERSION) {
@@ -664,6 +758,10 @@ public final class ClassfileReader {
             }
         }
 
+        if (!materialize) {
+            return null;
+        }
+
         if (localVariableTableEntries != null) {
             localVariableTable = new LocalVariableTable(localVariableTableEntries.values());
         }
@@ -825,7 +923,11 @@ public final class ClassfileReader {
                         if (codeAttribute != null) {
                             throw classFormatError("Duplicate Code attribute");
                         }
-                        codeAttribute = readCodeAttribute(flags);
+                        if (LazyCodeAttributes && !MaxineVM.isHosted()) {
+                            codeAttribute = readLazyCodeAttribute(attributeSize);
+                        } else {
+                            codeAttribute = readCodeAttribute(flags);
+                        }
                     } else if (attributeName.equals("Exceptions")) {
                         if (checkedExceptions != NO_CHECKED_EXCEPTIONS) {
                             throw classFormatError("Duplicate Exceptions attribute");
@@ -1678,6 +1780,12 @@ public final class ClassfileReader {
         classActor.setProtectionDomain(protectionDomain);
 
         final ClassActor definedClassActor = ClassRegistry.define(classActor);
+        if (definedClassActor == classActor) {
+            VerificationCache.defined(classActor, bytes, offset, length);
+            if (transformResult == null) {
+                ClassDataArchive.defined(classActor, bytes, offset, length, protectionDomain);
+            }
+        }
 
         if (!MaxineVM.isHosted()) {
             // Maxine is unable to usefully distinguish CLASS_LOAD and CLASS_PREPARE events which, for example, JVMTI distinguishes,
@@ -46,15 +46,21 @@ public final class CodeAttribute {
     public final char maxLocals;
 
     @INSPECTED
-    private final byte[] code;
+    private byte[] code;
 
     private StackMapTable stackMapTableAttribute;
-    private final byte[] encodedData;
-    private final int exceptionHandlerTableOffset;
-    private final int lineNumberTableOffset;
-    private final int localVariableTableOffset;
+    private byte[] encodedData;
+    private int exceptionHandlerTableOffset;
+    private int lineNumberTableOffset;
+    private int localVariableTableOffset;
     private LineNumberTable lineNumberTable;
 
+    /**
+     * The body of the class file attribute this code attribute is {@linkplain #decode() decoded} from on first use,
+     * or {@code null} if it has been decoded.
+     */
+    private volatile byte[] classfileBytes;
+
     public CodeAttribute(ConstantPool constantPool,
                     byte[] code,
                     char maxStack,
@@ -68,7 +74,44 @@ public final class CodeAttribute {
         this.maxStack = maxStack;
         this.maxLocals = maxLocals;
         this.stackMapTableAttribute = stackMapTable;
+        encode(exceptionHandlerTable, lineNumberTable, localVariableTable);
+    }
 
+    /**
+     * Creates a code attribute that keeps the body of a class file "Code" attribute undecoded until it is first used.
+     * The body must already have been checked by the {@link ClassfileReader}.
+     *
+     * @param classfileBytes the attribute body, starting at its {@code max_stack} item
+     */
+    CodeAttribute(ConstantPool constantPool, byte[] classfileBytes) {
+        this.cp = constantPool;
+        this.maxStack = (char) (((classfileBytes[0] & 0xFF) << 8) | (classfileBytes[1] & 0xFF));
+        this.maxLocals = (char) (((classfileBytes[2] & 0xFF) << 8) | (classfileBytes[3] & 0xFF));
+        this.classfileBytes = classfileBytes;
+    }
+
+    /**
+     * Decodes the class file form of this code attribute if that has not been done yet.
+     */
+    private void decode() {
+        if (classfileBytes != null) {
+            synchronized (this) {
+                final byte[] bytes = classfileBytes;
+                if (bytes != null) {
+                    final CodeAttribute decoded = ClassfileReader.decodeCodeAttribute(cp, bytes);
+                    this.code = decoded.code;
+                    this.stackMapTableAttribute = decoded.stackMapTableAttribute;
+                    this.encodedData = decoded.encodedData;
+                    this.exceptionHandlerTableOffset = decoded.exceptionHandlerTableOffset;
+                    this.lineNumberTableOffset = decoded.lineNumberTableOffset;
+                    this.localVariableTableOffset = decoded.localVariableTableOffset;
+                    classfileBytes = null;
+                }
+            }
+        }
+    }
+
+    private void encode(ExceptionHandlerEntry[] exceptionHandlerTable, LineNumberTable lineNumberTable, LocalVariableTable localVariableTable) {
         final ByteArrayOutputStream encodingStream = new ByteArrayOutputStream();
         final DataOutputStream dataOutputStream = new DataOutputStream(encodingStream);
 
@@ -98,7 +141,6 @@ public final class CodeAttribute {
         this.lineNumberTableOffset = lineNumberTableOff;
         this.localVariableTableOffset = localVariableTableOff;
         encodedData = encodingStream.toByteArray();
-
     }
 
     static void writeCharArray(DataOutputStream dataOutputStream, char[] buf) throws IOException {
@@ -120,10 +162,12 @@ public final class CodeAttribute {
     }
 
     public byte[] code() {
+        decode();
         return code;
     }
 
     public byte[] encodedData() {
+        decode();
         return encodedData;
     }
 
@@ -137,6 +181,7 @@ public final class CodeAttribute {
      * @return {@code null} if this code attribute has no exception handlers
      */
     public int[] exceptionHandlerBCIs() {
+        decode();
         if (exceptionHandlerTableOffset == -1) {
             return null;
         }
@@ -172,6 +217,7 @@ public final class CodeAttribute {
     }
 
     public ExceptionHandlerEntry[] exceptionHandlerTable() {
+        decode();
         try {
             return exceptionHandlerTableOffset == -1 ? ExceptionHandlerEntry.NONE : ExceptionHandlerEntry.decode(encodedData(exceptionHandlerTableOffset));
         } catch (IOException e) {
@@ -180,6 +226,7 @@ public final class CodeAttribute {
     }
 
     public LineNumberTable lineNumberTable() {
+        decode();
         if (lineNumberTable == null) {
             // cache the line number table
             try {
@@ -192,6 +239,7 @@ public final class CodeAttribute {
     }
 
     public LocalVariableTable localVariableTable() {
+        decode();
         try {
             return localVariableTableOffset == -1 ? LocalVariableTable.EMPTY : LocalVariableTable.decode(encodedData(localVariableTableOffset));
         } catch (IOException e) {
@@ -203,10 +251,12 @@ public final class CodeAttribute {
      * @return null if there is no stack map table associated with this code attribute
      */
     public StackMapTable stackMapTable() {
+        decode();
         return stackMapTableAttribute;
     }
 
     public void setStackMapTableAttribute(StackMapTable stackMapTable) {
+        decode();
         stackMapTableAttribute = stackMapTable;
     }
 
@@ -226,6 +276,7 @@ public final class CodeAttribute {
      *         {@code bci} does not denote an invoke instruction
      */
     public RiMethod calleeAt(int bci) {
+        decode();
         if (bci < 0 || bci >= code.length) {
             return null;
         }
@@ -245,6 +296,7 @@ public final class CodeAttribute {
     }
 
     public int getExceptionHandlerTableOffset() {
+        decode();
         return exceptionHandlerTableOffset;
     }
 }
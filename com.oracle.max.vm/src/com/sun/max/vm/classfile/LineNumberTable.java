@@ -110,6 +110,20 @@ public final class LineNumberTable {
         }
     }
 
+    /**
+     * Checks the entries of a LineNumberTable class file attribute without decoding them.
+     */
+    static void check(ClassfileStream classfileStream, int codeLength) {
+        final int length = classfileStream.readUnsigned2();
+        for (int i = 0; i != length; ++i) {
+            final int bci = classfileStream.readUnsigned2();
+            classfileStream.skip(2);
+            if (bci >= codeLength) {
+                throw classFormatError("Invalid address in LineNumberTable entry " + i);
+            }
+        }
+    }
+
     public LineNumberTable(Entry[] entries) {
         encodedEntries = new char[entries.length * 2];
         int encodedIndex = 0;
@@ -67,9 +67,10 @@ public class CompilationBroker {
     private static int RCT = 5000;
 
     /**
-     * A queue of pending compilations.
+     * The profiles of the methods waiting to be recompiled by the optimizing compiler on one of the
+     * {@linkplain #OptCompilationThreads background compilation threads}, in request order.
      */
-    protected final LinkedList<Compilation> pending = new LinkedList<Compilation>();
+    protected final LinkedHashSet<MethodProfile> pending = new LinkedHashSet<MethodProfile>();
 
     /**
      * The baseline compiler.
@@ -91,6 +92,7 @@ public class CompilationBroker {
     private static boolean FailOverCompilation = true;
     private static boolean VMExtOpt;
     static int PrintCodeCacheMetrics;
+    private static int OptCompilationThreads;
 
     private static boolean offline = false;
     private static boolean simulateAdapter = false;
@@ -106,6 +108,8 @@ public class CompilationBroker {
         addFieldOption("-XX:", "PrintCodeCacheMetrics", CompilationBroker.class, "Print code cache metrics (0 = disabled, 1 = summary, 2 = verbose).");
         addFieldOption("-XX:", "VMExtOpt", CompilationBroker.class, "Compile VM extensions with optimizing compiler (default: false");
         addFieldOption("-XX:", "AddCompiler", CompilationBroker.class, "Add a compiler, Name:Class");
+        addFieldOption("-XX:", "OptCompilationThreads", CompilationBroker.class, "Number of background threads that perform " +
+            "recompilations with the optimizing compiler. Use 0 to recompile on the thread that triggered the recompilation. (default: 0).");
     }
 
     @RESET
@@ -164,8 +168,6 @@ public class CompilationBroker {
      */
     private RuntimeCompiler defaultCompiler;
 
-    private static final boolean BACKGROUND_COMPILATION = false;
-
     public boolean needsAdapters() {
         return baselineCompiler != null;
     }
@@ -338,12 +340,7 @@ public class CompilationBroker {
         }
 
         if (isHosted()) {
-            if (BACKGROUND_COMPILATION) {
-                // launch a compiler thread if background compilation is supported (currently no)
-                final CompilationThread compilationThread = new CompilationThread();
-                compilationThread.setDaemon(true);
-                compilationThread.start();
-            }
+            // hosted compilation is parallelized by CompiledPrototype
         } else if (phase == MaxineVM.Phase.STARTING) {
             if (opt) {
                 defaultCompiler = optimizingCompiler;
@@ -352,14 +349,17 @@ public class CompilationBroker {
             if (RCT != 0 && baselineCompiler != null) {
                 MethodInstrumentation.enable(RCT);
             }
-
-            if (BACKGROUND_COMPILATION) {
-                // launch a compiler thread if background compilation is supported (currently no)
-                final CompilationThread compilationThread = new CompilationThread();
-                compilationThread.setDaemon(true);
-                compilationThread.start();
-            }
         } else if (phase == Phase.RUNNING) {
+            if (OptCompilationThreads > 0 && !optimizingCompiler.getClass().getName().equals(aliases.get("C1X"))) {
+                // Only C1X keeps its compiler state per compilation, so other optimizing compilers must not run on several threads
+                Log.println("WARNING: -XX:OptCompilationThreads is only supported with the C1X optimizing compiler");
+                OptCompilationThreads = 0;
+            }
+            if (RCT != 0 && baselineCompiler != null) {
+                for (int i = 0; i < OptCompilationThreads; i++) {
+                    new CompilationThread(i).start();
+                }
+            }
             if (PrintCodeCacheMetrics != 0) {
                 Runtime.getRuntime().addShutdownHook(new Thread("CodeCacheMetricsPrinter") {
                     @Override
@@ -381,6 +381,26 @@ public class CompilationBroker {
         return compile(cma, nature, false);
     }
 
+    /**
+     * Queues the method of {@code mpo} for recompilation by the optimizing compiler on a background compilation
+     * thread. If the recompilation fails, recompilation of the method is {@linkplain MethodProfile#compilationDisabled
+     * disabled}.
+     *
+     * @return {@code false} if there are no background compilation threads, in which case the caller must
+     *         compile the method itself
+     */
+    public boolean enqueueOptCompilation(MethodProfile mpo) {
+        if (OptCompilationThreads <= 0 || isHosted()) {
+            return false;
+        }
+        synchronized (pending) {
+            if (pending.add(mpo)) {
+                pending.notify();
+            }
+        }
+        return true;
+    }
+
     /**
      * Perform deoptimization actions.
      * <ol>
@@ -663,6 +683,12 @@ public class CompilationBroker {
         if (oldMethod == newMethod || newMethod == null) {
             if (!(cma.compiledState instanceof Compilation)) {
                 // There is no newer compiled version available yet that we could just patch to, so recompile
+                if (vm().compilationBroker.enqueueOptCompilation(mpo)) {
+                    logCounterOverflow(mpo, "Queued for background recompilation");
+                    // Keep running the old method until a compilation thread has produced the new one
+                    mpo.entryBackedgeCount = 10000;
+                    return;
+                }
                 logCounterOverflow(mpo, "");
                 try {
                     newMethod = vm().compilationBroker.compile(cma, Nature.OPT);
@@ -799,15 +825,15 @@ public class CompilationBroker {
      */
     protected class CompilationThread extends Thread {
 
-        protected CompilationThread() {
-            super("compile");
+        protected CompilationThread(int id) {
+            super("compile-" + id);
             setDaemon(true);
         }
 
         /**
-         * The current compilation being performed by this thread.
+         * The profile of the method currently being compiled by this thread.
          */
-        Compilation compilation;
+        MethodProfile current;
 
         /**
          * Continuously polls the compilation queue for work, performing compilations as they are removed from the
@@ -821,8 +847,16 @@ public class CompilationBroker {
                 } catch (InterruptedException e) {
                     // do nothing.
                 } catch (Throwable t) {
-                    Log.print("Exception during compilation of " + compilation.classMethodActor);
-                    t.printStackTrace();
+                    final MethodProfile failed = current;
+                    if (failed == null) {
+                        Log.println("Exception in compilation thread " + getName());
+                        t.printStackTrace();
+                    } else {
+                        Log.println("Exception during compilation of " + failed.method.classMethodActor);
+                        t.printStackTrace();
+                        // Stay with the baseline method rather than retrying on every counter overflow
+                        failed.compilationDisabled = true;
+                    }
                 }
             }
         }
@@ -833,21 +867,19 @@ public class CompilationBroker {
          * @throws InterruptedException if the thread was interrupted waiting on the queue
          */
         void compileOne() throws InterruptedException {
-            compilation = null;
+            current = null;
             synchronized (pending) {
-                while (compilation == null) {
-                    compilation = pending.poll();
-                    if (compilation == null) {
-                        pending.wait();
-                    }
+                while (pending.isEmpty()) {
+                    pending.wait();
                 }
+                Iterator<MethodProfile> iterator = pending.iterator();
+                current = iterator.next();
+                iterator.remove();
             }
-            compilation.compilingThread = Thread.currentThread();
             if (GCOnRecompilation) {
                 System.gc();
             }
-            compilation.compile();
-            compilation = null;
+            compile(current.method.classMethodActor, Nature.OPT);
         }
     }
 
@@ -31,6 +31,7 @@ import com.sun.max.vm.actor.member.*;
 import com.sun.max.vm.compiler.*;
 import com.sun.max.vm.compiler.RuntimeCompiler.Nature;
 import com.sun.max.vm.heap.*;
+import com.sun.max.vm.management.*;
 import com.sun.max.vm.runtime.*;
 import com.sun.max.vm.stack.*;
 import com.sun.max.vm.tele.*;
@@ -278,6 +279,7 @@ public class Compilation {
     public TargetMethod compile() {
         Throwable error = null;
         String methodString = "";
+        final long startTime = System.nanoTime();
 
         try {
             InspectableCompilationInfo.notifyCompilationEvent(classMethodActor, null);
@@ -339,6 +341,11 @@ public class Compilation {
             // the compilation didn't produce a target method
             FatalError.unexpected("target method should not be null");
         }
+        PerfMemory.TOTAL_COMPILES.increment();
+        if (parent == null) {
+            // the time of a nested compilation is already included in that of its parent
+            PerfMemory.TOTAL_COMPILE_TIME.add(System.nanoTime() - startTime);
+        }
 
 
         return result;
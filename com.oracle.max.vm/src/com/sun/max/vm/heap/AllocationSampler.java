@@ -0,0 +1,498 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.heap;
+
+import static com.sun.max.vm.VMOptions.*;
+import static com.sun.max.vm.intrinsics.Infopoints.*;
+import static com.sun.max.vm.intrinsics.MaxineIntrinsicIDs.*;
+
+import java.util.*;
+
+import com.sun.max.annotate.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.actor.member.*;
+import com.sun.max.vm.compiler.target.*;
+import com.sun.max.vm.layout.*;
+import com.sun.max.vm.object.*;
+import com.sun.max.vm.reference.*;
+import com.sun.max.vm.runtime.*;
+import com.sun.max.vm.stack.*;
+import com.sun.max.vm.thread.*;
+import com.sun.max.vm.thread.VmThreadLocal.Nature;
+import com.sun.max.vm.ti.*;
+
+/**
+ * Sampled allocation profiling. When a sampling interval is set, a thread that has allocated about that many
+ * bytes since its last sample records the next object it allocates on the TLAB slow path: the object's class
+ * and size, the number of bytes the sample stands for, and the top frames of the allocating stack. Samples are
+ * kept in a per-thread buffer written only by the allocating thread and are collected with {@link #drain()}.
+ * Each sampled object is also passed to the {@linkplain VMTI#handler() VMTI handler}, from which JVMTI
+ * delivers {@code SampledObjectAlloc} events.
+ * <p>
+ * The sampling decision is made on the slow path of {@link HeapSchemeWithTLAB}, so allocation from a TLAB
+ * is not affected and, while sampling is off, a slow path only tests a static field. As a consequence, samples
+ * are at least a TLAB apart: when the interval is smaller than a TLAB, a refill yields a single sample whose
+ * weight covers all the bytes allocated since the previous one.
+ * <p>
+ * The slow path knows the size of the cell it allocates but not its class: the hub is written by the caller
+ * once the cell is returned. The slow path therefore leaves the cell pending, and the caller that formats it,
+ * {@link Heap} for runtime allocations or {@link HeapSchemeWithTLAB#c1xSlowPathAllocate(Size, Pointer, Hub)}
+ * for inline allocations in compiled code, passes the new object to {@link #allocated(Object)}, which
+ * records its class and reports it before the allocation returns to the code that requested it. A pending
+ * cell that is never formatted as an object, because it was allocated for the VM's own use, is dropped.
+ */
+public final class AllocationSampler {
+
+    private AllocationSampler() {
+    }
+
+    /**
+     * The sampling interval used when JVMTI enables {@code SampledObjectAlloc} events and no interval was set.
+     */
+    public static final long DEFAULT_INTERVAL = 512 * 1024;
+
+    private static final VMSizeOption intervalOption = register(new VMSizeOption("-XX:AllocationSampleInterval=", Size.zero(),
+        "Average number of bytes a thread allocates between two allocation samples. Zero disables allocation sampling."), MaxineVM.Phase.PRISTINE);
+
+    /**
+     * Number of frames recorded with each sample.
+     */
+    private static int AllocationSampleStackDepth = 8;
+
+    /**
+     * Number of samples a thread can buffer before it starts dropping them.
+     */
+    private static int AllocationSampleBufferSize = 512;
+
+    static {
+        VMOptions.addFieldOption("-XX:", "AllocationSampleStackDepth", AllocationSampler.class,
+            "Number of stack frames recorded with each allocation sample.", MaxineVM.Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "AllocationSampleBufferSize", AllocationSampler.class,
+            "Number of allocation samples each thread can buffer until they are drained.", MaxineVM.Phase.PRISTINE);
+    }
+
+    /**
+     * The sample buffer of a thread, or zero if the thread has not allocated since sampling was enabled.
+     */
+    private static final VmThreadLocal ALLOCATION_SAMPLES
+        = new VmThreadLocal("ALLOCATION_SAMPLES", true, "AllocationSampler: allocation sample buffer of the thread", Nature.Single);
+
+    /**
+     * Non-zero while the thread is setting up its sample buffer or reporting a sample, during which its own
+     * allocations are not sampled.
+     */
+    private static final VmThreadLocal ALLOCATION_SAMPLER_BUSY
+        = new VmThreadLocal("ALLOCATION_SAMPLER_BUSY", false, "AllocationSampler: non-zero while sampling is suspended for the thread", Nature.Single);
+
+    private static volatile boolean sampling;
+
+    private static long interval;
+
+    private static final Object lock = new Object();
+
+    /**
+     * The buffers of all threads that may hold undrained samples. Only the first {@link #registered} entries are used.
+     */
+    private static ThreadSamples[] registry = new ThreadSamples[16];
+
+    private static int registered;
+
+    /**
+     * Samples dropped by threads whose buffers have since been released.
+     */
+    private static long releasedDropped;
+
+    private static final ClassActor HEAP_SCHEME = ClassActor.fromJava(HeapScheme.class);
+    private static final ClassActor HEAP = ClassActor.fromJava(Heap.class);
+    private static final ClassActor SNIPPETS = ClassActor.fromJava(Snippets.class);
+    private static final ClassActor SAMPLER = ClassActor.fromJava(AllocationSampler.class);
+
+    static {
+        // A cell still pending at a collection was not formatted by an allocation that could be reported,
+        // and the collection may reuse it for another object.
+        SpecialReferenceManager.registerWeakRootsProcessor(new SpecialReferenceManager.WeakRootsProcessor() {
+            public void processWeakRoots(SpecialReferenceManager.GC gc) {
+                final ThreadSamples[] all = registry;
+                for (int i = 0; i < registered; i++) {
+                    final ThreadSamples samples = all[i];
+                    if (samples != null) {
+                        samples.dropPending();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * An allocation sample.
+     */
+    public static final class Sample {
+        /**
+         * The allocating thread.
+         */
+        public final Thread thread;
+
+        /**
+         * The class of the sampled object.
+         */
+        public final ClassActor type;
+
+        /**
+         * The size of the sampled object in bytes.
+         */
+        public final long size;
+
+        /**
+         * The number of bytes the thread allocated since its previous sample, this one included.
+         */
+        public final long weight;
+
+        /**
+         * The innermost frames of the allocating stack, innermost first.
+         */
+        public final ClassMethodActor[] stack;
+
+        Sample(Thread thread, ClassActor type, long size, long weight, ClassMethodActor[] stack) {
+            this.thread = thread;
+            this.type = type;
+            this.size = size;
+            this.weight = weight;
+            this.stack = stack;
+        }
+    }
+
+    /**
+     * The sample buffer of a thread. It is a ring that only its thread adds to, by writing the slot at
+     * {@link #head} and then advancing it, and that {@link AllocationSampler#drain()} empties by advancing
+     * {@link #tail}. The buffer is also the visitor that records the allocating stack.
+     */
+    static final class ThreadSamples extends RawStackFrameVisitor {
+        final Thread thread;
+        final int depth;
+        final ClassActor[] types;
+        final long[] sizes;
+        final long[] weights;
+        final int[] depths;
+        final ClassMethodActor[] frames;
+
+        volatile long head;
+        volatile long tail;
+        long dropped;
+        boolean detached;
+
+        /**
+         * Bytes allocated since the last sample, not counting the current TLAB.
+         */
+        long allocated;
+
+        /**
+         * Number of allocated bytes that triggers the next sample.
+         */
+        long limit;
+
+        /**
+         * Allocation mark of the TLAB after the last slow path.
+         */
+        Address mark = Address.zero();
+
+        /**
+         * Cell of the sampled object whose class is yet to be recorded in the slot at {@link #head}.
+         */
+        Pointer pendingCell = Pointer.zero();
+
+        private int frameBase;
+        private int frameCount;
+
+        ThreadSamples(Thread thread, int capacity, int depth) {
+            this.thread = thread;
+            this.depth = depth;
+            types = new ClassActor[capacity];
+            sizes = new long[capacity];
+            weights = new long[capacity];
+            depths = new int[capacity];
+            frames = new ClassMethodActor[capacity * depth];
+        }
+
+        @Override
+        public boolean visitFrame(StackFrameCursor current, StackFrameCursor callee) {
+            final TargetMethod tm = current.targetMethod();
+            if (tm == null || tm.classMethodActor == null) {
+                return true;
+            }
+            if (frameCount == 0 && isAllocationFrame(tm.classMethodActor)) {
+                return true;
+            }
+            frames[frameBase + frameCount++] = tm.classMethodActor;
+            return frameCount < depth;
+        }
+
+        void dropPending() {
+            if (!pendingCell.isZero()) {
+                pendingCell = Pointer.zero();
+                dropped++;
+            }
+        }
+
+        void drainTo(List<Sample> result) {
+            final long h = head;
+            for (long n = tail; n < h; n++) {
+                final int slot = (int) (n % sizes.length);
+                final int base = slot * depth;
+                result.add(new Sample(thread, types[slot], sizes[slot], weights[slot], Arrays.copyOfRange(frames, base, base + depths[slot])));
+            }
+            tail = h;
+        }
+    }
+
+    @INTRINSIC(UNSAFE_CAST)
+    private static native ThreadSamples asThreadSamples(Object object);
+
+    @INLINE
+    private static ThreadSamples samplesOf(Pointer etla) {
+        final Reference reference = ALLOCATION_SAMPLES.loadRef(etla);
+        if (reference.isZero()) {
+            return null;
+        }
+        return asThreadSamples(reference.toJava());
+    }
+
+    /**
+     * Determines if a frame belongs to the allocation machinery rather than to the code that requested the allocation.
+     */
+    private static boolean isAllocationFrame(ClassMethodActor classMethodActor) {
+        final ClassActor holder = classMethodActor.holder();
+        return holder == HEAP || holder == SNIPPETS || holder == SAMPLER || HEAP_SCHEME.isAssignableFrom(holder);
+    }
+
+    static void initialize() {
+        interval = intervalOption.getValue().toLong();
+        sampling = interval > 0;
+    }
+
+    /**
+     * Determines if allocations are being sampled.
+     */
+    @INLINE
+    public static boolean isSampling() {
+        return sampling;
+    }
+
+    /**
+     * Gets the average number of bytes between two samples, zero if sampling is off.
+     */
+    public static long samplingInterval() {
+        return interval;
+    }
+
+    /**
+     * Sets the average number of bytes a thread allocates between two samples.
+     *
+     * @param bytes the sampling interval, or zero to stop sampling
+     * @throws IllegalArgumentException if {@code bytes} is negative
+     */
+    public static void setSamplingInterval(long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("negative sampling interval: " + bytes);
+        }
+        synchronized (lock) {
+            interval = bytes;
+            sampling = bytes > 0;
+        }
+    }
+
+    /**
+     * Removes and returns the samples buffered by all threads.
+     */
+    public static List<Sample> drain() {
+        final ArrayList<Sample> result = new ArrayList<Sample>();
+        synchronized (lock) {
+            int live = 0;
+            for (int i = 0; i < registered; i++) {
+                final ThreadSamples samples = registry[i];
+                samples.drainTo(result);
+                if (samples.detached) {
+                    releasedDropped += samples.dropped;
+                } else {
+                    registry[live++] = samples;
+                }
+            }
+            for (int i = live; i < registered; i++) {
+                registry[i] = null;
+            }
+            registered = live;
+        }
+        return result;
+    }
+
+    /**
+     * Gets the number of samples dropped so far because a thread's buffer was full.
+     */
+    public static long droppedSamples() {
+        synchronized (lock) {
+            long dropped = releasedDropped;
+            for (int i = 0; i < registered; i++) {
+                dropped += registry[i].dropped;
+            }
+            return dropped;
+        }
+    }
+
+    /**
+     * Called on the TLAB slow path, before anything is allocated, while sampling is on. Sets up the sample buffer
+     * of the current thread if it has none. This allocates, so the TLAB must be reloaded when this returns
+     * {@code true}.
+     *
+     * @return {@code true} if a buffer was set up
+     */
+    @NEVER_INLINE
+    static boolean prepare(Pointer etla) {
+        if (!ALLOCATION_SAMPLER_BUSY.load(etla).isZero() || samplesOf(etla) != null) {
+            return false;
+        }
+        final VmThread vmThread = VmThread.current();
+        if (vmThread == null || vmThread.isVmOperationThread() || vmThread.javaThread() == null) {
+            // Never sample threads that may allocate while others are stopped holding the registry lock
+            return false;
+        }
+        ALLOCATION_SAMPLER_BUSY.store(etla, Address.fromInt(1));
+        try {
+            final ThreadSamples newSamples = new ThreadSamples(vmThread.javaThread(), Math.max(AllocationSampleBufferSize, 1), Math.max(AllocationSampleStackDepth, 1));
+            synchronized (lock) {
+                if (registered == registry.length) {
+                    registry = Arrays.copyOf(registry, registered * 2);
+                }
+                registry[registered++] = newSamples;
+            }
+            ALLOCATION_SAMPLES.store(etla, Reference.fromJava(newSamples));
+        } finally {
+            ALLOCATION_SAMPLER_BUSY.store(etla, Address.zero());
+        }
+        return true;
+    }
+
+    /**
+     * Called on the TLAB slow path once a cell of {@code size} bytes has been allocated at {@code cell}.
+     * Accounts for the bytes allocated since the previous slow path and, when the thread is due a sample,
+     * records it except for the class of the object, which is not known yet, and leaves the cell pending.
+     *
+     * @param oldAllocationMark the allocation mark of the TLAB on entry to the slow path
+     */
+    @NO_SAFEPOINT_POLLS("the cell has no hub until the slow path returns")
+    static void recordAllocation(Pointer etla, Pointer cell, Size size, Pointer oldAllocationMark) {
+        final ThreadSamples samples = samplesOf(etla);
+        if (samples == null || !ALLOCATION_SAMPLER_BUSY.load(etla).isZero()) {
+            return;
+        }
+        samples.dropPending();
+        long allocated = samples.allocated + size.toLong();
+        if (!samples.mark.isZero() && oldAllocationMark.greaterEqual(samples.mark)) {
+            allocated += oldAllocationMark.minus(samples.mark).toLong();
+        }
+        samples.mark = HeapSchemeWithTLAB.TLAB_MARK.load(etla);
+        if (samples.limit == 0) {
+            samples.limit = nextLimit(cell, allocated);
+        }
+        if (allocated < samples.limit) {
+            samples.allocated = allocated;
+            return;
+        }
+        samples.allocated = 0;
+        samples.limit = nextLimit(cell, allocated);
+
+        final long head = samples.head;
+        if (head - samples.tail >= samples.sizes.length) {
+            samples.dropped++;
+            return;
+        }
+        final int slot = (int) (head % samples.sizes.length);
+        samples.sizes[slot] = size.toLong();
+        samples.weights[slot] = allocated;
+        samples.frameBase = slot * samples.depth;
+        samples.frameCount = 0;
+        VmThread.current().stackDumpStackFrameWalker().inspect(Pointer.fromLong(here()),
+                                                              VMRegister.getCpuStackPointer(),
+                                                              VMRegister.getCpuFramePointer(),
+                                                              samples);
+        samples.depths[slot] = samples.frameCount;
+        samples.pendingCell = cell;
+    }
+
+    /**
+     * Determines if {@code cell} was allocated by the current thread's slow path for a sample.
+     */
+    @INLINE
+    static boolean isPending(Pointer etla, Pointer cell) {
+        final ThreadSamples samples = samplesOf(etla);
+        return samples != null && samples.pendingCell.equals(cell);
+    }
+
+    /**
+     * Spreads sampling points uniformly over {@code [interval / 2, 3 * interval / 2)} so that samples do not
+     * fall in step with a periodic allocation pattern.
+     */
+    @INLINE
+    private static long nextLimit(Pointer cell, long seed) {
+        final long i = Math.max(interval, 1);
+        final long hash = ((cell.toLong() ^ seed) * 0x9E3779B97F4A7C15L) >>> 1;
+        return (i >> 1) + hash % i;
+    }
+
+    /**
+     * Called with each object just allocated and formatted while sampling is on. If the object is the pending
+     * sample of the current thread, records its class and reports it to the {@linkplain VMTI#handler() VMTI
+     * handler}, which may run arbitrary code.
+     */
+    @NEVER_INLINE
+    static void allocated(Object object) {
+        final Pointer etla = VmThreadLocal.ETLA.load(VmThread.currentTLA());
+        final ThreadSamples samples = samplesOf(etla);
+        if (samples == null || samples.pendingCell.isZero()) {
+            return;
+        }
+        if (!samples.pendingCell.equals(Layout.originToCell(Reference.fromJava(object).toOrigin()))) {
+            return;
+        }
+        samples.pendingCell = Pointer.zero();
+        final long head = samples.head;
+        samples.types[(int) (head % samples.sizes.length)] = ObjectAccess.readClassActor(object);
+        samples.head = head + 1;
+        ALLOCATION_SAMPLER_BUSY.store(etla, Address.fromInt(1));
+        try {
+            VMTI.handler().objectSampled(object);
+        } finally {
+            ALLOCATION_SAMPLER_BUSY.store(etla, Address.zero());
+        }
+    }
+
+    /**
+     * Drops the pending sample of the current thread, if any, and releases its buffer once drained.
+     */
+    static void threadDetached(Pointer etla) {
+        final ThreadSamples samples = samplesOf(etla);
+        if (samples == null) {
+            return;
+        }
+        samples.dropPending();
+        samples.detached = true;
+        ALLOCATION_SAMPLES.store(etla, Reference.zero());
+    }
+}
@@ -325,6 +325,9 @@ public final class Heap {
         if (MaxineVM.isDebug()) {
             doDebugAfterCreateArray(hub, length, array);
         }
+        if (AllocationSampler.isSampling()) {
+            AllocationSampler.allocated(array);
+        }
         return array;
     }
 
@@ -345,6 +348,9 @@ public final class Heap {
         if (MaxineVM.isDebug()) {
             doDebugAfterCreateTuple(hub, object);
         }
+        if (AllocationSampler.isSampling()) {
+            AllocationSampler.allocated(object);
+        }
         return object;
     }
 
@@ -365,6 +371,9 @@ public final class Heap {
         if (MaxineVM.isDebug()) {
             doDebugAfterCreateHybrid(hub, hybrid);
         }
+        if (AllocationSampler.isSampling()) {
+            AllocationSampler.allocated(hybrid);
+        }
         return hybrid;
     }
 
@@ -385,6 +394,9 @@ public final class Heap {
         if (MaxineVM.isDebug()) {
             doDebugAfterExpandHybrid(ObjectAccess.readHub(hybrid), expandedHybrid);
         }
+        if (AllocationSampler.isSampling()) {
+            AllocationSampler.allocated(expandedHybrid);
+        }
         return expandedHybrid;
     }
 
@@ -405,6 +417,9 @@ public final class Heap {
             doDebugAfterClone(ObjectAccess.readHub(object), clone);
             allocationLogger.logUnalignedTuple(object, ObjectAccess.readHub(object).classActor);
         }
+        if (AllocationSampler.isSampling()) {
+            AllocationSampler.allocated(clone);
+        }
         return clone;
     }
 
@@ -575,11 +590,25 @@ public final class Heap {
         gcWaitForDisablingThreads = false;
     }
 
+    /**
+     * Determines if {@link #useDirectPointer(Object)} can always provide direct access to an object,
+     * either by pinning it or by disabling GC.
+     */
+    @INLINE
+    public static boolean supportsDirectPointers() {
+        return heapScheme().supportsPinning(PIN_SUPPORT_FLAG.CAN_NEST) || OptimizeJNICritical;
+    }
+
+    /**
+     * Makes it safe to access an object via a direct pointer until a matching call to {@link #releasedDirectPointer(Object)}.
+     * The object is pinned if the heap scheme can pin it. Otherwise, GC is disabled if {@link #OptimizeJNICritical} is set.
+     *
+     * @return {@code false} if direct access to {@code object} cannot be granted
+     */
     @INLINE
     public static boolean useDirectPointer(Object object) {
         HeapScheme heapScheme = heapScheme();
-        if (heapScheme.supportsPinning(PIN_SUPPORT_FLAG.CAN_NEST)) {
-            heapScheme.pin(object);
+        if (heapScheme.supportsPinning(PIN_SUPPORT_FLAG.CAN_NEST) && heapScheme.pin(object)) {
             return true;
         }
         if (OptimizeJNICritical) {
@@ -593,8 +622,11 @@ public final class Heap {
     public static boolean releasedDirectPointer(Object object) {
         HeapScheme heapScheme = VMConfiguration.vmConfig().heapScheme();
         if (heapScheme.supportsPinning(PIN_SUPPORT_FLAG.CAN_NEST)) {
-            heapScheme.unpin(object);
-            return true;
+            // A heap scheme that can decline to pin an object must be able to say whether it pinned it.
+            if (!heapScheme.supportsPinning(PIN_SUPPORT_FLAG.IS_QUERYABLE) || heapScheme.isPinned(object)) {
+                heapScheme.unpin(object);
+                return true;
+            }
         }
         if (OptimizeJNICritical) {
             enableGC();
@@ -0,0 +1,754 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.heap;
+
+import static com.sun.max.vm.type.ClassRegistry.*;
+
+import java.util.concurrent.atomic.*;
+
+import com.sun.max.annotate.*;
+import com.sun.max.memory.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.actor.member.*;
+import com.sun.max.vm.classfile.constant.*;
+import com.sun.max.vm.jni.*;
+import com.sun.max.vm.layout.*;
+import com.sun.max.vm.object.*;
+import com.sun.max.vm.reference.*;
+import com.sun.max.vm.stack.*;
+import com.sun.max.vm.thread.*;
+import com.sun.max.vm.type.*;
+
+/**
+ * Writes heap dumps in the HPROF binary format read by heap analysis tools. The heap is walked with a
+ * {@link ParallelHeapWalker}: each worker formats the objects of its chunks into a native buffer of its own and
+ * writes the buffer, as a complete heap dump segment, at a file offset it reserves when the buffer is full.
+ * Since segments can appear in any order in the file, nothing is merged and the dump is streamed while the heap
+ * is walked.
+ * <p>
+ * The identifier of an object is its origin, and the identifier of a class is the origin of its
+ * {@link Class} mirror, which is created for every loaded class before the dump starts. The objects of the
+ * boot heap and of the immortal heap are reported as roots of unknown kind, and the {@link Thread} objects
+ * of live threads as thread roots. The dump operation prepares the stack reference maps of the threads it
+ * stops, as a GC does, so that the references in their frames are reported as Java frame roots; the objects of
+ * their local JNI handles and of the global JNI handles are reported as JNI roots. Frame roots carry no frame
+ * number, as objects carry no allocation trace. Objects with no class mirror, such as fillers, and arrays too
+ * large for a record are left out.
+ */
+public final class HeapDumper {
+
+    private HeapDumper() {
+    }
+
+    private static final int HPROF_UTF8 = 0x01;
+    private static final int HPROF_LOAD_CLASS = 0x02;
+    private static final int HPROF_TRACE = 0x05;
+    private static final int HPROF_HEAP_DUMP_SEGMENT = 0x1C;
+    private static final int HPROF_HEAP_DUMP_END = 0x2C;
+
+    private static final int HPROF_GC_ROOT_UNKNOWN = 0xFF;
+    private static final int HPROF_GC_ROOT_JNI_GLOBAL = 0x01;
+    private static final int HPROF_GC_ROOT_JNI_LOCAL = 0x02;
+    private static final int HPROF_GC_ROOT_JAVA_FRAME = 0x03;
+    private static final int HPROF_GC_ROOT_THREAD_OBJ = 0x08;
+    private static final int HPROF_GC_ROOT_STICKY_CLASS = 0x05;
+    private static final int HPROF_GC_CLASS_DUMP = 0x20;
+    private static final int HPROF_GC_INSTANCE_DUMP = 0x21;
+    private static final int HPROF_GC_OBJ_ARRAY_DUMP = 0x22;
+    private static final int HPROF_GC_PRIM_ARRAY_DUMP = 0x23;
+
+    private static final int HPROF_NORMAL_OBJECT = 2;
+    private static final int HPROF_BOOLEAN = 4;
+    private static final int HPROF_CHAR = 5;
+    private static final int HPROF_FLOAT = 6;
+    private static final int HPROF_DOUBLE = 7;
+    private static final int HPROF_BYTE = 8;
+    private static final int HPROF_SHORT = 9;
+    private static final int HPROF_INT = 10;
+    private static final int HPROF_LONG = 11;
+
+    private static final byte[] HEADER = {'J', 'A', 'V', 'A', ' ', 'P', 'R', 'O', 'F', 'I', 'L', 'E', ' ', '1', '.', '0', '.', '2', 0};
+
+    /**
+     * Serial number of the empty stack trace that all objects refer to.
+     */
+    private static final int STACK_TRACE_SERIAL = 1;
+
+    /**
+     * Frame number of a root in a frame of the empty stack trace.
+     */
+    private static final int NO_FRAME = -1;
+
+    /**
+     * Initial size of the buffer of each worker.
+     */
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * Size of the largest array dump. The length of a record is an unsigned 32-bit value, and larger arrays are left out.
+     */
+    private static final int MAX_ARRAY_DUMP_SIZE = 1 << 30;
+
+    /**
+     * Size of the header of a record.
+     */
+    private static final int RECORD_HEADER_SIZE = 9;
+
+    @C_FUNCTION
+    private static native int heapdump_open(Pointer path);
+
+    @C_FUNCTION
+    private static native boolean heapdump_write(int fd, Pointer buffer, Size length, long offset);
+
+    @C_FUNCTION
+    private static native int heapdump_close(int fd);
+
+    /**
+     * A native buffer into which a worker formats records. The buffer only ever holds complete records, so
+     * that it can be written at any offset of the file when it fills up. A heap dump segment record is kept
+     * open while sub-records are added and closed when the buffer is written.
+     */
+    private static final class Buffer {
+        private Pointer start = Pointer.zero();
+        private int capacity;
+        private int position;
+
+        /**
+         * The position of the open heap dump segment record, or -1.
+         */
+        private int segment = -1;
+
+        /**
+         * Makes room for {@code size} more bytes, writing out the buffer or growing it as needed.
+         */
+        boolean reserve(int size) {
+            if (position + size <= capacity) {
+                return true;
+            }
+            if (!flush()) {
+                return false;
+            }
+            if (size > capacity) {
+                final int newCapacity = Math.max(size, BUFFER_SIZE);
+                final Pointer newStart = start.isZero() ? Memory.allocate(Size.fromInt(newCapacity)) : Memory.reallocate(start, Size.fromInt(newCapacity));
+                if (newStart.isZero()) {
+                    return false;
+                }
+                start = newStart;
+                capacity = newCapacity;
+            }
+            return true;
+        }
+
+        /**
+         * Starts a top-level record of a given length.
+         */
+        boolean record(int tag, int length) {
+            closeSegment();
+            if (!reserve(RECORD_HEADER_SIZE + length)) {
+                return false;
+            }
+            u1(tag);
+            u4(0);
+            u4(length);
+            return true;
+        }
+
+        /**
+         * Starts a heap dump sub-record of at most {@code maxLength} bytes.
+         */
+        boolean subRecord(int maxLength) {
+            if (!reserve(RECORD_HEADER_SIZE + maxLength)) {
+                return false;
+            }
+            if (segment < 0) {
+                segment = position;
+                u1(HPROF_HEAP_DUMP_SEGMENT);
+                u4(0);
+                u4(0);
+            }
+            return true;
+        }
+
+        private void closeSegment() {
+            if (segment >= 0) {
+                patchU4(segment + 5, position - segment - RECORD_HEADER_SIZE);
+                segment = -1;
+            }
+        }
+
+        /**
+         * Writes the contents of the buffer at the end of the file.
+         */
+        boolean flush() {
+            closeSegment();
+            if (position == 0) {
+                return true;
+            }
+            final long offset = fileOffset.getAndAdd(position);
+            if (!heapdump_write(fd, start, Size.fromInt(position), offset)) {
+                return false;
+            }
+            position = 0;
+            return true;
+        }
+
+        void release() {
+            if (!start.isZero()) {
+                Memory.deallocate(start);
+                start = Pointer.zero();
+            }
+            capacity = 0;
+            position = 0;
+            segment = -1;
+        }
+
+        void u1(int value) {
+            start.writeByte(position++, (byte) value);
+        }
+
+        void u2(int value) {
+            u1(value >>> 8);
+            u1(value);
+        }
+
+        void u4(int value) {
+            u1(value >>> 24);
+            u1(value >>> 16);
+            u1(value >>> 8);
+            u1(value);
+        }
+
+        void u8(long value) {
+            u4((int) (value >>> 32));
+            u4((int) value);
+        }
+
+        void patchU4(int at, int value) {
+            final int saved = position;
+            position = at;
+            u4(value);
+            position = saved;
+        }
+
+        void id(Word value) {
+            if (Word.size() == 8) {
+                u8(value.asAddress().toLong());
+            } else {
+                u4(value.asAddress().toInt());
+            }
+        }
+
+        void id(Object object) {
+            id(object == null ? Word.zero() : Reference.fromJava(object).toOrigin());
+        }
+
+        void utf8(String string, int from, int to) {
+            for (int i = from; i < to; i++) {
+                final char c = string.charAt(i);
+                if (c != 0 && c < 0x80) {
+                    u1(c);
+                } else if (c < 0x800) {
+                    u1(0xC0 | (c >> 6));
+                    u1(0x80 | (c & 0x3F));
+                } else {
+                    u1(0xE0 | (c >> 12));
+                    u1(0x80 | ((c >> 6) & 0x3F));
+                    u1(0x80 | (c & 0x3F));
+                }
+            }
+        }
+    }
+
+    private static int utf8Length(String string, int from, int to) {
+        int length = 0;
+        for (int i = from; i < to; i++) {
+            final char c = string.charAt(i);
+            length += (c != 0 && c < 0x80) ? 1 : c < 0x800 ? 2 : 3;
+        }
+        return length;
+    }
+
+    /**
+     * The file being written, and the offset at which the next buffer is written.
+     */
+    private static int fd;
+    private static final AtomicLong fileOffset = new AtomicLong();
+
+    /**
+     * Classes with an identifier greater than this were loaded after the dump was requested and are left out.
+     */
+    private static int maxClassId;
+
+    private static volatile boolean failed;
+
+    private static Buffer[] buffers;
+
+    /**
+     * Dumps the heap to a file, which must not exist.
+     *
+     * @param path the path of the file
+     * @param live specifies if only live objects are dumped, in which case a full collection runs first
+     * @return {@code true} if the heap was dumped
+     */
+    public static synchronized boolean dump(String path, boolean live) {
+        if (live) {
+            System.gc();
+        }
+        maxClassId = ClassIDManager.largestClassId();
+        for (int id = 0; id <= maxClassId; id++) {
+            final ClassActor classActor = ClassIDManager.toClassActor(id);
+            if (classActor != null) {
+                classActor.toJava();
+            }
+        }
+        final Pointer cPath = CString.utf8FromJava(path);
+        fd = heapdump_open(cPath);
+        Memory.deallocate(cPath);
+        if (fd < 0) {
+            return false;
+        }
+        if (buffers == null) {
+            buffers = new Buffer[ParallelHeapWalker.workers()];
+            for (int i = 0; i < buffers.length; i++) {
+                buffers[i] = new Buffer();
+            }
+        }
+        fileOffset.set(0);
+        failed = false;
+        new DumpOperation().submit();
+        for (Buffer buffer : buffers) {
+            buffer.release();
+        }
+        return heapdump_close(fd) == 0 && !failed;
+    }
+
+    private static final class DumpOperation extends ParallelHeapWalker.Operation {
+        DumpOperation() {
+            super("HeapDump");
+        }
+
+        @Override
+        protected void doAtSafepointBeforeBlocking(Pointer trapFrame) {
+            prepareStackReferenceMapFromTrap(trapFrame);
+        }
+
+        @Override
+        protected void doAfterFrozen(VmThread thread) {
+            completeStackReferenceMap(thread);
+        }
+
+        @Override
+        protected void doBeforeThawingThread(VmThread thread) {
+            clearStackReferenceMap(thread);
+        }
+
+        @Override
+        protected void doIt() {
+            final Buffer buffer = buffers[0];
+            // The header must be at the start of the file, before any buffer of the walk is written.
+            if (!writeHeader(buffer) || !buffer.flush() || !writeClasses(buffer) || !writeJniGlobalRoots(buffer)) {
+                failed = true;
+                return;
+            }
+            VmThreadMap.ACTIVE.forAllThreadLocals(null, threadRootWriter);
+            if (failed || !ParallelHeapWalker.walk(objectWriter) || failed) {
+                failed = true;
+                return;
+            }
+            for (Buffer b : buffers) {
+                if (!b.flush()) {
+                    failed = true;
+                    return;
+                }
+            }
+            if (!buffer.record(HPROF_HEAP_DUMP_END, 0) || !buffer.flush()) {
+                failed = true;
+            }
+        }
+    }
+
+    private static boolean writeHeader(Buffer buffer) {
+        if (!buffer.reserve(HEADER.length + 4 + 8)) {
+            return false;
+        }
+        for (byte b : HEADER) {
+            buffer.u1(b);
+        }
+        buffer.u4(Word.size());
+        buffer.u8(System.currentTimeMillis());
+        if (!buffer.record(HPROF_TRACE, 12)) {
+            return false;
+        }
+        buffer.u4(STACK_TRACE_SERIAL);
+        buffer.u4(0);
+        buffer.u4(0);
+        return true;
+    }
+
+    /**
+     * Gets the class mirror of a class without creating it.
+     *
+     * @return the mirror or {@code null} if the class has none or is left out of the dump
+     */
+    private static Object mirror(ClassActor classActor) {
+        if (classActor == null || classActor.id > maxClassId) {
+            return null;
+        }
+        final Reference mirror = Reference.fromJava(classActor).readReference(ClassActor_javaClass.offset());
+        return mirror.isZero() ? null : mirror.toJava();
+    }
+
+    private static boolean writeName(Buffer buffer, Object id, String name, int from, int to) {
+        if (!buffer.record(HPROF_UTF8, Word.size() + utf8Length(name, from, to))) {
+            return false;
+        }
+        buffer.id(id);
+        buffer.utf8(name, from, to);
+        return true;
+    }
+
+    private static boolean writeName(Buffer buffer, Utf8Constant name) {
+        return writeName(buffer, name, name.string, 0, name.string.length());
+    }
+
+    /**
+     * Writes the name of a class in the internal form used by HPROF, i.e. {@code java/lang/String} for a class
+     * and the type descriptor for an array class.
+     */
+    private static boolean writeName(Buffer buffer, ClassActor classActor) {
+        final String descriptor = classActor.typeDescriptor.string;
+        if (descriptor.charAt(0) == 'L') {
+            return writeName(buffer, classActor.typeDescriptor, descriptor, 1, descriptor.length() - 1);
+        }
+        return writeName(buffer, classActor.typeDescriptor, descriptor, 0, descriptor.length());
+    }
+
+    private static int typeOf(Kind<?> kind) {
+        if (kind == Kind.REFERENCE) {
+            return HPROF_NORMAL_OBJECT;
+        } else if (kind == Kind.INT) {
+            return HPROF_INT;
+        } else if (kind == Kind.LONG) {
+            return HPROF_LONG;
+        } else if (kind == Kind.BOOLEAN) {
+            return HPROF_BOOLEAN;
+        } else if (kind == Kind.BYTE) {
+            return HPROF_BYTE;
+        } else if (kind == Kind.CHAR) {
+            return HPROF_CHAR;
+        } else if (kind == Kind.SHORT) {
+            return HPROF_SHORT;
+        } else if (kind == Kind.FLOAT) {
+            return HPROF_FLOAT;
+        } else if (kind == Kind.DOUBLE) {
+            return HPROF_DOUBLE;
+        }
+        return Word.size() == 8 ? HPROF_LONG : HPROF_INT;
+    }
+
+    private static int sizeOf(int type) {
+        switch (type) {
+            case HPROF_BOOLEAN:
+            case HPROF_BYTE:    return 1;
+            case HPROF_SHORT:
+            case HPROF_CHAR:    return 2;
+            case HPROF_INT:
+            case HPROF_FLOAT:   return 4;
+            case HPROF_LONG:
+            case HPROF_DOUBLE:  return 8;
+            default:            return Word.size();
+        }
+    }
+
+    /**
+     * Writes the value of a field or of an array element.
+     */
+    private static void writeValue(Buffer buffer, int type, Reference holder, int offset) {
+        switch (type) {
+            case HPROF_BOOLEAN:
+            case HPROF_BYTE:    buffer.u1(holder.readByte(offset)); break;
+            case HPROF_SHORT:
+            case HPROF_CHAR:    buffer.u2(holder.readShort(offset)); break;
+            case HPROF_INT:
+            case HPROF_FLOAT:   buffer.u4(holder.readInt(offset)); break;
+            case HPROF_LONG:
+            case HPROF_DOUBLE:  buffer.u8(holder.readLong(offset)); break;
+            default:            buffer.id(holder.readReference(offset).toOrigin()); break;
+        }
+    }
+
+    /**
+     * Writes the names and the class records of all classes, and the class dump sub-records.
+     */
+    private static boolean writeClasses(Buffer buffer) {
+        int serial = 0;
+        for (int id = 0; id <= maxClassId; id++) {
+            final ClassActor classActor = ClassIDManager.toClassActor(id);
+            final Object mirror = mirror(classActor);
+            if (mirror == null) {
+                continue;
+            }
+            if (!writeName(buffer, classActor)) {
+                return false;
+            }
+            for (FieldActor fieldActor : classActor.localStaticFieldActors()) {
+                if (!writeName(buffer, fieldActor.name)) {
+                    return false;
+                }
+            }
+            for (FieldActor fieldActor : classActor.localInstanceFieldActors()) {
+                if (!writeName(buffer, fieldActor.name)) {
+                    return false;
+                }
+            }
+            if (!buffer.record(HPROF_LOAD_CLASS, 8 + 2 * Word.size())) {
+                return false;
+            }
+            buffer.u4(++serial);
+            buffer.id(mirror);
+            buffer.u4(STACK_TRACE_SERIAL);
+            buffer.id(classActor.typeDescriptor);
+        }
+        for (int id = 0; id <= maxClassId; id++) {
+            final ClassActor classActor = ClassIDManager.toClassActor(id);
+            final Object mirror = mirror(classActor);
+            if (mirror != null && !writeClassDump(buffer, classActor, mirror)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean writeClassDump(Buffer buffer, ClassActor classActor, Object mirror) {
+        final FieldActor[] staticFields = classActor.localStaticFieldActors();
+        final FieldActor[] instanceFields = classActor.localInstanceFieldActors();
+        final Object staticTuple = classActor.staticTuple();
+        final int maxLength = 1 + 7 * Word.size() + 4 + 4 + 2 + 2 + 2 +
+            staticFields.length * (2 * Word.size() + 9) + instanceFields.length * (Word.size() + 1);
+        if (!buffer.subRecord(maxLength)) {
+            return false;
+        }
+        final boolean boot = classActor.classLoader == null || classActor.classLoader == BootClassLoader.BOOT_CLASS_LOADER;
+        buffer.u1(HPROF_GC_CLASS_DUMP);
+        buffer.id(mirror);
+        buffer.u4(STACK_TRACE_SERIAL);
+        buffer.id(mirror(classActor.superClassActor));
+        buffer.id(boot ? null : classActor.classLoader);
+        buffer.id(Word.zero());
+        buffer.id(Word.zero());
+        buffer.id(Word.zero());
+        buffer.id(Word.zero());
+        buffer.u4(classActor.isArrayClass() || classActor.isInterface() ? 0 : classActor.dynamicHub().tupleSize.toInt());
+        buffer.u2(0);
+        if (staticTuple == null) {
+            buffer.u2(0);
+        } else {
+            buffer.u2(staticFields.length);
+            final Reference tuple = Reference.fromJava(staticTuple);
+            for (FieldActor fieldActor : staticFields) {
+                final int type = typeOf(fieldActor.kind);
+                buffer.id(fieldActor.name);
+                buffer.u1(type);
+                writeValue(buffer, type, tuple, fieldActor.offset());
+            }
+        }
+        buffer.u2(instanceFields.length);
+        for (FieldActor fieldActor : instanceFields) {
+            buffer.id(fieldActor.name);
+            buffer.u1(typeOf(fieldActor.kind));
+        }
+        if (boot) {
+            if (!buffer.subRecord(1 + Word.size())) {
+                return false;
+            }
+            buffer.u1(HPROF_GC_ROOT_STICKY_CLASS);
+            buffer.id(mirror);
+        }
+        return true;
+    }
+
+    private static boolean writeJniGlobalRoots(Buffer buffer) {
+        final int slots = JniHandles.globalHandleSlots();
+        for (int index = 0; index < slots; index++) {
+            final Object object = JniHandles.getGlobal(index);
+            if (object != null) {
+                if (!buffer.subRecord(1 + 2 * Word.size())) {
+                    return false;
+                }
+                buffer.u1(HPROF_GC_ROOT_JNI_GLOBAL);
+                buffer.id(object);
+                buffer.id(JniHandles.globalHandle(index));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes a root of a thread that refers to a given object.
+     */
+    private static void writeThreadRoot(int tag, Word origin, int threadSerial) {
+        final Buffer buffer = buffers[0];
+        if (!buffer.subRecord(1 + Word.size() + 8)) {
+            failed = true;
+            return;
+        }
+        buffer.u1(tag);
+        buffer.id(origin);
+        buffer.u4(threadSerial);
+        buffer.u4(NO_FRAME);
+    }
+
+    /**
+     * Writes the references in the frames of the thread whose serial number is {@code threadSerial}.
+     */
+    private static final class FrameRootWriter extends PointerIndexVisitor {
+        int threadSerial;
+
+        @Override
+        public void visit(Pointer pointer, int wordIndex) {
+            final Reference ref = pointer.getReference(wordIndex);
+            if (!ref.isZero() && !failed) {
+                writeThreadRoot(HPROF_GC_ROOT_JAVA_FRAME, ref.toOrigin(), threadSerial);
+            }
+        }
+    }
+
+    private static final FrameRootWriter frameRootWriter = new FrameRootWriter();
+
+    private static final Pointer.Procedure threadRootWriter = new Pointer.Procedure() {
+        public void run(Pointer tla) {
+            final VmThread vmThread = VmThread.fromTLA(tla);
+            final Thread javaThread = vmThread.javaThread();
+            if (javaThread == null || failed) {
+                return;
+            }
+            final Buffer buffer = buffers[0];
+            if (!buffer.subRecord(1 + Word.size() + 8)) {
+                failed = true;
+                return;
+            }
+            buffer.u1(HPROF_GC_ROOT_THREAD_OBJ);
+            buffer.id(javaThread);
+            buffer.u4(vmThread.id());
+            buffer.u4(STACK_TRACE_SERIAL);
+
+            // Only the threads stopped by the dump have a prepared stack reference map.
+            final Pointer lowestActiveSlot = VmThreadLocal.LOWEST_ACTIVE_STACK_SLOT_ADDRESS.load(tla);
+            if (!lowestActiveSlot.isZero()) {
+                frameRootWriter.threadSerial = vmThread.id();
+                StackReferenceMapPreparer.scanReferenceMapRange(tla, lowestActiveSlot, VmThreadLocal.HIGHEST_STACK_SLOT_ADDRESS.load(tla), frameRootWriter);
+            }
+            final JniHandles jniHandles = vmThread.jniHandles();
+            if (jniHandles != null) {
+                final int top = jniHandles.top();
+                for (int index = 0; index < top && !failed; index++) {
+                    final Object object = jniHandles.get(index);
+                    if (object != null) {
+                        writeThreadRoot(HPROF_GC_ROOT_JNI_LOCAL, Reference.fromJava(object).toOrigin(), vmThread.id());
+                    }
+                }
+            }
+        }
+    };
+
+    private static final ParallelHeapWalker.Task objectWriter = new ParallelHeapWalker.Task() {
+        @Override
+        protected boolean visitObject(int worker, int chunk, Object object) {
+            final Hub hub = ObjectAccess.readHub(object);
+            final ClassActor classActor = hub.classActor;
+            if (hub instanceof StaticHub || classActor == CLASS) {
+                // Static tuples are dumped with their class, and so are class mirrors.
+                return true;
+            }
+            final Object mirror = mirror(classActor);
+            if (mirror == null) {
+                return true;
+            }
+            final Buffer buffer = buffers[worker];
+            final Reference ref = Reference.fromJava(object);
+            final Pointer origin = ref.toOrigin();
+            if (Heap.bootHeapRegion.contains(origin) || ImmortalHeap.contains(origin)) {
+                if (!buffer.subRecord(1 + Word.size())) {
+                    return failed();
+                }
+                buffer.u1(HPROF_GC_ROOT_UNKNOWN);
+                buffer.id(origin);
+            }
+            if (classActor.isArrayClass()) {
+                final int length = Layout.readArrayLength(ref);
+                final Kind<?> elementKind = classActor.componentClassActor().kind;
+                final int type = typeOf(elementKind);
+                final int elementSize = sizeOf(type);
+                if ((long) length * elementSize > MAX_ARRAY_DUMP_SIZE) {
+                    return true;
+                }
+                if (!buffer.subRecord(1 + 2 * Word.size() + 9 + length * elementSize)) {
+                    return failed();
+                }
+                final int firstElementOffset = Layout.arrayLayout().getElementOffsetFromOrigin(0).toInt();
+                final int stride = elementKind.width.numberOfBytes;
+                if (type == HPROF_NORMAL_OBJECT) {
+                    buffer.u1(HPROF_GC_OBJ_ARRAY_DUMP);
+                    buffer.id(origin);
+                    buffer.u4(STACK_TRACE_SERIAL);
+                    buffer.u4(length);
+                    buffer.id(mirror);
+                } else {
+                    buffer.u1(HPROF_GC_PRIM_ARRAY_DUMP);
+                    buffer.id(origin);
+                    buffer.u4(STACK_TRACE_SERIAL);
+                    buffer.u4(length);
+                    buffer.u1(type);
+                }
+                for (int i = 0; i < length; i++) {
+                    writeValue(buffer, type, ref, firstElementOffset + i * stride);
+                }
+                return true;
+            }
+            int length = 0;
+            for (ClassActor c = classActor; c != null; c = c.superClassActor) {
+                for (FieldActor fieldActor : c.localInstanceFieldActors()) {
+                    length += sizeOf(typeOf(fieldActor.kind));
+                }
+            }
+            if (!buffer.subRecord(1 + 2 * Word.size() + 8 + length)) {
+                return failed();
+            }
+            buffer.u1(HPROF_GC_INSTANCE_DUMP);
+            buffer.id(origin);
+            buffer.u4(STACK_TRACE_SERIAL);
+            buffer.id(mirror);
+            buffer.u4(length);
+            for (ClassActor c = classActor; c != null; c = c.superClassActor) {
+                for (FieldActor fieldActor : c.localInstanceFieldActors()) {
+                    writeValue(buffer, typeOf(fieldActor.kind), ref, fieldActor.offset());
+                }
+            }
+            return true;
+        }
+
+        private boolean failed() {
+            failed = true;
+            return false;
+        }
+    };
+}
@@ -324,6 +324,18 @@ public interface HeapScheme extends VMScheme {
 
     void postWriteBarrier(Reference ref,  int displacement, int index, Reference value);
 
+    /**
+     * Post-write barrier for a bulk update of {@code length} consecutive reference slots of a cell, such as performed by
+     * {@link System#arraycopy}. This has the same effect as applying {@link #postWriteBarrier(Reference, int, int, Reference)}
+     * to every slot of the range but lets the heap scheme batch the work, e.g., dirty each overlapping card only once.
+     *
+     * @param ref the updated cell
+     * @param displacement a displacement from the origin of the cell
+     * @param index a word index to the first updated reference
+     * @param length the number of updated references
+     */
+    void postWriteBarrier(Reference ref,  int displacement, int index, int length);
+
     enum PIN_SUPPORT_FLAG {
         /**
          * Just to indicate that the pin support flag has been initialized (makes the pinningSupportFlags treated as constant when not zero).
@@ -487,6 +499,19 @@ public interface HeapScheme extends VMScheme {
      */
     void walkHeap(CallbackCellVisitor visitor);
 
+    /**
+     * Reports the spaces of this heap scheme that hold objects as iterable ranges of cells, after making
+     * them parsable (e.g., by retiring TLABs). Ranges are reported in an order that is stable between two
+     * garbage collections and may be visited concurrently by several threads, so that tools can partition
+     * the heap among them. The immortal heap and the boot heap are not reported. Must be called while
+     * mutator threads are stopped.
+     *
+     * @param visitor the visitor to which each range is reported
+     * @return {@code false} if this heap scheme cannot describe its heap as ranges, in which case nothing
+     *         is reported and {@link #walkHeap(CallbackCellVisitor)} must be used instead
+     */
+    boolean walkHeapRanges(CellRangeVisitor visitor);
+
     /*
      * Logging support.
      */
@@ -294,6 +294,11 @@ public abstract class HeapSchemeAdaptor extends AbstractVMScheme implements Heap
     public void walkHeap(CallbackCellVisitor visitor) {
     }
 
+    @Override
+    public boolean walkHeapRanges(CellRangeVisitor visitor) {
+        return false;
+    }
+
     public boolean supportsPinning(PIN_SUPPORT_FLAG flag) {
         return flag.isSet(pinningSupportFlags);
     }
@@ -319,6 +324,10 @@ public abstract class HeapSchemeAdaptor extends AbstractVMScheme implements Heap
     public void postWriteBarrier(Reference ref,  int displacement, int index, Reference value) {
         // do nothing
     }
+    @INLINE
+    public void postWriteBarrier(Reference ref,  int displacement, int index, int length) {
+        // do nothing
+    }
 
     public boolean isPinned(Object object) {
         FatalError.check(supportsPinning(PIN_SUPPORT_FLAG.IS_QUERYABLE), "Object pinning support doesn't support querying");
@@ -38,6 +38,7 @@ import com.sun.max.vm.intrinsics.*;
 import com.sun.max.vm.layout.*;
 import com.sun.max.vm.log.VMLog.Record;
 import com.sun.max.vm.log.hosted.*;
+import com.sun.max.vm.management.*;
 import com.sun.max.vm.object.*;
 import com.sun.max.vm.reference.*;
 import com.sun.max.vm.run.java.JavaRunScheme;
@@ -279,6 +280,7 @@ public abstract class HeapSchemeWithTLAB extends HeapSchemeAdaptor {
             if (initialTlabSize.lessThan(0)) {
                 FatalError.unexpected("Specified TLAB size is too small");
             }
+            AllocationSampler.initialize();
         } else if (phase == MaxineVM.Phase.RUNNING) {
             HeapSchemeWithTLAB.setTraceTLAB(false);
         } else if (phase == MaxineVM.Phase.TERMINATING) {
@@ -388,6 +390,7 @@ public abstract class HeapSchemeWithTLAB extends HeapSchemeAdaptor {
 
         TLAB_TOP.store(etla, tlabTop);
         TLAB_MARK.store(etla, tlab);
+        PerfMemory.TLAB_FILLS.increment();
         if (logTLAB()) {
             VmThread vmThread = UnsafeCast.asVmThread(VM_THREAD.loadRef(etla).toJava());
             logger.logRefill(vmThread, tlabTop, tlabTop, tlab.plus(initialTlabSize), initialTlabSize.toInt());
@@ -398,6 +401,7 @@ public abstract class HeapSchemeWithTLAB extends HeapSchemeAdaptor {
     protected final void fastRefillTLAB(Pointer etla, Pointer tlab, Size size) {
         TLAB_TOP.store(etla, tlab.plus(size));
         TLAB_MARK.store(etla, tlab);
+        PerfMemory.TLAB_FILLS.increment();
     }
 
     /**
@@ -480,6 +484,45 @@ public abstract class HeapSchemeWithTLAB extends HeapSchemeAdaptor {
         return slowPathAllocate(size, etla, TLAB_MARK.load(etla), TLAB_TOP.load(etla));
     }
 
+    /**
+     * Slow path of an inline tuple or hybrid allocation in compiled code. If the cell is an allocation sample,
+     * it is formatted here so that the sample can be reported before compiled code formats it again.
+     */
+    @SNIPPET_SLOWPATH
+    public final Pointer c1xSlowPathAllocate(Size size, Pointer etla, Hub hub) {
+        final Pointer cell = c1xSlowPathAllocate(size, etla);
+        if (AllocationSampler.isSampling() && AllocationSampler.isPending(etla, cell)) {
+            if (hub.classActor.isHybridClass()) {
+                return reportSample(Cell.plantHybrid(cell, size, (DynamicHub) hub));
+            }
+            return reportSample(Cell.plantTuple(cell, hub));
+        }
+        return cell;
+    }
+
+    /**
+     * Slow path of an inline array allocation in compiled code.
+     *
+     * @see #c1xSlowPathAllocate(Size, Pointer, Hub)
+     */
+    @SNIPPET_SLOWPATH
+    public final Pointer c1xSlowPathAllocateArray(Size size, Pointer etla, DynamicHub hub, int length) {
+        final Pointer cell = c1xSlowPathAllocate(size, etla);
+        if (AllocationSampler.isSampling() && AllocationSampler.isPending(etla, cell)) {
+            return reportSample(Cell.plantArray(cell, size, hub, length));
+        }
+        return cell;
+    }
+
+    /**
+     * Reports a sampled object and returns its cell, which the report may have moved.
+     */
+    @NEVER_INLINE
+    private static Pointer reportSample(Object object) {
+        AllocationSampler.allocated(object);
+        return Layout.originToCell(Reference.fromJava(object).toOrigin());
+    }
+
     /**
      * Handling of custom allocation by sub-classes.
      * The normal allocation path. may be escaped by temporarily enabling use of a custom allocator identified with an opaque identifier.
@@ -505,6 +548,16 @@ public abstract class HeapSchemeWithTLAB extends HeapSchemeAdaptor {
         if (!customAllocator.isZero()) {
             return customAllocate(customAllocator, size);
         }
+        if (AllocationSampler.isSampling()) {
+            if (AllocationSampler.prepare(etla)) {
+                // The sampler may have allocated, so the TLAB must be looked at again.
+                return tlabAllocate(size);
+            }
+            globalTlabStats.tlabOverflowCount++;
+            final Pointer cell = handleTLABOverflow(size, etla, oldAllocationMark, tlabEnd);
+            AllocationSampler.recordAllocation(etla, cell, size, oldAllocationMark);
+            return cell;
+        }
         globalTlabStats.tlabOverflowCount++;
         // This path will always be taken if TLAB allocation is not enabled.
         return handleTLABOverflow(size, etla, oldAllocationMark, tlabEnd);
@@ -596,6 +649,7 @@ public abstract class HeapSchemeWithTLAB extends HeapSchemeAdaptor {
 
     @Override
     public void notifyCurrentThreadDetach() {
+        AllocationSampler.threadDetached(ETLA.load(currentTLA()));
         tlabReset(currentTLA());
     }
 
@@ -0,0 +1,437 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.heap;
+
+import static com.sun.max.vm.VMConfiguration.*;
+import static com.sun.max.vm.VMOptions.*;
+
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+import com.sun.max.memory.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.heap.debug.*;
+import com.sun.max.vm.layout.*;
+import com.sun.max.vm.reference.*;
+import com.sun.max.vm.runtime.*;
+import com.sun.max.vm.thread.*;
+
+/**
+ * Walks the heap with several threads while the world is stopped, for tools such as heap dumps and JVMTI heap
+ * iteration. The heap scheme reports its spaces as {@linkplain HeapScheme#walkHeapRanges(CellRangeVisitor) ranges
+ * of cells}, which are cut into chunks of about {@code -XX:HeapWalkChunkSize} bytes. The regions of region-based
+ * heap schemes usually are chunks already; larger ranges, such as the to-space of a semi-space heap, are cut by
+ * hopping over their cells, which is cheap compared with what a tool does for each object. The chunks are then
+ * claimed by the thread running the VM operation and by a pool of helper threads. Each of them passes its worker
+ * index to the {@link Task} so that results can be kept per worker and merged once the walk is over, as done by
+ * {@link Selection}.
+ * <p>
+ * The helper threads are started by the first {@link Operation} and park between walks. Operations leave them
+ * running so that they can take part in the walk: a task must therefore neither allocate on the heap nor take
+ * locks that a stopped thread may hold. Helper threads allocate from the immortal heap should they allocate at all.
+ * <p>
+ * Heap schemes that cannot describe their heap as ranges are walked serially with
+ * {@link HeapScheme#walkHeap(CallbackCellVisitor)}.
+ */
+public final class ParallelHeapWalker {
+
+    private ParallelHeapWalker() {
+    }
+
+    /**
+     * Upper bound on the number of walking threads when the number is chosen from the number of processors.
+     */
+    private static final int MAX_DEFAULT_WORKERS = 16;
+
+    /**
+     * Number of threads walking the heap, including the VM operation thread. Zero means one per processor,
+     * up to {@link #MAX_DEFAULT_WORKERS}.
+     */
+    private static int ParallelHeapWalkThreads;
+
+    private static final VMSizeOption chunkSizeOption = register(new VMSizeOption("-XX:HeapWalkChunkSize=", Size.M,
+        "Amount of heap that a thread walking the heap in parallel claims at a time."), MaxineVM.Phase.PRISTINE);
+
+    static {
+        VMOptions.addFieldOption("-XX:", "ParallelHeapWalkThreads", ParallelHeapWalker.class,
+            "Number of threads that walk the heap for heap dumps and JVMTI heap iteration (0 = one per processor).", MaxineVM.Phase.PRISTINE);
+    }
+
+    /**
+     * A computation applied to every object of the heap by a parallel walk.
+     */
+    public abstract static class Task {
+        /**
+         * Visits an object. This is called concurrently by all workers, each on the objects of the chunks it claimed.
+         * A worker visits its chunks in increasing chunk order, and the objects of a chunk in address order.
+         *
+         * @param worker the index of the calling worker, between 0 and {@link ParallelHeapWalker#workers()}, exclusive
+         * @param chunk the index of the chunk containing {@code object}
+         * @param object the object
+         * @return {@code false} to stop the walk
+         */
+        protected abstract boolean visitObject(int worker, int chunk, Object object);
+    }
+
+    /**
+     * A task that selects objects in parallel and then passes the selected objects, in walk order, to
+     * {@link #consume(Object)} on the thread that runs the walk. This suits tools, such as JVMTI agents, that
+     * are not prepared to be called from several threads at once. The objects selected by each worker are
+     * recorded in a native buffer of that worker.
+     */
+    public abstract static class Selection extends Task {
+        /**
+         * Size of an entry of a selection buffer: the chunk index and the origin of the selected object.
+         */
+        private static final int ENTRY_SIZE = 2 * Word.size();
+
+        private final long[] buffers;
+        private final int[] lengths;
+        private final int[] capacities;
+        private final int[] cursors;
+        private volatile boolean outOfMemory;
+
+        protected Selection() {
+            final int workers = workers();
+            buffers = new long[workers];
+            lengths = new int[workers];
+            capacities = new int[workers];
+            cursors = new int[workers];
+        }
+
+        /**
+         * Determines if an object is selected. This is called concurrently by all workers.
+         */
+        protected abstract boolean select(Object object);
+
+        /**
+         * Processes a selected object on the thread running the walk.
+         *
+         * @return {@code false} to stop processing selected objects
+         */
+        protected abstract boolean consume(Object object);
+
+        @Override
+        protected final boolean visitObject(int worker, int chunk, Object object) {
+            if (!select(object)) {
+                return true;
+            }
+            int length = lengths[worker];
+            if (length == capacities[worker]) {
+                final int capacity = length == 0 ? 1024 : length * 2;
+                final Size size = Size.fromInt(capacity * ENTRY_SIZE);
+                final Pointer buffer = length == 0 ? Memory.allocate(size) : Memory.reallocate(Pointer.fromLong(buffers[worker]), size);
+                if (buffer.isZero()) {
+                    outOfMemory = true;
+                    return false;
+                }
+                buffers[worker] = buffer.toLong();
+                capacities[worker] = capacity;
+            }
+            final Pointer entry = Pointer.fromLong(buffers[worker]).plus(length * ENTRY_SIZE);
+            entry.setWord(0, Address.fromInt(chunk));
+            entry.setWord(1, Reference.fromJava(object).toOrigin());
+            lengths[worker] = length + 1;
+            return true;
+        }
+
+        private long chunkAt(int worker, int index) {
+            return Pointer.fromLong(buffers[worker]).getWord(index * 2).asAddress().toLong();
+        }
+
+        /**
+         * Walks the heap to select objects and then consumes them. Must be called from {@link Operation#doIt()}.
+         *
+         * @return {@code false} if the walk ran out of native memory, in which case nothing was consumed
+         */
+        public final boolean run() {
+            boolean result = walk(this) && !outOfMemory;
+            if (result) {
+                // Merge the buffers by chunk: each of them is sorted by chunk and no two of them share one.
+                boolean consuming = true;
+                while (consuming) {
+                    int worker = -1;
+                    long chunk = Long.MAX_VALUE;
+                    for (int w = 0; w < buffers.length; w++) {
+                        if (cursors[w] < lengths[w] && chunkAt(w, cursors[w]) < chunk) {
+                            worker = w;
+                            chunk = chunkAt(w, cursors[w]);
+                        }
+                    }
+                    if (worker < 0) {
+                        break;
+                    }
+                    final Pointer buffer = Pointer.fromLong(buffers[worker]);
+                    int index = cursors[worker];
+                    while (consuming && index < lengths[worker] && chunkAt(worker, index) == chunk) {
+                        consuming = consume(Reference.fromOrigin(buffer.getWord(index * 2 + 1).asPointer()).toJava());
+                        index++;
+                    }
+                    cursors[worker] = index;
+                }
+            }
+            for (int w = 0; w < buffers.length; w++) {
+                if (buffers[w] != 0L) {
+                    Memory.deallocate(Pointer.fromLong(buffers[w]));
+                }
+                buffers[w] = 0L;
+                lengths[w] = 0;
+                capacities[w] = 0;
+                cursors[w] = 0;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * A VM operation during which the heap can be walked in parallel. Creating one starts the helper threads
+     * if needed; the operation does not stop them.
+     */
+    public abstract static class Operation extends VmOperation {
+        protected Operation(String name) {
+            super(name, null, Mode.Safepoint, false);
+            startWorkers();
+        }
+
+        @Override
+        protected boolean operateOnThread(VmThread thread) {
+            return !(thread.javaThread() instanceof Worker);
+        }
+    }
+
+    /**
+     * A helper thread. It walks the heap once per walk and parks in between.
+     */
+    private static final class Worker extends Thread {
+        private final int index;
+        private int generation;
+
+        Worker(int index) {
+            super("HeapWalker-" + index);
+            setDaemon(true);
+            this.index = index;
+        }
+
+        @Override
+        public void run() {
+            // The parker of this thread was created when it was started, so an unpark sent before the first
+            // park below is kept as a permit.
+            startedWorkers.incrementAndGet();
+            Heap.enableImmortalMemoryAllocation();
+            while (true) {
+                while (generation == walkGeneration) {
+                    LockSupport.park();
+                }
+                generation = walkGeneration;
+                visitChunks(index);
+                pendingWorkers.decrementAndGet();
+            }
+        }
+    }
+
+    private static int workerCount;
+
+    private static Worker[] helpers;
+
+    private static final AtomicInteger startedWorkers = new AtomicInteger();
+
+    private static final AtomicInteger pendingWorkers = new AtomicInteger();
+
+    private static final AtomicInteger nextChunk = new AtomicInteger();
+
+    private static volatile int walkGeneration;
+
+    private static volatile boolean stopped;
+
+    private static Task task;
+
+    /**
+     * The chunks of the current walk, as pairs of start and end addresses, and their number.
+     */
+    private static Pointer chunks = Pointer.zero();
+    private static int chunkCount;
+    private static int chunkCapacity;
+    private static boolean chunksOverflowed;
+
+    /**
+     * Gets the number of threads walking the heap, including the VM operation thread.
+     */
+    public static int workers() {
+        if (workerCount == 0) {
+            final int n = ParallelHeapWalkThreads > 0 ? ParallelHeapWalkThreads : Math.min(Runtime.getRuntime().availableProcessors(), MAX_DEFAULT_WORKERS);
+            workerCount = Math.max(n, 1);
+        }
+        return workerCount;
+    }
+
+    private static synchronized void startWorkers() {
+        if (helpers != null) {
+            return;
+        }
+        final Worker[] workers = new Worker[workers() - 1];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker(i + 1);
+            workers[i].start();
+        }
+        while (startedWorkers.get() < workers.length) {
+            Thread.yield();
+        }
+        helpers = workers;
+    }
+
+    private static final CellRangeVisitor chunker = new CellRangeVisitor() {
+        public void visitCells(Address start, Address end) {
+            final Size chunkSize = chunkSizeOption.getValue();
+            if (end.minus(start).asSize().lessEqual(chunkSize)) {
+                addChunk(start, end);
+                return;
+            }
+            Pointer chunkStart = start.asPointer();
+            Pointer cell = chunkStart;
+            while (true) {
+                cell = skipGap(cell, end);
+                if (cell.greaterEqual(end)) {
+                    break;
+                }
+                if (cell.minus(chunkStart).greaterEqual(chunkSize)) {
+                    addChunk(chunkStart, cell);
+                    chunkStart = cell;
+                }
+                cell = DebugHeap.checkDebugCellTag(start, cell);
+                cell = cell.plus(Layout.size(Layout.cellToOrigin(cell)));
+            }
+            addChunk(chunkStart, end);
+        }
+    };
+
+    private static void addChunk(Address start, Address end) {
+        if (start.greaterEqual(end) || chunksOverflowed) {
+            return;
+        }
+        if (chunkCount == chunkCapacity) {
+            final int capacity = chunkCapacity == 0 ? 256 : chunkCapacity * 2;
+            final Size size = Size.fromInt(capacity * 2 * Word.size());
+            final Pointer table = chunks.isZero() ? Memory.allocate(size) : Memory.reallocate(chunks, size);
+            if (table.isZero()) {
+                chunksOverflowed = true;
+                return;
+            }
+            chunks = table;
+            chunkCapacity = capacity;
+        }
+        chunks.setWord(chunkCount * 2, start);
+        chunks.setWord(chunkCount * 2 + 1, end);
+        chunkCount++;
+    }
+
+    /**
+     * Skips the words between two cells: padding in a debug VM and cleared words left by heap schemes
+     * whose unused TLAB tails are too small for a filler object.
+     */
+    private static Pointer skipGap(Pointer cell, Address end) {
+        while (cell.lessThan(end)) {
+            final Word word = cell.getWord();
+            if (!word.isZero() && !DebugHeap.isCellPadding(word)) {
+                break;
+            }
+            cell = cell.plusWords(1);
+        }
+        return cell;
+    }
+
+    private static void visitChunks(int worker) {
+        final Task task = ParallelHeapWalker.task;
+        while (!stopped) {
+            final int chunk = nextChunk.getAndIncrement();
+            if (chunk >= chunkCount) {
+                break;
+            }
+            final Pointer start = chunks.getWord(chunk * 2).asPointer();
+            final Pointer end = chunks.getWord(chunk * 2 + 1).asPointer();
+            Pointer cell = start;
+            while (true) {
+                cell = skipGap(cell, end);
+                if (cell.greaterEqual(end)) {
+                    break;
+                }
+                cell = DebugHeap.checkDebugCellTag(start, cell);
+                final Pointer origin = Layout.cellToOrigin(cell);
+                if (!task.visitObject(worker, chunk, Reference.fromOrigin(origin).toJava())) {
+                    stopped = true;
+                    return;
+                }
+                cell = cell.plus(Layout.size(origin));
+            }
+        }
+    }
+
+    private static final class SerialVisitor extends CallbackCellVisitor {
+        @Override
+        protected boolean callback(Object object) {
+            if (!task.visitObject(0, 0, object)) {
+                stopped = true;
+                return false;
+            }
+            return true;
+        }
+    }
+
+    private static final SerialVisitor serialVisitor = new SerialVisitor();
+
+    /**
+     * Applies a task to every object of the heap. Must be called from {@link Operation#doIt()}. The calling
+     * thread is worker 0.
+     *
+     * @return {@code false} if the walk could not be done for lack of native memory
+     */
+    public static boolean walk(Task task) {
+        FatalError.check(helpers != null && VmThread.current().isVmOperationThread(), "heap must be walked by a ParallelHeapWalker.Operation");
+        ParallelHeapWalker.task = task;
+        stopped = false;
+        chunkCount = 0;
+        chunksOverflowed = false;
+        try {
+            final ImmortalMemoryRegion immortalHeap = ImmortalHeap.getImmortalHeap();
+            chunker.visitCells(immortalHeap.start(), immortalHeap.mark());
+            chunker.visitCells(Heap.bootHeapRegion.start(), Heap.bootHeapRegion.mark());
+            if (!vmConfig().heapScheme().walkHeapRanges(chunker)) {
+                vmConfig().heapScheme().walkHeap(serialVisitor);
+                return true;
+            }
+            if (chunksOverflowed) {
+                return false;
+            }
+            nextChunk.set(0);
+            pendingWorkers.set(helpers.length);
+            walkGeneration++;
+            for (Worker worker : helpers) {
+                VmThread.fromJava(worker).unpark();
+            }
+            visitChunks(0);
+            while (pendingWorkers.get() != 0) {
+                Thread.yield();
+            }
+            return true;
+        } finally {
+            ParallelHeapWalker.task = null;
+        }
+    }
+}
@@ -24,6 +24,8 @@ package com.sun.max.vm.heap;
 import static com.sun.max.vm.intrinsics.MaxineIntrinsicIDs.*;
 import static com.sun.max.vm.jdk.JDK_java_lang_ref_ReferenceQueue.*;
 
+import java.util.*;
+
 import com.sun.max.annotate.*;
 import com.sun.max.unsafe.*;
 import com.sun.max.vm.*;
@@ -339,6 +341,44 @@ public class SpecialReferenceManager {
         } while (true);
     }
 
+    /**
+     * A table of weak references to heap objects held outside the heap (e.g. keyed by object address),
+     * which the GC must update once the reachability of all objects is final.
+     */
+    public interface WeakRootsProcessor {
+        /**
+         * Drops the references to objects that are not {@linkplain GC#isReachable(Reference) reachable} and
+         * updates the references to objects that the GC may have moved.
+         * This is called once per collection, after all live objects have been traced (including
+         * those preserved by special references). It must not allocate on the heap.
+         *
+         * @param gc interface to the GC implementation
+         */
+        void processWeakRoots(GC gc);
+    }
+
+    private static WeakRootsProcessor[] weakRootsProcessors = {};
+
+    @HOSTED_ONLY
+    public static void registerWeakRootsProcessor(WeakRootsProcessor processor) {
+        final WeakRootsProcessor[] processors = Arrays.copyOf(weakRootsProcessors, weakRootsProcessors.length + 1);
+        processors[weakRootsProcessors.length] = processor;
+        weakRootsProcessors = processors;
+    }
+
+    /**
+     * Calls all registered {@link WeakRootsProcessor}s. Heap schemes call this once the set of live objects
+     * is final, i.e. after the objects preserved while {@linkplain #processDiscoveredSpecialReferences(GC) processing
+     * special references} have been traced.
+     *
+     * @param gc interface to the GC implementation
+     */
+    public static void processWeakRoots(GC gc) {
+        for (WeakRootsProcessor processor : weakRootsProcessors) {
+            processor.processWeakRoots(gc);
+        }
+    }
+
     @ALIAS(declaringClassName = "java.lang.ref.Finalizer")
     private static native void register(Object finalizee);
 
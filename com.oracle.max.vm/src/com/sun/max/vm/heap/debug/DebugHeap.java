@@ -162,6 +162,14 @@ public class DebugHeap {
         return words;
     }
 
+    /**
+     * Determines if a given word is {@linkplain #writeCellPadding(Pointer, Address) padding}.
+     */
+    @INLINE
+    public static boolean isCellPadding(Word word) {
+        return isPadding() && word.equals(padWord());
+    }
+
     @INLINE
     public static void writeCellTag(Pointer cell) {
         if (isTagging()) {
@@ -150,6 +150,12 @@ public final class GenSSHeapSizingPolicy implements GenHeapSizingPolicy {
     @INSPECTED
     private boolean oldEvacuationOverflow = false;
 
+    /**
+     * Pause time and throughput goals, applied to the effective heap size after full collections and so to the size
+     * of both generations.
+     */
+    private final HeapSizingGoals goals = new HeapSizingGoals();
+
     /**
      * Young generation heap percentage computed by the last resizing request.
      */
@@ -273,6 +279,21 @@ public final class GenSSHeapSizingPolicy implements GenHeapSizingPolicy {
         return heapSize.minus(youngGenSize());
     }
 
+    /**
+     * Notifies the policy that a collection starts, to measure its pause and the mutator time that preceded it.
+     */
+    public void beginCollection() {
+        goals.beginCollection();
+    }
+
+    /**
+     * Notifies the policy that a collection that did not need a full GC ends. A collection with a full GC ends with
+     * {@link #resizeAfterFullGC(Size, Size, boolean, Size)} instead.
+     */
+    public void endMinorCollection() {
+        goals.endCollection();
+    }
+
     public boolean shouldPerformFullGC(Size estimatedEvacuation, Size oldGenFreeSpace, boolean oldSpaceMutatorOverflow) {
         final boolean needsFullGC = minorEvacuationOverflow || oldSpaceMutatorOverflow || estimatedEvacuation.greaterThan(oldGenFreeSpace);
         if (logger.enabled()) {
@@ -435,14 +456,21 @@ public final class GenSSHeapSizingPolicy implements GenHeapSizingPolicy {
      */
     public boolean resizeAfterFullGC(Size estimatedEvacuation, Size oldGenFreeSpace, boolean oldGenMutatorOverflow, Size oldSpaceRequestedBytes) {
         minorEvacuationOverflow = false;
+        goals.endCollection();
         final Size usedSpace = oldGenSize().minus(oldGenFreeSpace);
+        final Size oldFreeSpaceNeeded = estimatedEvacuation.greaterThan(oldSpaceRequestedBytes) ? estimatedEvacuation : oldSpaceRequestedBytes;
+        if (normalMode && !(oldGenMutatorOverflow || outOfMemory) && resizeForGoals(usedSpace, oldFreeSpaceNeeded)) {
+            return true;
+        }
         Size freeHeapSpace = heapSize.minus(usedSpace);
         Size maxFreeHeapSpace = percent(heapSize, maxFreePercent);
         // Should we shrink ?
         // Don't bother if the evacuator ended up out of memory.
         // Also, for simplicity, we don't if the full GC was trigger because of a mutator overflow, otherwise we risk shrinking below what the mutator was requesting.
         // Trying to be smarter requires providing here the actual size requested by the mutator.
-        if (!(oldGenMutatorOverflow || outOfMemory) && freeHeapSpace.greaterThan(maxFreeHeapSpace) && maxFreeHeapSpace.greaterEqual(estimatedEvacuation)) {
+        // Don't give back space the throughput goal is about to ask for again.
+        if (!(oldGenMutatorOverflow || outOfMemory) && freeHeapSpace.greaterThan(maxFreeHeapSpace) && maxFreeHeapSpace.greaterEqual(estimatedEvacuation) &&
+                        !goals.missesThroughputGoal(0.5)) {
             if (normalMode) {
                 if (disableHeapShrink) {
                     return false;
@@ -459,8 +487,63 @@ public final class GenSSHeapSizingPolicy implements GenHeapSizingPolicy {
             return false;
         }
         // Should we grow ?
-        final Size oldFreeSpaceNeeded = estimatedEvacuation.greaterThan(oldSpaceRequestedBytes) ? estimatedEvacuation : oldSpaceRequestedBytes;
-        return canIncreaseSize(oldFreeSpaceNeeded, oldGenFreeSpace);
+        final Size previousHeapSize = heapSize;
+        if (canIncreaseSize(oldFreeSpaceNeeded, oldGenFreeSpace)) {
+            if (heapSize.greaterThan(previousHeapSize)) {
+                goals.notifyGrown();
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Resizes the effective heap in steps of {@value HeapSizingGoals#GOAL_RESIZE_PERCENT}% for the pause time or
+     * throughput goal, if one is missed. The heap is not shrunk below what keeps {@link #minFreePercent} free and room in
+     * the old generation for {@code oldFreeSpaceNeeded}.
+     *
+     * @param usedSpace space used in the old generation
+     * @param oldFreeSpaceNeeded free space the old generation must have for the next collection
+     * @return true if the heap size was changed
+     */
+    private boolean resizeForGoals(Size usedSpace, Size oldFreeSpaceNeeded) {
+        final Size goalDelta = alignUp(percent(heapSize, HeapSizingGoals.GOAL_RESIZE_PERCENT));
+        if (goals.shouldShrinkForPause() && !disableHeapShrink) {
+            Size minHeapSize = alignUp(usedSpace.times(100).dividedBy(100 - minFreePercent));
+            final Size minEvacuationHeapSize = alignUp(usedSpace.plus(oldFreeSpaceNeeded).times(100).dividedBy(100 - youngGenHeapPercentage));
+            if (minEvacuationHeapSize.greaterThan(minHeapSize)) {
+                minHeapSize = minEvacuationHeapSize;
+            }
+            if (heapSize.greaterThan(minHeapSize)) {
+                final Size newHeapSize = heapSize.minus(goalDelta).greaterThan(minHeapSize) ? heapSize.minus(goalDelta) : minHeapSize;
+                final Size delta = newHeapSize.minus(heapSize);
+                heapSize = newHeapSize;
+                goals.notifyShrunkForPause();
+                if (logger.enabled()) {
+                    logger.logShrinkHeap(heapSize.toLong(), youngGenSize().toLong(), oldGenSize().toLong(), delta.toLong());
+                }
+                return true;
+            }
+            return false;
+        }
+        if (goals.missesThroughputGoal(1.0) && heapSize.lessThan(maxHeapSize)) {
+            Size newHeapSize = heapSize.plus(goalDelta);
+            final Size evacuationHeapSize = alignUp(usedSpace.plus(oldFreeSpaceNeeded).times(100).dividedBy(100 - youngGenHeapPercentage));
+            if (evacuationHeapSize.greaterThan(newHeapSize)) {
+                newHeapSize = evacuationHeapSize;
+            }
+            if (newHeapSize.greaterThan(maxHeapSize)) {
+                newHeapSize = maxHeapSize;
+            }
+            final Size delta = newHeapSize.minus(heapSize);
+            heapSize = newHeapSize;
+            goals.notifyGrown();
+            if (logger.enabled()) {
+                logger.logGrowHeap(heapSize.toLong(), youngGenSize().toLong(), oldGenSize().toLong(), delta.toLong());
+            }
+            return true;
+        }
+        return false;
     }
 
     public boolean outOfMemory() {
@@ -24,9 +24,30 @@ package com.sun.max.vm.heap.gcx;
 
 import com.sun.max.unsafe.*;
 import com.sun.max.vm.*;
+import com.sun.max.vm.MaxineVM.Phase;
 
-
+/**
+ * Heap resizing policy for a single space. By default the heap is resized to keep the ratio of free space after GC between
+ * {@link #minFreeSpaceRatioForExpansion} and {@link #maxFreeSpaceRatioForShrinking}.
+ *
+ * The {@linkplain HeapSizingGoals pause time and throughput goals} are applied on top of this. The pause time goal
+ * shrinks the heap, down to what the live data needs, and wins when both goals are missed; the throughput goal grows it.
+ * Collections are measured between {@link #beginCollection()} and {@link #resizeAfterCollection(Size, ResizableSpace)}.
+ *
+ * Shrinking for excess free space only happens after {@code -XX:HeapShrinkDelay} consecutive collections found too
+ * much free space, so that a transient drop in occupancy does not give back memory that is needed again right after.
+ */
 public class HeapResizingPolicy {
+    /**
+     * Number of consecutive collections with excess free space before the heap is shrunk.
+     */
+    private static int HeapShrinkDelay = 1;
+
+    static {
+        VMOptions.addFieldOption("-XX:", "HeapShrinkDelay", HeapResizingPolicy.class,
+            "Number of consecutive collections leaving too much free space before the heap is shrunk.", Phase.PRISTINE);
+    }
+
     /**
      * Percentage of free space below which heap should be expanded.
      */
@@ -36,6 +57,16 @@ public class HeapResizingPolicy {
      */
     final int maxFreeSpaceRatioForShrinking = 70;
 
+    private final HeapSizingGoals goals = new HeapSizingGoals();
+    private int excessFreeSpaceCount;
+
+    /**
+     * Notifies the policy that a collection starts, to measure its pause and the mutator time that preceded it.
+     */
+    public void beginCollection() {
+        goals.beginCollection();
+    }
+
     /**
      * Resize the heap according to policy.
      *
@@ -44,31 +75,66 @@ public class HeapResizingPolicy {
      * @return true if the heap was resized
      */
     public boolean resizeAfterCollection(Size spaceLeftAfterGC, ResizableSpace heapSpace) {
+        goals.endCollection();
         Size totalSpace = heapSpace.totalSpace();
-        Size min = Size.fromLong((totalSpace.toLong() * minFreeSpaceRatioForExpansion) / 100);
         Size spaceUsedAfterGC = totalSpace.minus(spaceLeftAfterGC);
+        // Smallest heap that keeps the minimum ratio of free space for the current occupancy.
+        Size minDesiredCapacity =  Size.fromLong((spaceUsedAfterGC.toLong() * 100) / (100 - minFreeSpaceRatioForExpansion));
+        Size goalDelta = Size.fromLong((totalSpace.toLong() * HeapSizingGoals.GOAL_RESIZE_PERCENT) / 100);
 
+        if (goals.shouldShrinkForPause() && totalSpace.greaterThan(minDesiredCapacity)) {
+            excessFreeSpaceCount = 0;
+            if (shrink(heapSpace, Size.min(goalDelta, totalSpace.minus(minDesiredCapacity)))) {
+                goals.notifyShrunkForPause();
+                return true;
+            }
+            return false;
+        }
+        if (goals.missesThroughputGoal(1.0) && totalSpace.lessThan(heapSpace.capacity())) {
+            excessFreeSpaceCount = 0;
+            final Size goalCapacity = totalSpace.plus(goalDelta);
+            return grow(heapSpace, (minDesiredCapacity.greaterThan(goalCapacity) ? minDesiredCapacity : goalCapacity).minus(totalSpace));
+        }
+
+        Size min = Size.fromLong((totalSpace.toLong() * minFreeSpaceRatioForExpansion) / 100);
         if (spaceLeftAfterGC.lessThan(min) && totalSpace.lessThan(heapSpace.capacity())) {
+            excessFreeSpaceCount = 0;
             // Use current occupancy to compute heap growth.
-            Size minDesiredCapacity =  Size.fromLong((spaceUsedAfterGC.toLong() * 100) / (100 - minFreeSpaceRatioForExpansion));
-            Size growth = minDesiredCapacity.minus(totalSpace);
-            // Resize take care of rounding up to alignment constraints.
-            Size actualGrowth = heapSpace.increaseSize(growth);
-            if (MaxineVM.isDebug()) {
-                Log.print("Request to grow the heap: requested ");
-                Log.print(growth.toLong());
-                Log.print(" bytes, obtained ");
-                Log.print(actualGrowth.toLong());
-                Log.println(" bytes");
-            }
-            return !actualGrowth.isZero();
+            return grow(heapSpace, minDesiredCapacity.minus(totalSpace));
         }
         Size max = Size.fromLong((totalSpace.toLong() * maxFreeSpaceRatioForShrinking) / 100);
-        if (spaceLeftAfterGC.greaterThan(max)) {
+        // Don't give back space the throughput goal is about to ask for again.
+        if (spaceLeftAfterGC.greaterThan(max) && !goals.missesThroughputGoal(0.5)) {
+            if (++excessFreeSpaceCount < HeapShrinkDelay) {
+                return false;
+            }
+            excessFreeSpaceCount = 0;
             Size maxDesiredCapacity =  Size.fromLong((spaceUsedAfterGC.toLong() * 100) / (100 - maxFreeSpaceRatioForShrinking));
-            Size shrinkage = totalSpace.minus(maxDesiredCapacity);
-            return !heapSpace.decreaseSize(shrinkage).isZero();
+            return shrink(heapSpace, totalSpace.minus(maxDesiredCapacity));
         }
+        excessFreeSpaceCount = 0;
         return false;
     }
+
+    private boolean grow(ResizableSpace heapSpace, Size growth) {
+        // Resize take care of rounding up to alignment constraints.
+        Size actualGrowth = heapSpace.increaseSize(growth);
+        if (MaxineVM.isDebug()) {
+            Log.print("Request to grow the heap: requested ");
+            Log.print(growth.toLong());
+            Log.print(" bytes, obtained ");
+            Log.print(actualGrowth.toLong());
+            Log.println(" bytes");
+        }
+        if (actualGrowth.isZero()) {
+            return false;
+        }
+        goals.notifyGrown();
+        return true;
+    }
+
+    private static boolean shrink(ResizableSpace heapSpace, Size shrinkage) {
+        // Shrinking uncommits the memory, which returns it to the OS.
+        return !heapSpace.decreaseSize(shrinkage).isZero();
+    }
 }
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.heap.gcx;
+
+import com.sun.max.vm.*;
+import com.sun.max.vm.MaxineVM.Phase;
+
+/**
+ * Pause time and throughput goals for heap sizing policies, and the measurements they are checked against.
+ *
+ * A pause time goal ({@code -XX:MaxGCPauseMillis}) asks for a smaller heap while the average pause exceeds the goal.
+ * A throughput goal ({@code -XX:GCTimeRatio}) asks for a larger heap while the average fraction of time spent in GC
+ * exceeds {@code 1 / (1 + GCTimeRatio)}. Pauses and GC cost are measured between {@link #beginCollection()} and
+ * {@link #endCollection()}, and averaged over recent collections so that a single outlier does not resize the heap.
+ *
+ * Shrinking only shortens pauses that depend on the heap size. Once a shrink for the pause goal is followed by no
+ * drop in the average pause, the goal stops asking for shrinks until the heap grows again.
+ */
+public final class HeapSizingGoals {
+    /**
+     * Pause time goal in milliseconds; zero for none.
+     */
+    private static int MaxGCPauseMillis = 0;
+    /**
+     * Throughput goal, as the ratio of mutator time to GC time; zero for none.
+     */
+    private static int GCTimeRatio = 0;
+
+    static {
+        VMOptions.addFieldOption("-XX:", "MaxGCPauseMillis", HeapSizingGoals.class,
+            "Pause time goal in milliseconds that heap resizing aims to meet (0 for none).", Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "GCTimeRatio", HeapSizingGoals.class,
+            "Throughput goal that heap resizing aims to meet: GC should take at most 1 / (1 + GCTimeRatio) of the time (0 for none).", Phase.PRISTINE);
+    }
+
+    /**
+     * Percentage of the heap size by which the heap is resized when a goal is missed.
+     */
+    public static final int GOAL_RESIZE_PERCENT = 10;
+    /**
+     * Weight, in percent, of the last collection in the averages of pause time and GC cost.
+     */
+    static final int AVERAGE_WEIGHT_PERCENT = 25;
+
+    private long collectionStart;
+    private long lastCollectionEnd;
+    private double averagePauseNanos;
+    private double averageGCCost;
+
+    /**
+     * Average pause when the heap was last shrunk for the pause goal; zero if the last resize was not such a shrink.
+     */
+    private double averagePauseAtShrink;
+
+    /**
+     * Set once a shrink for the pause goal did not reduce the average pause.
+     */
+    private boolean shrinkIneffective;
+
+    /**
+     * Notifies that a collection starts, to measure its pause and the mutator time that preceded it.
+     */
+    public void beginCollection() {
+        collectionStart = System.nanoTime();
+    }
+
+    /**
+     * Notifies that the collection started by the last {@link #beginCollection()} ends, and updates the averages.
+     */
+    public void endCollection() {
+        final long end = System.nanoTime();
+        final long pause = end - collectionStart;
+        final double weight = AVERAGE_WEIGHT_PERCENT / 100.0;
+        averagePauseNanos = averagePauseNanos == 0 ? pause : averagePauseNanos + (pause - averagePauseNanos) * weight;
+        if (lastCollectionEnd != 0) {
+            final double cost = (double) pause / (end - lastCollectionEnd);
+            averageGCCost = averageGCCost == 0 ? cost : averageGCCost + (cost - averageGCCost) * weight;
+        }
+        lastCollectionEnd = end;
+        if (averagePauseAtShrink != 0) {
+            shrinkIneffective = averagePauseNanos >= averagePauseAtShrink;
+            averagePauseAtShrink = 0;
+        }
+    }
+
+    /**
+     * Determines if the heap should be shrunk to meet the pause time goal.
+     */
+    public boolean shouldShrinkForPause() {
+        return MaxGCPauseMillis > 0 && averagePauseNanos > MaxGCPauseMillis * 1000000.0 && !shrinkIneffective;
+    }
+
+    /**
+     * Determines if the average GC cost is above the throughput goal scaled by a given factor.
+     */
+    public boolean missesThroughputGoal(double factor) {
+        return GCTimeRatio > 0 && averageGCCost * (1 + GCTimeRatio) > factor;
+    }
+
+    /**
+     * Notifies that the heap was shrunk because {@link #shouldShrinkForPause()} said so.
+     */
+    public void notifyShrunkForPause() {
+        averagePauseAtShrink = averagePauseNanos;
+    }
+
+    /**
+     * Notifies that the heap grew, which may make shrinking for the pause goal worthwhile again.
+     */
+    public void notifyGrown() {
+        shrinkIneffective = false;
+        averagePauseAtShrink = 0;
+    }
+}
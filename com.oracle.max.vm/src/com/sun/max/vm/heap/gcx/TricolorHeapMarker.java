@@ -1805,6 +1805,7 @@ public class TricolorHeapMarker implements MarkingStack.OverflowHandler, HeapMan
         startTimer(weakRefTimer);
         SpecialReferenceManager.processDiscoveredSpecialReferences(forwardScanState);
         visitGreyObjects();
+        SpecialReferenceManager.processWeakRoots(forwardScanState);
         stopTimer(weakRefTimer);
         markPhase.traceEnd(traceGCPhases);
 
@@ -1901,6 +1902,7 @@ public class TricolorHeapMarker implements MarkingStack.OverflowHandler, HeapMan
         // need to iterate over the region ranges past the finger, hence the reset.
         regionsRanges.reset();
         visitGreyObjects(regionsRanges);
+        SpecialReferenceManager.processWeakRoots(forwardScanState);
         stopTimer(weakRefTimer);
         markPhase.traceEnd(traceGCPhases);
         FatalError.check(markingStack.isEmpty(), "Marking Stack must be empty after special references are processed.");
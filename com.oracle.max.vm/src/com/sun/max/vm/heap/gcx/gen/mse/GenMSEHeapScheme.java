@@ -120,6 +120,8 @@ final public class GenMSEHeapScheme extends HeapSchemeWithTLABAdaptor  implement
     private final NoEvacuatedSpaceReferenceVerifier noYoungReferencesVerifier;
     private final FOTVerifier fotVerifier;
 
+    private final AtomicPinCounter pinnedCounter = MaxineVM.isDebug() ? new AtomicPinCounter() : null;
+
     @HOSTED_ONLY
     public GenMSEHeapScheme() {
         heapAccount = new HeapAccount<GenMSEHeapScheme>(this);
@@ -137,6 +139,7 @@ final public class GenMSEHeapScheme extends HeapSchemeWithTLABAdaptor  implement
         noYoungReferencesVerifier = new NoEvacuatedSpaceReferenceVerifier(cardTableRSet, youngSpace);
         fotVerifier = new FOTVerifier(cardTableRSet);
         genCollection = new GenCollection();
+        pinningSupportFlags = PIN_SUPPORT_FLAG.makePinSupportFlags(true, true, true);
     }
 
     @Override
@@ -163,11 +166,7 @@ final public class GenMSEHeapScheme extends HeapSchemeWithTLABAdaptor  implement
         // for boundaries in the write barrier. Note that covering these with the card table doesn't mean we will iterate over these
         // cards to find references to young objects (i.e., it may be cheaper to use the reference maps for the boot image).
         final Size cardTableDataSize = cardTableRSet.memoryRequirement(cardTableCoveredAreaSize);
-        if (!Heap.AvoidsAnonOperations) {
-            if (!VirtualMemory.commitMemory(cardTableDataStart, cardTableDataSize,  VirtualMemory.Type.DATA)) {
-                MaxineVM.reportPristineMemoryFailure("card table space", "commit", cardTableDataSize);
-            }
-        }
+        CardTableRSet.commitTablesData(cardTableDataStart, cardTableDataSize);
         cardTableRSet.initialize(Heap.bootHeapRegion.start(), cardTableCoveredAreaSize, cardTableDataStart, cardTableDataSize);
     }
 
@@ -387,14 +386,47 @@ final public class GenMSEHeapScheme extends HeapSchemeWithTLABAdaptor  implement
         return oldSpace.usedSpace().plus(youngSpace.usedSpace());
     }
 
+    @Override
+    public boolean walkHeapRanges(CellRangeVisitor visitor) {
+        VmThreadMap.ACTIVE.forAllThreadLocals(null, tlabFiller);
+        oldSpace.visit(visitor);
+        youngSpace.visit(visitor);
+        return true;
+    }
+
+    /**
+     * Determines if an object is never relocated. This holds for objects in the old generation and objects
+     * outside the dynamic heap. Objects in the nursery may be evacuated by the next minor collection.
+     */
+    private boolean isNonMoving(Object object) {
+        final Pointer origin = Reference.fromJava(object).toOrigin();
+        return !contains(origin) || oldSpace.contains(origin);
+    }
+
+    /**
+     * Non-moving objects can be pinned at no cost. Nursery objects cannot be pinned.
+     */
     @Override
     public boolean pin(Object object) {
-        return false;
+        if (!isNonMoving(object)) {
+            return false;
+        }
+        if (MaxineVM.isDebug()) {
+            pinnedCounter.increment();
+        }
+        return true;
     }
 
     @Override
     public void unpin(Object object) {
-        throw new UnsupportedOperationException();
+        if (MaxineVM.isDebug()) {
+            pinnedCounter.decrement();
+        }
+    }
+
+    @Override
+    public boolean isPinned(Object object) {
+        return isNonMoving(object);
     }
 
     @INLINE
@@ -415,6 +447,12 @@ final public class GenMSEHeapScheme extends HeapSchemeWithTLABAdaptor  implement
         cardTableRSet.record(ref, displacement, index);
     }
 
+    @INLINE
+    @Override
+    public void postWriteBarrier(Reference ref,  int displacement, int index, int length) {
+        cardTableRSet.record(ref, displacement, index, length);
+    }
+
     /**
      * Allocate a chunk of memory of the specified size and refill a thread's TLAB with it.
      * @param etla the thread whose TLAB will be refilled
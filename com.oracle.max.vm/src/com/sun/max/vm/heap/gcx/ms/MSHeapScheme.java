@@ -180,6 +180,14 @@ public final class MSHeapScheme extends HeapSchemeWithTLABAdaptor {
         return objectSpace.usedSpace();
     }
 
+    @Override
+    public boolean walkHeapRanges(CellRangeVisitor visitor) {
+        VmThreadMap.ACTIVE.forAllThreadLocals(null, tlabFiller);
+        objectSpace.doBeforeGC();
+        objectSpace.visit(visitor);
+        return true;
+    }
+
     @INLINE
     public boolean pin(Object object) {
         // Objects never relocate. So this is always safe.
@@ -278,6 +286,7 @@ public final class MSHeapScheme extends HeapSchemeWithTLABAdaptor {
         public void collect(int invocationCount) {
             traceGCTimes = Heap.logGCTime();
             startTimer(totalPauseTime);
+            heapResizingPolicy.beginCollection();
             VmThreadMap.ACTIVE.forAllThreadLocals(null, tlabFiller);
 
             HeapScheme.Inspect.notifyHeapPhaseChange(HeapPhase.ANALYZING);
@@ -241,6 +241,13 @@ public final class MSEHeapScheme extends HeapSchemeWithTLABAdaptor implements He
         return markSweepSpace.usedSpace();
     }
 
+    @Override
+    public boolean walkHeapRanges(CellRangeVisitor visitor) {
+        VmThreadMap.ACTIVE.forAllThreadLocals(null, tlabFiller);
+        markSweepSpace.visit(visitor);
+        return true;
+    }
+
     @INLINE
     public boolean pin(Object object) {
         // Objects never relocate. So this is always safe.
@@ -313,6 +320,7 @@ public final class MSEHeapScheme extends HeapSchemeWithTLABAdaptor implements He
             final boolean traceGCPhases = Heap.logGCPhases();
             traceGCTimes = Heap.logGCTime();
             startTimer(totalPauseTime);
+            heapResizingPolicy.beginCollection();
             VmThreadMap.ACTIVE.forAllThreadLocals(null, tlabFiller);
 
             HeapScheme.Inspect.notifyHeapPhaseChange(HeapPhase.ANALYZING);
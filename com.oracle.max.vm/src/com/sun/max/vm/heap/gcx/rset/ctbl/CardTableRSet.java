@@ -188,6 +188,23 @@ public final class CardTableRSet extends DeadSpaceListener implements HeapManage
         }
     }
 
+    /**
+     * Commits the memory for the remembered set's tables, unless the heap {@linkplain Heap#AvoidsAnonOperations avoids anonymous operations}.
+     * Every reference store touches the card table, so the tables are also
+     * {@linkplain VirtualMemory#adviseHugePages(Address, Size) advised} to get the same TLB reach as the heap.
+     *
+     * @param tablesDataStart start of the memory regions reserved for the remembered set's tables
+     * @param tablesDataSize size of the memory regions reserved for the remembered set's tables
+     */
+    public static void commitTablesData(Address tablesDataStart, Size tablesDataSize) {
+        if (!Heap.AvoidsAnonOperations) {
+            if (!VirtualMemory.commitMemory(tablesDataStart, tablesDataSize,  VirtualMemory.Type.DATA)) {
+                MaxineVM.reportPristineMemoryFailure("card table space", "commit", tablesDataSize);
+            }
+            VirtualMemory.adviseHugePages(tablesDataStart, tablesDataSize);
+        }
+    }
+
     /**
      * Initialize a card table based remembered set to cover a contiguous range of virtual addresses.
      * The memory for the remembered set tables (card and FOT tables) must be provided by the caller as the
@@ -291,6 +308,22 @@ public final class CardTableRSet extends DeadSpaceListener implements HeapManage
         cardTable.dirtyCovered(ref.toOrigin().plus(Address.fromInt(index).shiftedLeft(Word.widthValue().log2numberOfBytes).plus(displacement)));
     }
 
+    /**
+     * Record a bulk update to a range of consecutive reference slots of a cell, e.g., by an array copy.
+     * Each card overlapping the range is dirtied once, irrespective of the number of slots it covers.
+     * @param ref the cell whose references are updated
+     * @param displacement a displacement from the origin of the cell
+     * @param index a word index to the first updated reference
+     * @param length the number of updated references
+     */
+    public void record(Reference ref,  int displacement, int index, int length) {
+        if (length > 0) {
+            final int log2WordSize = Word.widthValue().log2numberOfBytes;
+            final Pointer start = ref.toOrigin().plus(Address.fromInt(index).shiftedLeft(log2WordSize).plus(displacement));
+            cardTable.dirtyCovered(start, start.plus(Address.fromInt(length).shiftedLeft(log2WordSize)));
+        }
+    }
+
     /**
      * Visit the cells that overlap a card.
      *
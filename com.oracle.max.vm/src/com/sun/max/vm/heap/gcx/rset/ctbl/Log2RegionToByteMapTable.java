@@ -246,6 +246,19 @@ public class Log2RegionToByteMapTable {
         return byteAddressFor(address).getByte();
     }
 
+    /**
+     * Set the bytes in the table corresponding to an address range that the caller guarantees is covered by the table.
+     * @param coveredStart first address of the range (inclusive)
+     * @param coveredEnd last address of the range (exclusive)
+     * @param value a byte value
+     */
+    final void unsafeFill(Address coveredStart, Address coveredEnd, byte value) {
+        final Pointer last = byteAddressFor(coveredEnd.minus(1));
+        for (Pointer cursor = byteAddressFor(coveredStart); cursor.lessEqual(last); cursor = cursor.plus(1)) {
+            cursor.setByte(value);
+        }
+    }
+
     final byte unsafeGet(int index) {
         return tableAddress.getByte(index);
     }
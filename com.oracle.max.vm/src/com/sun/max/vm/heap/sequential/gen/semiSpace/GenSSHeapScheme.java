@@ -723,6 +723,7 @@ public final class GenSSHeapScheme extends HeapSchemeWithTLABAdaptor implements
         final boolean oldSpaceMutatorOverflow = oldSpace.allocator.refillManager().mutatorOverflow();
 
         resizingPolicy.clearNotifications();
+        resizingPolicy.beginCollection();
         youngSpaceEvacuator.enableDarkMatterRefCheck(MaxineVM.isDebug());
         oldSpaceEvacuator.enableDarkMatterRefCheck(MaxineVM.isDebug());
 
@@ -808,6 +809,8 @@ public final class GenSSHeapScheme extends HeapSchemeWithTLABAdaptor implements
                                 evacTimers.get(WEAK_REF).getLastElapsedTime());
                 timeLogger.logGcTimes(invocationCount, false, evacTimers.get(TOTAL).getLastElapsedTime());
             }
+        } else {
+            resizingPolicy.endMinorCollection();
         }
         // WARNING: do not use a local variable holding the gcRequest across evacuation as the GCRequest may be a young object and therefore relocate between
         // two uses. The stack frame of this method somehow is not processed by the GC (FIXME: why ?).
@@ -864,6 +867,14 @@ public final class GenSSHeapScheme extends HeapSchemeWithTLABAdaptor implements
         youngSpace.visitAllocatedCells(visitor);
     }
 
+    @Override
+    public boolean walkHeapRanges(CellRangeVisitor visitor) {
+        VmThreadMap.ACTIVE.forAllThreadLocals(null, tlabFiller);
+        oldSpace.visit(visitor);
+        youngSpace.visit(visitor);
+        return true;
+    }
+
     @Override
     public boolean pin(Object object) {
         return false;
@@ -892,6 +903,12 @@ public final class GenSSHeapScheme extends HeapSchemeWithTLABAdaptor implements
         cardTableRSet.record(ref, displacement, index);
     }
 
+    @INLINE
+    @Override
+    public void postWriteBarrier(Reference ref,  int displacement, int index, int length) {
+        cardTableRSet.record(ref, displacement, index, length);
+    }
+
     @Override
     public long maxObjectInspectionAge() {
         return System.currentTimeMillis() - lastFullGCTime;
@@ -1065,11 +1082,7 @@ public final class GenSSHeapScheme extends HeapSchemeWithTLABAdaptor implements
         // for boundaries in the write barrier. Note that covering these with the card table doesn't mean we will iterate over these
         // cards to find references to young objects (i.e., it may be cheaper to use the reference maps for the boot image).
         final Size cardTableDataSize = cardTableRSet.memoryRequirement(cardTableCoveredAreaSize);
-        if (!Heap.AvoidsAnonOperations) {
-            if (!VirtualMemory.commitMemory(cardTableDataStart, cardTableDataSize,  VirtualMemory.Type.DATA)) {
-                MaxineVM.reportPristineMemoryFailure("card table space", "commit", cardTableDataSize);
-            }
-        }
+        CardTableRSet.commitTablesData(cardTableDataStart, cardTableDataSize);
         cardTableRSet.initialize(Heap.bootHeapRegion.start(), cardTableCoveredAreaSize, cardTableDataStart, cardTableDataSize);
     }
 
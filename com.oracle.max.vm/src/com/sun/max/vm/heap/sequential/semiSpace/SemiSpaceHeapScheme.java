@@ -41,6 +41,7 @@ import com.sun.max.vm.code.*;
 import com.sun.max.vm.heap.*;
 import com.sun.max.vm.heap.Heap.GCCallbackPhase;
 import com.sun.max.vm.heap.debug.*;
+import com.sun.max.vm.heap.gcx.*;
 import com.sun.max.vm.layout.*;
 import com.sun.max.vm.log.VMLog.Record;
 import com.sun.max.vm.log.*;
@@ -102,6 +103,33 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
         VMOptions.addFieldOption("-XX:", "VerifyReferences", SemiSpaceHeapScheme.class, "Do extra verification for each reference scanned by the GC", MaxineVM.Phase.PRISTINE);
     }
 
+    /**
+     * A VM option for copying objects in an approximately depth-first order. The breadth-first order of
+     * a Cheney scan places the children of an object next to its siblings' children; copying the objects
+     * reachable from an object right after it keeps chains of references together in 'toSpace'.
+     *
+     * @see #copyDescendants(Pointer)
+     */
+    private static boolean HierarchicalCopy = false;
+    static {
+        VMOptions.addFieldOption("-XX:", "HierarchicalCopy", SemiSpaceHeapScheme.class,
+            "Copy the objects reachable from a copied object next to it, in depth-first order.", MaxineVM.Phase.PRISTINE);
+    }
+
+    /**
+     * Maximum number of copied objects whose references are pending a {@linkplain #copyDescendants(Pointer) hierarchical copy}.
+     */
+    private static final int COPY_STACK_SIZE = 64;
+
+    /**
+     * Origins of the copied objects whose references are pending a {@linkplain #copyDescendants(Pointer) hierarchical copy}.
+     */
+    private final long[] copyStack = new long[COPY_STACK_SIZE];
+
+    private int copyStackTop;
+
+    private final DescendantCopier descendantCopier = new DescendantCopier();
+
 
     private final CollectHeap collectHeap;
 
@@ -132,6 +160,20 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
     private GrowPolicy growPolicy;
     private LinearGrowPolicy increaseGrowPolicy;
 
+    /**
+     * Pause time and throughput goals. They resize the heap on top of the {@linkplain #growPolicyOption grow policy}:
+     * a collection requested by an allocation shrinks both spaces in place while the average pause misses its goal,
+     * and grows them linearly, by {@link HeapSizingGoals#GOAL_RESIZE_PERCENT} of their size, while the GC cost misses
+     * its goal. Growing for the throughput goal is disabled along with the grow policy.
+     */
+    private final HeapSizingGoals goals = new HeapSizingGoals();
+
+    /**
+     * Set while a collection requested by an allocation runs, allowing it to {@linkplain #shrinkForPauseGoal() shrink}
+     * the spaces for the pause time goal. Other collections, e.g. the one run while growing, must leave the spaces alone.
+     */
+    private boolean resizeForGoals;
+
     /**
      * The global allocation limit (minus the {@linkplain #safetyZoneSize safety zone}).
      */
@@ -141,9 +183,7 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
     private final ResetTLAB resetTLAB = new ResetTLAB(){
         @Override
         protected void doBeforeReset(Pointer etla, Pointer tlabMark, Pointer tlabEnd) {
-            if (MaxineVM.isDebug()) {
-                padTLAB(etla, tlabMark, tlabEnd);
-            }
+            retireTLAB(etla, tlabMark, tlabEnd);
         }
     };
 
@@ -344,6 +384,7 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
                 verifyObjectSpaces(GCCallbackPhase.BEFORE);
 
                 final long startGCTime = System.currentTimeMillis();
+                goals.beginCollection();
                 collectionCount++;
                 startTimer(gcTimer);
 
@@ -407,6 +448,7 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
                 }
                 startTimer(weakRefTimer);
                 SpecialReferenceManager.processDiscoveredSpecialReferences(refForwarder);
+                SpecialReferenceManager.processWeakRoots(refForwarder);
                 stopTimer(weakRefTimer);
                 stopTimer(gcTimer);
                 if (Heap.logGCPhases()) {
@@ -429,6 +471,10 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
 
                 lastGCTime = System.currentTimeMillis();
                 accumulatedGCTime += lastGCTime - startGCTime;
+                goals.endCollection();
+                if (resizeForGoals) {
+                    shrinkForPauseGoal(gcRequest().requestedBytes);
+                }
                 if (Heap.verbose()) {
                     Log.print("--During GC   time: ");
                     Log.print(lastGCTime - startGCTime);
@@ -545,31 +591,108 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
             if (!forwardRef.isZero()) {
                 return forwardRef;
             }
-            if (VerifyReferences) {
-                refVerifier.verifyRefAtIndex(Address.zero(), 0, ref);
-            }
-            final Pointer fromCell = Layout.originToCell(fromOrigin);
-            final Size size = Layout.size(fromOrigin);
-            final Pointer toCell = gcAllocate(size);
-            if (DebugHeap.isTagging()) {
-                DebugHeap.writeCellTag(toCell);
+            final Reference toRef = copy(ref);
+            if (HierarchicalCopy) {
+                copyDescendants(toRef.toOrigin());
             }
+            return toRef;
+        }
+        return ref;
+    }
 
-            if (detailLogger.enabled()) {
-                final Hub hub = UnsafeCast.asHub(Layout.readHubReference(ref).toJava());
-                detailLogger.logForward(hub.classActor.id, Pointer.zero(), fromCell, toCell, size.toInt());
-            }
+    /**
+     * Copies a not-yet-copied object in 'fromSpace' to 'toSpace' and installs a forwarding pointer to the copy
+     * in the header of the source object.
+     *
+     * @param ref a pointer to an object in 'fromSpace' that has no forwarding pointer
+     * @return the reference to the copy of the object in 'toSpace'
+     */
+    private Reference copy(Reference ref) {
+        final Pointer fromOrigin = ref.toOrigin();
+        if (VerifyReferences) {
+            refVerifier.verifyRefAtIndex(Address.zero(), 0, ref);
+        }
+        final Pointer fromCell = Layout.originToCell(fromOrigin);
+        final Size size = Layout.size(fromOrigin);
+        final Pointer toCell = gcAllocate(size);
+        if (DebugHeap.isTagging()) {
+            DebugHeap.writeCellTag(toCell);
+        }
 
-            Memory.copyBytes(fromCell, toCell, size);
+        if (detailLogger.enabled()) {
+            final Hub hub = UnsafeCast.asHub(Layout.readHubReference(ref).toJava());
+            detailLogger.logForward(hub.classActor.id, Pointer.zero(), fromCell, toCell, size.toInt());
+        }
 
-            final Pointer toOrigin = Layout.cellToOrigin(toCell);
-            final Reference toRef = Reference.fromOrigin(toOrigin);
-            Layout.writeForwardRef(fromOrigin, toRef);
+        Memory.copyBytes(fromCell, toCell, size);
 
+        final Pointer toOrigin = Layout.cellToOrigin(toCell);
+        final Reference toRef = Reference.fromOrigin(toOrigin);
+        Layout.writeForwardRef(fromOrigin, toRef);
+        return toRef;
+    }
 
-            return toRef;
+    /**
+     * Copies the objects reachable from a just copied object right after it in 'toSpace', walking the
+     * references of the copies depth-first with the bounded {@link #copyStack}. Objects beyond the depth
+     * the stack allows are left to the breadth-first scan.
+     * <p>
+     * Only the copies are made here: their references are not updated. The copies are allocated ahead of
+     * the scan pointer of {@link #moveReachableObjects(Pointer)}, which visits each of them exactly once
+     * as usual and updates their references to the already forwarded objects.
+     * <p>
+     * The direct children of an object are copied in the order of its reference map, i.e. in field layout
+     * order, so the referent of its first reference field lands right after it. There is no profile of which
+     * fields are hot, so that order is the only field-order hint.
+     *
+     * @param toOrigin the origin of an object just copied to 'toSpace'
+     */
+    private void copyDescendants(Pointer toOrigin) {
+        copyStack[0] = toOrigin.toLong();
+        copyStackTop = 1;
+        while (copyStackTop > 0) {
+            copyStackTop--;
+            final Pointer origin = Pointer.fromLong(copyStack[copyStackTop]);
+            Reference hubRef = Layout.readHubReference(origin);
+            if (fromSpace.contains(hubRef.toOrigin())) {
+                // The hub has not been updated yet: its reference map can only be used once the hub is copied
+                hubRef = Layout.readForwardRef(hubRef.toOrigin());
+                if (hubRef.isZero()) {
+                    continue;
+                }
+            }
+            final Hub hub = UnsafeCast.asHub(hubRef.toJava());
+            final SpecificLayout specificLayout = hub.specificLayout;
+            if (specificLayout == Layout.tupleLayout()) {
+                TupleReferenceMap.visitReferences(hub, origin, descendantCopier);
+            } else if (specificLayout == Layout.referenceArrayLayout()) {
+                final int length = Layout.readArrayLength(origin);
+                for (int index = 0; index < length; index++) {
+                    copyDescendant(Layout.getReference(origin, index));
+                }
+            }
+        }
+    }
+
+    private void copyDescendant(Reference ref) {
+        final Pointer fromOrigin = ref.toOrigin();
+        if (fromSpace.contains(fromOrigin) && Layout.readForwardRef(fromOrigin).isZero()) {
+            final Reference toRef = copy(ref);
+            if (copyStackTop < COPY_STACK_SIZE) {
+                copyStack[copyStackTop] = toRef.toOrigin().toLong();
+                copyStackTop++;
+            }
+        }
+    }
+
+    /**
+     * Procedure used to copy the objects referenced by a {@linkplain #copyDescendants(Pointer) hierarchically} copied object.
+     */
+    private final class DescendantCopier extends PointerIndexVisitor {
+        @Override
+        public void visit(Pointer pointer, int wordIndex) {
+            copyDescendant(pointer.getReference(wordIndex));
         }
-        return ref;
     }
 
     private void scanReferenceArray(Pointer origin) {
@@ -722,6 +845,38 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
         return true;
     }
 
+    /**
+     * Shrinks both spaces in place by a step of {@link HeapSizingGoals#GOAL_RESIZE_PERCENT} of their size if the pause time
+     * goal asks for it and the free space left after the collection, less the space requested, allows it.
+     *
+     * @param requestedFreeSpace the free space requested by the allocation that triggered the collection
+     */
+    private void shrinkForPauseGoal(Size requestedFreeSpace) {
+        if (!goals.shouldShrinkForPause()) {
+            return;
+        }
+        final Size amount = fromSpace.size().times(HeapSizingGoals.GOAL_RESIZE_PERCENT).dividedBy(100).alignDown(Platform.platform().pageSize);
+        if (!amount.isZero() && immediateFreeSpace().greaterEqual(amount.plus(requestedFreeSpace))) {
+            shrinkSpaces(amount);
+            goals.notifyShrunkForPause();
+        }
+    }
+
+    /**
+     * Gives back the end of both spaces. The caller must have checked that the free space allows it.
+     *
+     * @param pageAlignedAmount the page aligned amount to give back from each space
+     */
+    private void shrinkSpaces(Size pageAlignedAmount) {
+        final int amountAsInt = pageAlignedAmount.toInt();
+        fromSpace.setSize(fromSpace.size().minus(amountAsInt));
+        toSpace.setSize(toSpace.size().minus(amountAsInt));
+        top = top.minus(amountAsInt);
+        VirtualMemory.deallocate(fromSpace.end(), pageAlignedAmount, VirtualMemory.Type.HEAP);
+        VirtualMemory.deallocate(toSpace.end(), pageAlignedAmount, VirtualMemory.Type.HEAP);
+        logSpaces();
+    }
+
     private void executeGC() {
         if (!Heap.gcDisabled()) {
             collectHeap.submit();
@@ -742,6 +897,9 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
         if (Heap.verbose()) {
             logSpaces();
         }
+        if (result) {
+            goals.notifyGrown();
+        }
         return result;
     }
 
@@ -770,7 +928,14 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
     private boolean collectGarbageImpl(SemiSpaceGCRequest gcRequest) {
         final Size requestedFreeSpace = gcRequest.requestedBytes;
         if ((gcRequest.explicit && !DisableExplicitGC) || immediateFreeSpace().lessThan(requestedFreeSpace)) {
+            resizeForGoals = true;
             executeGC();
+            resizeForGoals = false;
+            if (growPolicy != null && goals.missesThroughputGoal(1.0)) {
+                // grow adds the current space size to the amount in the grow policy
+                increaseGrowPolicy.setAmount(fromSpace.size().times(HeapSizingGoals.GOAL_RESIZE_PERCENT).dividedBy(100).alignUp(Platform.platform().pageSize));
+                grow(increaseGrowPolicy);
+            }
         }
         if (immediateFreeSpace().greaterEqual(requestedFreeSpace)) {
             // check to see if we can reset safety zone
@@ -821,10 +986,7 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
     @NO_SAFEPOINT_POLLS("heap up to allocation mark must be verifiable if debug tagging")
     @Override
     protected void doBeforeTLABRefill(Pointer tlabAllocationMark, Pointer tlabEnd) {
-        if (MaxineVM.isDebug()) {
-            final Pointer etla = ETLA.load(currentTLA());
-            padTLAB(etla, tlabAllocationMark, tlabEnd);
-        }
+        retireTLAB(ETLA.load(currentTLA()), tlabAllocationMark, tlabEnd);
     }
 
     /**
@@ -960,6 +1122,22 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
         return cell;
     }
 
+    /**
+     * Makes the unused portion of a thread's TLAB parsable so that to-space can be walked linearly up to the
+     * allocation mark. A debug VM {@linkplain #padTLAB(Pointer, Pointer, Pointer) pads} it. Otherwise it is
+     * filled with a dead object or, if too small for one, cleared so that a heap walker can skip it a word at a time.
+     */
+    @INLINE
+    static void retireTLAB(Pointer etla, Pointer tlabMark, Pointer tlabTop) {
+        if (MaxineVM.isDebug()) {
+            padTLAB(etla, tlabMark, tlabTop);
+        } else if (tlabTop.minus(tlabMark).greaterEqual(minObjectSize())) {
+            fillWithDeadObject(tlabMark, tlabTop);
+        } else if (tlabTop.greaterThan(tlabMark)) {
+            Memory.clearWords(tlabMark, tlabTop.minus(tlabMark).unsignedShiftedRight(Word.widthValue().log2numberOfBytes).toInt());
+        }
+    }
+
     /**
      * Inserts {@linkplain DebugHeap#writeCellPadding(Pointer, int) padding} into the unused portion of a thread's TLAB.
      *
@@ -1101,13 +1279,7 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
                 if (Heap.verbose()) {
                     logSpaces();
                 }
-                final int amountAsInt = pageAlignedAmount.toInt();
-                fromSpace.setSize(fromSpace.size().minus(amountAsInt));
-                toSpace.setSize(toSpace.size().minus(amountAsInt));
-                top = top.minus(amountAsInt);
-                VirtualMemory.deallocate(fromSpace.end(), pageAlignedAmount, VirtualMemory.Type.HEAP);
-                VirtualMemory.deallocate(toSpace.end(), pageAlignedAmount, VirtualMemory.Type.HEAP);
-                logSpaces();
+                shrinkSpaces(pageAlignedAmount);
                 result = true;
             }
         }
@@ -1167,6 +1339,13 @@ public class SemiSpaceHeapScheme extends HeapSchemeWithTLAB implements CellVisit
         visitCells(visitor);
     }
 
+    @Override
+    public boolean walkHeapRanges(CellRangeVisitor visitor) {
+        VmThreadMap.ACTIVE.forAllThreadLocals(null, resetTLAB);
+        visitor.visitCells(toSpace.start(), allocationMark());
+        return true;
+    }
+
     public boolean pin(Object object) {
         return false;
     }
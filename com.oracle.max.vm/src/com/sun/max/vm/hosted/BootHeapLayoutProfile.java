@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.hosted;
+
+import java.io.*;
+import java.util.*;
+
+import com.sun.max.program.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.object.*;
+
+/**
+ * Support for laying out the boot heap according to a page-touch profile, so that the objects touched
+ * while the VM starts up end up on as few pages as possible.
+ * <p>
+ * The profile is written by the substrate when the VM is run with {@code -XX:BootImageTouchProfile=<file>}.
+ * It lists the offsets of the boot heap pages mapped by the process. To attribute pages to objects that are
+ * identifiable in a later build, the boot image generator writes a layout file giving the offset, size and
+ * {@linkplain #computeKeys(Collection) key} of every boot heap object. An object's key is its class name
+ * and its ordinal among the objects of that class in the object graph, which is stable across builds
+ * of the same sources.
+ * <p>
+ * The profile is only meaningful if the image was mapped from a relocated image file
+ * ({@code -XX:BootImageCache=<file>}); otherwise relocation touches every page.
+ */
+final class BootHeapLayoutProfile {
+
+    public static final String LAYOUT_FILE_NAME = "maxine.vm.layout";
+
+    private BootHeapLayoutProfile() {
+    }
+
+    /**
+     * Computes the key of each object in a collection.
+     */
+    static Map<Object, String> computeKeys(Collection<Object> objects) {
+        final Map<Object, String> keys = new IdentityHashMap<Object, String>(objects.size());
+        final Map<Class<?>, Integer> ordinals = new HashMap<Class<?>, Integer>();
+        for (Object object : objects) {
+            final Class<?> javaClass = object.getClass();
+            Integer ordinal = ordinals.get(javaClass);
+            if (ordinal == null) {
+                ordinal = 0;
+            }
+            ordinals.put(javaClass, ordinal + 1);
+            keys.put(object, javaClass.getName() + "#" + ordinal);
+        }
+        return keys;
+    }
+
+    /**
+     * Writes the layout file for the boot heap.
+     *
+     * @param file the file to write
+     * @param heapObjects the boot heap objects
+     * @param objectToCell the cells assigned to the objects
+     * @param heapStart the start of the boot heap region
+     * @param keys the keys of the objects
+     */
+    static void writeLayout(File file, List<Object> heapObjects, Map<Object, Address> objectToCell, Address heapStart, Map<Object, String> keys) throws IOException {
+        final PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            for (Object object : heapObjects) {
+                final String key = keys.get(object);
+                if (key != null) {
+                    final long offset = objectToCell.get(object).minus(heapStart).toLong();
+                    out.println(offset + " " + ObjectAccess.size(object).toLong() + " " + key);
+                }
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Gets the keys of the objects that overlap a page touched according to a profile.
+     *
+     * @param profile the page-touch profile
+     * @param layout the layout file written for the image with which {@code profile} was recorded
+     * @return the keys of the touched objects
+     */
+    static Set<String> readTouchedKeys(File profile, File layout) throws IOException {
+        final Set<Long> touchedPages = new HashSet<Long>();
+        long pageSize = 0;
+        BufferedReader reader = new BufferedReader(new FileReader(profile));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String[] parts = line.split(" ");
+                if (parts[0].equals("pagesize")) {
+                    pageSize = Long.parseLong(parts[1]);
+                } else if (parts[0].equals("heap")) {
+                    touchedPages.add(Long.parseLong(parts[1]));
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        if (pageSize == 0) {
+            throw ProgramError.unexpected("page size missing from touch profile " + profile);
+        }
+
+        final Set<String> touchedKeys = new HashSet<String>();
+        reader = new BufferedReader(new FileReader(layout));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String[] parts = line.split(" ");
+                final long start = Long.parseLong(parts[0]);
+                final long end = start + Long.parseLong(parts[1]);
+                for (long page = start - start % pageSize; page < end; page += pageSize) {
+                    if (touchedPages.contains(page)) {
+                        touchedKeys.add(parts[2]);
+                        break;
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return touchedKeys;
+    }
+}
@@ -94,6 +94,13 @@ public final class BootImageGenerator {
     private static final Option<Boolean> useOutOfLineStubs = options.newBooleanOption("out-stubs", true,
             "Uses out of line runtime stubs when generating inlined TLAB allocations with XIR");
 
+    private static final Option<Boolean> layoutOption = options.newBooleanOption("layout", false,
+            "Write a file giving the position of each boot heap object, for use with -touch-profile in a later build.");
+
+    private static final Option<File> touchProfileOption = options.newFileOption("touch-profile", (File) null,
+            "Place the boot heap objects on the pages listed in the given profile together. The profile is recorded by " +
+            "running the VM with -XX:BootImageCache=<file> and -XX:BootImageTouchProfile=<profile>. Implies -layout.");
+
     // Options shared with the Inspector
     public static final OptionSet inspectorSharedOptions = new OptionSet();
 
@@ -243,6 +250,10 @@ public final class BootImageGenerator {
 
             Heap.genInlinedTLAB = inlinedTLABOption.getValue(); // TODO: cleanup. Just for evaluating impact on performance of inlined tlab alloc.
             Heap.useOutOfLineStubs = useOutOfLineStubs.getValue(); // TODO: cleanup.
+            if (layoutOption.getValue() || touchProfileOption.getValue() != null) {
+                DataPrototype.layoutFile = new File(vmDirectory, BootHeapLayoutProfile.LAYOUT_FILE_NAME);
+                DataPrototype.touchProfile = touchProfileOption.getValue();
+            }
             DataPrototype dataPrototype = prototypeGenerator.createDataPrototype(treeOption.getValue());
 
             final GraphPrototype graphPrototype = dataPrototype.graphPrototype();
@@ -228,6 +228,28 @@ public final class DataPrototype extends Prototype {
         throw ProgramError.unexpected("no byte array length matches alignment size: " + size);
     }
 
+    /**
+     * The page-touch profile used to place the objects touched at startup together, or {@code null}.
+     *
+     * @see BootHeapLayoutProfile
+     */
+    static File touchProfile;
+
+    /**
+     * The file to which the boot heap layout is written, or {@code null}. If {@link #touchProfile} is set, the
+     * layout written by the build with which the profile was recorded is first read from this file.
+     *
+     * @see BootHeapLayoutProfile
+     */
+    static File layoutFile;
+
+    /**
+     * The keys of the objects to be allocated first, or {@code null}.
+     */
+    private Set<String> touchedKeys;
+
+    private Map<Object, String> layoutKeys;
+
     /**
      * Assigns cells to all heap objects.
      */
@@ -235,6 +257,18 @@ public final class DataPrototype extends Prototype {
         preventNullConfusion();
         final BootHeapRegion heapRegion = Heap.bootHeapRegion;
 
+        if (layoutFile != null) {
+            layoutKeys = BootHeapLayoutProfile.computeKeys(graphPrototype.objects());
+            if (touchProfile != null) {
+                try {
+                    touchedKeys = BootHeapLayoutProfile.readTouchedKeys(touchProfile, layoutFile);
+                    Trace.line(1, "assignHeapCells: " + touchedKeys.size() + " objects touched according to " + touchProfile);
+                } catch (IOException e) {
+                    ProgramWarning.message("Error while reading touch profile " + touchProfile + ": " + e);
+                }
+            }
+        }
+
         assignHeapCells(heapRegion, true);
         assignHeapCells(heapRegion, false);
 
@@ -261,22 +295,28 @@ public final class DataPrototype extends Prototype {
         int count = 0;
         final Address mark = heapRegion.getAllocationMark();
         final List<Object> mutableHeapObjects = new ArrayList<Object>(graphPrototype.objects().size());
-        for (Object object : graphPrototype.objects()) {
-            final ClassInfo classInfo = graphPrototype.classInfoFor(object);
-            if (classInfo.containsMutableReferences(object) == objectsWithMutableReferences) {
-                Address cell = objectToCell.get(object);
-                if (cell != null) {
-                    assert Code.bootCodeRegion().contains(cell);
-                } else {
-                    final Size size = ObjectAccess.size(object);
-                    cell = heapRegion.allocate(size, true);
-                    assignHeapCell(object, cell);
+        // With a touch profile, the touched objects are allocated in a first pass
+        for (int pass = touchedKeys == null ? 1 : 0; pass < 2; pass++) {
+            for (Object object : graphPrototype.objects()) {
+                if (touchedKeys != null && touchedKeys.contains(layoutKeys.get(object)) != (pass == 0)) {
+                    continue;
+                }
+                final ClassInfo classInfo = graphPrototype.classInfoFor(object);
+                if (classInfo.containsMutableReferences(object) == objectsWithMutableReferences) {
+                    Address cell = objectToCell.get(object);
+                    if (cell != null) {
+                        assert Code.bootCodeRegion().contains(cell);
+                    } else {
+                        final Size size = ObjectAccess.size(object);
+                        cell = heapRegion.allocate(size, true);
+                        assignHeapCell(object, cell);
 
-                    if (objectsWithMutableReferences) {
-                        mutableHeapObjects.add(object);
-                    }
-                    if (++count % 200000 == 0) {
-                        Trace.line(1, ": " + count);
+                        if (objectsWithMutableReferences) {
+                            mutableHeapObjects.add(object);
+                        }
+                        if (++count % 200000 == 0) {
+                            Trace.line(1, ": " + count);
+                        }
                     }
                 }
             }
@@ -1190,6 +1230,15 @@ public final class DataPrototype extends Prototype {
 
         assignRelocationFlags();
 
+        if (layoutFile != null) {
+            try {
+                BootHeapLayoutProfile.writeLayout(layoutFile, heapObjects, objectToCell, Heap.bootHeapRegion.start(), layoutKeys);
+            } catch (IOException e) {
+                ProgramWarning.message("Error while writing boot heap layout to " + layoutFile);
+                e.printStackTrace();
+            }
+        }
+
         if (mapFile != null) {
             try {
                 final PrintStream mapPrintStream = new PrintStream(new FileOutputStream(mapFile));
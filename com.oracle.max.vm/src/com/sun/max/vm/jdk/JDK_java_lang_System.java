@@ -25,16 +25,22 @@ import com.sun.max.lang.Strings;
 import com.sun.max.platform.OS;
 import com.sun.max.platform.Platform;
 import com.sun.max.program.ProgramError;
+import com.sun.max.memory.Memory;
+import com.sun.max.unsafe.Address;
 import com.sun.max.unsafe.CString;
 import com.sun.max.unsafe.Pointer;
+import com.sun.max.unsafe.Size;
 import com.sun.max.unsafe.Word;
 import com.sun.max.util.Utf8Exception;
 import com.sun.max.vm.*;
 import com.sun.max.vm.MaxineVM.NativeProperty;
 import com.sun.max.vm.actor.holder.ClassActor;
 import com.sun.max.vm.actor.holder.Hub;
+import com.sun.max.vm.heap.WriteBarrierSpecification;
+import com.sun.max.vm.layout.Layout;
 import com.sun.max.vm.object.ArrayAccess;
 import com.sun.max.vm.object.ObjectAccess;
+import com.sun.max.vm.reference.Reference;
 import com.sun.max.vm.runtime.FatalError;
 import com.sun.max.vm.type.BootClassLoader;
 import com.sun.max.vm.type.Kind;
@@ -134,6 +140,72 @@ public final class JDK_java_lang_System {
         return MaxineVM.native_nanoTime();
     }
 
+    /**
+     * The maximum number of bytes copied by {@link #bulkArrayCopy} without polling for a safepoint. Raw pointers
+     * into the arrays are only live while a chunk is copied, so the arrays may be moved by GC between chunks.
+     */
+    private static final int BULK_COPY_CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * Determines if elements of the specified kind can be copied as raw memory by {@link #bulkArrayCopy}.
+     * This is always the case for primitive elements. References can only be copied in bulk when the heap scheme
+     * does not need to observe the overwritten values, i.e., when it has no pre-write barrier.
+     */
+    @INLINE
+    private static boolean canBulkCopy(Kind<?> kind) {
+        if (MaxineVM.isHosted()) {
+            return false;
+        }
+        return !kind.isReference || !vmConfig().heapScheme().needsBarrier(WriteBarrierSpecification.ARRAY_PRE_BARRIER);
+    }
+
+    /**
+     * Copies a range of elements between two arrays of the same type (or within the same array) as raw memory.
+     * The copy is performed in chunks of at most {@link #BULK_COPY_CHUNK_SIZE} bytes. When the ranges overlap
+     * with the destination above the source, the chunks are copied from the end of the range.
+     *
+     * @param kind      the element kind
+     * @param fromArray the source array
+     * @param fromIndex the start index in the source array
+     * @param toArray   the destination array
+     * @param toIndex   the start index in the destination array
+     * @param length    the number of elements to copy
+     */
+    private static void bulkArrayCopy(Kind<?> kind, Object fromArray, int fromIndex, Object toArray, int toIndex, int length) {
+        final int chunkLength = BULK_COPY_CHUNK_SIZE >> kind.width.log2numberOfBytes;
+        if (fromArray == toArray && fromIndex < toIndex) {
+            int remaining = length;
+            while (remaining > 0) {
+                final int n = Math.min(remaining, chunkLength);
+                remaining -= n;
+                bulkArrayCopyChunk(kind, fromArray, fromIndex + remaining, toArray, toIndex + remaining, n);
+            }
+        } else {
+            int copied = 0;
+            while (copied < length) {
+                final int n = Math.min(length - copied, chunkLength);
+                bulkArrayCopyChunk(kind, fromArray, fromIndex + copied, toArray, toIndex + copied, n);
+                copied += n;
+            }
+        }
+    }
+
+    /**
+     * Copies one chunk for {@link #bulkArrayCopy}. For reference arrays, the cards covering the whole destination
+     * range are recorded with a single range post-write barrier before any GC can observe the copied references.
+     */
+    @NO_SAFEPOINT_POLLS("raw pointers into the arrays must not be live across a GC")
+    private static void bulkArrayCopyChunk(Kind<?> kind, Object fromArray, int fromIndex, Object toArray, int toIndex, int length) {
+        final int log2ElementSize = kind.width.log2numberOfBytes;
+        final int firstElementOffset = Layout.arrayLayout().getElementOffsetFromOrigin(0).toInt();
+        final Pointer from = Reference.fromJava(fromArray).toOrigin().plus(firstElementOffset).plus(Address.fromInt(fromIndex).shiftedLeft(log2ElementSize));
+        final Pointer to = Reference.fromJava(toArray).toOrigin().plus(firstElementOffset).plus(Address.fromInt(toIndex).shiftedLeft(log2ElementSize));
+        Memory.moveBytes(from, to, Size.fromInt(length).shiftedLeft(log2ElementSize));
+        if (kind.isReference) {
+            vmConfig().heapScheme().postWriteBarrier(Reference.fromJava(toArray), firstElementOffset, toIndex, length);
+        }
+    }
+
     /**
      * Performs an array copy in the forward direction.
      *
@@ -321,12 +393,20 @@ public final class JDK_java_lang_System {
                 if (fromIndex < 0 || length < 0 || toIndex + length > ArrayAccess.readArrayLength(fromArray)) {
                     throw new IndexOutOfBoundsException();
                 }
-                arrayCopyBackward(kind, fromArray, fromIndex, fromArray, toIndex, length);
+                if (canBulkCopy(kind)) {
+                    bulkArrayCopy(kind, fromArray, fromIndex, fromArray, toIndex, length);
+                } else {
+                    arrayCopyBackward(kind, fromArray, fromIndex, fromArray, toIndex, length);
+                }
             } else if (fromIndex != toIndex) {
                 if (toIndex < 0 || length < 0 || fromIndex + length > ArrayAccess.readArrayLength(fromArray)) {
                     throw new IndexOutOfBoundsException();
                 }
-                arrayCopyForward(kind, fromArray, fromIndex, fromArray, toIndex, length, null);
+                if (canBulkCopy(kind)) {
+                    bulkArrayCopy(kind, fromArray, fromIndex, fromArray, toIndex, length);
+                } else {
+                    arrayCopyForward(kind, fromArray, fromIndex, fromArray, toIndex, length, null);
+                }
             }
             return;
         }
@@ -337,7 +417,11 @@ public final class JDK_java_lang_System {
                     toIndex + length > ArrayAccess.readArrayLength(toArray)) {
                 throw new IndexOutOfBoundsException();
             }
-            arrayCopyForward(kind, fromArray, fromIndex, toArray, toIndex, length, null);
+            if (canBulkCopy(kind)) {
+                bulkArrayCopy(kind, fromArray, fromIndex, toArray, toIndex, length);
+            } else {
+                arrayCopyForward(kind, fromArray, fromIndex, toArray, toIndex, length, null);
+            }
         } else {
             final ClassActor toArrayClassActor = toHub.classActor;
             if (!toArrayClassActor.isArrayClass()) {
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.jdk;
+
+import static com.sun.max.vm.intrinsics.MaxineIntrinsicIDs.*;
+
+import java.io.*;
+import java.net.*;
+import java.security.*;
+
+import sun.misc.*;
+
+import com.sun.max.annotate.*;
+import com.sun.max.vm.classfile.*;
+
+/**
+ * Method substitutions for {@link URLClassLoader}.
+ */
+@METHOD_SUBSTITUTIONS(URLClassLoader.class)
+final class JDK_java_net_URLClassLoader {
+
+    private JDK_java_net_URLClassLoader() {
+    }
+
+    @ALIAS(declaringClass = URLClassLoader.class)
+    URLClassPath ucp;
+
+    @ALIAS(declaringClass = URLClassLoader.class)
+    AccessControlContext acc;
+
+    @ALIAS(declaringClass = URLClassLoader.class)
+    native Class<?> defineClass(String name, Resource res) throws IOException;
+
+    @INTRINSIC(UNSAFE_CAST)
+    private native ClassLoader thisClassLoader();
+
+    /**
+     * Finds a class on the URL search path. A class of the system class loader is first looked up in the
+     * {@linkplain ClassDataArchive class data archive}. This is called by {@link ClassLoader#loadClass(String, boolean)}
+     * once the parent loaders did not find the class, while holding the loader's lock for {@code name}.
+     * <p>
+     * Note: Must be kept in sync with the original JDK source.
+     */
+    @SUBSTITUTE
+    protected Class<?> findClass(final String name) throws ClassNotFoundException {
+        final Class<?> archived = ClassDataArchive.define(thisClassLoader(), name);
+        if (archived != null) {
+            return archived;
+        }
+        final JDK_java_net_URLClassLoader loader = this;
+        final Class<?> result;
+        try {
+            result = AccessController.doPrivileged(new PrivilegedExceptionAction<Class<?>>() {
+                public Class<?> run() throws ClassNotFoundException {
+                    final String path = name.replace('.', '/').concat(".class");
+                    final Resource res = loader.ucp.getResource(path, false);
+                    if (res != null) {
+                        try {
+                            return loader.defineClass(name, res);
+                        } catch (IOException e) {
+                            throw new ClassNotFoundException(name, e);
+                        }
+                    }
+                    return null;
+                }
+            }, acc);
+        } catch (PrivilegedActionException pae) {
+            throw (ClassNotFoundException) pae.getException();
+        }
+        if (result == null) {
+            throw new ClassNotFoundException(name);
+        }
+        return result;
+    }
+}
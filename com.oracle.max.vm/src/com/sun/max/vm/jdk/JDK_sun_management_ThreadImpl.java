@@ -33,6 +33,6 @@ final class JDK_sun_management_ThreadImpl {
 
     @SUBSTITUTE
     public boolean isCurrentThreadCpuTimeSupported() {
-        return false; //TODO
+        return true;
     }
 }
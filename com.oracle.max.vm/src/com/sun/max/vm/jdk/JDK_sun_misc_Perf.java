@@ -23,16 +23,14 @@
 package com.sun.max.vm.jdk;
 
 import java.nio.*;
-import java.util.*;
 
 import sun.misc.*;
 
 import com.sun.max.annotate.*;
-import com.sun.max.memory.*;
+import com.sun.max.lang.*;
 import com.sun.max.unsafe.*;
-import com.sun.max.vm.*;
+import com.sun.max.vm.management.*;
 import com.sun.max.vm.object.*;
-import com.sun.max.vm.runtime.*;
 
 /**
  * Method sustitutions for the {@link sun.misc.Perf} class.
@@ -44,37 +42,6 @@ final class JDK_sun_misc_Perf {
     private JDK_sun_misc_Perf() {
     }
 
-    private static final int VARIABILITY_CONSTANT = 1;
-    private static final int VARIABILITY_MONOTONIC = 2;
-    private static final int VARIABILITY_VARIABLE = 3;
-
-    private static final int UNITS_NONE = 1;
-    private static final int UNITS_BYTES = 2;
-    private static final int UNITS_TICKS = 3;
-    private static final int UNITS_EVENTS = 4;
-    private static final int UNITS_STRING = 5;
-    private static final int UNITS_HERTZ = 6;
-
-    static class PerfData {
-        String name;
-        int units;
-        int variability;
-        PerfData(String name, int units, int variability) {
-            this.name = name;
-            this.units = units;
-            this.variability = variability;
-        }
-    }
-
-    static class PerfString extends PerfData {
-        Pointer address;
-        PerfString(String name, int units, int variability, Pointer address) {
-            super(name, units, variability);
-            this.address = address;
-        }
-    }
-
-    private static final Map<String, PerfData> perfDataMap = new HashMap<String, PerfData>();
     /**
      * Register any native methods.
      */
@@ -93,18 +60,27 @@ final class JDK_sun_misc_Perf {
      */
     @SUBSTITUTE
     private ByteBuffer attach(String user, int lvmid, int mode) throws IllegalArgumentException {
-        FatalError.unimplemented("com.sun.max.vm.jdk.JDK_sun_misc_Perf.attach");
-        return null;
+        if (mode != PerfMemory.PERF_MODE_RO && mode != PerfMemory.PERF_MODE_RW) {
+            throw new IllegalArgumentException("unknown mode: " + mode);
+        }
+        if (lvmid == 0 || lvmid == PerfMemory.vmid()) {
+            return PerfMemory.buffer();
+        }
+        if (mode == PerfMemory.PERF_MODE_RW) {
+            throw new IllegalArgumentException("cannot attach to another VM in read-write mode");
+        }
+        return PerfMemory.attach(user, lvmid);
     }
 
     /**
      * Detach from an instrumentation buffer.
+     * The buffer of this VM lives as long as the VM and the mapping of another VM's buffer
+     * is released when the buffer is collected, so there is nothing to do here.
      * @see sun.misc.Perf#detach(ByteBuffer)
      * @param byteBuffer the byte buffer from which to detach
      */
     @SUBSTITUTE
     private void detach(ByteBuffer byteBuffer) {
-        FatalError.unimplemented("com.sun.max.vm.jdk.JDK_sun_misc_Perf.detach");
     }
 
     /**
@@ -118,8 +94,17 @@ final class JDK_sun_misc_Perf {
      */
     @SUBSTITUTE
     public ByteBuffer createLong(String name, int variability, int units, long value) {
-        FatalError.unimplemented("com.sun.max.vm.jdk.JDK_sun_misc_Perf.createLong");
-        return null;
+        if (name == null) {
+            throw new NullPointerException();
+        }
+        if (variability < PerfMemory.VARIABILITY_CONSTANT || variability > PerfMemory.VARIABILITY_VARIABLE) {
+            throw new IllegalArgumentException("invalid variability: " + variability);
+        }
+        if (units < PerfMemory.UNITS_NONE || units > PerfMemory.UNITS_HERTZ || units == PerfMemory.UNITS_STRING) {
+            throw new IllegalArgumentException("invalid units: " + units);
+        }
+        final Pointer address = PerfMemory.createLong(name, variability, units, value);
+        return ObjectAccess.createDirectByteBuffer(address.toLong(), Longs.SIZE);
     }
 
     /**
@@ -136,21 +121,16 @@ final class JDK_sun_misc_Perf {
         if (name == null || value == null) {
             throw new NullPointerException();
         }
-        if (!(variability == VARIABILITY_CONSTANT || variability == VARIABILITY_VARIABLE)) {
+        if (!(variability == PerfMemory.VARIABILITY_CONSTANT || variability == PerfMemory.VARIABILITY_VARIABLE)) {
             throw new IllegalArgumentException("invalid variability: " + variability);
         }
-        if (units != UNITS_STRING) {
+        if (units != PerfMemory.UNITS_STRING) {
             throw new IllegalArgumentException("invalid units: " + units);
         }
-        PerfData perfData = perfDataMap.get(name);
-        if (perfData != null) {
-            throw new IllegalArgumentException("name: " + name + " already exists");
+        if (maxLength < value.length) {
+            throw new IllegalArgumentException("invalid maximum length: " + maxLength);
         }
-
-        final Pointer address = Memory.mustAllocate(maxLength);
-        Memory.writeBytes(value, address);
-        final PerfString perfString = new PerfString(name, variability, units, address);
-        perfDataMap.put(name, perfString);
+        final Pointer address = PerfMemory.createByteArray(name, variability, units, value, maxLength);
         return ObjectAccess.createDirectByteBuffer(address.toLong(), maxLength);
     }
 
@@ -161,7 +141,7 @@ final class JDK_sun_misc_Perf {
      */
     @SUBSTITUTE
     public long highResCounter() {
-        return System.nanoTime() - MaxineVM.getStartupTimeNano();
+        return PerfMemory.ticks();
     }
 
     /**
@@ -171,6 +151,6 @@ final class JDK_sun_misc_Perf {
      */
     @SUBSTITUTE
     public long highResFrequency() {
-        return 1000000000L;
+        return PerfMemory.HRT_FREQUENCY.get();
     }
 }
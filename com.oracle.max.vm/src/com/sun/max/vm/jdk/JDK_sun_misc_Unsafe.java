@@ -1256,16 +1256,7 @@ final class JDK_sun_misc_Unsafe {
      */
     @SUBSTITUTE
     public void park(boolean isAbsolute, long time) {
-        final VmThread thread = VmThread.current();
-        try {
-            if (!isAbsolute) {
-                thread.park(time);
-            } else {
-                thread.park();
-            }
-        } catch (InterruptedException e) {
-            thread.setInterrupted();
-        }
+        VmThread.current().park(isAbsolute, time);
     }
 
     /**
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.jni;
+
+import com.sun.max.annotate.*;
+import com.sun.max.memory.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.actor.member.*;
+import com.sun.max.vm.heap.*;
+import com.sun.max.vm.layout.*;
+import com.sun.max.vm.object.*;
+import com.sun.max.vm.reference.*;
+import com.sun.max.vm.type.*;
+
+/**
+ * Support for the critical native calling convention. A static native method whose parameters are all primitives
+ * or one-dimensional primitive arrays, and whose result is a primitive or {@code void}, may be bound to an
+ * alternative implementation named {@code JavaCritical_<mangled name>}. Such a function receives no
+ * {@code JNIEnv*} or class argument and is called without a JNI handle frame. Each array parameter is expanded into
+ * two native parameters: its length as a {@code jint} and a direct pointer to its first element (or {@code 0} and
+ * {@code NULL} for a {@code null} array). The arrays are {@linkplain Heap#useDirectPointer(Object) pinned} for the
+ * duration of the call, or passed as a copy if the heap cannot pin them.
+ * <p>
+ * A critical native cannot call back into the VM, throw exceptions or allocate.
+ *
+ * @see NativeStubGenerator
+ */
+public final class CriticalNatives {
+
+    private CriticalNatives() {
+    }
+
+    /**
+     * The prefix of a critical native symbol, used in place of the {@code "Java_"} prefix of a JNI symbol.
+     */
+    public static final String CRITICAL_PREFIX = "JavaCritical_";
+
+    private static final String JNI_PREFIX = "Java_";
+
+    public static boolean CriticalJNINatives = true;
+
+    static {
+        VMOptions.addFieldOption("-XX:", "CriticalJNINatives", CriticalNatives.class,
+            "Bind eligible native methods to JavaCritical_ entry points if the native library provides them.", MaxineVM.Phase.PRISTINE);
+    }
+
+    /**
+     * Determines if a given native method has a signature and modifiers that permit it to be bound as a critical
+     * native. This does not check whether a critical implementation is actually available.
+     */
+    public static boolean isCandidate(ClassMethodActor classMethodActor) {
+        if (!classMethodActor.isStatic() || classMethodActor.isSynchronized() || classMethodActor.isCFunction() || classMethodActor.isVmEntryPoint()) {
+            return false;
+        }
+        final SignatureDescriptor sig = classMethodActor.descriptor();
+        if (!JavaTypeDescriptor.isPrimitive(sig.resultDescriptor())) {
+            return false;
+        }
+        boolean hasArrays = false;
+        for (int i = 0; i < sig.numberOfParameters(); i++) {
+            final TypeDescriptor parameterDescriptor = sig.parameterDescriptorAt(i);
+            if (isPrimitiveArray(parameterDescriptor)) {
+                hasArrays = true;
+            } else if (!JavaTypeDescriptor.isPrimitive(parameterDescriptor)) {
+                return false;
+            }
+        }
+        return !hasArrays || Heap.supportsDirectPointers();
+    }
+
+    static boolean isPrimitiveArray(TypeDescriptor descriptor) {
+        return JavaTypeDescriptor.getArrayDimensions(descriptor) == 1 && JavaTypeDescriptor.isPrimitive(descriptor.componentTypeDescriptor());
+    }
+
+    /**
+     * Gets the critical symbol corresponding to a JNI symbol produced by {@link NativeFunction#makeSymbol()}.
+     */
+    public static String makeCriticalSymbol(String symbol) {
+        assert symbol.startsWith(JNI_PREFIX) : symbol;
+        return CRITICAL_PREFIX + symbol.substring(JNI_PREFIX.length());
+    }
+
+    /**
+     * Gets the address of the critical implementation of a native method.
+     *
+     * @return the address of the critical implementation or zero if the method cannot be bound as a critical native
+     */
+    public static Address lookup(ClassMethodActor classMethodActor) {
+        if (MaxineVM.isHosted() || !CriticalJNINatives || !isCandidate(classMethodActor)) {
+            return Address.zero();
+        }
+        return classMethodActor.nativeFunction.linkCritical();
+    }
+
+    /**
+     * Gets the length of an array argument to a critical native.
+     */
+    @INLINE
+    public static int arrayLength(Object array) {
+        if (array == null) {
+            return 0;
+        }
+        return Layout.readArrayLength(Reference.fromJava(array));
+    }
+
+    /**
+     * Pins an array argument to a critical native and gets the address of its first element. If the heap cannot pin
+     * the array (e.g. because it is in a nursery that is evacuated by the next GC), the elements are copied to a
+     * native buffer instead, which {@link #unpinArray(Object, Pointer)} copies back and frees.
+     */
+    @INLINE
+    public static Pointer pinArray(Object array) {
+        if (array == null) {
+            return Pointer.zero();
+        }
+        if (Heap.useDirectPointer(array)) {
+            return elementsOrigin(array);
+        }
+        final Size size = elementsSize(array);
+        // Allocate at least one byte so that the copy of an empty array still has a distinct address
+        final Pointer buffer = Memory.mustAllocate(size.isZero() ? Size.fromInt(1) : size);
+        copyElements(array, buffer, size, false);
+        return buffer;
+    }
+
+    /**
+     * Releases an array argument to a critical native acquired by {@link #pinArray(Object)}.
+     *
+     * @param elements the value returned by {@link #pinArray(Object)} for {@code array}
+     */
+    @INLINE
+    public static void unpinArray(Object array, Pointer elements) {
+        if (array == null) {
+            return;
+        }
+        if (isDirect(array, elements)) {
+            Heap.releasedDirectPointer(array);
+        } else {
+            copyElements(array, elements, elementsSize(array), true);
+            Memory.deallocate(elements);
+        }
+    }
+
+    @INLINE
+    private static Pointer elementsOrigin(Object array) {
+        return Reference.fromJava(array).toOrigin().plus(Layout.byteArrayLayout().getElementOffsetFromOrigin(0));
+    }
+
+    private static Size elementsSize(Object array) {
+        final int elementSize = ObjectAccess.readClassActor(array).componentClassActor().kind.width.numberOfBytes;
+        return Size.fromInt(Layout.readArrayLength(Reference.fromJava(array))).times(elementSize);
+    }
+
+    /**
+     * Determines if {@code elements} is the address of the elements of {@code array}. A pinned array does not move,
+     * whereas a copy is in a native buffer that can never be inside the heap.
+     */
+    @NO_SAFEPOINT_POLLS("array address must not change while it is compared")
+    private static boolean isDirect(Object array, Pointer elements) {
+        return elements.equals(elementsOrigin(array));
+    }
+
+    @NO_SAFEPOINT_POLLS("array address must not change during the copy")
+    private static void copyElements(Object array, Pointer buffer, Size size, boolean toArray) {
+        if (toArray) {
+            Memory.copyBytes(buffer, elementsOrigin(array), size);
+        } else {
+            Memory.copyBytes(elementsOrigin(array), buffer, size);
+        }
+    }
+}
@@ -259,13 +259,7 @@ public final class DynamicLinker {
         if (MaxineVM.isHosted()) {
             symbolAddress = MethodID.fromMethodActor(classMethodActor);
         } else {
-            // First look in the native libraries loaded by the class loader of the class in which this native method was declared
-            ClassLoader classLoader = classMethodActor.holder().classLoader;
-            symbolAddress = Address.fromLong(findNative(classLoader, symbol));
-            // Now look in the system library path
-            if (symbolAddress.isZero() && classLoader != null) {
-                symbolAddress = Address.fromLong(findNative(null, symbol));
-            }
+            symbolAddress = lookupIfPresent(classMethodActor, symbol);
         }
         if (symbolAddress.isZero()) {
             throw new UnsatisfiedLinkError(symbol);
@@ -273,6 +267,25 @@ public final class DynamicLinker {
         return symbolAddress;
     }
 
+    /**
+     * Looks up the symbol for a native method without failing if it is absent. This is used to probe
+     * for optional entry points such as {@linkplain CriticalNatives critical natives}.
+     *
+     * @param classMethodActor the actor for a native method
+     * @param symbol the symbol to look up
+     * @return the address of {@code symbol} or zero if it cannot be found in any of the dynamic libraries bound to the VM
+     */
+    public static Word lookupIfPresent(MethodActor classMethodActor, String symbol) {
+        // First look in the native libraries loaded by the class loader of the class in which this native method was declared
+        ClassLoader classLoader = classMethodActor.holder().classLoader;
+        Word symbolAddress = Address.fromLong(findNative(classLoader, symbol));
+        // Now look in the system library path
+        if (symbolAddress.isZero() && classLoader != null) {
+            symbolAddress = Address.fromLong(findNative(null, symbol));
+        }
+        return symbolAddress;
+    }
+
 
    /*
     * Inspector support for finding native functions. dlfcn isn't very helpful.
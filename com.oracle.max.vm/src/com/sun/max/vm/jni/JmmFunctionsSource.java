@@ -28,6 +28,7 @@ import java.lang.management.*;
 
 import com.sun.max.annotate.*;
 import com.sun.max.unsafe.*;
+import com.sun.max.vm.heap.*;
 import com.sun.max.vm.management.*;
 import com.sun.max.vm.runtime.*;
 
@@ -118,7 +119,14 @@ public final class JmmFunctionsSource {
 
     @VM_ENTRY_POINT
     private static boolean GetBoolAttribute(Pointer env, int att) {
-        return false;
+        switch (att) {
+            case JMM_THREAD_CONTENTION_MONITORING:
+                return ThreadManagement.isThreadContentionMonitoringEnabled();
+            case JMM_THREAD_CPU_TIME:
+                return ThreadManagement.isThreadCpuTimeEnabled();
+            default:
+                return false;
+        }
     }
 
     @VM_ENTRY_POINT
@@ -129,7 +137,7 @@ public final class JmmFunctionsSource {
             case JMM_VERBOSE_CLASS:
                 return ClassLoadingManagement.setVerboseClass(flag);
             case JMM_THREAD_CONTENTION_MONITORING:
-                return ThreadManagement.setThreadCpuTimeEnabled(flag);
+                return ThreadManagement.setThreadContentionMonitoringEnabled(flag);
             case JMM_THREAD_CPU_TIME:
                 return ThreadManagement.setThreadCpuTimeEnabled(flag);
             default:
@@ -150,7 +158,7 @@ public final class JmmFunctionsSource {
 
     @VM_ENTRY_POINT
     private static long GetThreadCpuTime(Pointer env, long thread_id) {
-        return 0;
+        return ThreadManagement.getThreadCpuTime(thread_id, false);
     }
 
     @VM_ENTRY_POINT
@@ -170,7 +178,19 @@ public final class JmmFunctionsSource {
 
     @VM_ENTRY_POINT
     private static boolean ResetStatistic(Pointer env, Word obj, int type) {
-        return false;
+        switch (type) {
+            case JMM_STAT_THREAD_CONTENTION_COUNT:
+                ThreadManagement.resetContentionStatistics(obj.asAddress().toLong(), true, false);
+                return true;
+            case JMM_STAT_THREAD_CONTENTION_TIME:
+                ThreadManagement.resetContentionStatistics(obj.asAddress().toLong(), false, true);
+                return true;
+            case JMM_STAT_THREAD_CONTENTION_STAT:
+                ThreadManagement.resetContentionStatistics(obj.asAddress().toLong(), true, true);
+                return true;
+            default:
+                return false;
+        }
     }
 
     @VM_ENTRY_POINT
@@ -198,7 +218,7 @@ public final class JmmFunctionsSource {
 
     @VM_ENTRY_POINT
     private static long GetThreadCpuTimeWithKind(Pointer env, long thread_id, boolean user_sys_cpu_time) {
-        return 0;
+        return ThreadManagement.getThreadCpuTime(thread_id, !user_sys_cpu_time);
     }
 
     @VM_ENTRY_POINT
@@ -206,7 +226,7 @@ public final class JmmFunctionsSource {
 
     @VM_ENTRY_POINT
     private static int DumpHeap0(Pointer env, JniHandle outputfile, boolean live) {
-        return 0;
+        return HeapDumper.dump((String) outputfile.unhand(), live) ? 0 : -1;
     }
 
     @VM_ENTRY_POINT
@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.jni;
+
+import com.sun.max.annotate.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.heap.*;
+import com.sun.max.vm.reference.*;
+
+/**
+ * A table of JNI handles shared by all threads, used for global and weak global references.
+ * <p>
+ * The table is made of fixed size segments so that it can grow without copying or moving existing
+ * handles. Slots are allocated without locking, in this order:
+ * <ol>
+ * <li>from the allocating thread's {@linkplain FreeSlotCache cache} of slots that it freed itself,</li>
+ * <li>from the shared list of free slots rebuilt at each GC, by decrementing {@link #freeCount} with a CAS,</li>
+ * <li>by bumping {@link #next} with a CAS.</li>
+ * </ol>
+ * Only adding a segment takes a lock.
+ * <p>
+ * A freed slot holds {@link #FREE}. It goes into the freeing thread's cache if there is room. Otherwise it stays
+ * unused until the next GC, which collects all {@code FREE} slots into the shared free list while
+ * {@linkplain SpecialReferenceManager#processWeakRoots(SpecialReferenceManager.GC) processing weak roots}, a step
+ * every heap scheme runs. A thread that finds the table full requests a GC to reclaim such slots before giving up
+ * with an {@link OutOfMemoryError}. The GC also bumps {@link #epoch}, which empties every thread's cache because those
+ * slots are now in the shared list. Each thread-side operation runs without safepoint polls so that a GC never sees
+ * it half done.
+ */
+final class JniHandleTable implements SpecialReferenceManager.WeakRootsProcessor {
+
+    /**
+     * Marks a slot that has been freed.
+     */
+    private static final Object FREE = new Object();
+
+    static final int SEGMENT_SHIFT = 8;
+    static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+    static final int MAX_SEGMENTS = 1 << 12;
+
+    public static boolean TraceJNIHandleTables;
+    static {
+        VMOptions.addFieldOption("-XX:", "TraceJNIHandleTables", JniHandleTable.class, "Report JNI global handle table occupancy after each GC.");
+    }
+
+    /**
+     * The slots freed by one thread, and not yet reclaimed by a GC, that the thread can reuse without synchronization.
+     */
+    static final class FreeSlotCache {
+        static final int SIZE = 32;
+
+        final int[] slots = new int[SIZE];
+        int count;
+
+        /**
+         * The value of {@link JniHandleTable#epoch} when this cache was last valid.
+         */
+        int epoch;
+    }
+
+    private final String name;
+
+    private final Object[][] segments = new Object[MAX_SEGMENTS][];
+
+    /**
+     * The number of slots in the allocated segments.
+     */
+    private volatile int capacity;
+
+    /**
+     * The index of the next slot that has never been allocated.
+     */
+    private volatile int next;
+
+    /**
+     * The slots collected by the last GC. The entries at indexes below {@link #freeCount} are available.
+     */
+    private volatile int[] freeList = new int[0];
+    private volatile int freeCount;
+
+    /**
+     * Incremented every time the free slots are collected, to invalidate the per-thread caches.
+     */
+    private volatile int epoch;
+
+    /**
+     * The number of slots in use after the last GC.
+     */
+    private int occupancy;
+
+    @HOSTED_ONLY
+    JniHandleTable(String name) {
+        this.name = name;
+        SpecialReferenceManager.registerWeakRootsProcessor(this);
+    }
+
+    @FOLD
+    private static int nextOffset() {
+        return ClassActor.fromJava(JniHandleTable.class).findLocalInstanceFieldActor("next").offset();
+    }
+
+    @FOLD
+    private static int freeCountOffset() {
+        return ClassActor.fromJava(JniHandleTable.class).findLocalInstanceFieldActor("freeCount").offset();
+    }
+
+    private boolean compareAndSwapNext(int expected, int value) {
+        if (MaxineVM.isHosted()) {
+            synchronized (this) {
+                if (next != expected) {
+                    return false;
+                }
+                next = value;
+                return true;
+            }
+        }
+        return Reference.fromJava(this).compareAndSwapInt(nextOffset(), expected, value) == expected;
+    }
+
+    private boolean compareAndSwapFreeCount(int expected, int value) {
+        if (MaxineVM.isHosted()) {
+            synchronized (this) {
+                if (freeCount != expected) {
+                    return false;
+                }
+                freeCount = value;
+                return true;
+            }
+        }
+        return Reference.fromJava(this).compareAndSwapInt(freeCountOffset(), expected, value) == expected;
+    }
+
+    /**
+     * Gets the number of slots that have ever been allocated.
+     */
+    int slots() {
+        return next;
+    }
+
+    /**
+     * Gets the object in a given slot, or {@code null} if the slot is free.
+     */
+    Object get(int index) {
+        final Object value = segments[index >> SEGMENT_SHIFT][index & SEGMENT_MASK];
+        return value == FREE ? null : value;
+    }
+
+    /**
+     * Stores {@code object} in a free slot.
+     *
+     * @param cache the current thread's cache for this table
+     * @return the index of the slot
+     */
+    int allocate(Object object, FreeSlotCache cache) {
+        assert object != null;
+        boolean collected = false;
+        while (true) {
+            final int index = tryAllocate(object, cache);
+            if (index >= 0) {
+                return index;
+            }
+            if (!addSegment()) {
+                if (collected) {
+                    throw new OutOfMemoryError("JNI " + name + " handle table is full");
+                }
+                // Slots freed by threads whose caches were full are only reclaimed by a GC
+                Heap.collectGarbage();
+                collected = true;
+            }
+        }
+    }
+
+    /**
+     * Stores {@code object} in a free slot if there is one.
+     *
+     * @return the index of the slot or -1 if the allocated segments are full
+     */
+    @NO_SAFEPOINT_POLLS("a GC must not collect free slots while one is being claimed")
+    private int tryAllocate(Object object, FreeSlotCache cache) {
+        if (cache.epoch == epoch && cache.count > 0) {
+            final int index = cache.slots[--cache.count];
+            set(index, object);
+            return index;
+        }
+        int n = freeCount;
+        while (n > 0) {
+            if (compareAndSwapFreeCount(n, n - 1)) {
+                final int index = freeList[n - 1];
+                set(index, object);
+                return index;
+            }
+            n = freeCount;
+        }
+        int index = next;
+        while (index < capacity) {
+            if (compareAndSwapNext(index, index + 1)) {
+                set(index, object);
+                return index;
+            }
+            index = next;
+        }
+        return -1;
+    }
+
+    private void set(int index, Object object) {
+        segments[index >> SEGMENT_SHIFT][index & SEGMENT_MASK] = object;
+    }
+
+    /**
+     * Adds a segment to the table, unless another thread has just done so.
+     *
+     * @return {@code false} if the table already has {@link #MAX_SEGMENTS} segments
+     */
+    private synchronized boolean addSegment() {
+        if (next < capacity) {
+            // Another thread added a segment
+            return true;
+        }
+        final int segment = capacity >> SEGMENT_SHIFT;
+        if (segment == MAX_SEGMENTS) {
+            return false;
+        }
+        final Object[] slots = new Object[SEGMENT_SIZE];
+        final int[] newFreeList = new int[capacity + SEGMENT_SIZE];
+        // The free list only changes at GC, so it can be copied while other threads claim entries from it
+        final int[] oldFreeList = freeList;
+        for (int i = 0; i < oldFreeList.length; i++) {
+            newFreeList[i] = oldFreeList[i];
+        }
+        freeList = newFreeList;
+        segments[segment] = slots;
+        capacity += SEGMENT_SIZE;
+        return true;
+    }
+
+    /**
+     * Frees the slot at a given index.
+     *
+     * @param cache the current thread's cache for this table
+     */
+    @NO_SAFEPOINT_POLLS("a GC must not collect a free slot before it is added to a thread's cache")
+    void free(int index, FreeSlotCache cache) {
+        set(index, FREE);
+        if (cache.epoch != epoch) {
+            cache.epoch = epoch;
+            cache.count = 0;
+        }
+        if (cache.count < FreeSlotCache.SIZE) {
+            cache.slots[cache.count++] = index;
+        }
+    }
+
+    /**
+     * Collects the free slots into {@link #freeList}. This is done with all mutator threads stopped, possibly more
+     * than once per collection.
+     */
+    public void processWeakRoots(SpecialReferenceManager.GC gc) {
+        final int[] list = freeList;
+        final int limit = next;
+        int n = 0;
+        for (int index = 0; index < limit; index++) {
+            if (segments[index >> SEGMENT_SHIFT][index & SEGMENT_MASK] == FREE) {
+                list[n++] = index;
+            }
+        }
+        freeCount = n;
+        epoch++;
+        occupancy = limit - n;
+        if (TraceJNIHandleTables) {
+            final boolean lockDisabledSafepoints = Log.lock();
+            Log.print("JNI ");
+            Log.print(name);
+            Log.print(" handles: capacity=");
+            Log.print(capacity);
+            Log.print(" occupancy=");
+            Log.print(occupancy);
+            Log.print(" free=");
+            Log.println(n);
+            Log.unlock(lockDisabledSafepoints);
+        }
+    }
+}
@@ -41,10 +41,10 @@ import com.sun.max.vm.type.*;
  * The first type of handle is implemented as the address of an object on the thread's stack.
  * The second type of handle is allocated from a pool of JNI handles. There is one pool of
  * JNI handles per thread that is used to allocate local JNI references, a
- * global pool per VM (or isolate?) for global references and
- * another global pool for weak global references.
+ * global {@linkplain JniHandleTable table} per VM for global references and
+ * another global table for weak global references.
  *
- * This class implements a pool of JNI handles.
+ * This class implements a pool of local JNI handles.
  *
  * In the Maxine VM, we need to take into account that objects may be allocated
  * in a hardware object memory where one cannot take the address of an element or field within
@@ -100,8 +100,14 @@ public final class JniHandles {
 
     public static final int INITIAL_NUMBER_OF_HANDLES = 32;
 
-    private static final JniHandles globalHandles = new JniHandles();
-    private static final JniHandles weakGlobalHandles = new JniHandles();
+    private static final JniHandleTable globalHandles = new JniHandleTable("global");
+    private static final JniHandleTable weakGlobalHandles = new JniHandleTable("weak global");
+
+    /**
+     * This thread's caches of slots it freed in {@link #globalHandles} and {@link #weakGlobalHandles}.
+     */
+    private final JniHandleTable.FreeSlotCache globalFreeSlots = new JniHandleTable.FreeSlotCache();
+    private final JniHandleTable.FreeSlotCache weakGlobalFreeSlots = new JniHandleTable.FreeSlotCache();
 
     /**
      * The objects exposed to native code via handles.
@@ -180,9 +186,11 @@ public final class JniHandles {
     }
 
     /**
-     * Gets the handle at a given index.
+     * Gets the object of the local handle at a given index, or {@code null} if the handle is free.
+     *
+     * @param index an index below {@link #top()}
      */
-    private Object get(int index) {
+    public Object get(int index) {
         return handles[index];
     }
 
@@ -309,6 +317,28 @@ public final class JniHandles {
         return jniHandle.asPointer().getWord().asAddress();
     }
 
+    /**
+     * Gets the number of slots of the global handle table, which is an upper bound for the indexes
+     * accepted by {@link #getGlobal(int)}.
+     */
+    public static int globalHandleSlots() {
+        return globalHandles.slots();
+    }
+
+    /**
+     * Gets the object of the global handle in a given slot of the global handle table, or {@code null} if the slot is free.
+     */
+    public static Object getGlobal(int index) {
+        return globalHandles.get(index);
+    }
+
+    /**
+     * Gets the global handle for a given slot of the global handle table.
+     */
+    public static JniHandle globalHandle(int index) {
+        return indexToJniHandle(index, Tag.GLOBAL);
+    }
+
     /**
      * Creates a thread-local JNI handle for a reference. The handle is valid only within the
      * dynamic context of the native method that creates it, and only within that one invocation
@@ -341,18 +371,17 @@ public final class JniHandles {
         if (object == null) {
             return JniHandle.zero();
         }
-        synchronized (globalHandles) {
-            return globalHandles.allocateHandle(object, Tag.GLOBAL);
-        }
+        final JniHandles jniHandles = VmThread.current().makeJniHandles();
+        return indexToJniHandle(globalHandles.allocate(object, jniHandles.globalFreeSlots), Tag.GLOBAL);
     }
 
     public static JniHandle createWeakGlobalHandle(Object object) {
         if (object == null) {
             return JniHandle.zero();
         }
-        synchronized (weakGlobalHandles) {
-            return weakGlobalHandles.allocateHandle(new WeakReference<Object>(object), Tag.WEAK_GLOBAL);
-        }
+        final WeakReference<Object> weakReference = new WeakReference<Object>(object);
+        final JniHandles jniHandles = VmThread.current().makeJniHandles();
+        return indexToJniHandle(weakGlobalHandles.allocate(weakReference, jniHandles.weakGlobalFreeSlots), Tag.WEAK_GLOBAL);
     }
 
     public static void destroyLocalHandle(JniHandle jniHandle) {
@@ -375,18 +404,14 @@ public final class JniHandles {
     public static void destroyGlobalHandle(JniHandle jniHandle) {
         if (!jniHandle.isZero()) {
             assert tag(jniHandle) == Tag.GLOBAL;
-            synchronized (globalHandles) {
-                globalHandles.freeHandle(jniHandleToIndex(jniHandle));
-            }
+            globalHandles.free(jniHandleToIndex(jniHandle), VmThread.current().makeJniHandles().globalFreeSlots);
         }
     }
 
     public static void destroyWeakGlobalHandle(JniHandle jniHandle) {
         if (!jniHandle.isZero()) {
             assert tag(jniHandle) == Tag.WEAK_GLOBAL;
-            synchronized (weakGlobalHandles) {
-                weakGlobalHandles.freeHandle(jniHandleToIndex(jniHandle));
-            }
+            weakGlobalHandles.free(jniHandleToIndex(jniHandle), VmThread.current().makeJniHandles().weakGlobalFreeSlots);
         }
     }
 
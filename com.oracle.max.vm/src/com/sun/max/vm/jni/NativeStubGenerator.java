@@ -61,6 +61,8 @@ import com.sun.max.vm.type.*;
  *   <li>Return the result to the caller.</li>
  * </ol>
  * <p>
+ * Static native methods that have a {@linkplain CriticalNatives critical} implementation are called through a
+ * much simpler stub that omits the JNI environment, handles and exception check.
  */
 public final class NativeStubGenerator extends BytecodeAssembler {
 
@@ -68,7 +70,11 @@ public final class NativeStubGenerator extends BytecodeAssembler {
         super(constantPoolEditor);
         this.classMethodActor = classMethodActor;
         allocateParameters(classMethodActor.isStatic(), classMethodActor.descriptor());
-        generateCode(classMethodActor.isCFunction(), classMethodActor.isStatic(), classMethodActor.holder(), classMethodActor.descriptor());
+        if (CriticalNatives.lookup(classMethodActor).isNotZero()) {
+            generateCriticalCode(classMethodActor.descriptor());
+        } else {
+            generateCode(classMethodActor.isCFunction(), classMethodActor.isStatic(), classMethodActor.holder(), classMethodActor.descriptor());
+        }
     }
 
     private final SeekableByteArrayOutputStream codeStream = new SeekableByteArrayOutputStream();
@@ -125,6 +131,11 @@ public final class NativeStubGenerator extends BytecodeAssembler {
     private static final ClassMethodRefConstant nativeCallEpilogue = createClassMethodConstant(Snippets.class, makeSymbol("nativeCallEpilogue"));
     private static final ClassMethodRefConstant nativeCallEpilogueForC = createClassMethodConstant(Snippets.class, makeSymbol("nativeCallEpilogueForC"));
 
+    private static final ClassMethodRefConstant criticalAddress = createClassMethodConstant(NativeFunction.class, makeSymbol("criticalAddress"));
+    private static final ClassMethodRefConstant criticalArrayLength = createClassMethodConstant(CriticalNatives.class, makeSymbol("arrayLength"), Object.class);
+    private static final ClassMethodRefConstant criticalPinArray = createClassMethodConstant(CriticalNatives.class, makeSymbol("pinArray"), Object.class);
+    private static final ClassMethodRefConstant criticalUnpinArray = createClassMethodConstant(CriticalNatives.class, makeSymbol("unpinArray"), Object.class, Pointer.class);
+
     private static final ClassMethodRefConstant writeObject = createClassMethodConstant(Pointer.class, makeSymbol("writeObject"), int.class, Object.class);
 
     private int methodIDAsInt;
@@ -336,6 +347,101 @@ public final class NativeStubGenerator extends BytecodeAssembler {
         return_(resultKind);
     }
 
+    /**
+     * Generates a stub for a {@linkplain CriticalNatives critical native}. No JNI handle frame is created and
+     * no pending exception check is made. Each array argument is pinned, or copied if it cannot be pinned, and passed
+     * as a (length, pointer) pair.
+     */
+    private void generateCriticalCode(SignatureDescriptor sig) {
+        final Kind<?> resultKind = sig.resultDescriptor().toKind();
+        final StringBuilder nativeFunctionDescriptor = new StringBuilder("(");
+        int nativeFunctionArgSlots = 0;
+
+        methodIDAsInt = MethodID.fromMethodActor(classMethodActor).asAddress().toInt();
+        logJniEntry();
+
+        // The locals holding the element pointers passed for the array parameters
+        final int[] elementsLocals = new int[sig.numberOfParameters()];
+        int parameterLocalIndex = 0;
+        for (int i = 0; i < sig.numberOfParameters(); i++) {
+            final TypeDescriptor parameterDescriptor = sig.parameterDescriptorAt(i);
+            final Kind<?> kind = parameterDescriptor.toKind();
+            String nativeParameterDescriptors = parameterDescriptor.toString();
+            int nativeParameterSlots = kind.stackSlots;
+            switch (kind.asEnum) {
+                case BYTE:
+                case BOOLEAN:
+                case SHORT:
+                case CHAR:
+                case INT: {
+                    iload(parameterLocalIndex);
+                    break;
+                }
+                case FLOAT: {
+                    fload(parameterLocalIndex);
+                    break;
+                }
+                case LONG: {
+                    lload(parameterLocalIndex);
+                    break;
+                }
+                case DOUBLE: {
+                    dload(parameterLocalIndex);
+                    break;
+                }
+                case REFERENCE: {
+                    assert CriticalNatives.isPrimitiveArray(parameterDescriptor);
+                    aload(parameterLocalIndex);
+                    invokestatic(criticalArrayLength, 1, 1);
+                    aload(parameterLocalIndex);
+                    invokestatic(criticalPinArray, 1, 1);
+                    elementsLocals[i] = allocateLocal(Kind.WORD);
+                    astore(elementsLocals[i]);
+                    aload(elementsLocals[i]);
+                    nativeParameterDescriptors = JavaTypeDescriptor.INT.toString() + JavaTypeDescriptor.WORD;
+                    nativeParameterSlots = Kind.INT.stackSlots + Kind.WORD.stackSlots;
+                    break;
+                }
+                default: {
+                    throw ProgramError.unexpected();
+                }
+            }
+            nativeFunctionDescriptor.append(nativeParameterDescriptors);
+            nativeFunctionArgSlots += nativeParameterSlots;
+            parameterLocalIndex += kind.stackSlots;
+        }
+
+        ObjectConstant nf = createObjectConstant(classMethodActor.nativeFunction);
+        ldc(nf);
+        invokevirtual(criticalAddress, 1, 1);
+
+        if (NativeInterfaces.needsPrologueAndEpilogue(classMethodActor)) {
+            ldc(nf);
+            invokestatic(nativeCallPrologue, 1, 0);
+        }
+
+        callnative(SignatureDescriptor.create(nativeFunctionDescriptor.append(')').append(sig.resultDescriptor()).toString()), nativeFunctionArgSlots, resultKind.stackSlots);
+
+        if (NativeInterfaces.needsPrologueAndEpilogue(classMethodActor)) {
+            invokestatic(nativeCallEpilogue, 0, 0);
+        }
+
+        // Release the pinned arrays
+        parameterLocalIndex = 0;
+        for (int i = 0; i < sig.numberOfParameters(); i++) {
+            final Kind<?> kind = sig.parameterDescriptorAt(i).toKind();
+            if (kind.isReference) {
+                aload(parameterLocalIndex);
+                aload(elementsLocals[i]);
+                invokestatic(criticalUnpinArray, 2, 0);
+            }
+            parameterLocalIndex += kind.stackSlots;
+        }
+
+        logJniExit();
+        return_(resultKind);
+    }
+
     private void logJni(FieldRefConstant callType) {
         getstatic(jniLogger);
         invokevirtual(enabled, 1, 1);
@@ -345,7 +345,7 @@ public abstract class VMLog implements Heap.GCCallback {
 
     /**
      * Phase specific initialization.
-     * Only called for BOOTSTRAPPING, PRIMORDIAL, TERMINATING.
+     * Only called for BOOTSTRAPPING, PRIMORDIAL, STARTING, TERMINATING.
      * @param phase the phase
      */
     public void initialize(MaxineVM.Phase phase) {
@@ -419,12 +419,26 @@ public abstract class VMLog implements Heap.GCCallback {
         return loggers[id - 1];
     }
 
+    /**
+     * Returns the loggers registered with this log, indexed by {@link VMLogger#loggerId} {@code - 1}.
+     */
+    public VMLogger[] loggers() {
+        return loggers;
+    }
+
     /**
      * Called when a new thread is started so any thread-specific log state can be setup.
      */
     public void threadStart() {
     }
 
+    /**
+     * Called when the current thread is terminating, after it has been removed from {@link VmThreadMap#ACTIVE},
+     * so any thread-specific log state can be released. The thread must not log anything after this call.
+     */
+    public void threadTerminating() {
+    }
+
     /**
      * Returns the singleton default instance uses for general logging.
      */
@@ -451,7 +465,7 @@ public abstract class VMLog implements Heap.GCCallback {
 
     /**
      * Called once the VM is up to check for limitations on logging.
-     *
+     * Also runs the {@link MaxineVM.Phase#STARTING} initialization of the default log.
      */
     public static void checkLogOptions() {
         for (int i = 0; i < vmLog.loggers.length; i++) {
@@ -459,6 +473,7 @@ public abstract class VMLog implements Heap.GCCallback {
                 vmLog.loggers[i].checkOptions();
             }
         }
+        vmLog.initialize(MaxineVM.Phase.STARTING);
     }
 
     /**
@@ -650,6 +665,13 @@ public abstract class VMLog implements Heap.GCCallback {
     public static final int FLUSHMODE_FULL = 4;
     private int flushMode;
 
+    /**
+     * Returns {@code true} if this log has a {@link #flusher} that should be called whenever the log is about to overflow.
+     */
+    protected final boolean flushesWhenFull() {
+        return flusher != null && (flushMode & FLUSHMODE_FULL) != 0;
+    }
+
     /**
       * Flush the contents of the log, using the {@link #flusher}, if the mode matches.
       * N.B. This method should be called when no concurrent activity is expected on the log,
@@ -90,6 +90,12 @@ public class VMLogger {
      */
     final int[] operationRefMaps;
 
+    /**
+     * The kinds of the arguments of each operation, see {@link VMLoggerGenerator#argKinds}, for decoding
+     * records outside the VM. {@code null} if the logger was not generated from a {@link VMLoggerInterface}.
+     */
+    public final String[][] operationArgKinds;
+
     /**
      * The {@link VMLog} used by this logger.
      */
@@ -113,6 +119,7 @@ public class VMLogger {
         this.name = name;
         this.numOps = numOps;
         this.operationRefMaps = operationRefMaps;
+        this.operationArgKinds = VMLoggerGenerator.argKinds(getClass());
         loggerId = nextLoggerId++;
         logOp = new BitSet(numOps);
         logOpCLI = new BitSet(numOps);
@@ -150,6 +157,7 @@ public class VMLogger {
         this.name = "NULL";
         this.numOps = 0;
         this.operationRefMaps = null;
+        this.operationArgKinds = null;
         loggerId = -1;
         logOption = traceOption = null;
         logIncludeOption = logExcludeOption = null;
@@ -174,6 +182,7 @@ public class VMLogger {
         this.name = name;
         this.numOps = numOps;
         this.operationRefMaps = operationRefMaps;
+        this.operationArgKinds = null;
         logOp = new BitSet(numOps);
         logOpCLI = null;
         for (int i = 0; i < numOps; i++) {
@@ -200,6 +209,13 @@ public class VMLogger {
         this.vmLog = vmLog;
     }
 
+    /**
+     * Returns the number of distinct operations that can be logged.
+     */
+    public int numOps() {
+        return numOps;
+    }
+
     /**
      * Provides a mnemonic name for the given operation.
      * Default is {@code OpN}.
@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.log.hosted;
+
+import java.io.*;
+import java.nio.*;
+import java.util.*;
+
+import com.sun.max.lang.*;
+import com.sun.max.vm.log.VMLog.Record;
+import com.sun.max.vm.log.nat.thread.fix.*;
+
+/**
+ * Prints the contents of a binary log file written by {@link VMLogFileWriter} as text, one record per line
+ * in id order. Logger and operation names, and the kinds of the operation arguments, are taken from the
+ * {@link com.sun.max.vm.log.VMLogger} metadata in the file header, so no VM image is needed.
+ *
+ * The file is read as a stream, so its size is not limited by the heap. Records are put back in id order
+ * through a window of {@code -window} records (default {@value #DEFAULT_WINDOW}), which needs to be larger
+ * than the number of records written between two drains of the writer for the order to be exact.
+ *
+ * Usage: {@code VMLogFileDecoder [-window n] file}
+ */
+public class VMLogFileDecoder {
+
+    public static final int DEFAULT_WINDOW = 1 << 20;
+
+    private static class DecodedRecord implements Comparable<DecodedRecord> {
+        final int header;
+        final int uuid;
+        final long[] args;
+
+        DecodedRecord(int header, int uuid, long[] args) {
+            this.header = header;
+            this.uuid = uuid;
+            this.args = args;
+        }
+
+        public int compareTo(DecodedRecord other) {
+            return uuid < other.uuid ? -1 : (uuid == other.uuid ? 0 : 1);
+        }
+    }
+
+    private final Map<Integer, String> loggerNames = new HashMap<Integer, String>();
+    private final Map<Integer, String[]> operationNames = new HashMap<Integer, String[]>();
+    private final Map<Integer, String[][]> operationArgKinds = new HashMap<Integer, String[][]>();
+    private final PriorityQueue<DecodedRecord> window = new PriorityQueue<DecodedRecord>();
+    private final int windowSize;
+    private long lost;
+
+    public VMLogFileDecoder(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int windowSize = DEFAULT_WINDOW;
+        String path = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-window") && i + 1 < args.length) {
+                windowSize = Integer.parseInt(args[++i]);
+            } else if (path == null) {
+                path = args[i];
+            } else {
+                path = null;
+                break;
+            }
+        }
+        if (path == null || windowSize <= 0) {
+            System.err.println("usage: VMLogFileDecoder [-window n] file");
+            System.exit(1);
+        }
+        VMLogFileDecoder decoder = new VMLogFileDecoder(windowSize);
+        PrintStream out = new PrintStream(new BufferedOutputStream(System.out));
+        decoder.decode(new File(path), out);
+        out.flush();
+    }
+
+    /**
+     * Reads {@code file} and prints its records to {@code out}.
+     */
+    public void decode(File file, PrintStream out) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+        try {
+            if (data.readInt() != VMLogFileWriter.MAGIC) {
+                throw new IOException(file + " is not a VMLog file");
+            }
+            int version = data.readInt();
+            if (version != 1 && version != VMLogFileWriter.VERSION) {
+                throw new IOException(file + " has unsupported version " + version);
+            }
+            boolean bigEndian = data.readBoolean();
+            int wordSize = data.readInt();
+            readLoggers(data, version);
+
+            byte[] bytes = new byte[2 * Ints.SIZE + Record.MAX_ARGS * wordSize];
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            buffer.order(bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+            while (readFully(data, bytes, 0, 2 * Ints.SIZE)) {
+                int header = buffer.getInt(0);
+                if (Record.isFree(header)) {
+                    lost += buffer.getInt(Ints.SIZE);
+                    continue;
+                }
+                int uuid = buffer.getInt(Ints.SIZE);
+                long[] args = new long[Math.min(Record.getArgCount(header), Record.MAX_ARGS)];
+                if (!readFully(data, bytes, 2 * Ints.SIZE, args.length * wordSize)) {
+                    // truncated by a crash while writing
+                    break;
+                }
+                for (int i = 0; i < args.length; i++) {
+                    int offset = 2 * Ints.SIZE + i * wordSize;
+                    args[i] = wordSize == 8 ? buffer.getLong(offset) : buffer.getInt(offset) & 0xFFFFFFFFL;
+                }
+                window.add(new DecodedRecord(header, uuid, args));
+                if (window.size() > windowSize) {
+                    print(out, window.remove());
+                }
+            }
+        } finally {
+            data.close();
+        }
+        while (!window.isEmpty()) {
+            print(out, window.remove());
+        }
+        if (lost != 0) {
+            out.println(lost + " records were overwritten before they could be written to the file");
+        }
+    }
+
+    private void readLoggers(DataInputStream data, int version) throws IOException {
+        int loggerCount = data.readInt();
+        for (int i = 0; i < loggerCount; i++) {
+            int loggerId = data.readInt();
+            loggerNames.put(loggerId, data.readUTF());
+            String[] ops = new String[data.readInt()];
+            String[][] argKinds = new String[ops.length][];
+            for (int op = 0; op < ops.length; op++) {
+                ops[op] = data.readUTF();
+                int argCount = version == 1 ? -1 : data.readInt();
+                if (argCount >= 0) {
+                    argKinds[op] = new String[argCount];
+                    for (int arg = 0; arg < argCount; arg++) {
+                        argKinds[op][arg] = data.readUTF();
+                    }
+                }
+            }
+            operationNames.put(loggerId, ops);
+            operationArgKinds.put(loggerId, argKinds);
+        }
+    }
+
+    /**
+     * Reads exactly {@code length} bytes unless the end of the file is reached first.
+     *
+     * @return {@code false} if the end of the file was reached
+     */
+    private static boolean readFully(InputStream in, byte[] bytes, int offset, int length) throws IOException {
+        int n = 0;
+        while (n < length) {
+            int count = in.read(bytes, offset + n, length - n);
+            if (count < 0) {
+                return false;
+            }
+            n += count;
+        }
+        return true;
+    }
+
+    private void print(PrintStream out, DecodedRecord r) {
+        int loggerId = Record.getLoggerId(r.header);
+        int op = Record.getOperation(r.header);
+        String loggerName = loggerNames.get(loggerId);
+        String[] ops = operationNames.get(loggerId);
+        String[][] argKinds = operationArgKinds.get(loggerId);
+        String[] opArgKinds = argKinds == null || op >= argKinds.length ? null : argKinds[op];
+        out.print(r.uuid);
+        out.print(" T");
+        out.print(Record.getThreadId(r.header));
+        out.print(' ');
+        out.print(loggerName == null ? "Logger" + loggerId : loggerName);
+        out.print('.');
+        out.print(ops == null || op >= ops.length ? "Op " + op : ops[op]);
+        for (int i = 0; i < r.args.length; i++) {
+            out.print(' ');
+            out.print(formatArg(opArgKinds == null || i >= opArgKinds.length ? "W" : opArgKinds[i], r.args[i]));
+        }
+        out.println();
+    }
+
+    /**
+     * Formats an argument according to its kind, see {@link VMLoggerGenerator#argKinds}.
+     */
+    private static String formatArg(String kind, long arg) {
+        switch (kind.charAt(0)) {
+            case 'Z':
+                return arg != 0 ? "true" : "false";
+            case 'C':
+                return "'" + (char) arg + "'";
+            case 'S':
+                return Short.toString((short) arg);
+            case 'I':
+                return Integer.toString((int) arg);
+            case 'J':
+                return Long.toString(arg);
+            case 'F':
+                return Float.toString(Float.intBitsToFloat((int) arg));
+            case 'D':
+                return Double.toString(Double.longBitsToDouble(arg));
+            case 'T':
+                return "T" + (int) arg;
+            case 'K':
+                return "class#" + (int) arg;
+            case 'M':
+                return "method@0x" + Long.toHexString(arg);
+            case 'O':
+                return arg == 0 ? "null" : "object@0x" + Long.toHexString(arg);
+            case 'P':
+                return "code@0x" + Long.toHexString(arg);
+            case 'E': {
+                String[] names = kind.substring(1).split(",");
+                int ordinal = (int) arg;
+                return ordinal >= 0 && ordinal < names.length ? names[ordinal] : "ordinal " + ordinal;
+            }
+            default:
+                return "0x" + Long.toHexString(arg);
+        }
+    }
+}
@@ -35,6 +35,7 @@ import com.sun.max.program.*;
 import com.sun.max.unsafe.*;
 import com.sun.max.vm.actor.*;
 import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.actor.member.*;
 import com.sun.max.vm.log.*;
 import com.sun.max.vm.thread.*;
 
@@ -774,6 +775,97 @@ public class VMLoggerGenerator {
         return result;
     }
 
+    /**
+     * Describes how the arguments of each operation of a generated logger are encoded in a log record, so
+     * that they can be decoded without the VM, e.g. by {@link VMLogFileDecoder}. The kind of an argument is
+     * one of the following, with the constant names of an enum appended after the {@code E}:
+     * <pre>
+     *     Z boolean, C char, S short, I int, J long, F float, D double, T thread id, K class actor id,
+     *     M method id, O object origin, P tagged code pointer, E enum ordinal, W raw word
+     * </pre>
+     *
+     * @param loggerClass a subclass of a logger generated from a {@link VMLoggerInterface}
+     * @return the argument kinds indexed by operation, or {@code null} if {@code loggerClass} was not generated
+     */
+    public static String[][] argKinds(Class<?> loggerClass) {
+        Class<?> autoClass = loggerClass;
+        while (autoClass != null && !(autoClass.getSimpleName().endsWith("Auto") && autoClass.getEnclosingClass() != null)) {
+            autoClass = autoClass.getSuperclass();
+        }
+        if (autoClass == null) {
+            return null;
+        }
+        Class<?> source = autoClass.getEnclosingClass();
+        String interfaceName = autoClass.getSimpleName().substring(0, autoClass.getSimpleName().length() - "Auto".length()) + "Interface";
+        for (Class<?> loggerInterface : findLoggerInterfaces(source)) {
+            if (loggerInterface.getSimpleName().equals(interfaceName)) {
+                Method[] methods = sort(loggerInterface.getDeclaredMethods());
+                String[][] result = new String[methods.length][];
+                for (int op = 0; op < methods.length; op++) {
+                    Class<?>[] parameters = methods[op].getParameterTypes();
+                    result[op] = new String[parameters.length];
+                    for (int i = 0; i < parameters.length; i++) {
+                        result[op][i] = argKind(source, parameters[i]);
+                    }
+                }
+                return result;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the kind of an argument of type {@code argClass}, following the choice of encoding in the generated
+     * {@code log} methods. Arguments encoded by a custom method of {@code source} are described as raw words.
+     */
+    private static String argKind(Class<?> source, Class<?> argClass) {
+        if (Word.class.isAssignableFrom(argClass)) {
+            return "W";
+        } else if (Hub.class.isAssignableFrom(argClass)) {
+            return "K";
+        }
+        Class<?> standardArgClass = isStandardArgMethodX(argClass, true, VMLogger.class);
+        if (standardArgClass == null) {
+            if (isStandardArgMethodX(argClass, true, source) != null) {
+                return "W";
+            }
+            standardArgClass = argClass.isEnum() ? argClass : Object.class;
+        }
+        if (standardArgClass.isEnum()) {
+            StringBuilder sb = new StringBuilder("E");
+            for (Object constant : standardArgClass.getEnumConstants()) {
+                if (sb.length() > 1) {
+                    sb.append(',');
+                }
+                sb.append(((Enum) constant).name());
+            }
+            return sb.toString();
+        } else if (standardArgClass == boolean.class) {
+            return "Z";
+        } else if (standardArgClass == char.class) {
+            return "C";
+        } else if (standardArgClass == short.class) {
+            return "S";
+        } else if (standardArgClass == int.class) {
+            return "I";
+        } else if (standardArgClass == long.class) {
+            return "J";
+        } else if (standardArgClass == float.class) {
+            return "F";
+        } else if (standardArgClass == double.class) {
+            return "D";
+        } else if (standardArgClass == VmThread.class) {
+            return "T";
+        } else if (standardArgClass == ClassActor.class) {
+            return "K";
+        } else if (standardArgClass == MethodActor.class) {
+            return "M";
+        } else if (standardArgClass == CodePointer.class) {
+            return "P";
+        }
+        return "O";
+    }
+
     private static VMLoggerInterface getVMLoggerInterface(Class klass) {
         Annotation[] annotations = klass.getAnnotations();
         for (Annotation annotation : annotations) {
@@ -210,7 +210,7 @@ public abstract class VMLogNative extends VMLog {
             primordialNativeRecord = new NativeRecord(nativeRecordArgsOffset);
             defaultNativeRecordSize = primordialNativeRecord.defaultSize();
             logSize = getLogSize();
-            primordialLogBufferArray = new byte[logSize];
+            primordialLogBufferArray = new byte[getBufferSize()];
         } else if (phase == MaxineVM.Phase.PRIMORDIAL) {
             logBuffer = Reference.fromJava(primordialLogBufferArray).toOrigin().plus(byteDataOffset);
             vmLogNativeRecordTL.store3(Reference.fromJava(primordialNativeRecord));
@@ -258,5 +258,11 @@ public abstract class VMLogNative extends VMLog {
      */
     protected abstract int getLogSize();
 
+    /**
+     * The size in bytes of the memory allocated for a log buffer, which by default is just the records.
+     */
+    protected int getBufferSize() {
+        return logSize;
+    }
 
 }
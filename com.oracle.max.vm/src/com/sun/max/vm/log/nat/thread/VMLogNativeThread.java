@@ -117,8 +117,8 @@ public abstract class VMLogNativeThread extends VMLogNative {
     }
 
     @NEVER_INLINE
-    private Pointer allocateBuffer() {
-        Pointer buffer = Memory.allocate(Size.fromInt(logSize));
+    protected Pointer allocateBuffer() {
+        Pointer buffer = Memory.allocate(Size.fromInt(getBufferSize()));
         vmLogBufferTL.store3(buffer);
         return buffer;
     }
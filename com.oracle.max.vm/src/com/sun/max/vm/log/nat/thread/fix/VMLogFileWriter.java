@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.log.nat.thread.fix;
+
+import java.io.*;
+import java.nio.*;
+
+import com.sun.max.lang.*;
+import com.sun.max.memory.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.log.*;
+import com.sun.max.vm.log.VMLog.Record;
+
+/**
+ * A daemon thread that periodically drains the buffers of a {@link VMLogNativeThreadFixed} log to the file
+ * given by {@code -XX:VMLogFile}, so that the records of all threads survive for offline analysis.
+ *
+ * The file starts with a header describing the registered loggers:
+ * <pre>
+ *     int magic, int version, boolean bigEndian, int wordSize, int loggerCount,
+ *     loggerCount * (int loggerId, UTF name, int numOps, numOps * (UTF operationName, int argCount, argCount * UTF argKind))
+ * </pre>
+ * where the argument kinds are those of {@link VMLogger#operationArgKinds}, and {@code argCount} is {@code -1} for
+ * a logger without them.
+ * This is written with {@link DataOutputStream} so it is always big endian. The rest of the file is a
+ * sequence of records in the byte order given in the header, each of which is a copy of the native record:
+ * <pre>
+ *     int header, int uuid, argCount * word arg
+ * </pre>
+ * where {@code argCount} is taken from the header, see {@link Record}. A header with {@link Record#FREE} set
+ * is instead followed by an {@code int} counting records that were overwritten before they could be drained.
+ * Records appear in order per thread, but threads are interleaved in chunks, so a reader must sort by
+ * {@code uuid} to recover the global order.
+ */
+public final class VMLogFileWriter extends Thread {
+
+    public static final int MAGIC = 0x564D4C47;
+    public static final int VERSION = 2;
+
+    private static final VMStringOption fileOption = VMOptions.register(new VMStringOption("-XX:VMLogFile=", false, null,
+        "Write the VMLog records of all threads to the given file, in binary form."), MaxineVM.Phase.STARTING);
+
+    private static int VMLogFileInterval = 100;
+
+    static {
+        VMOptions.addFieldOption("-XX:", "VMLogFileInterval", VMLogFileWriter.class,
+            "Interval in milliseconds between drains of the VMLog buffers to the -XX:VMLogFile file.", MaxineVM.Phase.STARTING);
+    }
+
+    private static final int STAGING_SIZE = 64 * 1024;
+
+    private final VMLogNativeThreadFixed vmLog;
+    private final String path;
+    private OutputStream out;
+    private final byte[] staging = new byte[STAGING_SIZE];
+    private final ByteBuffer stagingBuffer = ByteBuffer.wrap(staging).order(ByteOrder.nativeOrder());
+    private int position;
+    private int copySize;
+
+    private VMLogFileWriter(VMLogNativeThreadFixed vmLog, String path, OutputStream out) {
+        super("VMLogFileWriter");
+        setDaemon(true);
+        this.vmLog = vmLog;
+        this.path = path;
+        this.out = out;
+    }
+
+    /**
+     * Opens the file given by {@code -XX:VMLogFile}, writes its header and starts draining {@code vmLog} to it.
+     *
+     * @return the started writer, or {@code null} if the option was not specified or the file could not be created
+     */
+    static VMLogFileWriter create(VMLogNativeThreadFixed vmLog) {
+        String path = fileOption.getValue();
+        if (path == null) {
+            return null;
+        }
+        try {
+            OutputStream out = new FileOutputStream(path);
+            out.write(header(vmLog));
+            VMLogFileWriter writer = new VMLogFileWriter(vmLog, path, out);
+            writer.start();
+            return writer;
+        } catch (IOException ex) {
+            Log.println("Could not create VMLog file " + path + ": " + ex.getMessage());
+            return null;
+        }
+    }
+
+    private static byte[] header(VMLog vmLog) throws IOException {
+        VMLogger[] loggers = vmLog.loggers();
+        int loggerCount = 0;
+        for (VMLogger logger : loggers) {
+            if (logger != null) {
+                loggerCount++;
+            }
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeBoolean(ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN);
+        data.writeInt(Word.size());
+        data.writeInt(loggerCount);
+        for (VMLogger logger : loggers) {
+            if (logger != null) {
+                data.writeInt(logger.loggerId);
+                data.writeUTF(logger.name);
+                data.writeInt(logger.numOps());
+                for (int op = 0; op < logger.numOps(); op++) {
+                    data.writeUTF(logger.operationName(op));
+                    String[] argKinds = logger.operationArgKinds == null ? null : logger.operationArgKinds[op];
+                    if (argKinds == null) {
+                        data.writeInt(-1);
+                    } else {
+                        data.writeInt(argKinds.length);
+                        for (String argKind : argKinds) {
+                            data.writeUTF(argKind);
+                        }
+                    }
+                }
+            }
+        }
+        data.flush();
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            try {
+                Thread.sleep(VMLogFileInterval);
+            } catch (InterruptedException ex) {
+            }
+            if (!drain()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Drains all buffers to the file.
+     *
+     * @return {@code false} if the file has been closed
+     */
+    private synchronized boolean drain() {
+        if (out == null) {
+            return false;
+        }
+        try {
+            vmLog.drain(this);
+            writeStaging();
+            return true;
+        } catch (IOException ex) {
+            Log.println("Error writing VMLog file " + path + ": " + ex.getMessage());
+            closeFile();
+            return false;
+        }
+    }
+
+    /**
+     * Performs a final drain and closes the file.
+     */
+    synchronized void close() {
+        if (drain()) {
+            closeFile();
+        }
+    }
+
+    private void closeFile() {
+        try {
+            out.close();
+        } catch (IOException ex) {
+        }
+        out = null;
+    }
+
+    private void writeStaging() throws IOException {
+        out.write(staging, 0, position);
+        position = 0;
+    }
+
+    /**
+     * Copies the native record at {@code record} to the staging buffer, pending a call to {@link #commitRecord()}.
+     */
+    void copyRecord(Pointer record, int size) throws IOException {
+        if (position + size > staging.length) {
+            writeStaging();
+        }
+        Memory.readBytes(record, size, staging, position);
+        copySize = size;
+    }
+
+    /**
+     * Keeps the record copied by the last call to {@link #copyRecord}.
+     */
+    void commitRecord() {
+        position += copySize;
+    }
+
+    /**
+     * Notes that {@code count} records were overwritten before they could be drained.
+     */
+    void writeLost(int count) throws IOException {
+        if (position + 2 * Ints.SIZE > staging.length) {
+            writeStaging();
+        }
+        stagingBuffer.putInt(position, Record.FREE);
+        stagingBuffer.putInt(position + Ints.SIZE, count);
+        position += 2 * Ints.SIZE;
+    }
+}
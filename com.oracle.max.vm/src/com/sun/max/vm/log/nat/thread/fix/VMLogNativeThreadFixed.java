@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.log.nat.thread.fix;
+
+import java.io.*;
+
+import com.oracle.max.cri.intrinsics.*;
+import com.sun.max.annotate.*;
+import com.sun.max.atomic.*;
+import com.sun.max.memory.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.heap.*;
+import com.sun.max.vm.log.nat.thread.*;
+import com.sun.max.vm.thread.*;
+
+/**
+ * Per-thread log buffer with fixed size records, cheap enough to leave loggers enabled permanently.
+ *
+ * Every record occupies {@link #defaultNativeRecordSize} bytes whatever its argument count, so a record never
+ * straddles the end of the buffer and claiming the next slot is a matter of bumping {@link #nextOffset}.
+ * The only writer of a buffer is its owning thread, so logging takes neither locks nor atomic instructions.
+ *
+ * A trailer after the records holds the number of records ever written to the buffer, which is incremented
+ * <i>before</i> a slot is overwritten. This lets another thread copy records out of the buffer while the owner
+ * continues to log: the reader re-reads the count after copying a record and discards the copy if the owner
+ * has lapped it in the meantime. That is how {@link VMLogFileWriter} drains the buffers of all threads to a
+ * binary file in the background when {@code -XX:VMLogFile} is specified.
+ *
+ * The trailers also link all buffers into a list so that they can be drained without holding
+ * {@link VmThreadMap#THREAD_LOCK}, including those of threads that have since terminated. A terminating
+ * thread retires its buffer, which is freed once it has been drained.
+ *
+ * The thread locals have the same names as those of the standard variable length log, and are maintained
+ * as described in {@link VMLogNativeThread}, so the log can be viewed in the Inspector.
+ */
+public class VMLogNativeThreadFixed extends VMLogNativeThread {
+    public static final String VMLOG_RECORD_NAME = "VMLOG_RECORD";
+    public static final String VMLOG_BUFFER_NAME = "VMLOG_BUFFER";
+    public static final String VMLOG_BUFFER_OFFSETS_NAME = "VMLOG_BUFFER_OFFSETS";
+    public static final VmThreadLocal VMLOG_RECORD = new VmThreadLocal(VMLOG_RECORD_NAME, true, "VMLog.Record");
+    public static final VmThreadLocal VMLOG_BUFFER = new VmThreadLocal(VMLOG_BUFFER_NAME, false, "VMLog buffer");
+    public static final VmThreadLocal VMLOG_BUFFER_OFFSETS = new VmThreadLocal(VMLOG_BUFFER_OFFSETS_NAME, false, "VMLog buffer first/next offsets");
+
+    /*
+     * Layout of the trailer that follows the records of a buffer.
+     */
+    public static final int NEXT_BUFFER = 0;
+    public static final int WRITE_COUNT = 8;
+    public static final int DRAIN_COUNT = 16;
+    public static final int FLUSH_COUNT = 24;
+    public static final int STATE = 32;
+    public static final int TRAILER_SIZE = 40;
+
+    /**
+     * Set in {@link #STATE} once the owning thread has terminated.
+     */
+    public static final int RETIRED = 1;
+
+    /**
+     * Set in {@link #STATE} for the buffer of the primordial thread, which is in the boot image and cannot be freed.
+     */
+    public static final int PRIMORDIAL = 2;
+
+    /**
+     * Head of the list of all buffers, linked through {@link #NEXT_BUFFER}.
+     * Buffers are only ever pushed by the thread allocating them, and only unlinked by {@link #drain}.
+     */
+    private final AtomicWord buffers = new AtomicWord();
+
+    /**
+     * The writer draining the buffers to a file, or {@code null} if {@code -XX:VMLogFile} was not specified.
+     */
+    private VMLogFileWriter fileWriter;
+
+    @Override
+    public void initialize(MaxineVM.Phase phase) {
+        super.initialize(phase);
+        if (MaxineVM.isHosted() && phase == MaxineVM.Phase.BOOTSTRAPPING) {
+            setNativeRecordThreadLocal(VMLOG_RECORD);
+            setBufferThreadLocals(VMLOG_BUFFER, VMLOG_BUFFER_OFFSETS);
+        } else if (phase == MaxineVM.Phase.PRIMORDIAL) {
+            Pointer buffer = logBuffer.asPointer();
+            buffer.writeInt(logSize + STATE, PRIMORDIAL);
+            buffers.set(buffer);
+        } else if (phase == MaxineVM.Phase.STARTING) {
+            fileWriter = VMLogFileWriter.create(this);
+        } else if (phase == MaxineVM.Phase.TERMINATING) {
+            if (fileWriter != null) {
+                fileWriter.close();
+            }
+        }
+    }
+
+    @Override
+    public void threadStart() {
+        // we want to allocate the NativeRecord early;
+        // crucial for the VMOperation thread, otherwise GC logging will fail
+        if (!MaxineVM.isPrimordialOrPristine()) {
+            getNativeRecord(VmThread.currentTLA());
+        }
+    }
+
+    @Override
+    public void threadTerminating() {
+        Pointer buffer = vmLogBufferTL.load(VmThread.currentTLA());
+        setThreadState(false);
+        if (buffer.isNotZero()) {
+            // all records must be visible before the drainer may free the buffer
+            MemoryBarriers.barrier(MemoryBarriers.STORE_STORE);
+            buffer.writeInt(logSize + STATE, buffer.readInt(logSize + STATE) | RETIRED);
+        }
+    }
+
+    @Override
+    protected int getBufferSize() {
+        return logSize + TRAILER_SIZE;
+    }
+
+    @Override
+    protected Pointer allocateBuffer() {
+        Pointer buffer = super.allocateBuffer();
+        Pointer trailer = buffer.plus(logSize);
+        Memory.clearWords(trailer, TRAILER_SIZE / Word.size());
+        Word head;
+        do {
+            head = buffers.get();
+            trailer.writeWord(NEXT_BUFFER, head);
+        } while (!buffers.compareAndSet(head, buffer));
+        return buffer;
+    }
+
+    @Override
+    @NO_SAFEPOINT_POLLS("atomic")
+    protected Record getRecord(int argCount) {
+        int uuid = getUniqueId();
+        Pointer tla = VmThread.currentTLA();
+        Pointer buffer = getBuffer(tla);
+        Pointer trailer = buffer.plus(logSize);
+        long writeCount = trailer.readLong(WRITE_COUNT);
+        if (writeCount - trailer.readLong(FLUSH_COUNT) >= logEntries && flushesWhenFull()) {
+            flush(FLUSHMODE_FULL, VmThread.fromTLA(tla));
+        }
+
+        long offsets = vmLogBufferOffsetsTL.load(tla).toLong();
+        int nextOffset = nextOffset(offsets);
+        long wrap = offsets & WRAPPED;
+        int newNextOffset = nextOffset + defaultNativeRecordSize;
+        if (newNextOffset == logSize) {
+            newNextOffset = 0;
+            wrap = WRAPPED;
+        }
+        // once the buffer has wrapped, the oldest record is the next one to be overwritten
+        long firstOffsetAndWrap = wrap == 0 ? 0 : ((long) newNextOffset) << FIRST_OFFSET_SHIFT | wrap;
+        vmLogBufferOffsetsTL.store3(tla, Address.fromLong(firstOffsetAndWrap | newNextOffset));
+
+        // claim the slot before overwriting it, so that a concurrent drain can detect the overwrite
+        trailer.writeLong(WRITE_COUNT, writeCount + 1);
+        MemoryBarriers.barrier(MemoryBarriers.STORE_STORE);
+
+        Pointer recordAddress = buffer.plus(nextOffset);
+        recordAddress.writeInt(ID_OFFSET, uuid);
+        NativeRecord record = getNativeRecord(tla);
+        record.address = recordAddress;
+        return record;
+    }
+
+    @Override
+    public void scanLog(Pointer tla, PointerIndexVisitor visitor) {
+        Pointer buffer = vmLogBufferTL.load(tla);
+        if (buffer.isZero()) {
+            return;
+        }
+        long writeCount = buffer.readLong(logSize + WRITE_COUNT);
+        if (writeCount == 0) {
+            // nothing to scan (and therefore possibly no NativeRecord yet)
+            return;
+        }
+        int end = writeCount < logEntries ? (int) writeCount * defaultNativeRecordSize : logSize;
+        NativeRecord r = getNativeRecord(tla);
+        // preserve the address in case the GC was provoked by a flush that is using the NativeRecord
+        Pointer saveAddress = r.address;
+        for (int offset = 0; offset < end; offset += defaultNativeRecordSize) {
+            r.address = buffer.plus(offset);
+            scanArgs(r, r.address.plus(ARGS_OFFSET), visitor);
+        }
+        r.address = saveAddress;
+    }
+
+    @Override
+    protected void flushRecords(VmThread vmThread) {
+        Pointer tla = vmThread.tla();
+        Pointer buffer = vmLogBufferTL.load(tla);
+        if (buffer.isZero()) {
+            return;
+        }
+        Pointer trailer = buffer.plus(logSize);
+        long writeCount = trailer.readLong(WRITE_COUNT);
+        long index = Math.max(trailer.readLong(FLUSH_COUNT), writeCount - logEntries);
+        NativeRecord r = getNativeRecord(tla);
+        for (; index < writeCount; index++) {
+            r.address = buffer.plus((int) (index % logEntries) * defaultNativeRecordSize);
+            flusher.flushRecord(vmThread, r, r.address.readInt(ID_OFFSET));
+        }
+        trailer.writeLong(FLUSH_COUNT, writeCount);
+    }
+
+    /**
+     * Copies the records added to every buffer since the last drain to {@code writer}, and frees the
+     * buffers of terminated threads once they are empty. Only called by {@code writer}, with its lock held.
+     *
+     * The latest record of a live thread is left for the next drain as its owner may still be filling it in,
+     * unless the owner is the current thread.
+     */
+    void drain(VMLogFileWriter writer) throws IOException {
+        Pointer currentBuffer = vmLogBufferTL.load(VmThread.currentTLA());
+        Pointer previous = Pointer.zero();
+        Pointer buffer = buffers.get().asPointer();
+        while (buffer.isNotZero()) {
+            Pointer trailer = buffer.plus(logSize);
+            Pointer next = trailer.readWord(NEXT_BUFFER).asPointer();
+            int state = trailer.readInt(STATE);
+            MemoryBarriers.barrier(MemoryBarriers.LOAD_LOAD);
+            long writeCount = trailer.readLong(WRITE_COUNT);
+            long end = (state & RETIRED) != 0 || buffer.equals(currentBuffer) ? writeCount : writeCount - 1;
+            long index = trailer.readLong(DRAIN_COUNT);
+            int lost = 0;
+            if (index < end - logEntries) {
+                lost = (int) (end - logEntries - index);
+                index = end - logEntries;
+            }
+            for (; index < end; index++) {
+                Pointer record = buffer.plus((int) (index % logEntries) * defaultNativeRecordSize);
+                int argCount = Record.getArgCount(record.readInt(0));
+                if (argCount <= Record.MAX_ARGS) {
+                    writer.copyRecord(record, ARGS_OFFSET + argCount * Word.size());
+                }
+                MemoryBarriers.barrier(MemoryBarriers.LOAD_LOAD);
+                if (argCount > Record.MAX_ARGS || trailer.readLong(WRITE_COUNT) - index > logEntries) {
+                    // overwritten while being copied
+                    lost++;
+                } else {
+                    writer.commitRecord();
+                }
+            }
+            trailer.writeLong(DRAIN_COUNT, index);
+            if (lost != 0) {
+                writer.writeLost(lost);
+            }
+
+            if ((state & (RETIRED | PRIMORDIAL)) == RETIRED && index == writeCount) {
+                previous = unlink(previous, buffer, next);
+                Memory.deallocate(buffer);
+            } else {
+                previous = buffer;
+            }
+            buffer = next;
+        }
+    }
+
+    /**
+     * Removes {@code buffer} from the list of buffers.
+     *
+     * @param previous the buffer before {@code buffer} in the list, or zero if it was the head when last seen
+     * @return the buffer now before {@code next} in the list
+     */
+    private Pointer unlink(Pointer previous, Pointer buffer, Pointer next) {
+        if (previous.isZero()) {
+            if (buffers.compareAndSet(buffer, next)) {
+                return previous;
+            }
+            // other buffers have been pushed in the meantime, so it is no longer the head
+            previous = buffers.get().asPointer();
+            while (!previous.readWord(logSize + NEXT_BUFFER).equals(buffer)) {
+                previous = previous.readWord(logSize + NEXT_BUFFER).asPointer();
+            }
+        }
+        previous.writeWord(logSize + NEXT_BUFFER, next);
+        return previous;
+    }
+
+}
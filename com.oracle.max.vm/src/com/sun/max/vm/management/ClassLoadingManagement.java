@@ -24,6 +24,7 @@ package com.sun.max.vm.management;
 
 import com.sun.max.vm.*;
 import com.sun.max.vm.type.*;
+import com.sun.max.vm.verifier.*;
 
 /**
  * This class provides the entry point to all the class loading management functions in Maxine.
@@ -43,4 +44,18 @@ public class ClassLoadingManagement {
     public static int getUnloadedClassCount() {
         return ClassRegistry.getUnloadedClassCount();
     }
+
+    /**
+     * Gets the number of classes that skipped verification because the {@link VerificationCache} proved them.
+     */
+    public static int getVerificationCacheHits() {
+        return VerificationCache.hits();
+    }
+
+    /**
+     * Gets the number of cacheable classes that had to be verified because the {@link VerificationCache} did not know them.
+     */
+    public static int getVerificationCacheMisses() {
+        return VerificationCache.misses();
+    }
 }
@@ -0,0 +1,405 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.management;
+
+import static com.sun.max.vm.VMOptions.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+
+import com.oracle.max.cri.intrinsics.*;
+import com.sun.max.annotate.*;
+import com.sun.max.lang.*;
+import com.sun.max.memory.*;
+import com.sun.max.platform.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.*;
+import com.sun.max.vm.heap.*;
+import com.sun.max.vm.runtime.*;
+import com.sun.max.vm.object.*;
+import com.sun.max.vm.type.*;
+
+/**
+ * The memory holding the performance counters exported through {@link sun.misc.Perf}.
+ * <p>
+ * The layout of the memory is that of HotSpot's {@code hsperfdata} files: a 32-byte prologue followed
+ * by a sequence of entries, each made of a 20-byte header, a NUL-terminated name and the entry's data.
+ * By default the memory is a file in {@code /tmp/hsperfdata_<user>/<pid>} mapped shared into the VM,
+ * so that tools such as {@code jps} and {@code jstat} can read the counters without attaching to the VM.
+ * <p>
+ * The counters maintained by the VM itself are the {@link Counter} constants of this class. They are
+ * updated with plain (non-atomic) stores: a lost update under contention is acceptable for monitoring
+ * and keeps the update cheap enough for paths such as TLAB refills.
+ */
+public final class PerfMemory {
+
+    private PerfMemory() {
+    }
+
+    private static boolean UsePerfData = true;
+
+    static {
+        addFieldOption("-XX:", "UsePerfData", PerfMemory.class,
+            "Export performance counters in a shared memory file readable by jps and jstat.", MaxineVM.Phase.PRISTINE);
+    }
+
+    private static final VMSizeOption perfDataMemorySizeOption = register(new VMSizeOption("-XX:PerfDataMemorySize=", Size.K.times(64),
+        "Size of the memory holding the performance counters."), MaxineVM.Phase.PRISTINE);
+
+    public static final int VARIABILITY_CONSTANT = 1;
+    public static final int VARIABILITY_MONOTONIC = 2;
+    public static final int VARIABILITY_VARIABLE = 3;
+
+    public static final int UNITS_NONE = 1;
+    public static final int UNITS_BYTES = 2;
+    public static final int UNITS_TICKS = 3;
+    public static final int UNITS_EVENTS = 4;
+    public static final int UNITS_STRING = 5;
+    public static final int UNITS_HERTZ = 6;
+
+    /**
+     * The attach modes of {@link sun.misc.Perf#attach(String, int, String)}.
+     */
+    public static final int PERF_MODE_RO = 0;
+    public static final int PERF_MODE_RW = 1;
+
+    private static final int PERFDATA_MAGIC_BYTES = 0xcafec0c0;
+    private static final byte PERFDATA_BIG_ENDIAN = 0;
+    private static final byte PERFDATA_LITTLE_ENDIAN = 1;
+    private static final byte PERFDATA_MAJOR_VERSION = 2;
+    private static final byte PERFDATA_MINOR_VERSION = 0;
+
+    // Offsets of the prologue fields
+    private static final int MAGIC_OFFSET = 0;
+    private static final int BYTE_ORDER_OFFSET = 4;
+    private static final int MAJOR_VERSION_OFFSET = 5;
+    private static final int MINOR_VERSION_OFFSET = 6;
+    private static final int ACCESSIBLE_OFFSET = 7;
+    private static final int USED_OFFSET = 8;
+    private static final int OVERFLOW_OFFSET = 12;
+    private static final int MOD_TIME_STAMP_OFFSET = 16;
+    private static final int ENTRY_OFFSET_OFFSET = 24;
+    private static final int NUM_ENTRIES_OFFSET = 28;
+    private static final int PROLOGUE_SIZE = 32;
+
+    // Offsets of the entry header fields
+    private static final int ENTRY_LENGTH_OFFSET = 0;
+    private static final int NAME_OFFSET_OFFSET = 4;
+    private static final int VECTOR_LENGTH_OFFSET = 8;
+    private static final int DATA_TYPE_OFFSET = 12;
+    private static final int FLAGS_OFFSET = 13;
+    private static final int DATA_UNITS_OFFSET = 14;
+    private static final int DATA_VARIABILITY_OFFSET = 15;
+    private static final int DATA_OFFSET_OFFSET = 16;
+    private static final int ENTRY_HEADER_SIZE = 20;
+
+    private static final byte TYPE_LONG = 'J';
+    private static final byte TYPE_BYTE = 'B';
+    private static final byte FLAG_SUPPORTED = 1;
+
+    private static final String PERFDATA_DIR_PREFIX = "/tmp/hsperfdata_";
+
+    @C_FUNCTION
+    private static native Pointer perfmemory_create(Size size, boolean shared);
+
+    @C_FUNCTION
+    private static native void perfmemory_destroy();
+
+    @C_FUNCTION
+    private static native int perfmemory_vmid();
+
+    /**
+     * Start of the memory, zero until {@link #initialize()} has been called.
+     */
+    private static Pointer start = Pointer.zero();
+    private static int capacity;
+    private static int used;
+    private static int numEntries;
+
+    /**
+     * The names of the entries created so far.
+     */
+    private static final Set<String> names = new HashSet<String>();
+
+    /**
+     * A counter of type {@code long} maintained by the VM.
+     */
+    public static final class Counter {
+        public final String name;
+        final int variability;
+        final int units;
+        final long initialValue;
+
+        /**
+         * Address of the counter's value, zero until the counter has been created.
+         */
+        private Pointer address = Pointer.zero();
+
+        @HOSTED_ONLY
+        Counter(String name, int variability, int units, long initialValue) {
+            this.name = name;
+            this.variability = variability;
+            this.units = units;
+            this.initialValue = initialValue;
+        }
+
+        public long get() {
+            return address.isZero() ? initialValue : address.readLong(0);
+        }
+
+        @INLINE
+        public void set(long value) {
+            final Pointer a = address;
+            if (!a.isZero()) {
+                a.writeLong(0, value);
+            }
+        }
+
+        @INLINE
+        public void add(long delta) {
+            final Pointer a = address;
+            if (!a.isZero()) {
+                a.writeLong(0, a.readLong(0) + delta);
+            }
+        }
+
+        @INLINE
+        public void increment() {
+            add(1);
+        }
+    }
+
+    public static final Counter HRT_FREQUENCY = new Counter("sun.os.hrt.frequency", VARIABILITY_CONSTANT, UNITS_HERTZ, 1000000000L);
+    public static final Counter LOADED_CLASSES = new Counter("java.cls.loadedClasses", VARIABILITY_MONOTONIC, UNITS_EVENTS, 0);
+    public static final Counter UNLOADED_CLASSES = new Counter("java.cls.unloadedClasses", VARIABILITY_MONOTONIC, UNITS_EVENTS, 0);
+    public static final Counter GC_INVOCATIONS = new Counter("sun.gc.collector.0.invocations", VARIABILITY_MONOTONIC, UNITS_EVENTS, 0);
+    public static final Counter GC_TIME = new Counter("sun.gc.collector.0.time", VARIABILITY_MONOTONIC, UNITS_TICKS, 0);
+    public static final Counter GC_LAST_ENTRY_TIME = new Counter("sun.gc.collector.0.lastEntryTime", VARIABILITY_VARIABLE, UNITS_TICKS, 0);
+    public static final Counter GC_LAST_EXIT_TIME = new Counter("sun.gc.collector.0.lastExitTime", VARIABILITY_VARIABLE, UNITS_TICKS, 0);
+    public static final Counter TLAB_FILLS = new Counter("sun.gc.tlab.fills", VARIABILITY_VARIABLE, UNITS_NONE, 0);
+    public static final Counter TOTAL_COMPILES = new Counter("sun.ci.totalCompiles", VARIABILITY_MONOTONIC, UNITS_EVENTS, 0);
+    public static final Counter TOTAL_COMPILE_TIME = new Counter("sun.ci.totalTime", VARIABILITY_MONOTONIC, UNITS_TICKS, 0);
+    public static final Counter SAFEPOINTS = new Counter("sun.rt.safepoints", VARIABILITY_MONOTONIC, UNITS_EVENTS, 0);
+    public static final Counter SAFEPOINT_SYNC_TIME = new Counter("sun.rt.safepointSyncTime", VARIABILITY_MONOTONIC, UNITS_TICKS, 0);
+    public static final Counter SAFEPOINT_TIME = new Counter("sun.rt.safepointTime", VARIABILITY_MONOTONIC, UNITS_TICKS, 0);
+
+    private static final Counter[] vmCounters = {
+        HRT_FREQUENCY, LOADED_CLASSES, UNLOADED_CLASSES, GC_INVOCATIONS, GC_TIME, GC_LAST_ENTRY_TIME, GC_LAST_EXIT_TIME,
+        TLAB_FILLS, TOTAL_COMPILES, TOTAL_COMPILE_TIME, SAFEPOINTS, SAFEPOINT_SYNC_TIME, SAFEPOINT_TIME
+    };
+
+    /**
+     * Records the start of a garbage collection. Called by {@link GCOperation} rather than from a
+     * {@link Heap.GCCallback}, as not every heap scheme invokes the callbacks.
+     */
+    public static void gcStarted() {
+        GC_LAST_ENTRY_TIME.set(ticks());
+    }
+
+    /**
+     * Records the end of a garbage collection started with {@link #gcStarted()}.
+     */
+    public static void gcFinished() {
+        final long now = ticks();
+        GC_LAST_EXIT_TIME.set(now);
+        GC_TIME.add(now - GC_LAST_ENTRY_TIME.get());
+        GC_INVOCATIONS.increment();
+    }
+
+    /**
+     * Gets the value of the high resolution counter in which all {@link #UNITS_TICKS} counters are expressed.
+     * It ticks at the frequency given by {@link #HRT_FREQUENCY}.
+     */
+    public static long ticks() {
+        return System.nanoTime() - MaxineVM.getStartupTimeNano();
+    }
+
+    /**
+     * Creates the memory and the VM's own counters. The memory is shared through a file
+     * unless {@code -XX:-UsePerfData} was specified or the file could not be created.
+     */
+    public static synchronized void initialize() {
+        if (!start.isZero()) {
+            return;
+        }
+        final Size size = perfDataMemorySizeOption.getValue().alignUp(Platform.platform().pageSize);
+        final Pointer memory = perfmemory_create(size, UsePerfData);
+        if (memory.isZero()) {
+            throw new OutOfMemoryError("could not allocate " + size.toLong() + " bytes of performance data memory");
+        }
+        capacity = size.toInt();
+        used = PROLOGUE_SIZE;
+
+        memory.writeInt(MAGIC_OFFSET, Word.endianness() == Endianness.LITTLE ? Integer.reverseBytes(PERFDATA_MAGIC_BYTES) : PERFDATA_MAGIC_BYTES);
+        memory.writeByte(BYTE_ORDER_OFFSET, Word.endianness() == Endianness.LITTLE ? PERFDATA_LITTLE_ENDIAN : PERFDATA_BIG_ENDIAN);
+        memory.writeByte(MAJOR_VERSION_OFFSET, PERFDATA_MAJOR_VERSION);
+        memory.writeByte(MINOR_VERSION_OFFSET, PERFDATA_MINOR_VERSION);
+        memory.writeInt(USED_OFFSET, used);
+        memory.writeInt(OVERFLOW_OFFSET, 0);
+        memory.writeInt(ENTRY_OFFSET_OFFSET, PROLOGUE_SIZE);
+        memory.writeInt(NUM_ENTRIES_OFFSET, 0);
+        start = memory;
+
+        for (Counter counter : vmCounters) {
+            if (counter.address.isZero()) {
+                counter.address = allocate(counter.name, TYPE_LONG, counter.variability, counter.units, 0, 8);
+                counter.address.writeLong(0, counter.initialValue);
+            }
+        }
+        LOADED_CLASSES.set(ClassRegistry.getTotalLoadedClassCount());
+        UNLOADED_CLASSES.set(ClassRegistry.getUnloadedClassCount());
+
+        start.writeByte(ACCESSIBLE_OFFSET, (byte) 1);
+    }
+
+    /**
+     * Removes the file backing the memory, if any.
+     */
+    public static void destroy() {
+        if (!start.isZero()) {
+            start.writeByte(ACCESSIBLE_OFFSET, (byte) 0);
+            perfmemory_destroy();
+        }
+    }
+
+    /**
+     * Gets a buffer covering the whole memory of this VM.
+     */
+    public static ByteBuffer buffer() {
+        initialize();
+        return ObjectAccess.createDirectByteBuffer(start.toLong(), capacity);
+    }
+
+    /**
+     * Gets the local VM identifier (i.e. the process id) of this VM.
+     */
+    public static int vmid() {
+        return perfmemory_vmid();
+    }
+
+    /**
+     * Maps the performance data memory of another VM read-only.
+     *
+     * @param user the owner of the other VM or {@code null} for the current user
+     * @param lvmid the process id of the other VM
+     * @throws IllegalArgumentException if the memory of the specified VM cannot be mapped
+     */
+    public static ByteBuffer attach(String user, int lvmid) {
+        final String owner = user == null ? System.getProperty("user.name") : user;
+        final File file = new File(PERFDATA_DIR_PREFIX + owner, String.valueOf(lvmid));
+        try {
+            final RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                return raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+            } finally {
+                raf.close();
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("could not attach to performance data of VM " + lvmid + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Creates a {@code long} entry.
+     *
+     * @return the address of the entry's value
+     */
+    public static synchronized Pointer createLong(String name, int variability, int units, long value) {
+        final Pointer data = allocate(name, TYPE_LONG, variability, units, 0, 8);
+        data.writeLong(0, value);
+        return data;
+    }
+
+    /**
+     * Creates a byte array entry of {@code maxLength} bytes, initialized with {@code value}.
+     *
+     * @return the address of the entry's first element
+     */
+    public static synchronized Pointer createByteArray(String name, int variability, int units, byte[] value, int maxLength) {
+        final Pointer data = allocate(name, TYPE_BYTE, variability, units, maxLength, maxLength);
+        Memory.writeBytes(value, Math.min(value.length, maxLength), data);
+        return data;
+    }
+
+    /**
+     * Creates a string entry. The string is truncated to {@code maxLength - 1} characters.
+     */
+    public static void createString(String name, int variability, String value, int maxLength) {
+        final byte[] bytes = new byte[Math.min(value.length(), maxLength - 1)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) value.charAt(i);
+        }
+        createByteArray(name, variability, UNITS_STRING, bytes, maxLength);
+    }
+
+    /**
+     * Allocates an entry and publishes its header. If the memory is exhausted, the entry's data is
+     * allocated with {@link Memory#mustAllocate(int)} instead and is only visible from within this VM.
+     *
+     * @param vectorLength the number of elements of an array entry, 0 for a scalar entry
+     * @param dataSize the size of the entry's data in bytes
+     * @return the address of the entry's data
+     */
+    private static Pointer allocate(String name, byte type, int variability, int units, int vectorLength, int dataSize) {
+        if (!names.add(name)) {
+            throw new IllegalArgumentException("name: " + name + " already exists");
+        }
+        initialize();
+        final int elementSize = type == TYPE_LONG ? 8 : 1;
+        final int nameLength = name.length() + 1;
+        final int dataOffset = align(ENTRY_HEADER_SIZE + nameLength, elementSize);
+        final int entryLength = align(dataOffset + dataSize, 8);
+
+        if (used + entryLength > capacity) {
+            final int overflow = start.readInt(OVERFLOW_OFFSET) + entryLength;
+            start.writeInt(OVERFLOW_OFFSET, overflow);
+            return Memory.mustAllocate(dataSize);
+        }
+
+        final Pointer entry = start.plus(used);
+        entry.writeInt(ENTRY_LENGTH_OFFSET, entryLength);
+        entry.writeInt(NAME_OFFSET_OFFSET, ENTRY_HEADER_SIZE);
+        entry.writeInt(VECTOR_LENGTH_OFFSET, vectorLength);
+        entry.writeByte(DATA_TYPE_OFFSET, type);
+        entry.writeByte(FLAGS_OFFSET, FLAG_SUPPORTED);
+        entry.writeByte(DATA_UNITS_OFFSET, (byte) units);
+        entry.writeByte(DATA_VARIABILITY_OFFSET, (byte) variability);
+        entry.writeInt(DATA_OFFSET_OFFSET, dataOffset);
+        for (int i = 0; i < name.length(); i++) {
+            entry.writeByte(ENTRY_HEADER_SIZE + i, (byte) name.charAt(i));
+        }
+        entry.writeByte(ENTRY_HEADER_SIZE + name.length(), (byte) 0);
+
+        // Publish the entry only once it is complete: readers in other processes walk num_entries entries
+        used += entryLength;
+        numEntries++;
+        start.writeInt(USED_OFFSET, used);
+        start.writeLong(MOD_TIME_STAMP_OFFSET, ticks());
+        MemoryBarriers.barrier(MemoryBarriers.STORE_STORE);
+        start.writeInt(NUM_ENTRIES_OFFSET, numEntries);
+        return entry.plus(dataOffset);
+    }
+
+    private static int align(int value, int alignment) {
+        return (value + alignment - 1) & ~(alignment - 1);
+    }
+}
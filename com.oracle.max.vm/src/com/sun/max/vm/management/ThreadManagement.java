@@ -26,6 +26,7 @@ import java.lang.management.*;
 import java.lang.reflect.*;
 import java.util.*;
 
+import com.sun.max.annotate.*;
 import com.sun.max.unsafe.*;
 import com.sun.max.vm.jdk.*;
 import com.sun.max.vm.runtime.*;
@@ -43,6 +44,18 @@ public class ThreadManagement {
      */
     private static Constructor<?> threadInfoConstructor;
 
+    /*
+     * JVMTI thread state flags expected by the ThreadInfo constructor (see sun.misc.VM#toThreadState).
+     */
+    private static final int JVMTI_THREAD_STATE_ALIVE = 0x0001;
+    private static final int JVMTI_THREAD_STATE_TERMINATED = 0x0002;
+    private static final int JVMTI_THREAD_STATE_RUNNABLE = 0x0004;
+    private static final int JVMTI_THREAD_STATE_WAITING_INDEFINITELY = 0x0010;
+    private static final int JVMTI_THREAD_STATE_WAITING_WITH_TIMEOUT = 0x0020;
+    private static final int JVMTI_THREAD_STATE_BLOCKED_ON_MONITOR_ENTER = 0x0400;
+
+    private static volatile boolean threadCpuTimeEnabled = true;
+
     public static Thread[] getThreads() {
         return VmThreadMap.getThreads(false);
     }
@@ -67,14 +80,106 @@ public class ThreadManagement {
         return VmThreadMap.getLiveTheadCount();
     }
 
+    public static boolean isThreadCpuTimeEnabled() {
+        return threadCpuTimeEnabled;
+    }
+
     public static boolean setThreadCpuTimeEnabled(boolean enable) {
-        // TODO
-        return false;
+        final boolean previous = threadCpuTimeEnabled;
+        threadCpuTimeEnabled = enable;
+        return previous;
+    }
+
+    public static boolean isThreadContentionMonitoringEnabled() {
+        return VmThread.isContentionTimingEnabled();
     }
 
     public static boolean setThreadContentionMonitoringEnabled(boolean enable) {
-        // TODO
-        return false;
+        final boolean previous = VmThread.isContentionTimingEnabled();
+        VmThread.setContentionTimingEnabled(enable);
+        return previous;
+    }
+
+    @C_FUNCTION
+    private static native long native_threadCpuTime(Word nativeThread, boolean userOnly);
+
+    /**
+     * Gets the CPU time consumed by a thread.
+     *
+     * @param id the {@linkplain Thread#getId() id} of the thread or {@code 0} for the current thread
+     * @param userOnly if {@code true}, only report the time spent in user mode
+     * @return the CPU time in nanoseconds, or {@code -1} if the thread is not alive, CPU time measurement
+     *         is disabled or the time cannot be determined
+     */
+    public static long getThreadCpuTime(long id, boolean userOnly) {
+        if (!threadCpuTimeEnabled) {
+            return -1L;
+        }
+        if (id == 0L) {
+            return native_threadCpuTime(VmThread.current().nativeThread(), userOnly);
+        }
+        synchronized (VmThreadMap.THREAD_LOCK) {
+            // A thread found in the thread map while holding the lock cannot terminate while its clock is read
+            final Thread thread = findThread(id);
+            if (thread == null) {
+                return -1L;
+            }
+            final Word nativeThread = VmThread.fromJava(thread).nativeThread();
+            if (nativeThread.isZero()) {
+                return -1L;
+            }
+            return native_threadCpuTime(nativeThread, userOnly);
+        }
+    }
+
+    /**
+     * Resets the contention statistics of a thread, or of all threads.
+     *
+     * @param id the {@linkplain Thread#getId() id} of the thread or {@code 0} for all threads
+     */
+    public static void resetContentionStatistics(long id, final boolean counts, final boolean times) {
+        if (id == 0L) {
+            synchronized (VmThreadMap.THREAD_LOCK) {
+                VmThreadMap.ACTIVE.forAllThreadLocals(null, new Pointer.Procedure() {
+                    public void run(Pointer tla) {
+                        VmThread.fromTLA(tla).resetContentionStatistics(counts, times);
+                    }
+                });
+            }
+        } else {
+            final Thread thread = findThread(id);
+            if (thread != null) {
+                VmThread.fromJava(thread).resetContentionStatistics(counts, times);
+            }
+        }
+    }
+
+    /**
+     * Converts a thread state to the JVMTI thread state flags expected by the {@link ThreadInfo} constructor.
+     */
+    private static int toThreadStatus(Thread.State state) {
+        switch (state) {
+            case NEW:
+                return 0;
+            case RUNNABLE:
+                return JVMTI_THREAD_STATE_ALIVE | JVMTI_THREAD_STATE_RUNNABLE;
+            case BLOCKED:
+                return JVMTI_THREAD_STATE_ALIVE | JVMTI_THREAD_STATE_BLOCKED_ON_MONITOR_ENTER;
+            case WAITING:
+                return JVMTI_THREAD_STATE_ALIVE | JVMTI_THREAD_STATE_WAITING_INDEFINITELY;
+            case TIMED_WAITING:
+                return JVMTI_THREAD_STATE_ALIVE | JVMTI_THREAD_STATE_WAITING_WITH_TIMEOUT;
+            default:
+                return JVMTI_THREAD_STATE_TERMINATED;
+        }
+    }
+
+    /**
+     * Converts a time in nanoseconds to the milliseconds reported by {@link ThreadInfo}, which are {@code -1}
+     * when contention monitoring is disabled.
+     */
+    private static long contentionMillis(long nanos) {
+        return VmThread.isContentionTimingEnabled() ? nanos / 1000000L : -1L;
     }
 
     public static void getThreadInfo(long[] ids, int maxDepth, ThreadInfo[] result) {
@@ -90,12 +195,17 @@ public class ThreadManagement {
             if (thread == null || thread.getState() == Thread.State.TERMINATED) {
                 result[i] = null;
             } else {
-                // we don't handle any of the lock information yet
+                // locked monitors and synchronizers are not reported yet
+                final VmThread vmThread = VmThread.fromJava(thread);
+                final Thread.State state = thread.getState();
+                final boolean contended = state == Thread.State.BLOCKED || state == Thread.State.WAITING || state == Thread.State.TIMED_WAITING;
+                final Object lockObject = contended ? vmThread.contendedObject() : null;
+                final VmThread lockOwner = state == Thread.State.BLOCKED ? vmThread.contendedMonitorOwner() : null;
                 try {
                     final Object obj = threadInfoConstructor.newInstance(new Object[] {
-                        thread, thread.getState().ordinal(), null, null,
-                        0, 0,
-                        0, 0,
+                        thread, toThreadStatus(state), lockObject, lockOwner == null ? null : lockOwner.javaThread(),
+                        vmThread.blockedCount(), contentionMillis(vmThread.blockedTime()),
+                        vmThread.waitedCount(), contentionMillis(vmThread.waitedTime()),
                         maxDepth == 0 ? new StackTraceElement[0] : getStackTrace(thread, maxDepth),
                         null,
                         null,
@@ -76,6 +76,10 @@ abstract class AbstractJavaMonitor implements ManagedMonitor {
         return ownerThread == thread;
     }
 
+    public final VmThread ownerThread() {
+        return ownerThread;
+    }
+
     public final Word displacedMisc() {
         return displacedMiscWord.get();
     }
@@ -58,6 +58,13 @@ public interface JavaMonitor {
      */
     boolean isOwnedBy(VmThread thread);
 
+    /**
+     * Gets the thread currently owning this {@code JavaMonitor}.
+     *
+     * @return the owner of this monitor or {@code null} if it is not currently locked by any thread
+     */
+    VmThread ownerThread();
+
     /**
      * Returns the displaced misc header word of this {@code JavaMonitor}'s bound object.
      * This must be previously set by {@link #setDisplacedMisc(Word) setDisplacedMisc()}.
@@ -95,9 +95,16 @@ public class StandardJavaMonitor extends AbstractJavaMonitor {
             traceEndMonitorEnter(currentThread);
             return;
         }
+        final boolean contended = ownerThread != null;
+        if (contended) {
+            currentThread.beginBlocked(this, boundObject());
+        }
         currentThread.setState(Thread.State.BLOCKED);
         mutex.lock();
         currentThread.setState(Thread.State.RUNNABLE);
+        if (contended) {
+            currentThread.endBlocked();
+        }
         ownerThread = currentThread;
         setBindingProtection(BindingProtection.PROTECTED);
         recursionCount = 1;
@@ -149,7 +156,9 @@ public class StandardJavaMonitor extends AbstractJavaMonitor {
             // The wait is prematurely interrupted and never calls native code
             interrupted = true;
         } else {
+            ownerThread.beginWaiting(boundObject());
             waitingCondition.threadWait(mutex, timeoutMilliSeconds);
+            ownerThread.endWaiting();
             interrupted = ownerThread.isInterrupted(true);
         }
 
@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.profilers.sampling;
+
+import static com.sun.max.platform.Platform.*;
+import static com.sun.max.vm.MaxineVM.*;
+import static com.sun.max.vm.runtime.VmOperation.*;
+import static com.sun.max.vm.thread.VmThreadLocal.*;
+
+import com.oracle.max.cri.intrinsics.*;
+import com.sun.max.annotate.*;
+import com.sun.max.lang.*;
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.actor.member.*;
+import com.sun.max.vm.code.*;
+import com.sun.max.vm.compiler.target.*;
+import com.sun.max.vm.compiler.target.amd64.*;
+import com.sun.max.vm.jni.*;
+import com.sun.max.vm.runtime.*;
+import com.sun.max.vm.stack.*;
+import com.sun.max.vm.thread.*;
+
+/**
+ * A per-thread buffer of stack samples taken by the asynchronous mode of the {@link CPUSamplingProfiler}.
+ * <p>
+ * A per-thread CPU timer sends {@code SIGPROF} to the thread, which is delivered through the trap stub as an
+ * {@link Trap.Number#ASYNC_PROFILE} trap. {@link #sample(Pointer)} then walks the thread's own stack from the trap
+ * frame and appends the sampled frames to this buffer. Nothing else is stopped and no safepoint is involved, so samples
+ * are not biased towards safepoint polls. The signal handler drops ticks that arrive outside the
+ * {@linkplain #setCodeRanges() code regions}, as native code cannot safely be redirected to the trap stub, and ticks
+ * that arrive while safepoints are disabled, which includes any tick arriving while a previous trap is still being
+ * dispatched.
+ * <p>
+ * The buffer is a single-producer, single-consumer ring of longs: only the owning thread appends to it (with no
+ * allocation or locking) and only the profiler thread {@linkplain #next(long[]) removes} records from it. Each record is
+ * a depth followed by a {@link MethodID} and a line number for each frame, from the top of the stack down.
+ */
+public final class AsyncSampleBuffer {
+
+    /**
+     * The capacity, in longs, of the ring of a buffer.
+     */
+    private static final int CAPACITY = 8 * Ints.K;
+
+    /**
+     * Bound on the frames, including stubs and adapters, visited by one walk.
+     */
+    private static final int MAX_RAW_FRAMES = 1024;
+
+    final VmThread thread;
+
+    private final long[] ring;
+
+    /**
+     * The scratch record into which the current sample is gathered before it is copied into {@link #ring}.
+     */
+    private final long[] frames;
+
+    private int depth;
+
+    private volatile long head;
+
+    private volatile long tail;
+
+    /**
+     * Number of samples lost because the profiler thread had not yet drained the buffer.
+     */
+    long overflows;
+
+    /**
+     * Number of samples not taken because the thread was frozen by a {@link VmOperation} when the tick arrived.
+     */
+    long frozen;
+
+    /**
+     * Set once the thread has stopped its timer, after which the profiler thread discards the buffer when drained.
+     */
+    volatile boolean retired;
+
+    private Address timer = Address.zero();
+
+    private final AsyncStackFrameWalker walker;
+
+    private final SampleVisitor visitor = new SampleVisitor();
+
+    AsyncSampleBuffer(VmThread thread, int maxDepth) {
+        this.thread = thread;
+        this.ring = new long[CAPACITY];
+        this.frames = new long[maxDepth * 2];
+        this.walker = new AsyncStackFrameWalker(thread.tla());
+    }
+
+    /**
+     * Arms a timer that sends {@code SIGPROF} to the current thread each time it has consumed {@code periodNanos} of CPU
+     * time.
+     *
+     * @return the handle of the timer or zero if per-thread CPU timers are not supported by the platform
+     */
+    @C_FUNCTION
+    private static native Address nativeCPUTimerStart(long periodNanos);
+
+    @C_FUNCTION
+    private static native void nativeCPUTimerStop(Address timer);
+
+    /**
+     * Gets the number of profiling ticks dropped by the signal handler because safepoints were disabled.
+     */
+    @C_FUNCTION
+    static native int nativeCPUTimerDroppedTicks();
+
+    /**
+     * Gets the number of profiling ticks dropped by the signal handler because they arrived outside compiled code.
+     */
+    @C_FUNCTION
+    static native int nativeCPUTimerNativeTicks();
+
+    @C_FUNCTION
+    private static native void nativeCPUTimerSetCodeRange(int index, Address start, Address end);
+
+    /**
+     * Tells the signal handler where compiled code lives. Must be called before the first timer is started.
+     */
+    static void setCodeRanges() {
+        final CodeManager codeManager = Code.getCodeManager();
+        setCodeRange(0, Code.bootCodeRegion());
+        setCodeRange(1, codeManager.getRuntimeBaselineCodeRegion());
+        setCodeRange(2, codeManager.getRuntimeOptCodeRegion());
+    }
+
+    private static void setCodeRange(int index, CodeRegion region) {
+        nativeCPUTimerSetCodeRange(index, region.start(), region.end());
+    }
+
+    /**
+     * Starts sampling the current thread, which must be the thread owning this buffer.
+     *
+     * @return {@code false} if the platform does not support per-thread CPU timers
+     */
+    boolean start(long periodNanos) {
+        FatalError.check(VmThread.current() == thread, "CPU timer must be started by the sampled thread");
+        thread.asyncSampleBuffer = this;
+        timer = nativeCPUTimerStart(periodNanos);
+        if (timer.isZero()) {
+            thread.asyncSampleBuffer = null;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Stops sampling the current thread, which must be the thread owning this buffer.
+     */
+    void stop() {
+        if (!timer.isZero()) {
+            nativeCPUTimerStop(timer);
+            timer = Address.zero();
+        }
+        retired = true;
+    }
+
+    /**
+     * Records a sample of the current thread's stack. This is called from {@link Trap} for an
+     * {@link Trap.Number#ASYNC_PROFILE} trap, with safepoints disabled.
+     *
+     * @param trapFrame the trap frame holding the state of the thread when the tick arrived
+     */
+    public static void sample(Pointer trapFrame) {
+        final AsyncSampleBuffer buffer = VmThread.current().asyncSampleBuffer;
+        if (buffer == null) {
+            return;
+        }
+        final Pointer etla = ETLA.load(VmThread.currentTLA());
+        boolean inNative = false;
+        if (!MUTATOR_STATE.load(etla).equals(THREAD_IN_JAVA)) {
+            // The thread is in native code, so a VM operation may freeze it at any moment and then move the
+            // objects the walk reads. Claim the 'in Java' state for the duration of the walk; a VM operation
+            // trying to freeze the thread meanwhile waits for it as it would for any other thread in Java.
+            if (!etla.compareAndSwapWord(MUTATOR_STATE.offset, THREAD_IN_NATIVE, THREAD_IN_JAVA).equals(THREAD_IN_NATIVE)) {
+                buffer.frozen++;
+                return;
+            }
+            inNative = true;
+        }
+        final TrapFrameAccess tfa = vm().trapFrameAccess;
+        buffer.record(tfa.getPC(trapFrame), tfa.getSP(trapFrame), tfa.getFP(trapFrame));
+        if (inNative) {
+            MemoryBarriers.barrier(MemoryBarriers.LOAD_STORE | MemoryBarriers.STORE_STORE);
+            MUTATOR_STATE.store(etla, THREAD_IN_NATIVE);
+        }
+    }
+
+    private void record(Pointer ip, Pointer sp, Pointer fp) {
+        depth = 0;
+        final TargetMethod tm = Code.codePointerToTargetMethod(ip);
+        if (tm != null && tm.classMethodActor != null && !isFrameEstablished(tm, CodePointer.from(ip))) {
+            // Only the method itself can be attributed until its frame is set up
+            visitor.add(tm.classMethodActor.original(), -1);
+        } else {
+            walker.setStackLimit(sp);
+            visitor.rawFrames = 0;
+            visitor.walk(walker, ip, sp, fp);
+        }
+
+        final int length = 1 + depth * 2;
+        final long h = head;
+        if (CAPACITY - (h - tail) < length) {
+            overflows++;
+            return;
+        }
+        ring[(int) (h % CAPACITY)] = depth;
+        for (int i = 0; i < depth * 2; i++) {
+            ring[(int) ((h + 1 + i) % CAPACITY)] = frames[i];
+        }
+        head = h + length;
+    }
+
+    /**
+     * Determines if the frame of a given method has been set up (and not yet torn down) at a given instruction. This
+     * mirrors the checks the Inspector makes when it walks a stack stopped at an arbitrary instruction.
+     */
+    private static boolean isFrameEstablished(TargetMethod tm, CodePointer ip) {
+        if (ip.toLong() <= tm.callEntryPoint.in(tm).toLong()) {
+            return false;
+        }
+        final AdapterGenerator generator = AdapterGenerator.forCallee(tm);
+        if (generator != null && generator.inPrologue(ip, tm)) {
+            return false;
+        }
+        if (platform().isa == ISA.AMD64 && (ip.toPointer().readByte(0) & 0xff) == AMD64TargetMethodUtil.RET) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Removes the oldest record from this buffer. Must only be called by the profiler thread.
+     *
+     * @param result the array into which the {@link MethodID} and line number pairs of the record are copied; it must
+     *            be at least twice the maximum depth of this buffer
+     * @return the depth of the record or {@code -1} if the buffer is empty
+     */
+    int next(long[] result) {
+        final long t = tail;
+        if (t == head) {
+            return -1;
+        }
+        final int n = (int) ring[(int) (t % CAPACITY)];
+        for (int i = 0; i < n * 2; i++) {
+            result[i] = ring[(int) ((t + 1 + i) % CAPACITY)];
+        }
+        tail = t + 1 + n * 2;
+        return n;
+    }
+
+    /**
+     * Gathers the frames of a walk into {@link AsyncSampleBuffer#frames} without allocating.
+     */
+    private final class SampleVisitor extends StackTraceVisitor {
+
+        int rawFrames;
+
+        SampleVisitor() {
+            super(null);
+        }
+
+        @Override
+        public boolean visitFrame(StackFrameCursor current, StackFrameCursor callee) {
+            if (++rawFrames > MAX_RAW_FRAMES) {
+                return false;
+            }
+            return super.visitFrame(current, callee);
+        }
+
+        @Override
+        public boolean add(ClassMethodActor classMethodActor, int sourceLineNumber) {
+            frames[depth * 2] = MemberID.create(classMethodActor).asAddress().toLong();
+            frames[depth * 2 + 1] = sourceLineNumber;
+            depth++;
+            return depth * 2 < frames.length;
+        }
+
+        @Override
+        public void clear() {
+            depth = 0;
+        }
+    }
+}
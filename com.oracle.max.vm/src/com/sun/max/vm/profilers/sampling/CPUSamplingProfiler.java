@@ -39,6 +39,12 @@ import com.sun.max.unsafe.*;
  * CPU sampling profiler. Runs a thread that periodically wakes up, stops all the threads, and records their stack.
  * Note that the stack is gathered regardless of the state of the thread, e.g., it may be blocked.
  * Period of sampling is measured in milliseconds.
+ * <p>
+ * With the {@code async} option no thread is stopped. Instead each sampled thread arms a timer that interrupts
+ * it after each period of CPU time it consumes, and records its own stack into an {@link AsyncSampleBuffer}
+ * at the interrupted instruction. The profiler thread just drains these buffers. Only threads started after
+ * the profiler (and the main thread) are sampled in this mode, and only on platforms with per-thread CPU timers;
+ * elsewhere the profiler falls back to stopping the threads.
  */
 public final class CPUSamplingProfiler extends SamplingProfiler {
 
@@ -67,6 +73,36 @@ public final class CPUSamplingProfiler extends SamplingProfiler {
      */
     private static final int DEFAULT_DEPTH = 16;
 
+    /**
+     * The number of sampling periods between drains of the {@linkplain AsyncSampleBuffer buffers} in async mode.
+     */
+    private static final int ASYNC_DRAIN_PERIODS = 10;
+
+    /**
+     * The profiler sampling asynchronously, if any.
+     */
+    private static volatile CPUSamplingProfiler asyncProfiler;
+
+    /**
+     * {@code true} if the threads sample themselves on CPU timer signals rather than being stopped.
+     */
+    private volatile boolean async;
+
+    /**
+     * The buffers of the threads being sampled in async mode.
+     */
+    private final List<AsyncSampleBuffer> asyncBuffers = new ArrayList<AsyncSampleBuffer>();
+
+    /**
+     * Scratch array into which records are drained from the buffers.
+     */
+    private long[] asyncFrames;
+
+    /**
+     * Samples that were drained but recorded no Java frames, e.g. ticks in a native stub with no Java caller.
+     */
+    private long asyncUnattributed;
+
     public CPUSamplingProfiler(String optionPrefix, String optionValue) {
         super("CPUSamplingProfiler");
         this.samplingProfilerName = CPU_SAMPLING_PROFILER_NAME;
@@ -79,6 +115,142 @@ public final class CPUSamplingProfiler extends SamplingProfiler {
         this.stackTraceGatherer = new StackTraceGatherer(CPU_SAMPLING_PROFILER_NAME);
         this.optionPrefix = optionPrefix;
         create(optionValue);
+        if (async) {
+            startAsync();
+        }
+    }
+
+    @Override
+    protected boolean parseOption(String option) {
+        if (option.equals("async")) {
+            async = true;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    protected String optionsUsage() {
+        return ",async";
+    }
+
+    private void startAsync() {
+        asyncProfiler = this;
+        AsyncSampleBuffer.setCodeRanges();
+        if (!startSampling(VmThread.current())) {
+            asyncProfiler = null;
+            async = false;
+            Log.println(CPU_SAMPLING_PROFILER_NAME + ": per-thread CPU timers are not supported, stopping threads to sample instead");
+        }
+    }
+
+    /**
+     * Starts sampling the current thread if it is one the profiler samples.
+     *
+     * @return {@code false} if per-thread CPU timers are not available
+     */
+    private boolean startSampling(VmThread vmThread) {
+        if (vmThread.javaThread() == this || (isSystemThread(vmThread) && !trackSystemThreads)) {
+            return true;
+        }
+        final AsyncSampleBuffer buffer = new AsyncSampleBuffer(vmThread, maxStackDepth());
+        synchronized (asyncBuffers) {
+            asyncBuffers.add(buffer);
+        }
+        if (!buffer.start(samplePeriod * 1000000L)) {
+            synchronized (asyncBuffers) {
+                asyncBuffers.remove(buffer);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Called on a thread just before it runs its {@link Thread#run()} method.
+     */
+    public static void threadStarted(VmThread vmThread) {
+        final CPUSamplingProfiler profiler = asyncProfiler;
+        if (profiler != null) {
+            profiler.startSampling(vmThread);
+        }
+    }
+
+    /**
+     * Called on a thread once it has finished running.
+     */
+    public static void threadTerminated(VmThread vmThread) {
+        final AsyncSampleBuffer buffer = vmThread.asyncSampleBuffer;
+        if (buffer != null) {
+            buffer.stop();
+        }
+    }
+
+    /**
+     * Moves the samples recorded by the sampled threads into the profile, and forgets the buffers of the threads that
+     * have terminated.
+     */
+    private synchronized void drainAsyncBuffers() {
+        if (asyncFrames == null) {
+            asyncFrames = new long[maxStackDepth() * 2];
+        }
+        synchronized (asyncBuffers) {
+            final Iterator<AsyncSampleBuffer> iter = asyncBuffers.iterator();
+            while (iter.hasNext()) {
+                final AsyncSampleBuffer buffer = iter.next();
+                // read before draining so that no sample recorded before retirement is missed
+                final boolean retired = buffer.retired;
+                int depth;
+                while ((depth = buffer.next(asyncFrames)) >= 0) {
+                    sampleCount++;
+                    if (depth == 0) {
+                        asyncUnattributed++;
+                    } else {
+                        recordSample(buffer.thread, asyncFrames, depth);
+                    }
+                }
+                if (retired) {
+                    iter.remove();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void terminate() {
+        if (async) {
+            isProfiling = false;
+            drainAsyncBuffers();
+        }
+        super.terminate();
+    }
+
+    @Override
+    protected synchronized void dumpTraces() {
+        super.dumpTraces();
+        if (async) {
+            long overflows = 0;
+            long frozen = 0;
+            synchronized (asyncBuffers) {
+                for (AsyncSampleBuffer buffer : asyncBuffers) {
+                    overflows += buffer.overflows;
+                    frozen += buffer.frozen;
+                }
+            }
+            boolean state = Log.lock();
+            Log.print(CPU_SAMPLING_PROFILER_NAME + " async: ");
+            Log.print(asyncUnattributed);
+            Log.print(" samples without Java frames, ");
+            Log.print(AsyncSampleBuffer.nativeCPUTimerDroppedTicks());
+            Log.print(" ticks dropped with safepoints disabled, ");
+            Log.print(AsyncSampleBuffer.nativeCPUTimerNativeTicks());
+            Log.print(" in native code, ");
+            Log.print(frozen);
+            Log.print(" while frozen, ");
+            Log.print(overflows);
+            Log.println(" lost to full buffers");
+            Log.unlock(state);
+        }
     }
 
     @Override
@@ -86,6 +258,9 @@ public final class CPUSamplingProfiler extends SamplingProfiler {
         theProfiler = VmThread.fromJava(this);
         long lastDump = System.nanoTime();
         while (true) {
+            if (async) {
+                runAsync(lastDump);
+            }
             try {
                 final int thisJiggle = rand.nextInt(jiggle);
                 final int thisPeriod = samplePeriod + (rand.nextBoolean() ? thisJiggle : -thisJiggle);
@@ -113,6 +288,26 @@ public final class CPUSamplingProfiler extends SamplingProfiler {
         }
     }
 
+    /**
+     * The profiler loop in async mode, which only drains the buffers of the sampled threads.
+     */
+    private void runAsync(long lastDump) {
+        while (async) {
+            try {
+                Thread.sleep(samplePeriod * ASYNC_DRAIN_PERIODS);
+            } catch (InterruptedException ex) {
+            }
+            if (isProfiling) {
+                drainAsyncBuffers();
+                final long now = System.nanoTime();
+                if (dumpInterval > 0 && now > lastDump + dumpInterval * 1000000L) {
+                    dumpTraces();
+                    lastDump = now;
+                }
+            }
+        }
+    }
+
     class StackTraceGatherer extends SamplingProfiler.StackTraceGatherer {
 
         StackTraceGatherer(String name) {
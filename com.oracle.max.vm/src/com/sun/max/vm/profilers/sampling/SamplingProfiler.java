@@ -23,11 +23,13 @@
  */
 package com.sun.max.vm.profilers.sampling;
 
+import java.io.*;
 import java.util.*;
 
 import com.sun.max.annotate.*;
 import com.sun.max.vm.*;
 import com.sun.max.vm.actor.member.*;
+import com.sun.max.vm.jni.*;
 import com.sun.max.vm.runtime.*;
 import com.sun.max.vm.stack.*;
 import com.sun.max.vm.thread.VmThread;
@@ -60,6 +62,8 @@ import com.sun.max.unsafe.*;
  * periodically. Data is output using the {@link Log} class. By default output is sorted by thread and by sample count
  * This has more allocation overhead at the time of output and so is the default only if data is output at
  * VM termination. In unsorted mode the stack traces and samples counts are output in an arbitrary order.
+ * With the {@code collapsed} option the data is instead output in the collapsed stack format read by
+ * flame graph tools, either to the log or to a given file.
  */
 public abstract class SamplingProfiler extends Thread {
 
@@ -215,6 +219,16 @@ public abstract class SamplingProfiler extends Thread {
      */
     protected boolean logSampleTimes;
 
+    /**
+     * {@code true} if and only if traces are output in the collapsed stack format.
+     */
+    private boolean collapsedOutput;
+
+    /**
+     * The file to which collapsed stacks are written, or {@code null} to write them to the log.
+     */
+    private String collapsedFile;
+
     /**
      * For each unique stack trace, we record the list of threads with that trace and their sample count.
      */
@@ -241,6 +255,7 @@ public abstract class SamplingProfiler extends Thread {
         int stackDepth = 0;
         int dumpPeriod = 0;
         boolean sortedOutputOptionSet = false;
+        boolean flatOptionSet = false;
 
         flat = defaultFlat;
         sortedOutput = DEFAULT_SORT;
@@ -266,8 +281,15 @@ public abstract class SamplingProfiler extends Thread {
                         sortedOutputOptionSet = true;
                         sortedOutput = getBoolOption(option);
                     } else if (option.startsWith("flat")) {
+                        flatOptionSet = true;
                         flat = getBoolOption(option);
-                    } else {
+                    } else if (option.startsWith("collapsed")) {
+                        collapsedOutput = true;
+                        final int index = option.indexOf('=');
+                        if (index >= 0) {
+                            collapsedFile = option.substring(index + 1);
+                        }
+                    } else if (!parseOption(option)) {
                         usage();
                     }
                 }
@@ -279,6 +301,10 @@ public abstract class SamplingProfiler extends Thread {
         if (sortedOutputOptionSet == false && dumpPeriod != 0) {
             sortedOutput = false;
         }
+        // a flame graph needs whole stacks
+        if (collapsedOutput && !flatOptionSet) {
+            flat = false;
+        }
         if (flat) {
             stackDepth = 1;
         }
@@ -286,10 +312,26 @@ public abstract class SamplingProfiler extends Thread {
     }
 
     private void usage() {
-        System.err.println("usage: " + optionPrefix + ":frequency=f,depth=d,systhreads,dump=t,sort[=t],flat[=t]");
+        System.err.println("usage: " + optionPrefix + ":frequency=f,depth=d,systhreads,dump=t,sort[=t],flat[=t],collapsed[=file]" + optionsUsage());
         MaxineVM.native_exit(1);
     }
 
+    /**
+     * Parses an option specific to a derived class.
+     *
+     * @return {@code false} if {@code option} is not recognized
+     */
+    protected boolean parseOption(String option) {
+        return false;
+    }
+
+    /**
+     * Gets the usage of the options {@linkplain #parseOption(String) specific} to a derived class.
+     */
+    protected String optionsUsage() {
+        return "";
+    }
+
     private boolean getBoolOption(String s) {
         final int index = s.indexOf('=');
         if (index < 0) {
@@ -331,6 +373,13 @@ public abstract class SamplingProfiler extends Thread {
     @Override
     public abstract void run();
 
+    /**
+     * Gets the maximum number of frames recorded for a sample.
+     */
+    protected int maxStackDepth() {
+        return maxStackDepth;
+    }
+
     /**
      * Encapsulates the basic logic of handling one thread after all threads are frozen at a safepoint.
      */
@@ -393,21 +442,43 @@ public abstract class SamplingProfiler extends Thread {
                     workingStackInfo.reset(maxStackDepth);
                 }
             }
-            // Have we seen this stack before?
-            List<ThreadSample> threadSampleList = stackInfoMap.get(workingStackInfo);
-            if (threadSampleList == null) {
-                threadSampleList = new ArrayList<ThreadSample>();
-                final StackInfo copy = workingStackInfo.copy(maxStackDepth);
-                List<ThreadSample> existing = stackInfoMap.put(copy, threadSampleList);
-                assert existing == null;
-            }
-            // Check if this thread has had this stack trace before, allocating a new ThreadSample instance if not
-            final ThreadSample threadSample = getThreadSample(threadSampleList, vmThread);
-            // bump the number of times the given thread has been in this state
-            threadSample.count += sampleCountIncrement;
+            addWorkingStack(vmThread);
         }
     }
 
+    /**
+     * Records a sample whose frames are given as pairs of a {@link MethodID} and a line number, from the top of the
+     * stack down.
+     */
+    protected void recordSample(VmThread vmThread, long[] frames, int depth) {
+        workingStackInfo.reset(0);
+        final int n = Math.min(depth, maxStackDepth);
+        for (int i = 0; i < n; i++) {
+            final MethodID methodID = MethodID.fromWord(Address.fromLong(frames[i * 2]));
+            workingStackInfo.stack[i].classMethodActor = (ClassMethodActor) MethodID.toMethodActor(methodID);
+            workingStackInfo.stack[i].lineNumber = (int) frames[i * 2 + 1];
+        }
+        addWorkingStack(vmThread);
+    }
+
+    /**
+     * Adds a sample of {@link #workingStackInfo} for a given thread.
+     */
+    private void addWorkingStack(VmThread vmThread) {
+        // Have we seen this stack before?
+        List<ThreadSample> threadSampleList = stackInfoMap.get(workingStackInfo);
+        if (threadSampleList == null) {
+            threadSampleList = new ArrayList<ThreadSample>();
+            final StackInfo copy = workingStackInfo.copy(maxStackDepth);
+            List<ThreadSample> existing = stackInfoMap.put(copy, threadSampleList);
+            assert existing == null;
+        }
+        // Check if this thread has had this stack trace before, allocating a new ThreadSample instance if not
+        final ThreadSample threadSample = getThreadSample(threadSampleList, vmThread);
+        // bump the number of times the given thread has been in this state
+        threadSample.count += sampleCountIncrement;
+    }
+
     protected boolean isSystemThread(VmThread vmThread) {
         return vmThread.javaThread().getThreadGroup() == VmThread.systemThreadGroup;
     }
@@ -638,6 +709,10 @@ public abstract class SamplingProfiler extends Thread {
      * Dumps traces. It should be synchronized with sampling profiling..
      */
     protected synchronized void dumpTraces() {
+        if (collapsedOutput) {
+            dumpCollapsed();
+            return;
+        }
         Map<VmThread, CountedStackInfo[]> sortedInfo = null;
         if (sortedOutput) {
             sortedInfo = sortByThread();
@@ -673,6 +748,63 @@ public abstract class SamplingProfiler extends Thread {
     }
 
 
+    /**
+     * Outputs the traces in the collapsed stack format read by flame graph tools: one line per distinct stack
+     * giving its frames from the bottom of the stack up, separated by semicolons, followed by the number of
+     * samples. Stacks that differ only in line numbers or threads are merged.
+     */
+    private void dumpCollapsed() {
+        final Map<String, Long> collapsed = new TreeMap<String, Long>();
+        final StringBuilder sb = new StringBuilder();
+        for (Map.Entry<StackInfo, List<ThreadSample>> entry : stackInfoMap.entrySet()) {
+            final StackElement[] stack = entry.getKey().stack;
+            int depth = 0;
+            while (depth < stack.length && stack[depth].classMethodActor != null) {
+                depth++;
+            }
+            long count = 0;
+            for (ThreadSample ts : entry.getValue()) {
+                count += ts.count;
+            }
+            if (depth == 0 || count == 0) {
+                continue;
+            }
+            sb.setLength(0);
+            for (int i = depth - 1; i >= 0; i--) {
+                final ClassMethodActor classMethodActor = stack[i].classMethodActor;
+                sb.append(classMethodActor.holder().name.toString()).append('.').append(classMethodActor.name().toString());
+                if (i > 0) {
+                    sb.append(';');
+                }
+            }
+            final String key = sb.toString();
+            final Long existing = collapsed.get(key);
+            collapsed.put(key, existing == null ? count : existing + count);
+        }
+
+        if (collapsedFile != null) {
+            try {
+                final PrintStream ps = new PrintStream(new FileOutputStream(collapsedFile));
+                for (Map.Entry<String, Long> entry : collapsed.entrySet()) {
+                    ps.print(entry.getKey());
+                    ps.print(' ');
+                    ps.println(entry.getValue());
+                }
+                ps.close();
+            } catch (IOException ex) {
+                Log.println(samplingProfilerName + ": could not write " + collapsedFile + ": " + ex);
+            }
+        } else {
+            boolean state = Log.lock();
+            for (Map.Entry<String, Long> entry : collapsed.entrySet()) {
+                Log.print(entry.getKey());
+                Log.print(' ');
+                Log.println(entry.getValue());
+            }
+            Log.unlock(state);
+        }
+    }
+
     /**
      * Prints samples in period units.
      */
@@ -36,6 +36,7 @@ import com.sun.max.vm.hosted.CompiledPrototype;
 import com.sun.max.vm.instrument.InstrumentationManager;
 import com.sun.max.vm.jni.JniFunctions;
 import com.sun.max.vm.log.VMLog;
+import com.sun.max.vm.management.PerfMemory;
 import com.sun.max.vm.profilers.sampling.*;
 import com.sun.max.vm.run.RunScheme;
 import com.sun.max.vm.runtime.CriticalMethod;
@@ -215,6 +216,9 @@ public class JavaRunScheme extends AbstractVMScheme implements RunScheme {
                 // This hack enables (platform-dependent) tracing before the eventual System properties are set:
                 System.setProperty("line.separator", "\n");
 
+                // The performance counters must exist before the JDK creates its own during system class initialization
+                PerfMemory.initialize();
+
                 // Normally, we would have to initialize tracing this late,
                 // because 'PrintWriter.<init>()' relies on a system property ("line.separator"), which is accessed during 'initializeSystemClass()'.
                 initializeSystemClass();
@@ -244,12 +248,15 @@ public class JavaRunScheme extends AbstractVMScheme implements RunScheme {
                     final String heapProfOptionPrefix = hprofOption.toString();
                     heapSamplingProfiler = new HeapSamplingProfiler(heapProfOptionPrefix, heapProfOptionValue);
                 }
+                final String javaCommand = VMOptions.mainClassAndArguments();
+                PerfMemory.createString("sun.rt.javaCommand", PerfMemory.VARIABILITY_CONSTANT, javaCommand, javaCommand.length() + 1);
                 break;
             }
 
             case TERMINATING: {
                 JniFunctions.printJniFunctionTimers();
                 terminateProfilers();
+                PerfMemory.destroy();
                 break;
             }
             default: {
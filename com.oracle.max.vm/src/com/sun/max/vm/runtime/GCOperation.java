@@ -29,8 +29,8 @@ import com.sun.max.annotate.*;
 import com.sun.max.unsafe.*;
 import com.sun.max.vm.*;
 import com.sun.max.vm.heap.*;
+import com.sun.max.vm.management.*;
 import com.sun.max.vm.monitor.*;
-import com.sun.max.vm.stack.*;
 import com.sun.max.vm.thread.*;
 
 /**
@@ -67,7 +67,7 @@ public abstract class GCOperation extends VmOperation {
             FatalError.unexpected("Stack reference map preparer should be cleared before GC");
         }
 
-        VmThreadLocal.prepareStackReferenceMapFromTrap(tla, trapFrame);
+        prepareStackReferenceMapFromTrap(trapFrame);
     }
 
     @Override
@@ -83,36 +83,13 @@ public abstract class GCOperation extends VmOperation {
 
     @Override
     public void doAfterFrozen(VmThread vmThread) {
-
-        Pointer tla = vmThread.tla();
-
-        final boolean threadWasInNative = LOWEST_ACTIVE_STACK_SLOT_ADDRESS.load(tla).isZero();
-        if (threadWasInNative) {
-            if (VmOperationThread.TraceVmOperations) {
-                Log.print("Building full stack reference map for ");
-                Log.printThread(VmThread.fromTLA(tla), true);
-            }
-            // Since this thread is in native code it did not get an opportunity to prepare any of its stack reference map,
-            // so we will take care of that for it now:
-            stackReferenceMapPreparationTime += VmThreadLocal.prepareStackReferenceMap(tla);
-        } else {
-            // Threads that hit a safepoint in Java code have prepared *most* of their stack reference map themselves.
-            // The part of the stack between the trap stub frame and the frame of the JNI stub that enters into the
-            // native code for blocking on VmThreadMap.ACTIVE's monitor is not yet prepared. Do it now:
-            if (VmOperationThread.TraceVmOperations) {
-                Log.print("Building partial stack reference map for ");
-                Log.printThread(VmThread.fromTLA(tla), true);
-            }
-            final StackReferenceMapPreparer stackReferenceMapPreparer = vmThread.stackReferenceMapPreparer();
-            stackReferenceMapPreparer.completeStackReferenceMap(tla);
-            stackReferenceMapPreparationTime += stackReferenceMapPreparer.preparationTime();
-        }
+        stackReferenceMapPreparationTime += completeStackReferenceMap(vmThread);
     }
 
     @Override
     protected void doBeforeThawingThread(VmThread thread) {
         // Indicates that the stack reference map for the thread is once-again unprepared.
-        LOWEST_ACTIVE_STACK_SLOT_ADDRESS.store3(thread.tla(), Address.zero());
+        clearStackReferenceMap(thread);
     }
 
     long stackReferenceMapPreparationTime;
@@ -192,7 +169,9 @@ public abstract class GCOperation extends VmOperation {
             Log.unlock(lockDisabledSafepoints);
         }
 
+        PerfMemory.gcStarted();
         collect(invocationCount);
+        PerfMemory.gcFinished();
 
         if (Heap.verbose()) {
             final long afterUsed = Heap.reportUsedSpace();
@@ -42,6 +42,10 @@ public class OSMonitor {
         new CriticalNativeMethod(OSMonitor.class, "nativeConditionWait");
         new CriticalNativeMethod(OSMonitor.class, "nativeTakeLockAndNotify");
         new CriticalNativeMethod(OSMonitor.class, "nativeTakeLockAndWait");
+        new CriticalNativeMethod(OSMonitor.class, "nativeParkerAcquire");
+        new CriticalNativeMethod(OSMonitor.class, "nativeParkerRelease");
+        new CriticalNativeMethod(OSMonitor.class, "nativeParkerUnpark");
+        new CriticalNativeMethod(OSMonitor.class, "nativeParkerPark");
     }
 
     static int mutexSize;
@@ -136,6 +140,80 @@ public class OSMonitor {
 
     }
 
+    /**
+     * A per-thread parker implementing the permit semantics of {@link sun.misc.Unsafe#park(boolean, long)} and
+     * {@link sun.misc.Unsafe#unpark(Object)} directly on native synchronization (a futex on Linux), so that
+     * parking and unparking never go through a Java monitor.
+     *
+     * The first word of the native parker is the permit. It is {@code 1} when a permit is available, {@code -1}
+     * when the owner is blocked and {@code 0} otherwise. An available permit can thus be consumed with a
+     * compare-and-swap without calling native code.
+     */
+    public static final class Parker {
+        private static final int NO_PERMIT = 0;
+        private static final int PERMIT = 1;
+
+        private Word parker = Word.zero();
+
+        public void init() {
+            if (parker.isZero()) {
+                parker = nativeParkerAcquire();
+                if (parker.isZero()) {
+                    throw new OutOfMemoryError();
+                }
+            }
+        }
+
+        /**
+         * Returns the native parker to the free list. Native parkers are never deallocated, so an unpark racing
+         * with this can at worst cause a spurious wake up of the next owner.
+         */
+        public void destroy() {
+            final Word p = parker;
+            if (!p.isZero()) {
+                parker = Word.zero();
+                nativeParkerRelease(p);
+            }
+        }
+
+        @INLINE
+        public boolean isInitialized() {
+            return !parker.isZero();
+        }
+
+        /**
+         * Consumes the permit if one is available.
+         *
+         * @return {@code true} if a permit was consumed
+         */
+        @INLINE
+        public boolean tryConsumePermit() {
+            return parker.asPointer().compareAndSwapInt(0, PERMIT, NO_PERMIT) == PERMIT;
+        }
+
+        /**
+         * Blocks the owner thread until a permit is available, the deadline expires or the thread wakes up spuriously.
+         * Must only be called by the owner.
+         *
+         * @param isAbsolute specifies if {@code time} is an absolute deadline in milliseconds since the epoch or
+         *            a relative timeout in nanoseconds, where {@code 0} means no timeout
+         * @param time the deadline or timeout
+         */
+        public void park(boolean isAbsolute, long time) {
+            nativeParkerPark(parker, isAbsolute, time);
+        }
+
+        /**
+         * Makes the permit available, waking up the owner if it is blocked.
+         *
+         * @return {@code true} if the owner was blocked
+         */
+        public boolean unpark() {
+            final Word p = parker;
+            return !p.isZero() && nativeParkerUnpark(p);
+        }
+    }
+
     @C_FUNCTION
     public static native int nativeMutexSize();
 
@@ -180,4 +258,16 @@ public class OSMonitor {
      */
     public static native boolean nativeTakeLockAndWait(Word mutex, Word condition, long millis);
 
+    @C_FUNCTION
+    public static native Word nativeParkerAcquire();
+
+    @C_FUNCTION
+    public static native void nativeParkerRelease(Word parker);
+
+    @C_FUNCTION
+    public static native boolean nativeParkerUnpark(Word parker);
+
+    // May block so JNI
+    public static native void nativeParkerPark(Word parker, boolean isAbsolute, long time);
+
 }
@@ -36,6 +36,7 @@ import com.sun.max.vm.*;
 import com.sun.max.vm.code.*;
 import com.sun.max.vm.compiler.*;
 import com.sun.max.vm.compiler.target.*;
+import com.sun.max.vm.profilers.sampling.*;
 import com.sun.max.vm.reference.*;
 import com.sun.max.vm.thread.*;
 
@@ -45,6 +46,7 @@ import com.sun.max.vm.thread.*;
  * <li>safepoints</li>
  * <li>runtime exceptions: {@link NullPointerException}, {@link ArithmeticException}, {@link StackOverflowError}</li>
  * <li>de-opt</li>
+ * <li>asynchronous CPU sampling (see {@link AsyncSampleBuffer})</li>
  * </ul>
  * The execution path from an OS signal to the {@linkplain Stubs#trapStub trap stub} is as follows:
  * <ol>
@@ -83,6 +85,7 @@ public abstract class Trap {
         public static final int ASYNC_INTERRUPT = 4;
         public static final int NULL_POINTER_EXCEPTION = 5;
         public static final int SAFEPOINT = 6;
+        public static final int ASYNC_PROFILE = 7;
 
         public static String toExceptionName(int trapNumber) {
             switch (trapNumber) {
@@ -98,6 +101,8 @@ public abstract class Trap {
                     return "NULL_POINTER_EXCEPTION";
                 case SAFEPOINT:
                     return "SAFEPOINT";
+                case ASYNC_PROFILE:
+                    return "ASYNC_PROFILE";
                 default:
                     return "unknown";
             }
@@ -207,6 +212,11 @@ public abstract class Trap {
             return;
         }
 
+        if (trapNumber == ASYNC_PROFILE) {
+            AsyncSampleBuffer.sample(trapFrame);
+            return;
+        }
+
         final TrapFrameAccess tfa = vm().trapFrameAccess;
         final Pointer pc = tfa.getPC(trapFrame);
         final Object origin = checkTrapOrigin(trapNumber, trapFrame, faultAddress, pc);
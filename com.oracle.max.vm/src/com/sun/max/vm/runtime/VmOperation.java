@@ -31,6 +31,7 @@ import com.sun.max.unsafe.Pointer.*;
 import com.sun.max.vm.*;
 import com.sun.max.vm.actor.holder.*;
 import com.sun.max.vm.heap.*;
+import com.sun.max.vm.management.*;
 import com.sun.max.vm.object.*;
 import com.sun.max.vm.reference.*;
 import com.sun.max.vm.stack.*;
@@ -549,6 +550,7 @@ public class VmOperation {
 
                 tracePhase("-- Begin --");
 
+                final long syncStart = System.nanoTime();
                 freeze();
 
                 // Ensures updates to safepoint-related control variables are visible to all threads
@@ -556,6 +558,7 @@ public class VmOperation {
                 MemoryBarriers.barrier(MemoryBarriers.STORE_LOAD);
 
                 waitUntilFrozen();
+                final long syncEnd = System.nanoTime();
 
                 boolean oldAtSafepoint = atSafepoint;
                 try {
@@ -580,6 +583,12 @@ public class VmOperation {
 
                 thaw();
 
+                if (singleThread == null) {
+                    PerfMemory.SAFEPOINTS.increment();
+                    PerfMemory.SAFEPOINT_SYNC_TIME.add(syncEnd - syncStart);
+                    PerfMemory.SAFEPOINT_TIME.add(System.nanoTime() - syncEnd);
+                }
+
                 tracePhase("-- End --");
             }
 
@@ -803,6 +812,52 @@ public class VmOperation {
         }
     }
 
+    /**
+     * Prepares the stack reference map of the current thread, which is stopping at a safepoint, from its trap
+     * frame. An operation that scans stack roots calls this from {@link #doAtSafepointBeforeBlocking(Pointer)},
+     * then {@link #completeStackReferenceMap(VmThread)} from {@link #doAfterFrozen(VmThread)} and
+     * {@link #clearStackReferenceMap(VmThread)} from {@link #doBeforeThawingThread(VmThread)}.
+     *
+     * @param trapFrame a pointer to the trap frame
+     */
+    protected static void prepareStackReferenceMapFromTrap(Pointer trapFrame) {
+        VmThreadLocal.prepareStackReferenceMapFromTrap(SafepointPoll.getLatchRegister(), trapFrame);
+    }
+
+    /**
+     * Completes the stack reference map of a frozen thread. A thread that stopped at a safepoint in Java code has
+     * prepared most of its map with {@link #prepareStackReferenceMapFromTrap(Pointer)}; what remains is the part
+     * of the stack between its trap stub frame and the frame of the JNI stub that blocks on
+     * {@link VmThreadMap#THREAD_LOCK}. A thread that was in native code gets its whole map prepared here.
+     *
+     * @param thread a frozen thread
+     * @return the time taken to prepare the map
+     */
+    protected static long completeStackReferenceMap(VmThread thread) {
+        final Pointer tla = thread.tla();
+        if (LOWEST_ACTIVE_STACK_SLOT_ADDRESS.load(tla).isZero()) {
+            if (TraceVmOperations) {
+                Log.print("Building full stack reference map for ");
+                Log.printThread(thread, true);
+            }
+            return VmThreadLocal.prepareStackReferenceMap(tla);
+        }
+        if (TraceVmOperations) {
+            Log.print("Building partial stack reference map for ");
+            Log.printThread(thread, true);
+        }
+        final StackReferenceMapPreparer stackReferenceMapPreparer = thread.stackReferenceMapPreparer();
+        stackReferenceMapPreparer.completeStackReferenceMap(tla);
+        return stackReferenceMapPreparer.preparationTime();
+    }
+
+    /**
+     * Marks the stack reference map of a thread about to be thawed as unprepared.
+     */
+    protected static void clearStackReferenceMap(VmThread thread) {
+        LOWEST_ACTIVE_STACK_SLOT_ADDRESS.store3(thread.tla(), Address.zero());
+    }
+
     /**
      * Called just before a mutator thread is thawed by the VM operation thread.
      * Subclasses can use this to perform extra actions
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.stack;
+
+import static com.sun.max.vm.thread.VmThreadLocal.*;
+
+import com.sun.max.unsafe.*;
+import com.sun.max.vm.code.*;
+import com.sun.max.vm.compiler.target.*;
+import com.sun.max.vm.thread.*;
+
+/**
+ * A stack walker that samples the current thread's stack from an arbitrary instruction, as done by the
+ * asynchronous CPU sampler. At such an instruction the top frame may not be fully established, so every
+ * read is confined to the stack between the sampled stack pointer and the end of the stack, and the walk
+ * stops at the first frame it cannot follow.
+ */
+public final class AsyncStackFrameWalker extends StackFrameWalker {
+
+    private final Pointer tla;
+
+    private Address stackLimit;
+
+    private Address stackEnd;
+
+    public AsyncStackFrameWalker(Pointer tla) {
+        super();
+        this.tla = tla;
+    }
+
+    /**
+     * Sets the stack pointer of the sampled frame, below which no memory is read by the next walk.
+     */
+    public void setStackLimit(Pointer sp) {
+        stackLimit = sp;
+        stackEnd = HIGHEST_STACK_SLOT_ADDRESS.load(tla);
+    }
+
+    @Override
+    protected boolean isSampling() {
+        return true;
+    }
+
+    private boolean inStack(Address address, int offset, int size) {
+        final Address a = address.plus(offset);
+        return a.greaterEqual(stackLimit) && a.plus(size).lessEqual(stackEnd);
+    }
+
+    @Override
+    public TargetMethod targetMethodFor(Pointer instructionPointer) {
+        return Code.codePointerToTargetMethod(instructionPointer);
+    }
+
+    @Override
+    public byte readByte(Address address, int offset) {
+        return inStack(address, offset, 1) ? address.asPointer().readByte(offset) : 0;
+    }
+
+    @Override
+    public Word readWord(Address address, int offset) {
+        return inStack(address, offset, Word.size()) ? address.asPointer().readWord(offset) : Address.zero();
+    }
+
+    @Override
+    public int readInt(Address address, int offset) {
+        return inStack(address, offset, 4) ? address.asPointer().readInt(offset) : 0;
+    }
+
+    @Override
+    public Pointer readPointer(VmThreadLocal tl) {
+        Pointer etla = ETLA.load(tla);
+        return tl.load(etla);
+    }
+}
@@ -158,7 +158,9 @@ public abstract class StackFrameWalker {
                 // found target method
                 initialIsInNative = false;
 
-                checkVmEntrypointCaller(calleeTM, tm);
+                if (!checkVmEntrypointCaller(calleeTM, tm)) {
+                    break;
+                }
 
                 // walk the frame
                 if (!walkFrame(current, callee, tm, purpose, context)) {
@@ -182,6 +184,9 @@ public abstract class StackFrameWalker {
                 if (initialIsInNative) {
                     initialIsInNative = false;
                     Pointer anchor = nextNativeStubAnchor();
+                    if (anchor.isZero() && isSampling()) {
+                        break;
+                    }
                     advanceFrameInNative(anchor, purpose);
                 } else {
                     if (calleeTM == null) {
@@ -209,6 +214,9 @@ public abstract class StackFrameWalker {
                         if (!advanceVmEntryPointFrame(calleeTM)) {
                             break;
                         }
+                    } else if (isSampling()) {
+                        // The sampled instruction left the stack in a state this walk cannot follow
+                        break;
                     } else if (lastJavaCalleeMethodActor == null) {
                         FatalError.unexpected("Unrecognized target method without a class method actor!");
                     } else {
@@ -296,10 +304,13 @@ public abstract class StackFrameWalker {
         }
     }
 
-    private void checkVmEntrypointCaller(TargetMethod lastJavaCallee, final TargetMethod targetMethod) {
+    private boolean checkVmEntrypointCaller(TargetMethod lastJavaCallee, final TargetMethod targetMethod) {
         if (lastJavaCallee != null && lastJavaCallee.classMethodActor() != null) {
             final ClassMethodActor classMethodActor = lastJavaCallee.classMethodActor();
             if (classMethodActor.isVmEntryPoint()) {
+                if (isSampling()) {
+                    return false;
+                }
                 Log.print("Caller of VM entry point (@VM_ENTRY_POINT annotated method) \"");
                 Log.print(lastJavaCallee.regionName());
                 Log.print("\" is not native code: ");
@@ -310,6 +321,7 @@ public abstract class StackFrameWalker {
                 FatalError.unexpected("Caller of a VM entry point (@VM_ENTRY_POINT method) must be native code");
             }
         }
+        return true;
     }
 
     /**
@@ -329,8 +341,13 @@ public abstract class StackFrameWalker {
             final Word lastJavaCallerStackPointer = readWord(anchor, JavaFrameAnchor.SP.offset);
             final Word lastJavaCallerFramePointer = readWord(anchor, JavaFrameAnchor.FP.offset);
 
+            final CodePointer nativeFunctionCall = checkNativeFunctionCall(CodePointer.from(lastJavaCallerInstructionPointer), !isSampling());
+            if (nativeFunctionCall.isZero()) {
+                return false;
+            }
+
             boolean wasDisabled = SafepointPoll.disable();
-            advance(checkNativeFunctionCall(CodePointer.from(lastJavaCallerInstructionPointer), true).toPointer(), lastJavaCallerStackPointer, lastJavaCallerFramePointer);
+            advance(nativeFunctionCall.toPointer(), lastJavaCallerStackPointer, lastJavaCallerFramePointer);
             if (!wasDisabled) {
                 SafepointPoll.enable();
             }
@@ -387,6 +404,9 @@ public abstract class StackFrameWalker {
 
         pc = readWord(currentAnchor, JavaFrameAnchor.PC.offset).asPointer();
         if (pc.isZero()) {
+            if (isSampling()) {
+                return Pointer.zero();
+            }
             // Java frame anchors should always alternate between VM entry and exit frames.
             FatalError.unexpected("Found two adjacent VM entry point frame anchors");
         }
@@ -606,6 +626,14 @@ public abstract class StackFrameWalker {
         current.advance(tm, pos, ip, sp.asPointer(), fp.asPointer());
     }
 
+    /**
+     * Determines if this walker samples a stack from an arbitrary instruction rather than from a safepoint or a
+     * native call. Such a walk stops at the first frame it cannot follow instead of raising a fatal error.
+     */
+    protected boolean isSampling() {
+        return false;
+    }
+
     public abstract TargetMethod targetMethodFor(Pointer instructionPointer);
 
     public abstract Word readWord(Address address, int offset);
@@ -31,6 +31,7 @@ import static com.sun.max.vm.type.ClassRegistry.*;
 
 import java.lang.Thread.*;
 import java.security.*;
+import java.util.concurrent.locks.*;
 
 import com.sun.max.annotate.*;
 import com.sun.max.atomic.*;
@@ -50,6 +51,7 @@ import com.sun.max.vm.jni.*;
 import com.sun.max.vm.log.*;
 import com.sun.max.vm.monitor.modal.sync.*;
 import com.sun.max.vm.object.*;
+import com.sun.max.vm.profilers.sampling.*;
 import com.sun.max.vm.reference.*;
 import com.sun.max.vm.runtime.*;
 import com.sun.max.vm.stack.*;
@@ -94,8 +96,14 @@ import sun.misc.*;
 public class VmThread {
 
     static boolean TraceThreads;
+
+    /**
+     * Number of times {@link #park(boolean, long)} polls for a permit before blocking.
+     */
+    static int ParkSpins = 64;
     static {
         VMOptions.addFieldOption("-XX:", "TraceThreads",  VmThread.class, "Trace thread start-up and shutdown.", MaxineVM.Phase.PRISTINE);
+        VMOptions.addFieldOption("-XX:", "ParkSpins",  VmThread.class, "Number of times a parking thread polls for a permit before blocking.", MaxineVM.Phase.PRISTINE);
     }
 
     private static final Size DEFAULT_STACK_SIZE = Size.K.times(256);
@@ -233,7 +241,6 @@ public class VmThread {
     private volatile boolean interrupted = false;
     private Throwable terminationCause;
     private int id;
-    private int parkState;
     /**
      * Guaranteed unique for the lifetime of the VM.
      */
@@ -273,6 +280,12 @@ public class VmThread {
     @CONSTANT_WHEN_NOT_ZERO
     private VmStackFrameWalker samplingProfilerStackFrameWalker;
 
+    /**
+     * The buffer into which {@link AsyncSampleBuffer#sample} records this thread's stack while it is being sampled by
+     * the asynchronous {@link CPUSamplingProfiler}, otherwise {@code null}.
+     */
+    public AsyncSampleBuffer asyncSampleBuffer;
+
     private final StackReferenceMapPreparer stackReferenceMapPreparer = new StackReferenceMapPreparer(true, true);
 
     private final StackReferenceMapPreparer stackReferenceMapVerifier = new StackReferenceMapPreparer(true, false);
@@ -283,6 +296,30 @@ public class VmThread {
 
     private ConditionVariable waitingCondition = ConditionVariableFactory.create();
 
+    /**
+     * Determines if the time threads spend blocked and waiting is measured, in addition to being counted.
+     */
+    private static volatile boolean contentionTiming;
+
+    /*
+     * Contention statistics reported through ThreadMXBean. They are only updated by this thread.
+     */
+    private long blockedCount;
+    private long blockedNanos;
+    private long waitedCount;
+    private long waitedNanos;
+    private long contentionStart;
+
+    /**
+     * The object this thread is blocked or waiting on, if any.
+     */
+    private volatile Object contendedObject;
+
+    /**
+     * The monitor this thread is blocked entering, if any.
+     */
+    private volatile JavaMonitor contendedMonitor;
+
     public final HeapScheme.GCRequest gcRequest = VMConfiguration.vmConfig().heapScheme().createThreadLocalGCRequest(this);
 
     /**
@@ -290,6 +327,11 @@ public class VmThread {
      */
     public final OSMonitor.SuspendMonitor suspendMonitor = new OSMonitor.SuspendMonitor();
 
+    /**
+     * The parker used to implement {@link Unsafe#park(boolean, long)} and {@link Unsafe#unpark(Object)} for this thread.
+     */
+    private final OSMonitor.Parker parker = new OSMonitor.Parker();
+
     /**
      * Marks this as a JVMTI agent thread. These are not visible to calls like {@link Thread#getThreads}.
      */
@@ -505,6 +547,7 @@ public class VmThread {
                 vmConfig().runScheme().run();
             } else {
                 VMTI.handler().threadStart(vmThread);
+                CPUSamplingProfiler.threadStarted(vmThread);
                 vmThread.javaThread.run();
             }
         } finally {
@@ -650,6 +693,7 @@ public class VmThread {
 
             // The main thread manages to avoid the normal runtime mechanism that sets this value
             thread.suspendMonitor.init();
+            thread.parker.init();
 
             // Initialize VMTI agents
             VMTI.handler().initialize();
@@ -692,6 +736,7 @@ public class VmThread {
         }
         // inform any VMTI handlers
         VMTI.handler().threadEnd(thread);
+        CPUSamplingProfiler.threadTerminated(thread);
         // possibly flush the log
         VMLog.vmLog().flush(VMLog.FLUSHMODE_EXIT, thread);
 
@@ -747,6 +792,7 @@ public class VmThread {
                 group = mainThread.javaThread.getThreadGroup();
             }
             JDK_java_lang_Thread.createThreadForAttach(thread, name, group, daemon);
+            thread.parker.init();
 
             thread.initializationComplete();
 
@@ -814,6 +860,7 @@ public class VmThread {
             // reset to RUNNABLE if it blocks here.
             VmThreadMap.ACTIVE.removeThreadLocals(thread);
         }
+        VMLog.vmLog().threadTerminating();
         if (MaxineVM.isDebug()) {
             detached();
         }
@@ -823,6 +870,7 @@ public class VmThread {
         thread.id = -1;
         thread.waitingCondition = null;
         thread.suspendMonitor.destroy();
+        thread.parker.destroy();
 
         JniFunctions.epilogue(anchor);
     }
@@ -1067,6 +1115,114 @@ public class VmThread {
         this.state = state;
     }
 
+    public static boolean isContentionTimingEnabled() {
+        return contentionTiming;
+    }
+
+    /**
+     * Enables or disables measuring the time threads spend blocked and waiting.
+     * The number of times they block or wait is always counted.
+     */
+    public static void setContentionTimingEnabled(boolean enable) {
+        contentionTiming = enable;
+    }
+
+    /**
+     * Records that this thread is about to block entering the contended monitor of an object.
+     * Must only be called by this thread, and must be paired with a call to {@link #endBlocked()}.
+     */
+    public final void beginBlocked(JavaMonitor monitor, Object object) {
+        blockedCount++;
+        contendedMonitor = monitor;
+        contendedObject = object;
+        if (contentionTiming) {
+            contentionStart = System.nanoTime();
+        }
+    }
+
+    public final void endBlocked() {
+        contendedMonitor = null;
+        contendedObject = null;
+        if (contentionStart != 0L) {
+            blockedNanos += System.nanoTime() - contentionStart;
+            contentionStart = 0L;
+        }
+    }
+
+    /**
+     * Records that this thread is about to wait on an object, or to park with an object as blocker.
+     * Must only be called by this thread, and must be paired with a call to {@link #endWaiting()}.
+     *
+     * @param object the object waited on, which may be {@code null} for a park without a blocker
+     */
+    public final void beginWaiting(Object object) {
+        waitedCount++;
+        contendedObject = object;
+        if (contentionTiming) {
+            contentionStart = System.nanoTime();
+        }
+    }
+
+    public final void endWaiting() {
+        contendedObject = null;
+        if (contentionStart != 0L) {
+            waitedNanos += System.nanoTime() - contentionStart;
+            contentionStart = 0L;
+        }
+    }
+
+    public final long blockedCount() {
+        return blockedCount;
+    }
+
+    /**
+     * Gets the total time in nanoseconds this thread has been blocked while {@linkplain #isContentionTimingEnabled() measured}.
+     */
+    public final long blockedTime() {
+        return blockedNanos;
+    }
+
+    public final long waitedCount() {
+        return waitedCount;
+    }
+
+    /**
+     * Gets the total time in nanoseconds this thread has waited while {@linkplain #isContentionTimingEnabled() measured}.
+     */
+    public final long waitedTime() {
+        return waitedNanos;
+    }
+
+    /**
+     * Gets the object this thread is currently blocked or waiting on, or {@code null} if there is none.
+     */
+    public final Object contendedObject() {
+        return contendedObject;
+    }
+
+    /**
+     * Gets the owner of the monitor this thread is currently blocked entering, or {@code null} if there is none.
+     */
+    public final VmThread contendedMonitorOwner() {
+        final JavaMonitor monitor = contendedMonitor;
+        return monitor == null ? null : monitor.ownerThread();
+    }
+
+    /**
+     * Resets the contention counts and/or times of this thread. This is racy with respect to
+     * this thread updating them, which is acceptable for statistics.
+     */
+    public final void resetContentionStatistics(boolean counts, boolean times) {
+        if (counts) {
+            blockedCount = 0L;
+            waitedCount = 0L;
+        }
+        if (times) {
+            blockedNanos = 0L;
+            waitedNanos = 0L;
+        }
+    }
+
     public final Thread javaThread() {
         return javaThread;
     }
@@ -1372,6 +1528,7 @@ public class VmThread {
         state = Thread.State.RUNNABLE;
         Thread_vmThread.setObject(javaThread, this);
         suspendMonitor.init();
+        parker.init();
         VmThreadMap.ACTIVE.startThread(this, STACK_SIZE_OPTION.getValue().alignUp(platform().pageSize).asSize(), javaThread.getPriority());
     }
 
@@ -1425,11 +1582,8 @@ public class VmThread {
         // native thread if an InterruptedException is thrown after the
         // interruption.
         interrupted = true;
-        if (Platform.platform().os == OS.DARWIN || Platform.platform().os == OS.LINUX) {
-            boolean isInterrupted = interrupt0ByUnparking();
-            if (isInterrupted) {
-                return;
-            }
+        if (parker.unpark()) {
+            return;
         }
 
         if (!nativeThread.isZero()) {
@@ -1495,63 +1649,46 @@ public class VmThread {
     }
 
     /**
-     * This method parks the current thread according to the semantics of {@link Unsafe#park(boolean, long)}.
-     * @throws InterruptedException
+     * Parks the current thread according to the semantics of {@link Unsafe#park(boolean, long)}.
+     * An available permit is consumed without calling native code. Otherwise the thread polls for a permit
+     * {@link #ParkSpins} times before blocking on its {@linkplain OSMonitor.Parker parker}.
+     *
+     * @param isAbsolute specifies if {@code time} is an absolute deadline in milliseconds since the epoch or
+     *            a relative timeout in nanoseconds, where {@code 0} means no timeout
+     * @param time the deadline or timeout
      */
-    public final void park() throws InterruptedException {
-        synchronized (this) {
-            if (parkState == 1) {
-                parkState = 0;
-            } else {
-                parkState = 2;
-                wait();
-            }
+    public final void park(boolean isAbsolute, long time) {
+        if (!parker.isInitialized()) {
+            parker.init();
         }
-    }
-
-    /**
-     * This method parks the current thread according to the semantics of {@link Unsafe#park(boolean, long)}.
-     * @throws InterruptedException
-     */
-    public final void park(long wait) throws InterruptedException {
-        synchronized (this) {
-            if (parkState == 1) {
-                parkState = 0;
-            } else {
-                parkState = 2;
-                wait(wait / 1000000, (int) (wait % 1000000));
+        if (parker.tryConsumePermit()) {
+            return;
+        }
+        if (interrupted || time < 0 || (isAbsolute && time == 0)) {
+            return;
+        }
+        for (int i = 0; i < ParkSpins; i++) {
+            Intrinsics.pause();
+            if (parker.tryConsumePermit()) {
+                return;
             }
         }
+        if (interrupted) {
+            return;
+        }
+        final Thread.State oldState = state;
+        setState(isAbsolute || time > 0L ? Thread.State.TIMED_WAITING : Thread.State.WAITING);
+        beginWaiting(LockSupport.getBlocker(javaThread));
+        parker.park(isAbsolute, time);
+        endWaiting();
+        setState(oldState);
     }
 
     /**
-     * This method unparks the current thread according to the semantics of {@link Unsafe#unpark(Object)}.
+     * Unparks this thread according to the semantics of {@link Unsafe#unpark(Object)}.
      */
     public final void unpark() {
-        synchronized (this) {
-            if (parkState == 2) {
-                parkState = 1;
-                notifyAll();
-            } else {
-                parkState = 1;
-            }
-        }
-    }
-
-    /**
-     * This method interrupts thread by unparking if it is parked.
-     *
-     * @returns true if successfull, false otherwise.
-     */
-    public final boolean interrupt0ByUnparking() {
-        synchronized (this) {
-            if (parkState == 2) {
-                parkState = 1;
-                notifyAll();
-                return true;
-            }
-            return false;
-        }
+        parker.unpark();
     }
 
     public final void pushPrivilegedElement(ClassActor classActor, long frameId, AccessControlContext context) {
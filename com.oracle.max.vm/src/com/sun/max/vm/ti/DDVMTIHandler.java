@@ -139,6 +139,12 @@ public class DDVMTIHandler implements VMTIHandler {
         eventHandler2.endGC();
     }
 
+    @Override
+    public void objectSampled(Object object) {
+        eventHandler1.objectSampled(object);
+        eventHandler2.objectSampled(object);
+    }
+
     @Override
     public boolean nativeCallNeedsPrologueAndEpilogue(MethodActor ma) {
         return eventHandler1.nativeCallNeedsPrologueAndEpilogue(ma) || eventHandler2.nativeCallNeedsPrologueAndEpilogue(ma);
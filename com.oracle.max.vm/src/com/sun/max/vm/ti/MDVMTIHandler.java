@@ -163,6 +163,13 @@ class MDVMTIHandler implements VMTIHandler {
         }
     }
 
+    @Override
+    public void objectSampled(Object object) {
+        for (int i = 0; i < eventHandlers.length; i++) {
+            eventHandlers[i].objectSampled(object);
+        }
+    }
+
     @Override
     public boolean nativeCallNeedsPrologueAndEpilogue(MethodActor ma) {
         for (int i = 0; i < eventHandlers.length; i++) {
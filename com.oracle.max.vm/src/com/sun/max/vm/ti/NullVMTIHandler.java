@@ -88,6 +88,10 @@ public class NullVMTIHandler implements VMTIHandler {
     public void endGC() {
     }
 
+    @Override
+    public void objectSampled(Object object) {
+    }
+
     @Override
     public boolean nativeCallNeedsPrologueAndEpilogue(MethodActor ma) {
         return false;
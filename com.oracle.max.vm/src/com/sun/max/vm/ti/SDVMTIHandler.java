@@ -114,6 +114,11 @@ class SDVMTIHandler implements VMTIHandler {
         eventHandler.endGC();
     }
 
+    @Override
+    public void objectSampled(Object object) {
+        eventHandler.objectSampled(object);
+    }
+
     @Override
     public boolean nativeCallNeedsPrologueAndEpilogue(MethodActor ma) {
         return eventHandler.nativeCallNeedsPrologueAndEpilogue(ma);
@@ -130,6 +130,12 @@ public interface VMTIHandler {
      */
     void endGC();
 
+    /**
+     * An object allocated by the current thread was picked by the {@linkplain com.sun.max.vm.heap.AllocationSampler allocation sampler}.
+     * @param object the sampled object
+     */
+    void objectSampled(Object object);
+
     /**
      * An exception is being raised.
      * @param throwable the {@link Throwable} being raised
@@ -47,6 +47,7 @@ import com.sun.max.vm.compiler.deps.*;
 import com.sun.max.vm.hosted.*;
 import com.sun.max.vm.log.VMLog.*;
 import com.sun.max.vm.log.hosted.*;
+import com.sun.max.vm.management.*;
 import com.sun.max.vm.reference.*;
 import com.sun.max.vm.reflection.*;
 import com.sun.max.vm.runtime.*;
@@ -278,6 +279,7 @@ public final class ClassRegistry {
             return existingClassActor;
         }
         loadCount++;
+        PerfMemory.LOADED_CLASSES.increment();
 
         // Add to class hierarchy, initialize vtables, and do possible deoptimizations.
         DependenciesManager.addToHierarchy(classActor);
@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.sun.max.vm.verifier;
+
+import java.io.*;
+import java.security.*;
+import java.util.*;
+
+import sun.misc.Launcher;
+
+import com.sun.max.vm.*;
+import com.sun.max.vm.actor.holder.*;
+import com.sun.max.vm.classfile.*;
+
+/**
+ * A cache of the classes that passed verification, kept in a file across runs so that unchanged classes are not
+ * verified again at every startup. A class is identified by the SHA-1 digest of its class file bytes.
+ * <p>
+ * Verification of a class depends on the classes it refers to, so the cache is only valid for the class path it was
+ * built with. The file records a fingerprint of the class path (the path, size and modification time of every entry)
+ * and of the Java home. A cache whose fingerprint does not match is discarded and rebuilt. The size and modification
+ * time of a directory do not change when a class file in it does, so the cache is not used at all if the class path
+ * has a directory entry.
+ * <p>
+ * Only classes whose version is greater than 50 are cached. They can only be verified by type checking, which leaves
+ * their code unchanged. Older classes may have their subroutines inlined by the type inferencing verifier, so that
+ * verifier has to run again on every load. Only classes defined by the application class loader are cached: the
+ * classes that other loaders resolve a class against are not covered by the fingerprint.
+ * <p>
+ * New entries are written back to the file when the VM shuts down.
+ */
+public final class VerificationCache {
+
+    /**
+     * The file holding the cache; {@code null} if there is no cache.
+     */
+    private static String VerificationCacheFile;
+    static {
+        VMOptions.addFieldOption("-XX:", "VerificationCacheFile", VerificationCache.class,
+            "File in which to cache the classes that passed verification, to skip verifying them again in later runs.");
+    }
+
+    private static final int MAGIC = 0x4D564331; // "MVC1"
+
+    private static final int DIGEST_LENGTH = 20;
+
+    private VerificationCache() {
+    }
+
+    /**
+     * Wraps a digest so that it can be used as a hash key.
+     */
+    private static final class Digest {
+        final byte[] bytes;
+        final int hash;
+
+        Digest(byte[] bytes) {
+            this.bytes = bytes;
+            this.hash = Arrays.hashCode(bytes);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Digest && Arrays.equals(bytes, ((Digest) other).bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static boolean opened;
+    private static boolean usable;
+    private static boolean dirty;
+    private static String fingerprint;
+    private static final Set<Digest> verified = new HashSet<Digest>();
+
+    /**
+     * The digests of the classes that were defined but not verified yet.
+     */
+    private static final Map<ClassActor, Digest> pending = new WeakHashMap<ClassActor, Digest>();
+
+    private static int hits;
+    private static int misses;
+
+    /**
+     * Gets the number of classes whose verification was skipped because the cache proved them.
+     */
+    public static synchronized int hits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of classes that had to be verified because the cache did not know them.
+     */
+    public static synchronized int misses() {
+        return misses;
+    }
+
+    private static boolean isCacheable(ClassActor classActor) {
+        return VerificationCacheFile != null && classActor.majorVersion > 50 && classActor.classLoader == Launcher.getLauncher().getClassLoader();
+    }
+
+    /**
+     * Records the class file bytes a class was defined from, which identify the class in the cache.
+     */
+    public static void defined(ClassActor classActor, byte[] bytes, int offset, int length) {
+        if (!MaxineVM.isRunning() || !isCacheable(classActor) || !ClassVerifier.shouldBeVerified(classActor.classLoader, classActor.isRemote())) {
+            return;
+        }
+        final MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            return;
+        }
+        messageDigest.update(bytes, offset, length);
+        final Digest digest = new Digest(messageDigest.digest());
+        synchronized (VerificationCache.class) {
+            pending.put(classActor, digest);
+        }
+    }
+
+    /**
+     * Determines if a class was proven by an earlier verification and can skip verification.
+     */
+    public static synchronized boolean isVerified(ClassActor classActor) {
+        if (!isCacheable(classActor)) {
+            return false;
+        }
+        final Digest digest = pending.get(classActor);
+        if (digest == null) {
+            return false;
+        }
+        open();
+        if (!usable) {
+            pending.remove(classActor);
+            return false;
+        }
+        if (verified.contains(digest)) {
+            pending.remove(classActor);
+            hits++;
+            return true;
+        }
+        misses++;
+        return false;
+    }
+
+    /**
+     * Records that a class passed verification.
+     */
+    public static synchronized void verified(ClassActor classActor) {
+        if (!isCacheable(classActor)) {
+            return;
+        }
+        final Digest digest = pending.remove(classActor);
+        if (digest != null && usable && verified.add(digest)) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Reads the cache file on first use and arranges for new entries to be written back at shutdown.
+     */
+    private static void open() {
+        if (opened) {
+            return;
+        }
+        opened = true;
+        final String classPath = System.getProperty("java.class.path");
+        if (classPath != null) {
+            for (String entry : classPath.split(File.pathSeparator)) {
+                if (new File(entry).isDirectory()) {
+                    return;
+                }
+            }
+        }
+        usable = true;
+        fingerprint = ClassDataArchive.classPathFingerprint();
+        final File file = new File(VerificationCacheFile);
+        if (file.exists()) {
+            try {
+                final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+                try {
+                    if (in.readInt() == MAGIC && in.readUTF().equals(fingerprint)) {
+                        final int count = in.readInt();
+                        for (int i = 0; i < count; i++) {
+                            final byte[] bytes = new byte[DIGEST_LENGTH];
+                            in.readFully(bytes);
+                            verified.add(new Digest(bytes));
+                        }
+                    } else {
+                        // Built for another class path: start afresh
+                        dirty = true;
+                    }
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                Log.println("WARNING: could not read verification cache " + VerificationCacheFile + ": " + e);
+                verified.clear();
+            }
+        }
+        try {
+            Runtime.getRuntime().addShutdownHook(new Thread("VerificationCacheWriter") {
+                @Override
+                public void run() {
+                    save();
+                }
+            });
+        } catch (IllegalStateException e) {
+            // Already shutting down: the new entries are lost
+        }
+    }
+
+    private static synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        try {
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(VerificationCacheFile)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeUTF(fingerprint);
+                out.writeInt(verified.size());
+                for (Digest digest : verified) {
+                    out.write(digest.bytes);
+                }
+            } finally {
+                out.close();
+            }
+            dirty = false;
+        } catch (IOException e) {
+            Log.println("WARNING: could not write verification cache " + VerificationCacheFile + ": " + e);
+        }
+    }
+}
@@ -134,7 +134,7 @@ public class ConvertLog {
             for (File inFile : inFiles) {
                 BufferedReader r = null;
                 try {
-                    r = new BufferedReader(new FileReader(inFile));
+                    r = VMABinaryStoreReader.openStore(inFile);
                     boolean checked = false;
                     while (true) {
                         final String line = r.readLine();
@@ -531,7 +531,7 @@ public class ConvertLog {
 
             FileInfo(File file) throws IOException {
                 this.file = file;
-                this.reader = new BufferedReader(new FileReader(file));
+                this.reader = VMABinaryStoreReader.openStore(file);
                 line = reader.readLine();
                 checkStoreHeader(line);
             }
@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2018, APT Group, School of Computer Science,
+ * The University of Manchester. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package com.oracle.max.vma.tools.log;
+
+import static com.oracle.max.vm.ext.vma.store.bin.VMABinaryStoreFormat.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+import com.oracle.max.vm.ext.vma.store.bin.*;
+import com.oracle.max.vm.ext.vma.store.txt.*;
+
+/**
+ * Reads a store in the {@link VMABinaryStoreFormat binary format}, returning each record as the array of components that
+ * {@link ConvertLog#split} returns for the equivalent text line.
+ *
+ * The blocks are indexed when the reader is opened and are then memory-mapped and decoded in parallel by a pool of
+ * threads, the size of which can be set with the {@link #THREADS_PROPERTY} system property, while the records are
+ * delivered in file order. At most two blocks per thread are decoded ahead of the consumer.
+ *
+ * The {@link #asReader} method provides a view of the store as text, for tools that process lines.
+ */
+public class VMABinaryStoreReader {
+
+    public static final String THREADS_PROPERTY = "max.vma.store.bin.threads";
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static class Block {
+        final long position;
+        final int rawLength;
+        final int storedLength;
+        final boolean compressed;
+
+        Block(long position, int rawLength, int storedLength, boolean compressed) {
+            this.position = position;
+            this.rawLength = rawLength;
+            this.storedLength = storedLength;
+            this.compressed = compressed;
+        }
+    }
+
+    private final File file;
+    private final FileChannel channel;
+    private final ArrayList<Block> blocks = new ArrayList<Block>();
+    private final ExecutorService executor;
+    private final ArrayDeque<Future<String[][]>> decoding = new ArrayDeque<Future<String[][]>>();
+    private final int window;
+    private int nextBlock;
+    private String[][] records;
+    private int recordIndex;
+
+    public VMABinaryStoreReader(File file) throws IOException {
+        this.file = file;
+        channel = new RandomAccessFile(file, "r").getChannel();
+        indexBlocks();
+        final String threadsProperty = System.getProperty(THREADS_PROPERTY);
+        final int threads = threadsProperty != null ? Integer.parseInt(threadsProperty) : Runtime.getRuntime().availableProcessors();
+        executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "VMABinaryStoreReader");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        window = 2 * threads;
+        while (decoding.size() < window && submitNext()) {
+        }
+    }
+
+    private void indexBlocks() throws IOException {
+        final long size = channel.size();
+        final ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+        readFully(header, 0, 8);
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException(file + " is not a binary VMA store");
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new IOException(file + " has unsupported version " + header.getInt(4));
+        }
+        long position = 8;
+        while (position + BLOCK_HEADER_SIZE <= size) {
+            readFully(header, position, BLOCK_HEADER_SIZE);
+            final Block block = new Block(position + BLOCK_HEADER_SIZE, header.getInt(0), header.getInt(4), header.get(8) != 0);
+            if (block.position + block.storedLength > size) {
+                // truncated, e.g. the VM did not terminate normally
+                System.err.println(file + ": ignoring truncated block at " + position);
+                break;
+            }
+            blocks.add(block);
+            position = block.position + block.storedLength;
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position, int length) throws IOException {
+        buffer.clear();
+        buffer.limit(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException(file.getPath());
+            }
+        }
+    }
+
+    private boolean submitNext() {
+        if (nextBlock == blocks.size()) {
+            return false;
+        }
+        final Block block = blocks.get(nextBlock++);
+        decoding.add(executor.submit(new Callable<String[][]>() {
+            public String[][] call() throws Exception {
+                return decode(channel.map(FileChannel.MapMode.READ_ONLY, block.position, block.storedLength), block);
+            }
+        }));
+        return true;
+    }
+
+    /**
+     * Returns the next record or {@code null} at the end of the store.
+     */
+    public String[] readRecord() throws IOException {
+        while (records == null || recordIndex == records.length) {
+            if (decoding.isEmpty()) {
+                return null;
+            }
+            try {
+                records = decoding.remove().get();
+            } catch (InterruptedException ex) {
+                throw new InterruptedIOException();
+            } catch (ExecutionException ex) {
+                throw new IOException(file + ": failed to decode block", ex.getCause());
+            }
+            recordIndex = 0;
+            submitNext();
+        }
+        return records[recordIndex++];
+    }
+
+    public void close() throws IOException {
+        executor.shutdownNow();
+        channel.close();
+    }
+
+    private static String[][] decode(ByteBuffer stored, Block block) throws DataFormatException {
+        ByteBuffer buffer = stored;
+        if (block.compressed) {
+            final byte[] compressed = new byte[block.storedLength];
+            stored.get(compressed);
+            final byte[] raw = new byte[block.rawLength];
+            final Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(compressed);
+                int n = 0;
+                while (n < raw.length) {
+                    final int count = inflater.inflate(raw, n, raw.length - n);
+                    if (count == 0 && (inflater.finished() || inflater.needsInput())) {
+                        throw new DataFormatException("short block");
+                    }
+                    n += count;
+                }
+            } finally {
+                inflater.end();
+            }
+            buffer = ByteBuffer.wrap(raw);
+        }
+
+        final ArrayList<String[]> result = new ArrayList<String[]>();
+        final ArrayList<String> parts = new ArrayList<String>();
+        final ArrayList<String> strings = new ArrayList<String>();
+        long lastId = 0;
+        while (buffer.hasRemaining()) {
+            final int b = buffer.get() & 0xFF;
+            long value = (b >>> TAG_BITS) & INLINE_MASK;
+            if ((b & MORE) != 0) {
+                value |= readVarint(buffer) << INLINE_BITS;
+            }
+            switch (b & TAG_MASK) {
+                case END:
+                    result.add(toRecord(parts));
+                    parts.clear();
+                    break;
+                case LONG:
+                    parts.add(Long.toString(unZigZag(value)));
+                    break;
+                case ID:
+                    lastId += unZigZag(value);
+                    parts.add(Long.toString(lastId));
+                    break;
+                case STRING_REF:
+                    parts.add(strings.get((int) value));
+                    break;
+                case STRING_DEF: {
+                    final byte[] bytes = new byte[(int) value];
+                    buffer.get(bytes);
+                    final String s = new String(bytes, UTF8);
+                    strings.add(s);
+                    parts.add(s);
+                    break;
+                }
+                case FLOAT:
+                    parts.add(Float.toString(Float.intBitsToFloat((int) value)));
+                    break;
+                case DOUBLE:
+                    parts.add(Double.toString(Double.longBitsToDouble(buffer.getLong())));
+                    break;
+                default:
+                    throw new DataFormatException("unknown tag " + (b & TAG_MASK));
+            }
+        }
+        return result.toArray(new String[result.size()][]);
+    }
+
+    private static long readVarint(ByteBuffer buffer) {
+        long result = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = buffer.get();
+            result |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return result;
+    }
+
+    private static boolean isThreadDefinition(String[] record) {
+        return record.length == 3 && (record[0].equals(VMATextStoreFormat.Key.THREAD_DEFINITION.code) || record[0].equals(VMATextStoreFormat.Key.THREAD_DEFINITION.text));
+    }
+
+    private static String[] toRecord(ArrayList<String> parts) {
+        final String[] record = parts.toArray(new String[parts.size()]);
+        if (isThreadDefinition(record) && record[1].length() >= 2 && record[1].charAt(0) == '"') {
+            // as ConvertLog.split, which removes the quotes around a thread name
+            record[1] = record[1].substring(1, record[1].length() - 1);
+        }
+        return record;
+    }
+
+    /**
+     * Converts a record to the equivalent line of the text store.
+     */
+    public static String toLine(String[] record) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < record.length; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            if (i == 1 && isThreadDefinition(record)) {
+                sb.append('"').append(record[i]).append('"');
+            } else {
+                sb.append(record[i]);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns a view of the store as the equivalent text store.
+     */
+    public Reader asReader() {
+        return new Reader() {
+            private String line;
+            private int pos;
+
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                if (line == null || pos == line.length()) {
+                    final String[] record = readRecord();
+                    if (record == null) {
+                        return -1;
+                    }
+                    line = toLine(record) + '\n';
+                    pos = 0;
+                }
+                final int n = Math.min(len, line.length() - pos);
+                line.getChars(pos, pos + n, cbuf, off);
+                pos += n;
+                return n;
+            }
+
+            @Override
+            public void close() throws IOException {
+                VMABinaryStoreReader.this.close();
+            }
+        };
+    }
+
+    /**
+     * Opens a store for reading as text, whether it is a text or a binary store.
+     */
+    public static BufferedReader openStore(File file) throws IOException {
+        if (isBinaryStore(file)) {
+            return new BufferedReader(new VMABinaryStoreReader(file).asReader());
+        }
+        return new BufferedReader(new FileReader(file));
+    }
+}
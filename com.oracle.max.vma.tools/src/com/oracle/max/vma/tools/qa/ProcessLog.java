@@ -32,6 +32,7 @@ import java.util.*;
 
 import com.oracle.max.vm.ext.vma.*;
 import com.oracle.max.vm.ext.vma.store.*;
+import com.oracle.max.vm.ext.vma.store.bin.*;
 import com.oracle.max.vm.ext.vma.store.txt.*;
 import com.oracle.max.vma.tools.log.*;
 import com.oracle.max.vma.tools.log.ConvertLog.MergeCommand.PushRecord;
@@ -90,6 +91,34 @@ public class ProcessLog {
         }
     }
 
+    /**
+     * Reads a binary store, whose blocks are decoded in parallel by {@link VMABinaryStoreReader}.
+     */
+    private static class BinaryRecordReader extends RecordReader {
+        private VMABinaryStoreReader reader;
+
+        BinaryRecordReader(VMABinaryStoreReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public String[] readLine() throws IOException {
+            return reader.readRecord();
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    private static RecordReader openRecordReader(File file) throws IOException {
+        if (VMABinaryStoreFormat.isBinaryStore(file)) {
+            return new BinaryRecordReader(new VMABinaryStoreReader(file));
+        }
+        return new BufferedRecordReader(new BufferedReader(new FileReader(file)));
+    }
+
     private static class PushReader extends RecordReader implements PushRecord {
         private static final int LENGTH = 1024;
         private String[][]lineParts = new String[LENGTH][];
@@ -523,7 +552,7 @@ public class ProcessLog {
     }
 
     private RecordReader checkTimeOrdered(File file) throws IOException {
-        BufferedRecordReader reader = new BufferedRecordReader(new BufferedReader(new FileReader(file)));
+        RecordReader reader = openRecordReader(file);
         recordParts = reader.readLine();
         checkStoreHeader();
         reader.close();
@@ -543,7 +572,7 @@ public class ProcessLog {
             }
             file = tempFile;
         }
-        return new BufferedRecordReader(new BufferedReader(new FileReader(file)));
+        return openRecordReader(file);
     }
 
     /**